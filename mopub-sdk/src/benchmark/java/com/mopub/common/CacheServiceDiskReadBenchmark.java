@@ -0,0 +1,144 @@
+package com.mopub.common;
+
+import android.app.Activity;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Micro-benchmark for reading a disk cache hit on the way to a decoder. BitmapFactory is native
+ * and doesn't run on the JVM, so both paths end in the same stand-in decoder that streams through
+ * a small buffer, the way the native decoder reads a file descriptor. What differs is the
+ * staging: a heap copy of the whole entry through getFromDiskCache, versus handing over the open
+ * file through readFromDiskCache.
+ */
+@RunWith(SdkTestRunner.class)
+public class CacheServiceDiskReadBenchmark {
+    private static final int WARM_UP_READS = 20;
+    private static final int MEASURED_READS = 200;
+    private static final int ROUNDS = 3;
+    // Roughly the size of a large main image creative.
+    private static final int VALUE_BYTES = 512 * 1024;
+    // Stand-in for the decoder's own read buffer.
+    private static final int DECODER_BUFFER_BYTES = 16 * 1024;
+    private static final String KEY = "http://www.mopub.com/creative.jpg";
+
+    private final byte[] mDecoderBuffer = new byte[DECODER_BUFFER_BYTES];
+
+    @Before
+    public void setUp() throws Exception {
+        CacheService.clearAndNullCaches();
+        CacheService.initialize(new Activity());
+        final byte[] value = new byte[VALUE_BYTES];
+        new Random(0).nextBytes(value);
+        assertThat(CacheService.putToDiskCache(KEY, value)).isTrue();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        CacheService.clearAndNullCaches();
+    }
+
+    @Test
+    public void diskHit_byteArrayStagingVersusFileDescriptor() throws Exception {
+        runByteArrayReads(WARM_UP_READS);
+        runFileDescriptorReads(WARM_UP_READS);
+
+        // Alternate the two paths and keep the best round of each to damp filesystem noise.
+        Result byteArray = null;
+        Result fileDescriptor = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            byteArray = Result.best(byteArray, runByteArrayReads(MEASURED_READS));
+            fileDescriptor = Result.best(fileDescriptor, runFileDescriptorReads(MEASURED_READS));
+        }
+
+        System.out.println(String.format("Disk hit to decoder, %d KB entry: "
+                        + "byte[] staging=%.1f us (%d KB allocated/hit), "
+                        + "file descriptor=%.1f us (%d KB allocated/hit)",
+                VALUE_BYTES / 1024,
+                byteArray.microsPerRead, byteArray.allocatedBytesPerRead / 1024,
+                fileDescriptor.microsPerRead, fileDescriptor.allocatedBytesPerRead / 1024));
+    }
+
+    private Result runByteArrayReads(final int reads) throws IOException {
+        final long allocatedBefore = getAllocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < reads; i++) {
+            final byte[] bytes = CacheService.getFromDiskCache(KEY);
+            // byteArrayToBitmap decodes the array twice: once for bounds, once for pixels.
+            decode(bytes);
+            decode(bytes);
+        }
+        return new Result(reads, System.nanoTime() - start, getAllocatedBytes() - allocatedBefore);
+    }
+
+    private Result runFileDescriptorReads(final int reads) throws IOException {
+        final long allocatedBefore = getAllocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < reads; i++) {
+            final Long length = CacheService.readFromDiskCache(KEY,
+                    new CacheService.DiskLruCacheFileReader<Long>() {
+                        @Override
+                        public Long read(final FileDescriptor fileDescriptor, final long length)
+                                throws IOException {
+                            // fileDescriptorToBitmap also reads the file twice.
+                            final FileInputStream inputStream = new FileInputStream(fileDescriptor);
+                            final long position = inputStream.getChannel().position();
+                            decode(inputStream);
+                            inputStream.getChannel().position(position);
+                            decode(inputStream);
+                            return length;
+                        }
+                    });
+            assertThat(length).isEqualTo(VALUE_BYTES);
+        }
+        return new Result(reads, System.nanoTime() - start, getAllocatedBytes() - allocatedBefore);
+    }
+
+    private void decode(final byte[] bytes) {
+        for (int offset = 0; offset < bytes.length; offset += DECODER_BUFFER_BYTES) {
+            System.arraycopy(bytes, offset, mDecoderBuffer, 0,
+                    Math.min(DECODER_BUFFER_BYTES, bytes.length - offset));
+        }
+    }
+
+    private void decode(final InputStream inputStream) throws IOException {
+        while (inputStream.read(mDecoderBuffer) != -1) {
+            // keep reading
+        }
+    }
+
+    @SuppressWarnings("restriction")
+    private static long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static class Result {
+        final double microsPerRead;
+        final long allocatedBytesPerRead;
+
+        Result(final int reads, final long elapsedNanos, final long allocatedBytes) {
+            microsPerRead = elapsedNanos / 1e3 / reads;
+            allocatedBytesPerRead = allocatedBytes / reads;
+        }
+
+        static Result best(final Result current, final Result candidate) {
+            return current == null || candidate.microsPerRead < current.microsPerRead
+                    ? candidate : current;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.mopub.common;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Micro-benchmarks for {@link DiskLruCache} that run on the JVM.
+ */
+public class DiskLruCacheBenchmark {
+    private static final int WARM_UP_PUTS = 200;
+    private static final int MEASURED_PUTS = 1000;
+    private static final int ROUNDS = 3;
+    // Roughly the size of a native ad icon.
+    private static final int VALUE_BYTES = 4 * 1024;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void put_groupCommitVersusFlushPerEdit() throws Exception {
+        final byte[] value = new byte[VALUE_BYTES];
+        new Random(0).nextBytes(value);
+
+        // Mirror what CacheService.putToDiskCache did before group commit: flush, then commit.
+        runPuts("warm-up-flush-per-edit", 0, true, WARM_UP_PUTS, value);
+        runPuts("warm-up-group-commit", 500, false, WARM_UP_PUTS, value);
+
+        // Alternate the two modes and keep the best round of each to damp filesystem noise.
+        double flushPerEdit = 0;
+        double groupCommit = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            flushPerEdit = Math.max(flushPerEdit,
+                    runPuts("flush-per-edit-" + round, 0, true, MEASURED_PUTS, value));
+            groupCommit = Math.max(groupCommit,
+                    runPuts("group-commit-" + round, 500, false, MEASURED_PUTS, value));
+        }
+
+        System.out.println(String.format("DiskLruCache puts/sec: flush-per-edit=%.0f, "
+                + "group-commit=%.0f (%.2fx)", flushPerEdit, groupCommit, groupCommit / flushPerEdit));
+    }
+
+    private double runPuts(final String name,
+            final long groupCommitDelayMillis,
+            final boolean flushBeforeCommit,
+            final int puts,
+            final byte[] value) throws IOException {
+        final File directory = temporaryFolder.newFolder(name);
+        final DiskLruCache cache = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE,
+                groupCommitDelayMillis);
+        try {
+            final long start = System.nanoTime();
+            for (int i = 0; i < puts; i++) {
+                final DiskLruCache.Editor editor = cache.edit("key" + i);
+                final OutputStream outputStream = editor.newOutputStream(0);
+                outputStream.write(value);
+                outputStream.close();
+                if (flushBeforeCommit) {
+                    cache.flush();
+                }
+                editor.commit();
+            }
+            final long elapsedNanos = System.nanoTime() - start;
+
+            assertThat(cache.size()).isEqualTo((long) puts * value.length);
+            return puts / (elapsedNanos / 1e9);
+        } finally {
+            cache.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.mopub.common;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Compares how long {@link DiskLruCache#open} takes to replay a text journal against a binary one
+ * with the same records.
+ */
+public class DiskLruCacheJournalBenchmark {
+    private static final int ENTRIES = 1000;
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+    private static final int VALUE_LENGTH = 20 * 1024;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void open_textJournalVersusBinaryJournal() throws Exception {
+        for (final int records : new int[] {10000, 100000}) {
+            final byte[] textJournal = textJournal(records);
+            final byte[] binaryJournal = binaryJournal(records);
+            final File directory = temporaryFolder.newFolder("journal-" + records);
+
+            // Warm up, then keep the best round of each to damp filesystem noise.
+            for (int round = 0; round < WARM_UP_ROUNDS; round++) {
+                runOpen(directory, DiskLruCache.JOURNAL_FILE, textJournal,
+                        DiskLruCache.JournalFormat.TEXT);
+                runOpen(directory, DiskLruCache.BINARY_JOURNAL_FILE, binaryJournal,
+                        DiskLruCache.JournalFormat.BINARY);
+            }
+            double text = Double.MAX_VALUE;
+            double binary = Double.MAX_VALUE;
+            double migration = Double.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                text = Math.min(text, runOpen(directory, DiskLruCache.JOURNAL_FILE, textJournal,
+                        DiskLruCache.JournalFormat.TEXT));
+                binary = Math.min(binary, runOpen(directory, DiskLruCache.BINARY_JOURNAL_FILE,
+                        binaryJournal, DiskLruCache.JournalFormat.BINARY));
+                migration = Math.min(migration, runOpen(directory, DiskLruCache.JOURNAL_FILE,
+                        textJournal, DiskLruCache.JournalFormat.BINARY));
+            }
+
+            System.out.println(String.format("DiskLruCache open ms with %d journal records: "
+                    + "text=%.1f (%d bytes), binary=%.1f (%d bytes, %.2fx), "
+                    + "text-to-binary migration=%.1f", records, text, textJournal.length, binary,
+                    binaryJournal.length, text / binary, migration));
+        }
+    }
+
+    private double runOpen(final File directory,
+            final String journalFileName,
+            final byte[] journal,
+            final DiskLruCache.JournalFormat journalFormat) throws IOException {
+        // Start from the same journal every round, since opening may migrate or compact it.
+        DiskLruCacheUtil.deleteContents(directory);
+        final FileOutputStream outputStream =
+                new FileOutputStream(new File(directory, journalFileName));
+        outputStream.write(journal);
+        outputStream.close();
+
+        final long start = System.nanoTime();
+        final DiskLruCache cache =
+                DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE, 0, journalFormat);
+        final long elapsedNanos = System.nanoTime() - start;
+        try {
+            assertThat(cache.size()).isEqualTo((long) ENTRIES * VALUE_LENGTH);
+        } finally {
+            cache.close();
+        }
+        return elapsedNanos / 1e6;
+    }
+
+    // A DIRTY and CLEAN record per entry followed by READs, like a cache after a lot of use.
+    private static byte[] textJournal(final int records) {
+        final StringBuilder journal = new StringBuilder();
+        journal.append(DiskLruCache.MAGIC).append('\n')
+                .append(DiskLruCache.VERSION_1).append('\n')
+                .append(1).append('\n')
+                .append(1).append('\n')
+                .append('\n');
+        for (int i = 0; i < ENTRIES; i++) {
+            journal.append("DIRTY ").append(key(i)).append('\n');
+            journal.append("CLEAN ").append(key(i)).append(' ').append(VALUE_LENGTH).append('\n');
+        }
+        for (int i = 2 * ENTRIES; i < records; i++) {
+            journal.append("READ ").append(key(i % ENTRIES)).append('\n');
+        }
+        return journal.toString().getBytes();
+    }
+
+    private static byte[] binaryJournal(final int records) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream journal = new DataOutputStream(bytes);
+        journal.writeInt(DiskLruCache.BINARY_MAGIC);
+        journal.writeInt(DiskLruCache.BINARY_VERSION);
+        journal.writeInt(1);
+        journal.writeInt(1);
+        for (int i = 0; i < ENTRIES; i++) {
+            writeBinaryRecord(journal, 2, key(i), 0);
+            writeBinaryRecord(journal, 1, key(i), VALUE_LENGTH);
+        }
+        for (int i = 2 * ENTRIES; i < records; i++) {
+            writeBinaryRecord(journal, 4, key(i % ENTRIES), 0);
+        }
+        journal.close();
+        return bytes.toByteArray();
+    }
+
+    private static void writeBinaryRecord(final DataOutputStream journal,
+            final int state,
+            final String key,
+            final long length) throws IOException {
+        journal.writeByte(state);
+        // Hex keys are packed two digits to a byte.
+        journal.writeByte(DiskLruCache.BINARY_HEX_KEY | key.length());
+        final byte[] keyBytes = new byte[DiskLruCache.BINARY_KEY_LENGTH];
+        for (int i = 0; i < key.length(); i += 2) {
+            keyBytes[i / 2] = (byte) Integer.parseInt(key.substring(i, i + 2), 16);
+        }
+        journal.write(keyBytes);
+        journal.writeLong(length);
+    }
+
+    // The length of the SHA-1 hex digests CacheService uses as keys.
+    private static String key(final int i) {
+        return String.format("%040x", i);
+    }
+}
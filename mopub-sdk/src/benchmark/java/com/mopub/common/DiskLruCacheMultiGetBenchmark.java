@@ -0,0 +1,152 @@
+package com.mopub.common;
+
+import android.app.Activity;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Compares reading the images of a feed from the disk cache with one task per key, each calling
+ * readFromDiskCache, against one task per ad calling readMultipleFromDiskCache for all of its
+ * keys. Both run on as many threads as the DECODE lane, where ImageDiskTaskManager's reads run,
+ * and hand each entry's file to the same stand-in decoder as CacheServiceDiskReadBenchmark.
+ */
+@RunWith(SdkTestRunner.class)
+public class DiskLruCacheMultiGetBenchmark {
+    private static final int THREADS = 2;
+    // Keeps the largest feed under the smallest disk cache size, so nothing is evicted.
+    private static final int AD_COUNT = 100;
+    private static final int ROUNDS = 3;
+    // Roughly the size of a native ad main image.
+    private static final int VALUE_BYTES = 20 * 1024;
+    // Stand-in for the decoder's own read buffer.
+    private static final int DECODER_BUFFER_BYTES = 16 * 1024;
+
+    private ExecutorService mExecutorService;
+
+    @Before
+    public void setUp() throws Exception {
+        mExecutorService = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mExecutorService.shutdown();
+        CacheService.clearAndNullCaches();
+    }
+
+    @Test
+    public void read_taskPerKeyVersusTaskPerBatch() throws Exception {
+        for (final int imagesPerAd : new int[] {5, 10}) {
+            CacheService.clearAndNullCaches();
+            CacheService.initialize(new Activity());
+            populate(imagesPerAd);
+            runTaskPerKey(imagesPerAd);
+            runTaskPerBatch(imagesPerAd);
+
+            // Alternate the two modes and keep the best round of each to damp noise.
+            double taskPerKey = 0;
+            double taskPerBatch = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                taskPerKey = Math.max(taskPerKey, runTaskPerKey(imagesPerAd));
+                taskPerBatch = Math.max(taskPerBatch, runTaskPerBatch(imagesPerAd));
+            }
+
+            System.out.println(String.format("Disk cache ads/sec with %d images each: "
+                    + "task-per-key=%.0f, task-per-batch=%.0f (%.2fx)", imagesPerAd,
+                    taskPerKey, taskPerBatch, taskPerBatch / taskPerKey));
+        }
+    }
+
+    private static void populate(final int imagesPerAd) {
+        final byte[] value = new byte[VALUE_BYTES];
+        new Random(0).nextBytes(value);
+        for (int ad = 0; ad < AD_COUNT; ad++) {
+            for (int image = 0; image < imagesPerAd; image++) {
+                assertThat(CacheService.putToDiskCache(key(ad, image), value)).isTrue();
+            }
+        }
+    }
+
+    // A feed loads many ads at once, so every ad's reads are queued before any are awaited.
+    private double runTaskPerKey(final int imagesPerAd) throws Exception {
+        final long start = System.nanoTime();
+        final List<Future<Long>> futures = new ArrayList<Future<Long>>(AD_COUNT * imagesPerAd);
+        for (int ad = 0; ad < AD_COUNT; ad++) {
+            for (int image = 0; image < imagesPerAd; image++) {
+                final String key = key(ad, image);
+                futures.add(mExecutorService.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return CacheService.readFromDiskCache(key, new DecodingReader());
+                    }
+                }));
+            }
+        }
+        for (final Future<Long> future : futures) {
+            assertThat(future.get()).isEqualTo(VALUE_BYTES);
+        }
+        return AD_COUNT / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // Mirrors ImageDiskTaskManager, which reads all of an ad's images in one DECODE task.
+    private double runTaskPerBatch(final int imagesPerAd) throws Exception {
+        final long start = System.nanoTime();
+        final List<Future<Map<String, Long>>> futures =
+                new ArrayList<Future<Map<String, Long>>>(AD_COUNT);
+        for (int ad = 0; ad < AD_COUNT; ad++) {
+            final List<String> keys = new ArrayList<String>(imagesPerAd);
+            for (int image = 0; image < imagesPerAd; image++) {
+                keys.add(key(ad, image));
+            }
+            futures.add(mExecutorService.submit(new Callable<Map<String, Long>>() {
+                @Override
+                public Map<String, Long> call() throws Exception {
+                    return CacheService.readMultipleFromDiskCache(keys, new DecodingReader());
+                }
+            }));
+        }
+        for (final Future<Map<String, Long>> future : futures) {
+            for (final Long length : future.get().values()) {
+                assertThat(length).isEqualTo(VALUE_BYTES);
+            }
+        }
+        return AD_COUNT / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static String key(final int ad, final int image) {
+        return "http://www.mopub.com/ad" + ad + "/image" + image + ".jpg";
+    }
+
+    private static class DecodingReader implements CacheService.DiskLruCacheFileReader<Long> {
+        private final byte[] mDecoderBuffer = new byte[DECODER_BUFFER_BYTES];
+
+        @Override
+        public Long read(final FileDescriptor fileDescriptor, final long length)
+                throws IOException {
+            final FileInputStream inputStream = new FileInputStream(fileDescriptor);
+            while (inputStream.read(mDecoderBuffer) != -1) {
+                // keep reading
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.mopub.mobileads.util.vast;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Compares {@link VastXmlPullParser} against the DOM-based {@link VastXmlManager} on the
+ * {@link VastXmlManagerTest} fixture.
+ */
+@RunWith(SdkTestRunner.class)
+public class VastXmlPullParserBenchmark {
+    private static final int WARM_UP_PARSES = 200;
+    private static final int MEASURED_PARSES = 1000;
+    private static final int ROUNDS = 3;
+
+    @Test
+    public void parse_pullParserVersusDom() throws Exception {
+        final String vastXml = VastXmlManagerTest.XML_HEADER_TAG + VastXmlManagerTest.TEST_VAST_XML_STRING;
+
+        runDomParses(vastXml, WARM_UP_PARSES);
+        runPullParses(vastXml, WARM_UP_PARSES);
+
+        // Alternate the two parsers and keep the best round of each to damp GC and JIT noise.
+        double dom = 0;
+        double pull = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            dom = Math.max(dom, runDomParses(vastXml, MEASURED_PARSES));
+            pull = Math.max(pull, runPullParses(vastXml, MEASURED_PARSES));
+        }
+
+        System.out.println(String.format("VAST parses/sec: dom=%.0f, pull=%.0f (%.2fx)",
+                dom, pull, pull / dom));
+    }
+
+    private static double runDomParses(final String vastXml, final int parses) throws Exception {
+        int trackers = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < parses; i++) {
+            // Read everything VastManager reads so both parsers do the same amount of work.
+            final VastXmlManager xmlManager = new VastXmlManager();
+            xmlManager.parseVastXml(vastXml);
+            xmlManager.getVastAdTagURI();
+            trackers += xmlManager.getImpressionTrackers().size();
+            trackers += xmlManager.getVideoStartTrackers().size();
+            trackers += xmlManager.getVideoFirstQuartileTrackers().size();
+            trackers += xmlManager.getVideoMidpointTrackers().size();
+            trackers += xmlManager.getVideoThirdQuartileTrackers().size();
+            trackers += xmlManager.getVideoCompleteTrackers().size();
+            trackers += xmlManager.getClickTrackers().size();
+            xmlManager.getClickThroughUrl();
+            for (final VastXmlManager.MediaXmlManager mediaXmlManager : xmlManager.getMediaXmlManagers()) {
+                mediaXmlManager.getWidth();
+                mediaXmlManager.getHeight();
+                mediaXmlManager.getType();
+                mediaXmlManager.getMediaUrl();
+            }
+            for (final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager
+                    : xmlManager.getCompanionAdXmlManagers()) {
+                companionXmlManager.getWidth();
+                companionXmlManager.getHeight();
+                companionXmlManager.getType();
+                companionXmlManager.getImageUrl();
+            }
+        }
+        final long elapsedNanos = System.nanoTime() - start;
+
+        assertThat(trackers).isGreaterThan(0);
+        return parses / (elapsedNanos / 1e9);
+    }
+
+    private static double runPullParses(final String vastXml, final int parses) throws Exception {
+        int trackers = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < parses; i++) {
+            final VastDocument vastDocument = VastXmlPullParser.parse(vastXml);
+            trackers += vastDocument.getImpressionTrackers().size();
+        }
+        final long elapsedNanos = System.nanoTime() - start;
+
+        assertThat(trackers).isGreaterThan(0);
+        return parses / (elapsedNanos / 1e9);
+    }
+}
@@ -0,0 +1,225 @@
+package com.mopub.common;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory LRU cache of decoded ad images, measured in bytes.
+ *
+ * The budget is split between small bitmaps such as icons and everything else, each with its own
+ * LRU order, so a single large main image can only evict other large images. The cache gives
+ * memory back to the host app when the system asks it to trim memory.
+ */
+public class BitmapMemoryCache {
+    // Bitmaps up to 256x256 at four bytes per pixel count as icons.
+    static final int ICON_MAX_BYTES = 256 * 256 * 4;
+    // Icons get this share of the budget, main images the rest.
+    static final float ICON_BUDGET_FRACTION = 0.25f;
+
+    public interface EvictionListener {
+        /**
+         * Called, outside the cache's lock and on the thread that put the new bitmap, for each
+         * bitmap pushed out to make room. Not called for bitmaps dropped when trimming memory.
+         */
+        void onBitmapEvicted(Bitmap bitmap);
+    }
+
+    public static class Stats {
+        public final int iconBytes;
+        public final int mainImageBytes;
+        public final int maxBytes;
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+
+        Stats(final int iconBytes,
+                final int mainImageBytes,
+                final int maxBytes,
+                final long hits,
+                final long misses,
+                final long evictions) {
+            this.iconBytes = iconBytes;
+            this.mainImageBytes = mainImageBytes;
+            this.maxBytes = maxBytes;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        @Override
+        public String toString() {
+            return "BitmapMemoryCache.Stats{iconBytes=" + iconBytes
+                    + ", mainImageBytes=" + mainImageBytes
+                    + ", maxBytes=" + maxBytes
+                    + ", hits=" + hits
+                    + ", misses=" + misses
+                    + ", evictions=" + evictions + "}";
+        }
+    }
+
+    private static class SizeClass {
+        private final int mMaxBytes;
+        // Iterates from least to most recently used.
+        private final LinkedHashMap<String, Bitmap> mBitmaps =
+                new LinkedHashMap<String, Bitmap>(16, 0.75f, true);
+        private int mBytes;
+
+        SizeClass(final int maxBytes) {
+            mMaxBytes = maxBytes;
+        }
+
+        Bitmap get(final String key) {
+            return mBitmaps.get(key);
+        }
+
+        void put(final String key, final Bitmap bitmap) {
+            remove(key);
+            mBitmaps.put(key, bitmap);
+            mBytes += sizeOf(bitmap);
+        }
+
+        boolean remove(final String key) {
+            final Bitmap previous = mBitmaps.remove(key);
+            if (previous == null) {
+                return false;
+            }
+            mBytes -= sizeOf(previous);
+            return true;
+        }
+
+        /**
+         * Evicts least recently used bitmaps until at most maxBytes are left, and returns how
+         * many were evicted. Evicted bitmaps are added to the given list unless it is null.
+         */
+        int trimToSize(final int maxBytes, final List<Bitmap> evictedBitmaps) {
+            int evicted = 0;
+            final Iterator<Map.Entry<String, Bitmap>> iterator = mBitmaps.entrySet().iterator();
+            while (mBytes > maxBytes && iterator.hasNext()) {
+                final Bitmap bitmap = iterator.next().getValue();
+                mBytes -= sizeOf(bitmap);
+                iterator.remove();
+                evicted++;
+                if (evictedBitmaps != null) {
+                    evictedBitmaps.add(bitmap);
+                }
+            }
+            return evicted;
+        }
+    }
+
+    private final int mMaxBytes;
+    private final SizeClass mIcons;
+    private final SizeClass mMainImages;
+    private long mHits;
+    private long mMisses;
+    private long mEvictions;
+    private EvictionListener mEvictionListener;
+
+    BitmapMemoryCache(final int maxBytes) {
+        mMaxBytes = maxBytes;
+        final int iconMaxBytes = (int) (maxBytes * ICON_BUDGET_FRACTION);
+        mIcons = new SizeClass(iconMaxBytes);
+        mMainImages = new SizeClass(maxBytes - iconMaxBytes);
+    }
+
+    public synchronized Bitmap get(final String key) {
+        Bitmap bitmap = mIcons.get(key);
+        if (bitmap == null) {
+            bitmap = mMainImages.get(key);
+        }
+
+        if (bitmap != null) {
+            mHits++;
+        } else {
+            mMisses++;
+        }
+        return bitmap;
+    }
+
+    public void put(final String key, final Bitmap bitmap) {
+        if (key == null || bitmap == null) {
+            return;
+        }
+
+        final List<Bitmap> evictedBitmaps = new ArrayList<Bitmap>();
+        final EvictionListener evictionListener;
+        synchronized (this) {
+            final SizeClass sizeClass = sizeOf(bitmap) <= ICON_MAX_BYTES ? mIcons : mMainImages;
+            // A url that now decodes to a different size must not linger in the other class.
+            (sizeClass == mIcons ? mMainImages : mIcons).remove(key);
+
+            if (sizeOf(bitmap) > sizeClass.mMaxBytes) {
+                // Caching it would only evict everything else and then itself.
+                sizeClass.remove(key);
+                return;
+            }
+
+            sizeClass.put(key, bitmap);
+            mEvictions += sizeClass.trimToSize(sizeClass.mMaxBytes, evictedBitmaps);
+            evictionListener = mEvictionListener;
+        }
+
+        if (evictionListener != null) {
+            for (final Bitmap evictedBitmap : evictedBitmaps) {
+                evictionListener.onBitmapEvicted(evictedBitmap);
+            }
+        }
+    }
+
+    public synchronized void setEvictionListener(final EvictionListener evictionListener) {
+        mEvictionListener = evictionListener;
+    }
+
+    /**
+     * Gives memory back in proportion to how hard the system is pressed: a little while the app
+     * is running and memory is getting tight, half once the app is in the background, and
+     * everything when the app is about to be killed or memory is critically low.
+     */
+    public synchronized void trimMemory(final int level) {
+        final float retainedFraction;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            retainedFraction = 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            retainedFraction = 0.5f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            retainedFraction = 0.75f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            retainedFraction = 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            retainedFraction = 0.5f;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            retainedFraction = 0.75f;
+        } else {
+            return;
+        }
+
+        mEvictions += mIcons.trimToSize((int) (mIcons.mBytes * retainedFraction), null);
+        mEvictions += mMainImages.trimToSize((int) (mMainImages.mBytes * retainedFraction), null);
+    }
+
+    public synchronized void evictAll() {
+        mEvictions += mIcons.trimToSize(0, null);
+        mEvictions += mMainImages.trimToSize(0, null);
+    }
+
+    /**
+     * Returns the number of bytes currently cached.
+     */
+    public synchronized int size() {
+        return mIcons.mBytes + mMainImages.mBytes;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(mIcons.mBytes, mMainImages.mBytes, mMaxBytes, mHits, mMisses, mEvictions);
+    }
+
+    static int sizeOf(final Bitmap bitmap) {
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+}
@@ -0,0 +1,131 @@
+package com.mopub.common;
+
+import android.graphics.Bitmap;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mutable bitmaps that nothing displays or caches any more, kept so the next decode of the same
+ * size can draw into one through BitmapFactory.Options#inBitmap instead of allocating. Ad images
+ * come in a handful of fixed sizes, so in a scrolling feed most decodes find a match.
+ *
+ * Bitmaps are bucketed by width, height and config, since before KitKat inBitmap only accepts an
+ * exact match. Once the pool holds more than its byte budget the oldest bitmaps are dropped.
+ */
+public class BitmapPool {
+    public static class Stats {
+        public final int bytes;
+        public final long hits;
+        public final long misses;
+
+        Stats(final int bytes, final long hits, final long misses) {
+            this.bytes = bytes;
+            this.hits = hits;
+            this.misses = misses;
+        }
+
+        @Override
+        public String toString() {
+            return "BitmapPool.Stats{bytes=" + bytes
+                    + ", hits=" + hits
+                    + ", misses=" + misses + "}";
+        }
+    }
+
+    private final int mMaxBytes;
+    private final Map<String, LinkedList<Bitmap>> mBuckets = new HashMap<String, LinkedList<Bitmap>>();
+    // Every pooled bitmap, oldest first.
+    private final LinkedList<Bitmap> mBitmaps = new LinkedList<Bitmap>();
+    private int mBytes;
+    private long mHits;
+    private long mMisses;
+
+    BitmapPool(final int maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Offers a bitmap for reuse. Immutable and recycled bitmaps are ignored. The caller must not
+     * draw or display the bitmap afterwards.
+     */
+    public synchronized void put(final Bitmap bitmap) {
+        if (bitmap == null || !bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+
+        final int size = BitmapMemoryCache.sizeOf(bitmap);
+        if (size > mMaxBytes) {
+            return;
+        }
+
+        final String key = getKey(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        LinkedList<Bitmap> bucket = mBuckets.get(key);
+        if (bucket == null) {
+            bucket = new LinkedList<Bitmap>();
+            mBuckets.put(key, bucket);
+        }
+        bucket.add(bitmap);
+        mBitmaps.add(bitmap);
+        mBytes += size;
+
+        while (mBytes > mMaxBytes) {
+            remove(mBitmaps.getFirst());
+        }
+    }
+
+    /**
+     * Takes a pooled bitmap with exactly these dimensions, or returns null if there is none.
+     */
+    public synchronized Bitmap acquire(final int width, final int height, final Bitmap.Config config) {
+        final LinkedList<Bitmap> bucket = mBuckets.get(getKey(width, height, config));
+        if (bucket == null || bucket.isEmpty()) {
+            mMisses++;
+            return null;
+        }
+
+        final Bitmap bitmap = bucket.getLast();
+        remove(bitmap);
+        mHits++;
+        return bitmap;
+    }
+
+    public synchronized void clear() {
+        mBuckets.clear();
+        mBitmaps.clear();
+        mBytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(mBytes, mHits, mMisses);
+    }
+
+    private void remove(final Bitmap bitmap) {
+        final String key = getKey(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        final LinkedList<Bitmap> bucket = mBuckets.get(key);
+        removeIdentical(bucket, bitmap);
+        if (bucket.isEmpty()) {
+            mBuckets.remove(key);
+        }
+        removeIdentical(mBitmaps, bitmap);
+        mBytes -= BitmapMemoryCache.sizeOf(bitmap);
+    }
+
+    // Pooled bitmaps are distinct pixel buffers, so they are compared by identity, never equals.
+    private static void removeIdentical(final List<Bitmap> bitmaps, final Bitmap bitmap) {
+        final Iterator<Bitmap> iterator = bitmaps.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == bitmap) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    private static String getKey(final int width, final int height, final Bitmap.Config config) {
+        return width + "x" + height + ":" + config;
+    }
+}
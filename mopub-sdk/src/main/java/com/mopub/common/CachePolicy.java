@@ -0,0 +1,268 @@
+package com.mopub.common;
+
+import com.mopub.common.util.ResponseHeader;
+
+import org.apache.http.Header;
+import org.apache.http.HttpMessage;
+import org.apache.http.HttpRequest;
+import org.apache.http.impl.cookie.DateParseException;
+import org.apache.http.impl.cookie.DateUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * What an HTTP response said about caching its body: the validators to revalidate it with and
+ * how long it stays fresh. {@link CacheService} stores it next to the body in the disk cache.
+ *
+ * A fresh entry is used without touching the network. A stale one is revalidated with
+ * If-None-Match and If-Modified-Since, and a 304 only refreshes the policy.
+ *
+ * A response without an explicit lifetime stays fresh for a tenth of the time since it was last
+ * modified, up to {@link #MAX_HEURISTIC_LIFETIME_MILLIS}, or for {@link #DEFAULT_LIFETIME_MILLIS}
+ * if it has no Last-Modified date. Only entries cached without a policy never go stale.
+ */
+public class CachePolicy {
+    private static final int FORMAT_VERSION = 1;
+    private static final long NEVER_EXPIRES = Long.MAX_VALUE;
+    static final long DEFAULT_LIFETIME_MILLIS = 60 * 60 * 1000;
+    static final long MAX_HEURISTIC_LIFETIME_MILLIS = 24 * 60 * 60 * 1000;
+
+    /**
+     * The policy of an entry that was cached without one.
+     */
+    public static final CachePolicy UNKNOWN = new CachePolicy(null, null, NEVER_EXPIRES, false);
+
+    private final String mETag;
+    private final String mLastModified;
+    private final long mExpiresAtMillis;
+    private final boolean mNoStore;
+
+    private CachePolicy(final String eTag,
+            final String lastModified,
+            final long expiresAtMillis,
+            final boolean noStore) {
+        mETag = eTag;
+        mLastModified = lastModified;
+        mExpiresAtMillis = expiresAtMillis;
+        mNoStore = noStore;
+    }
+
+    /**
+     * Reads the policy from a response's Cache-Control, Expires, ETag and Last-Modified headers.
+     */
+    public static CachePolicy fromResponse(final HttpMessage response, final long nowMillis) {
+        return fromResponse(response, nowMillis, null, null);
+    }
+
+    /**
+     * Like {@link #fromResponse(HttpMessage, long)}, but falls back to the given validators for
+     * any the response leaves out.
+     */
+    private static CachePolicy fromResponse(final HttpMessage response,
+            final long nowMillis,
+            final String fallbackETag,
+            final String fallbackLastModified) {
+        final String responseETag = getHeaderValue(response, ResponseHeader.ETAG);
+        final String responseLastModified =
+                getHeaderValue(response, ResponseHeader.LAST_MODIFIED);
+        final String eTag = responseETag != null ? responseETag : fallbackETag;
+        final String lastModified =
+                responseLastModified != null ? responseLastModified : fallbackLastModified;
+
+        boolean noStore = false;
+        boolean noCache = false;
+        long maxAgeSeconds = -1;
+        final String cacheControl = getHeaderValue(response, ResponseHeader.CACHE_CONTROL);
+        if (cacheControl != null) {
+            for (final String directive : cacheControl.toLowerCase(Locale.US).split(",")) {
+                final String trimmed = directive.trim();
+                if (trimmed.equals("no-store")) {
+                    noStore = true;
+                } else if (trimmed.equals("no-cache")) {
+                    noCache = true;
+                } else if (trimmed.startsWith("max-age=")) {
+                    maxAgeSeconds = parseSeconds(trimmed.substring("max-age=".length()));
+                }
+            }
+        }
+
+        if (noStore) {
+            return new CachePolicy(null, null, nowMillis, true);
+        }
+
+        final long expiresAtMillis;
+        if (noCache) {
+            expiresAtMillis = nowMillis;
+        } else if (maxAgeSeconds >= 0) {
+            expiresAtMillis = nowMillis + maxAgeSeconds * 1000;
+        } else {
+            final long expiresLifetimeMillis = getExpiresLifetimeMillis(response);
+            if (expiresLifetimeMillis >= 0) {
+                expiresAtMillis = nowMillis + expiresLifetimeMillis;
+            } else {
+                expiresAtMillis = nowMillis + getHeuristicLifetimeMillis(response, lastModified);
+            }
+        }
+        return new CachePolicy(eTag, lastModified, expiresAtMillis, false);
+    }
+
+    /**
+     * Returns the policy after revalidation answered 304 Not Modified. The 304 carries the new
+     * lifetime, and any validators it leaves out stay as they were.
+     */
+    public CachePolicy refresh(final HttpMessage notModifiedResponse, final long nowMillis) {
+        return fromResponse(notModifiedResponse, nowMillis, mETag, mLastModified);
+    }
+
+    public boolean isNoStore() {
+        return mNoStore;
+    }
+
+    public boolean isFresh(final long nowMillis) {
+        return !mNoStore && nowMillis < mExpiresAtMillis;
+    }
+
+    public boolean hasValidators() {
+        return mETag != null || mLastModified != null;
+    }
+
+    /**
+     * Makes the request conditional on the cached body having changed.
+     */
+    public void addConditionalHeaders(final HttpRequest request) {
+        if (mETag != null) {
+            request.setHeader(ResponseHeader.IF_NONE_MATCH.getKey(), mETag);
+        }
+        if (mLastModified != null) {
+            request.setHeader(ResponseHeader.IF_MODIFIED_SINCE.getKey(), mLastModified);
+        }
+    }
+
+    String getETag() {
+        return mETag;
+    }
+
+    String getLastModified() {
+        return mLastModified;
+    }
+
+    long getExpiresAtMillis() {
+        return mExpiresAtMillis;
+    }
+
+    byte[] toByteArray() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream outputStream = new DataOutputStream(bytes);
+        try {
+            outputStream.writeInt(FORMAT_VERSION);
+            outputStream.writeLong(mExpiresAtMillis);
+            outputStream.writeBoolean(mNoStore);
+            outputStream.writeUTF(mETag != null ? mETag : "");
+            outputStream.writeUTF(mLastModified != null ? mLastModified : "");
+            outputStream.close();
+        } catch (IOException e) {
+            // Not thrown by a ByteArrayOutputStream.
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns {@link #UNKNOWN} for an empty array, which is what entries cached without a policy
+     * hold.
+     */
+    static CachePolicy fromByteArray(final byte[] bytes) throws IOException {
+        if (bytes == null || bytes.length == 0) {
+            return UNKNOWN;
+        }
+
+        final DataInputStream inputStream =
+                new DataInputStream(new ByteArrayInputStream(bytes));
+        final int version = inputStream.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown cache policy version: " + version);
+        }
+        final long expiresAtMillis = inputStream.readLong();
+        final boolean noStore = inputStream.readBoolean();
+        final String eTag = inputStream.readUTF();
+        final String lastModified = inputStream.readUTF();
+        return new CachePolicy(eTag.length() > 0 ? eTag : null,
+                lastModified.length() > 0 ? lastModified : null,
+                expiresAtMillis,
+                noStore);
+    }
+
+    /**
+     * Returns how long after the response's Date its Expires header lies, 0 for an Expires in the
+     * past or one that doesn't parse, or -1 if there is no Expires header. Measuring against the
+     * server's own clock keeps a skewed device clock from stretching the lifetime.
+     */
+    private static long getExpiresLifetimeMillis(final HttpMessage response) {
+        final String expires = getHeaderValue(response, ResponseHeader.EXPIRES);
+        if (expires == null) {
+            return -1;
+        }
+
+        try {
+            final long expiresMillis = DateUtils.parseDate(expires).getTime();
+            final String date = getHeaderValue(response, ResponseHeader.DATE);
+            final long dateMillis = date != null
+                    ? DateUtils.parseDate(date).getTime()
+                    : System.currentTimeMillis();
+            return Math.max(0, expiresMillis - dateMillis);
+        } catch (DateParseException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns a tenth of the time between the response's Last-Modified and Date, capped at
+     * {@link #MAX_HEURISTIC_LIFETIME_MILLIS}: a body that hasn't changed in a long time probably
+     * won't change soon. Falls back to {@link #DEFAULT_LIFETIME_MILLIS} without a Last-Modified
+     * date to go on.
+     */
+    private static long getHeuristicLifetimeMillis(final HttpMessage response,
+            final String lastModified) {
+        if (lastModified == null) {
+            return DEFAULT_LIFETIME_MILLIS;
+        }
+
+        try {
+            final long lastModifiedMillis = DateUtils.parseDate(lastModified).getTime();
+            final String date = getHeaderValue(response, ResponseHeader.DATE);
+            final long dateMillis = date != null
+                    ? DateUtils.parseDate(date).getTime()
+                    : System.currentTimeMillis();
+            return Math.min(Math.max(0, (dateMillis - lastModifiedMillis) / 10),
+                    MAX_HEURISTIC_LIFETIME_MILLIS);
+        } catch (DateParseException e) {
+            return DEFAULT_LIFETIME_MILLIS;
+        }
+    }
+
+    private static long parseSeconds(final String seconds) {
+        try {
+            return Math.max(0, Long.parseLong(seconds.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String getHeaderValue(final HttpMessage message,
+            final ResponseHeader responseHeader) {
+        final Header header = message.getFirstHeader(responseHeader.getKey());
+        return header != null ? header.getValue() : null;
+    }
+
+    @Override
+    public String toString() {
+        return "CachePolicy{eTag=" + mETag
+                + ", lastModified=" + mLastModified
+                + ", expiresAtMillis=" + mExpiresAtMillis
+                + ", noStore=" + mNoStore + "}";
+    }
+}
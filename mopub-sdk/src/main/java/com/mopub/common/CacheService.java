@@ -1,12 +1,16 @@
 package com.mopub.common;
 
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
 import android.os.AsyncTask;
-import android.support.v4.util.LruCache;
 
+import com.mopub.common.util.AsyncTasks;
 import com.mopub.common.util.DeviceUtils;
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.SdkExecutor.Priority;
 import com.mopub.common.util.Streams;
 import com.mopub.common.util.Utils;
 
@@ -14,39 +18,141 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import static com.mopub.common.DiskLruCache.open;
+import static com.mopub.common.util.VersionCode.ICE_CREAM_SANDWICH;
+import static com.mopub.common.util.VersionCode.currentApiLevel;
 
 public class CacheService {
-    public static interface DiskLruCacheGetListener {
-        void onComplete(final String key, final byte[] content);
+    public static interface DiskLruCacheFileReader<T> {
+        /**
+         * Reads a disk cache entry in place. The file descriptor is only valid until this returns.
+         * Returning null means the entry's contents can't be used, and the entry is removed so
+         * the next load fetches it again. Failures that say nothing about the contents should
+         * throw instead.
+         */
+        T read(final FileDescriptor fileDescriptor, final long length) throws IOException;
     }
 
     static final String UNIQUE_CACHE_NAME = "mopub-cache";
-    private static final int APP_VERSION = 1;
+    // Version 2 added the cache policy value. Changing it clears the cache.
+    private static final int APP_VERSION = 2;
     // The number of values per cache entry. Must be positive.
-    private static final int VALUE_COUNT = 1;
+    private static final int VALUE_COUNT = 2;
     private static final int DISK_CACHE_INDEX = 0;
-
-    private static DiskLruCache sDiskLruCache;
-    private static BitmapLruCache sBitmapLruCache;
+    // The CachePolicy of the body at DISK_CACHE_INDEX, or empty if it was cached without one.
+    private static final int CACHE_POLICY_INDEX = 1;
+    // Journal records from a burst of puts are flushed together at most this long after the first.
+    private static final long JOURNAL_GROUP_COMMIT_DELAY_MILLIS = 500;
+    // The pool of reusable bitmaps gets this fraction of the memory cache's budget on top of it.
+    private static final int BITMAP_POOL_SIZE_DIVISOR = 4;
+
+    // Written by the initialization task's background thread.
+    private static volatile DiskLruCache sDiskLruCache;
+    // Main thread only.
+    private static boolean sDiskCacheInitializing;
+    private static final List<Runnable> sDiskCacheInitializedRunnables = new ArrayList<Runnable>();
+    private static BitmapMemoryCache sBitmapCache;
+    private static BitmapPool sBitmapPool;
+    private static BitmapMemoryCache.EvictionListener sBitmapEvictionListener;
+    private static boolean sTrimMemoryCallbacksRegistered;
 
     public static boolean initializeBitmapCache(final Context context) {
         if (context == null) {
             return false;
         }
 
-        if (sBitmapLruCache == null) {
+        if (sBitmapCache == null) {
             final int memoryCacheSizeBytes = DeviceUtils.memoryCacheSizeBytes(context);
-            sBitmapLruCache = new BitmapLruCache(memoryCacheSizeBytes);
+            sBitmapCache = new BitmapMemoryCache(memoryCacheSizeBytes);
+            sBitmapCache.setEvictionListener(sBitmapEvictionListener);
+            sBitmapPool = new BitmapPool(memoryCacheSizeBytes / BITMAP_POOL_SIZE_DIVISOR);
+        }
+
+        if (!sTrimMemoryCallbacksRegistered && currentApiLevel().isAtLeast(ICE_CREAM_SANDWICH)) {
+            registerTrimMemoryCallbacks(context.getApplicationContext());
+            sTrimMemoryCallbacksRegistered = true;
         }
         return true;
     }
 
-    public static boolean initializeDiskCache(final Context context) {
+    @TargetApi(14)
+    private static void registerTrimMemoryCallbacks(final Context applicationContext) {
+        applicationContext.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(final int level) {
+                CacheService.onTrimMemory(level);
+            }
+
+            @Override
+            public void onLowMemory() {
+                CacheService.onTrimMemory(TRIM_MEMORY_COMPLETE);
+            }
+
+            @Override
+            public void onConfigurationChanged(final Configuration newConfig) {
+            }
+        });
+    }
+
+    /**
+     * Shrinks the bitmap cache according to the given ComponentCallbacks2 trim level. Called
+     * automatically on API 14+; apps on older versions can forward their own callbacks here.
+     */
+    public static void onTrimMemory(final int level) {
+        final BitmapMemoryCache bitmapCache = sBitmapCache;
+        if (bitmapCache == null) {
+            return;
+        }
+
+        // Pooled bitmaps only save future allocations, so they are the first to go.
+        sBitmapPool.clear();
+
+        final int bytesBefore = bitmapCache.size();
+        bitmapCache.trimMemory(level);
+        MoPubLog.d("Trimmed bitmap cache from " + bytesBefore + " to " + bitmapCache.size()
+                + " bytes for trim level " + level);
+    }
+
+    /**
+     * Returns the pool of bitmaps available for reuse by decoders, or null if the bitmap cache
+     * hasn't been initialized.
+     */
+    public static BitmapPool getBitmapPool() {
+        return sBitmapPool;
+    }
+
+    /**
+     * Sets the listener told about bitmaps the memory cache evicts to make room, typically to
+     * hand the ones nothing displays any more to {@link #getBitmapPool()}.
+     */
+    public static void setBitmapEvictionListener(
+            final BitmapMemoryCache.EvictionListener evictionListener) {
+        sBitmapEvictionListener = evictionListener;
+        if (sBitmapCache != null) {
+            sBitmapCache.setEvictionListener(evictionListener);
+        }
+    }
+
+    public static BitmapMemoryCache.Stats getBitmapCacheStats() {
+        final BitmapMemoryCache bitmapCache = sBitmapCache;
+        return bitmapCache != null ? bitmapCache.getStats() : null;
+    }
+
+    /**
+     * Opens the disk cache on the calling thread, which replays its journal and may take a while.
+     * Callers on the main thread should use {@link #initializeDiskCacheAsync(Context)} instead.
+     */
+    public static synchronized boolean initializeDiskCache(final Context context) {
         if (context == null) {
             return false;
         }
@@ -55,11 +161,15 @@ public class CacheService {
             final File cacheDirectory = getDiskCacheDirectory(context);
             final long diskCacheSizeBytes = DeviceUtils.diskCacheSizeBytes(cacheDirectory);
             try {
+                // The binary journal replays faster on a cold start. A text journal left by an
+                // older SDK is migrated the first time the cache opens.
                 sDiskLruCache = open(
                         cacheDirectory,
                         APP_VERSION,
                         VALUE_COUNT,
-                        diskCacheSizeBytes
+                        diskCacheSizeBytes,
+                        JOURNAL_GROUP_COMMIT_DELAY_MILLIS,
+                        DiskLruCache.JournalFormat.BINARY
                 );
             } catch (IOException e) {
                 MoPubLog.d("Unable to create DiskLruCache", e);
@@ -68,9 +178,58 @@ public class CacheService {
         return true;
     }
 
+    /**
+     * Starts opening the disk cache in the background, unless it is already open or opening.
+     * Until it is ready, synchronous reads answer as misses and async reads and writes are queued.
+     * Must be called on the main thread.
+     */
+    public static boolean initializeDiskCacheAsync(final Context context) {
+        if (context == null) {
+            return false;
+        }
+
+        if (sDiskLruCache != null || sDiskCacheInitializing) {
+            return true;
+        }
+
+        sDiskCacheInitializing = true;
+        try {
+            AsyncTasks.safeExecuteOnExecutor(Priority.DISK_IO, new DiskLruCacheInitializeTask(context));
+        } catch (Exception e) {
+            MoPubLog.d("Failed to start DiskLruCache initialization", e);
+            onDiskCacheInitialized();
+        }
+        return true;
+    }
+
+    /**
+     * Runs the runnable on the main thread once the disk cache has finished opening, whether or
+     * not that succeeded, or right away if it isn't opening. Must be called on the main thread.
+     */
+    public static void runAfterDiskCacheInitialized(final Runnable runnable) {
+        if (sDiskCacheInitializing) {
+            sDiskCacheInitializedRunnables.add(runnable);
+        } else {
+            runnable.run();
+        }
+    }
+
+    private static void onDiskCacheInitialized() {
+        sDiskCacheInitializing = false;
+        final List<Runnable> runnables = new ArrayList<Runnable>(sDiskCacheInitializedRunnables);
+        sDiskCacheInitializedRunnables.clear();
+        for (final Runnable runnable : runnables) {
+            runnable.run();
+        }
+    }
+
+    /**
+     * Sets up the memory cache right away and starts opening the disk cache in the background.
+     * Must be called on the main thread.
+     */
     public static void initialize(final Context context) {
         initializeBitmapCache(context);
-        initializeDiskCache(context);
+        initializeDiskCacheAsync(context);
     }
 
     public static String createValidDiskCacheKey(final String key) {
@@ -82,17 +241,28 @@ public class CacheService {
         return new File(cachePath + File.separator + UNIQUE_CACHE_NAME);
     }
 
+    /**
+     * Checks the disk cache's in-memory index only, without opening the entry or counting it as
+     * used.
+     */
     public static boolean containsKeyDiskCache(final String key) {
         if (sDiskLruCache == null) {
             return false;
         }
 
-        try {
-            final DiskLruCache.Snapshot snapshot = sDiskLruCache.get(createValidDiskCacheKey(key));
-            return snapshot != null;
-        } catch (Exception e) {
-            return false;
+        return sDiskLruCache.contains(createValidDiskCacheKey(key));
+    }
+
+    /**
+     * Returns the byte length of the disk cache entry, or -1 if there is none. Like
+     * {@link #containsKeyDiskCache(String)}, this doesn't open the entry or count it as used.
+     */
+    public static long getContentLengthDiskCache(final String key) {
+        if (sDiskLruCache == null) {
+            return -1;
         }
+
+        return sDiskLruCache.peekLength(createValidDiskCacheKey(key), DISK_CACHE_INDEX);
     }
 
     public static String getFilePathDiskCache(final String key) {
@@ -111,11 +281,11 @@ public class CacheService {
     }
 
     public static Bitmap getFromBitmapCache(final String key) {
-        if (sBitmapLruCache == null) {
+        if (sBitmapCache == null) {
             return null;
         }
 
-        return sBitmapLruCache.get(key);
+        return sBitmapCache.get(key);
     }
 
     public static byte[] getFromDiskCache(final String key) {
@@ -152,23 +322,160 @@ public class CacheService {
         return bytes;
     }
 
-    public static void getFromDiskCacheAsync(final String key, final DiskLruCacheGetListener diskLruCacheGetListener) {
-        new DiskLruCacheGetTask(key, diskLruCacheGetListener).execute();
+    /**
+     * Hands the entry's open file to the reader instead of copying it onto the heap, and returns
+     * what the reader returns, or null on a miss or error. An entry whose {@link CachePolicy} has
+     * gone stale counts as a miss, so the caller revalidates it, and an entry the reader can't
+     * use is removed. Performs disk IO on the calling thread.
+     */
+    public static <T> T readFromDiskCache(final String key, final DiskLruCacheFileReader<T> reader) {
+        if (sDiskLruCache == null) {
+            return null;
+        }
+
+        DiskLruCache.Snapshot snapshot = null;
+        try {
+            snapshot = sDiskLruCache.get(createValidDiskCacheKey(key));
+            if (snapshot == null) {
+                return null;
+            }
+
+            if (!readCachePolicy(snapshot).isFresh(System.currentTimeMillis())) {
+                return null;
+            }
+
+            final T result = reader.read(snapshot.getFileDescriptor(DISK_CACHE_INDEX),
+                    snapshot.getLength(DISK_CACHE_INDEX));
+            if (result == null) {
+                MoPubLog.d("Removing unreadable entry from DiskLruCache: " + key);
+                sDiskLruCache.remove(createValidDiskCacheKey(key));
+            }
+            return result;
+        } catch (Exception e) {
+            MoPubLog.d("Unable to read from DiskLruCache", e);
+            return null;
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+    }
+
+    /**
+     * Like {@link #readFromDiskCache(String, DiskLruCacheFileReader)} for several keys in turn.
+     * Keys that miss, fail or are stale map to null.
+     */
+    public static <T> Map<String, T> readMultipleFromDiskCache(final Collection<String> keys,
+            final DiskLruCacheFileReader<T> reader) {
+        final Map<String, T> results = new LinkedHashMap<String, T>(keys.size());
+        for (final String key : keys) {
+            results.put(key, readFromDiskCache(key, reader));
+        }
+        return results;
     }
 
     public static void putToBitmapCache(final String key, final Bitmap bitmap) {
-        if (sBitmapLruCache == null) {
+        if (sBitmapCache == null) {
             return;
         }
 
-        sBitmapLruCache.put(key, bitmap);
+        sBitmapCache.put(key, bitmap);
+    }
+
+    /**
+     * Returns the {@link CachePolicy} the entry was cached with, {@link CachePolicy#UNKNOWN} if it
+     * was cached without one, or null if there is no entry. Performs disk IO on the calling
+     * thread.
+     */
+    public static CachePolicy getCachePolicyDiskCache(final String key) {
+        if (sDiskLruCache == null) {
+            return null;
+        }
+
+        DiskLruCache.Snapshot snapshot = null;
+        try {
+            snapshot = sDiskLruCache.get(createValidDiskCacheKey(key));
+            if (snapshot == null) {
+                return null;
+            }
+            return readCachePolicy(snapshot);
+        } catch (Exception e) {
+            MoPubLog.d("Unable to get cache policy from DiskLruCache", e);
+            return null;
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+    }
+
+    /**
+     * Replaces the entry's {@link CachePolicy} and leaves its body alone, as after a 304 Not
+     * Modified. Returns false if there is no entry to update.
+     */
+    public static boolean updateCachePolicyDiskCache(final String key,
+            final CachePolicy cachePolicy) {
+        if (sDiskLruCache == null) {
+            return false;
+        }
+
+        final String diskCacheKey = createValidDiskCacheKey(key);
+        DiskLruCache.Editor editor = null;
+        try {
+            // A new entry would need a body too.
+            if (!sDiskLruCache.contains(diskCacheKey)) {
+                return false;
+            }
+            editor = sDiskLruCache.edit(diskCacheKey);
+            if (editor == null) {
+                // another edit is in progress
+                return false;
+            }
+
+            writeCachePolicy(editor, cachePolicy);
+            editor.commit();
+        } catch (Exception e) {
+            MoPubLog.d("Unable to update cache policy in DiskLruCache", e);
+            abortQuietly(editor);
+            return false;
+        }
+        return true;
+    }
+
+    public static boolean removeFromDiskCache(final String key) {
+        if (sDiskLruCache == null) {
+            return false;
+        }
+
+        try {
+            return sDiskLruCache.remove(createValidDiskCacheKey(key));
+        } catch (Exception e) {
+            MoPubLog.d("Unable to remove from DiskLruCache", e);
+            return false;
+        }
     }
 
     public static boolean putToDiskCache(final String key, final byte[] content) {
         return putToDiskCache(key, new ByteArrayInputStream(content));
     }
 
+    public static boolean putToDiskCache(final String key,
+            final byte[] content,
+            final CachePolicy cachePolicy) {
+        return putToDiskCache(key, new ByteArrayInputStream(content), cachePolicy);
+    }
+
     public static boolean putToDiskCache(final String key, final InputStream content) {
+        return putToDiskCache(key, content, null);
+    }
+
+    /**
+     * Caches the content along with the policy of the response it came from. A null policy
+     * caches it as {@link CachePolicy#UNKNOWN}.
+     */
+    public static boolean putToDiskCache(final String key,
+            final InputStream content,
+            final CachePolicy cachePolicy) {
         if (sDiskLruCache == null) {
             return false;
         }
@@ -187,73 +494,88 @@ public class CacheService {
             Streams.copyContent(content, outputStream);
             outputStream.flush();
             outputStream.close();
+            writeCachePolicy(editor, cachePolicy);
 
-            sDiskLruCache.flush();
             editor.commit();
         } catch (Exception e) {
             MoPubLog.d("Unable to put to DiskLruCache", e);
-            try {
-                if (editor != null) {
-                    editor.abort();
-                }
-            } catch (IOException ignore) {
-                // ignore
-            }
+            abortQuietly(editor);
             return false;
         }
         return true;
     }
 
-    public static void putToDiskCacheAsync(final String key, final byte[] content) {
-        new DiskLruCachePutTask(key, content).execute();
+    private static CachePolicy readCachePolicy(final DiskLruCache.Snapshot snapshot)
+            throws IOException {
+        final byte[] bytes = new byte[(int) snapshot.getLength(CACHE_POLICY_INDEX)];
+        Streams.readStream(snapshot.getInputStream(CACHE_POLICY_INDEX), bytes);
+        return CachePolicy.fromByteArray(bytes);
     }
 
-    private static class BitmapLruCache extends LruCache<String, Bitmap> {
-        public BitmapLruCache(final int maxSize) {
-            super(maxSize);
+    private static void writeCachePolicy(final DiskLruCache.Editor editor,
+            final CachePolicy cachePolicy) throws IOException {
+        final OutputStream outputStream = editor.newOutputStream(CACHE_POLICY_INDEX);
+        try {
+            if (cachePolicy != null) {
+                outputStream.write(cachePolicy.toByteArray());
+            }
+        } finally {
+            outputStream.close();
         }
+    }
 
-        @Override
-        protected int sizeOf(final String key, final Bitmap bitmap) {
-            if (bitmap != null) {
-                return bitmap.getRowBytes() * bitmap.getHeight();
+    private static void abortQuietly(final DiskLruCache.Editor editor) {
+        try {
+            if (editor != null) {
+                editor.abort();
             }
-
-            return super.sizeOf(key, bitmap);
+        } catch (IOException ignore) {
+            // ignore
         }
     }
 
-    private static class DiskLruCacheGetTask extends AsyncTask<Void, Void, byte[]> {
-        private final DiskLruCacheGetListener mDiskLruCacheGetListener;
-        private final String mKey;
+    public static void putToDiskCacheAsync(final String key, final byte[] content) {
+        runAfterDiskCacheInitialized(new Runnable() {
+            @Override
+            public void run() {
+                AsyncTasks.safeExecuteOnExecutor(Priority.PREFETCH, new DiskLruCachePutTask(key, content));
+            }
+        });
+    }
 
-        DiskLruCacheGetTask(final String key, final DiskLruCacheGetListener diskLruCacheGetListener) {
-            mDiskLruCacheGetListener = diskLruCacheGetListener;
-            mKey = key;
+    /**
+     * Removes the entry off the main thread, e.g. once its body has turned out to be unusable.
+     */
+    public static void removeFromDiskCacheAsync(final String key) {
+        runAfterDiskCacheInitialized(new Runnable() {
+            @Override
+            public void run() {
+                AsyncTasks.safeExecuteOnExecutor(Priority.PREFETCH, new DiskLruCacheRemoveTask(key));
+            }
+        });
+    }
+
+    private static class DiskLruCacheInitializeTask extends AsyncTask<Void, Void, Void> {
+        private final Context mContext;
+
+        DiskLruCacheInitializeTask(final Context context) {
+            mContext = context;
         }
 
         @Override
-        protected byte[] doInBackground(Void... voids) {
-            return CacheService.getFromDiskCache(mKey);
+        protected Void doInBackground(Void... voids) {
+            CacheService.initializeDiskCache(mContext);
+            return null;
         }
 
         @Override
-        protected void onPostExecute(final byte[] bytes) {
-            if (isCancelled()) {
-                onCancelled();
-                return;
-            }
-
-            if (mDiskLruCacheGetListener != null) {
-                mDiskLruCacheGetListener.onComplete(mKey, bytes);
-            }
+        protected void onPostExecute(final Void result) {
+            onDiskCacheInitialized();
         }
 
         @Override
         protected void onCancelled() {
-            if (mDiskLruCacheGetListener != null) {
-                mDiskLruCacheGetListener.onComplete(mKey, null);
-            }
+            onDiskCacheInitialized();
         }
     }
 
@@ -273,6 +595,20 @@ public class CacheService {
         }
     }
 
+    private static class DiskLruCacheRemoveTask extends AsyncTask<Void, Void, Void> {
+        private final String mKey;
+
+        DiskLruCacheRemoveTask(final String key) {
+            mKey = key;
+        }
+
+        @Override
+        protected Void doInBackground(Void... voids) {
+            CacheService.removeFromDiskCache(mKey);
+            return null;
+        }
+    }
+
     // Testing
     @Deprecated
     @VisibleForTesting
@@ -285,17 +621,21 @@ public class CacheService {
                 sDiskLruCache = null;
             }
         }
-        if (sBitmapLruCache != null) {
-            sBitmapLruCache.evictAll();
-            sBitmapLruCache = null;
+        if (sBitmapCache != null) {
+            sBitmapCache.evictAll();
+            sBitmapCache = null;
         }
+        sBitmapPool = null;
+        sTrimMemoryCallbacksRegistered = false;
+        sDiskCacheInitializing = false;
+        sDiskCacheInitializedRunnables.clear();
     }
 
     // Testing
     @Deprecated
     @VisibleForTesting
-    public static LruCache<String, Bitmap> getBitmapLruCache() {
-        return sBitmapLruCache;
+    public static BitmapMemoryCache getBitmapLruCache() {
+        return sBitmapCache;
     }
 
     // Testing
@@ -16,14 +16,18 @@
 
 package com.mopub.common;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.Closeable;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FilterOutputStream;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -31,11 +35,16 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -84,19 +93,55 @@ import java.util.regex.Pattern;
  * an error occurs while writing a cache value, the edit will fail silently.
  * Callers should handle other problems by catching {@code IOException} and
  * responding appropriately.
+ *
+ * <p>By default every edit flushes the journal. A cache opened with a group
+ * commit delay instead buffers journal records and flushes them together,
+ * either after the delay or once {@link #GROUP_COMMIT_MAX_PENDING_RECORDS}
+ * records are pending. If the process dies before a flush, the files written
+ * by the lost records are reconciled with the journal the next time the cache
+ * is opened in group commit mode.
+ *
+ * <p>The journal is written as text by default. A cache opened with
+ * {@link JournalFormat#BINARY} writes fixed-size binary records instead. For
+ * the SHA-1 keys CacheService uses they take about a third less space than
+ * text lines and replay faster when the cache is opened. Either format reads a
+ * journal left in the other one and rewrites it in its own.
  */
 public final class DiskLruCache implements Closeable {
   static final String JOURNAL_FILE = "journal";
   static final String JOURNAL_FILE_TEMP = "journal.tmp";
   static final String JOURNAL_FILE_BACKUP = "journal.bkp";
+  static final String BINARY_JOURNAL_FILE = "journal.bin";
+  static final String BINARY_JOURNAL_FILE_TEMP = "journal.bin.tmp";
+  static final String BINARY_JOURNAL_FILE_BACKUP = "journal.bin.bkp";
   static final String MAGIC = "libcore.io.DiskLruCache";
   static final String VERSION_1 = "1";
+  static final int BINARY_MAGIC = 0x4d504443;
+  static final int BINARY_VERSION = 3;
+  static final int BINARY_HEADER_LENGTH = 16;
+  static final int BINARY_KEY_LENGTH = 20;
+  static final int BINARY_HEX_KEY = 0x80;
+  private static final int BINARY_READ_CHUNK_LENGTH = 64 * 1024;
   static final long ANY_SEQUENCE_NUMBER = -1;
+  static final int GROUP_COMMIT_MAX_PENDING_RECORDS = 64;
   static final Pattern LEGAL_KEY_PATTERN = Pattern.compile("[a-z0-9_-]{1,64}");
   private static final String CLEAN = "CLEAN";
   private static final String DIRTY = "DIRTY";
   private static final String REMOVE = "REMOVE";
   private static final String READ = "READ";
+  private static final byte BINARY_CLEAN = 1;
+  private static final byte BINARY_DIRTY = 2;
+  private static final byte BINARY_REMOVE = 3;
+  private static final byte BINARY_READ = 4;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /** How the journal is stored on disk. */
+  public enum JournalFormat {
+    /** One line per record, as described below. */
+    TEXT,
+    /** Fixed-size records, as described below. */
+    BINARY
+  }
 
     /*
      * This cache uses a journal file named "journal". A typical journal file
@@ -136,6 +181,25 @@ public final class DiskLruCache implements Closeable {
      * occasionally be compacted by dropping redundant lines. A temporary file named
      * "journal.tmp" will be used during compaction; that file should be deleted if
      * it exists when the cache is opened.
+     *
+     * The binary journal, "journal.bin", holds the same records. Its header is
+     * four big-endian ints: BINARY_MAGIC, BINARY_VERSION, the application's
+     * version and the value count. Every record after it is the same size:
+     *   o one byte for the state: 1 CLEAN, 2 DIRTY, 3 REMOVE or 4 READ,
+     *   o one byte for the key's length, with BINARY_HEX_KEY set if the key
+     *     is lowercase hex,
+     *   o BINARY_KEY_LENGTH bytes for the key, padded with zeros: two hex
+     *     digits per byte for hex keys, such as the SHA-1 digests
+     *     CacheService uses, or one ASCII char per byte otherwise,
+     *   o one big-endian long per value with its length, 0 unless CLEAN.
+     * A cache with a binary journal only accepts keys that fit in a record:
+     * up to 40 hex digits or 20 other chars. Entries with longer keys are
+     * dropped when a text journal is migrated.
+     * Records are parsed without splitting strings, and a torn last record is
+     * spotted from the file's length alone. Compaction writes a snapshot of the
+     * live entries to "journal.bin.tmp", the same way as for the text journal,
+     * and also runs soon after opening a journal that is mostly redundant so
+     * the next open replays only the snapshot.
      */
 
   private final File directory;
@@ -145,11 +209,27 @@ public final class DiskLruCache implements Closeable {
   private final int appVersion;
   private long maxSize;
   private final int valueCount;
+  private final JournalFormat journalFormat;
   private long size = 0;
-  private Writer journalWriter;
+  private JournalWriter journalWriter;
   private final LinkedHashMap<String, Entry> lruEntries =
       new LinkedHashMap<String, Entry>(0, 0.75f, true);
+  /**
+   * The same entries as {@link #lruEntries}, for lookups that must not count
+   * as an access. Kept in step with every put and remove on lruEntries.
+   */
+  private final HashMap<String, Entry> entryIndex = new HashMap<String, Entry>();
   private int redundantOpCount;
+  private boolean journalEndsWithPartialLine;
+
+  /**
+   * How long journal records may stay buffered before they are flushed, or 0
+   * to flush the journal on every edit.
+   */
+  private final long groupCommitDelayMillis;
+  private int pendingJournalRecords;
+  private ScheduledThreadPoolExecutor journalFlushExecutor;
+  private ScheduledFuture<Void> scheduledJournalFlush;
 
   /**
    * To differentiate between old and current snapshots, each entry is given
@@ -177,14 +257,43 @@ public final class DiskLruCache implements Closeable {
     }
   };
 
-  private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize) {
+  private final Callable<Void> journalFlushCallable = new Callable<Void>() {
+    public Void call() throws Exception {
+      synchronized (DiskLruCache.this) {
+        scheduledJournalFlush = null;
+        if (journalWriter == null) {
+          return null; // Closed.
+        }
+        flushJournal();
+      }
+      return null;
+    }
+  };
+
+  private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize,
+      long groupCommitDelayMillis, JournalFormat journalFormat) {
     this.directory = directory;
     this.appVersion = appVersion;
-    this.journalFile = new File(directory, JOURNAL_FILE);
-    this.journalFileTmp = new File(directory, JOURNAL_FILE_TEMP);
-    this.journalFileBackup = new File(directory, JOURNAL_FILE_BACKUP);
+    this.journalFile = new File(directory, journalFileName(journalFormat));
+    if (journalFormat == JournalFormat.BINARY) {
+      this.journalFileTmp = new File(directory, BINARY_JOURNAL_FILE_TEMP);
+      this.journalFileBackup = new File(directory, BINARY_JOURNAL_FILE_BACKUP);
+    } else {
+      this.journalFileTmp = new File(directory, JOURNAL_FILE_TEMP);
+      this.journalFileBackup = new File(directory, JOURNAL_FILE_BACKUP);
+    }
     this.valueCount = valueCount;
     this.maxSize = maxSize;
+    this.groupCommitDelayMillis = groupCommitDelayMillis;
+    this.journalFormat = journalFormat;
+  }
+
+  private static String journalFileName(JournalFormat journalFormat) {
+    return journalFormat == JournalFormat.BINARY ? BINARY_JOURNAL_FILE : JOURNAL_FILE;
+  }
+
+  private static JournalFormat otherFormat(JournalFormat journalFormat) {
+    return journalFormat == JournalFormat.BINARY ? JournalFormat.TEXT : JournalFormat.BINARY;
   }
 
   /**
@@ -198,33 +307,93 @@ public final class DiskLruCache implements Closeable {
    */
   public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize)
       throws IOException {
+    return open(directory, appVersion, valueCount, maxSize, 0);
+  }
+
+  /**
+   * Opens the cache in {@code directory} in group commit mode, creating a
+   * cache if none exists there.
+   *
+   * @param directory a writable directory
+   * @param valueCount the number of values per cache entry. Must be positive.
+   * @param maxSize the maximum number of bytes this cache should use to store
+   * @param groupCommitDelayMillis the longest time journal records stay
+   *     buffered before they are flushed, or 0 to flush on every edit
+   * @throws IOException if reading or writing the cache directory fails
+   */
+  public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize,
+      long groupCommitDelayMillis) throws IOException {
+    return open(directory, appVersion, valueCount, maxSize, groupCommitDelayMillis,
+        JournalFormat.TEXT);
+  }
+
+  /**
+   * Opens the cache in {@code directory} with its journal in
+   * {@code journalFormat}, creating a cache if none exists there. A journal
+   * in the other format is read and then replaced.
+   *
+   * @param directory a writable directory
+   * @param valueCount the number of values per cache entry. Must be positive.
+   * @param maxSize the maximum number of bytes this cache should use to store
+   * @param groupCommitDelayMillis the longest time journal records stay
+   *     buffered before they are flushed, or 0 to flush on every edit
+   * @param journalFormat the format to write the journal in
+   * @throws IOException if reading or writing the cache directory fails
+   */
+  public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize,
+      long groupCommitDelayMillis, JournalFormat journalFormat) throws IOException {
     if (maxSize <= 0) {
       throw new IllegalArgumentException("maxSize <= 0");
     }
     if (valueCount <= 0) {
       throw new IllegalArgumentException("valueCount <= 0");
     }
-
-    // If a bkp file exists, use it instead.
-    File backupFile = new File(directory, JOURNAL_FILE_BACKUP);
-    if (backupFile.exists()) {
-      File journalFile = new File(directory, JOURNAL_FILE);
-      // If journal file also exists just delete backup file.
-      if (journalFile.exists()) {
-        backupFile.delete();
-      } else {
-        renameTo(backupFile, journalFile, false);
-      }
+    if (groupCommitDelayMillis < 0) {
+      throw new IllegalArgumentException("groupCommitDelayMillis < 0");
+    }
+    if (journalFormat == null) {
+      throw new IllegalArgumentException("journalFormat == null");
     }
 
-    // Prefer to pick up where we left off.
-    DiskLruCache cache = new DiskLruCache(directory, appVersion, valueCount, maxSize);
+    // If a bkp file exists, use it instead.
+    restoreBackup(new File(directory, JOURNAL_FILE_BACKUP), new File(directory, JOURNAL_FILE));
+    restoreBackup(new File(directory, BINARY_JOURNAL_FILE_BACKUP),
+        new File(directory, BINARY_JOURNAL_FILE));
+
+    // Prefer to pick up where we left off, in either format.
+    DiskLruCache cache = new DiskLruCache(directory, appVersion, valueCount, maxSize,
+        groupCommitDelayMillis, journalFormat);
+    File otherJournalFile = new File(directory, journalFileName(otherFormat(journalFormat)));
+    JournalFormat existingFormat = null;
     if (cache.journalFile.exists()) {
+      existingFormat = journalFormat;
+    } else if (otherJournalFile.exists()) {
+      existingFormat = otherFormat(journalFormat);
+    }
+    if (existingFormat != null) {
       try {
-        cache.readJournal();
+        File existingJournalFile = new File(directory, journalFileName(existingFormat));
+        if (existingFormat == JournalFormat.BINARY) {
+          cache.readBinaryJournal(existingJournalFile);
+        } else {
+          cache.readJournal(existingJournalFile);
+        }
         cache.processJournal();
-        cache.journalWriter = new BufferedWriter(
-            new OutputStreamWriter(new FileOutputStream(cache.journalFile, true), DiskLruCacheUtil.US_ASCII));
+        if (existingFormat != journalFormat && journalFormat == JournalFormat.BINARY) {
+          cache.removeEntriesWithoutBinaryKeys();
+        }
+        if (cache.journalEndsWithPartialLine || existingFormat != journalFormat) {
+          // Appending after a torn record would corrupt the next one, and a
+          // journal in the other format is migrated by writing a new one.
+          cache.rebuildJournal();
+        } else {
+          cache.journalWriter = cache.newJournalWriter(cache.journalFile, true);
+        }
+        deleteIfExists(otherJournalFile);
+        if (journalFormat == JournalFormat.BINARY && cache.journalRebuildRequired()) {
+          // Snapshot now rather than replay the same records on every open.
+          cache.executorService.submit(cache.cleanupCallable);
+        }
         return cache;
       } catch (IOException journalIsCorrupt) {
         System.out
@@ -239,12 +408,24 @@ public final class DiskLruCache implements Closeable {
 
     // Create a new empty cache.
     directory.mkdirs();
-    cache = new DiskLruCache(directory, appVersion, valueCount, maxSize);
+    cache = new DiskLruCache(directory, appVersion, valueCount, maxSize, groupCommitDelayMillis,
+        journalFormat);
     cache.rebuildJournal();
     return cache;
   }
 
-  private void readJournal() throws IOException {
+  private static void restoreBackup(File backupFile, File journalFile) throws IOException {
+    if (backupFile.exists()) {
+      // If journal file also exists just delete backup file.
+      if (journalFile.exists()) {
+        backupFile.delete();
+      } else {
+        renameTo(backupFile, journalFile, false);
+      }
+    }
+  }
+
+  private void readJournal(File journalFile) throws IOException {
     DiskLruCacheStrictLineReader reader = new DiskLruCacheStrictLineReader(new FileInputStream(journalFile), DiskLruCacheUtil.US_ASCII);
     try {
       String magic = reader.readLine();
@@ -271,6 +452,7 @@ public final class DiskLruCache implements Closeable {
         }
       }
       redundantOpCount = lineCount - lruEntries.size();
+      journalEndsWithPartialLine = reader.hasUnterminatedLine();
     } finally {
       DiskLruCacheUtil.closeQuietly(reader);
     }
@@ -289,6 +471,7 @@ public final class DiskLruCache implements Closeable {
       key = line.substring(keyBegin);
       if (firstSpace == REMOVE.length() && line.startsWith(REMOVE)) {
         lruEntries.remove(key);
+        entryIndex.remove(key);
         return;
       }
     } else {
@@ -299,6 +482,7 @@ public final class DiskLruCache implements Closeable {
     if (entry == null) {
       entry = new Entry(key);
       lruEntries.put(key, entry);
+      entryIndex.put(key, entry);
     }
 
     if (secondSpace != -1 && firstSpace == CLEAN.length() && line.startsWith(CLEAN)) {
@@ -315,6 +499,144 @@ public final class DiskLruCache implements Closeable {
     }
   }
 
+  private void readBinaryJournal(File journalFile) throws IOException {
+    long journalLength = journalFile.length();
+    FileInputStream in = new FileInputStream(journalFile);
+    try {
+      byte[] header = new byte[BINARY_HEADER_LENGTH];
+      readFully(in, header, BINARY_HEADER_LENGTH);
+      int magic = readInt(header, 0);
+      int version = readInt(header, 4);
+      int journalAppVersion = readInt(header, 8);
+      int journalValueCount = readInt(header, 12);
+      if (magic != BINARY_MAGIC
+          || version != BINARY_VERSION
+          || journalAppVersion != appVersion
+          || journalValueCount != valueCount) {
+        throw new IOException("unexpected journal header: [" + magic + ", " + version + ", "
+            + journalAppVersion + ", " + journalValueCount + "]");
+      }
+
+      // Read whole records in large chunks and parse them in place.
+      int recordLength = binaryRecordLength(valueCount);
+      long recordsLength = journalLength - BINARY_HEADER_LENGTH;
+      long recordCount = recordsLength / recordLength;
+      int recordsPerChunk = Math.max(1, BINARY_READ_CHUNK_LENGTH / recordLength);
+      byte[] chunk = new byte[recordsPerChunk * recordLength];
+      char[] keyChars = new char[2 * BINARY_KEY_LENGTH];
+      for (long r = 0; r < recordCount; r += recordsPerChunk) {
+        int records = (int) Math.min(recordsPerChunk, recordCount - r);
+        readFully(in, chunk, records * recordLength);
+        for (int offset = 0; offset < records * recordLength; offset += recordLength) {
+          readBinaryJournalRecord(chunk, offset, keyChars);
+        }
+      }
+      redundantOpCount = (int) recordCount - lruEntries.size();
+      journalEndsWithPartialLine = recordsLength % recordLength != 0;
+    } finally {
+      DiskLruCacheUtil.closeQuietly(in);
+    }
+  }
+
+  private void readBinaryJournalRecord(byte[] records, int offset, char[] keyChars)
+      throws IOException {
+    int keyLength = records[offset + 1] & 0xff;
+    if ((keyLength & BINARY_HEX_KEY) != 0) {
+      keyLength &= ~BINARY_HEX_KEY;
+      if (keyLength < 1 || keyLength > 2 * BINARY_KEY_LENGTH) {
+        throw new IOException("unexpected journal key length: " + keyLength);
+      }
+      // Decode both digits of every byte; an odd key's last one is cut off below.
+      for (int i = 0; i < keyLength; i += 2) {
+        int digits = records[offset + 2 + i / 2];
+        keyChars[i] = HEX_DIGITS[(digits >> 4) & 0xf];
+        keyChars[i + 1] = HEX_DIGITS[digits & 0xf];
+      }
+    } else {
+      if (keyLength < 1 || keyLength > BINARY_KEY_LENGTH) {
+        throw new IOException("unexpected journal key length: " + keyLength);
+      }
+      // Keys are ASCII, so skip the charset decoder.
+      for (int i = 0; i < keyLength; i++) {
+        keyChars[i] = (char) records[offset + 2 + i];
+      }
+    }
+    String key = new String(keyChars, 0, keyLength);
+
+    byte state = records[offset];
+    if (state == BINARY_REMOVE) {
+      lruEntries.remove(key);
+      entryIndex.remove(key);
+      return;
+    }
+
+    Entry entry = lruEntries.get(key);
+    if (entry == null) {
+      entry = new Entry(key);
+      lruEntries.put(key, entry);
+      entryIndex.put(key, entry);
+    }
+
+    if (state == BINARY_CLEAN) {
+      entry.readable = true;
+      entry.currentEditor = null;
+      for (int i = 0; i < valueCount; i++) {
+        entry.lengths[i] = readLong(records, offset + 2 + BINARY_KEY_LENGTH + 8 * i);
+      }
+    } else if (state == BINARY_DIRTY) {
+      entry.currentEditor = new Editor(entry);
+    } else if (state != BINARY_READ) {
+      // READ work was already done by calling lruEntries.get().
+      throw new IOException("unexpected journal record state: " + state);
+    }
+  }
+
+  private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+    int offset = 0;
+    while (offset < length) {
+      int read = in.read(buffer, offset, length - offset);
+      if (read == -1) {
+        throw new EOFException();
+      }
+      offset += read;
+    }
+  }
+
+  static int binaryRecordLength(int valueCount) {
+    return 2 + BINARY_KEY_LENGTH + 8 * valueCount;
+  }
+
+  private static boolean isHexKey(String key) {
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns true if {@code key} fits in the key field of a binary journal record. */
+  static boolean isBinaryKey(String key) {
+    return key.length() <= BINARY_KEY_LENGTH
+        || key.length() <= 2 * BINARY_KEY_LENGTH && isHexKey(key);
+  }
+
+  private static int readInt(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xff) << 24
+        | (bytes[offset + 1] & 0xff) << 16
+        | (bytes[offset + 2] & 0xff) << 8
+        | (bytes[offset + 3] & 0xff);
+  }
+
+  private static long readLong(byte[] bytes, int offset) {
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (bytes[offset + i] & 0xff);
+    }
+    return value;
+  }
+
   /**
    * Computes the initial size and collects garbage as a part of opening the
    * cache. Dirty entries are assumed to be inconsistent and will be deleted.
@@ -323,7 +645,14 @@ public final class DiskLruCache implements Closeable {
     deleteIfExists(journalFileTmp);
     for (Iterator<Entry> i = lruEntries.values().iterator(); i.hasNext(); ) {
       Entry entry = i.next();
-      if (entry.currentEditor == null) {
+      if (entry.currentEditor == null && groupCommitDelayMillis > 0 && !hasJournaledFiles(entry)) {
+        // A later edit or removal of this entry never made it into the journal.
+        for (int t = 0; t < valueCount; t++) {
+          deleteIfExists(entry.getCleanFile(t));
+        }
+        i.remove();
+        entryIndex.remove(entry.key);
+      } else if (entry.currentEditor == null) {
         for (int t = 0; t < valueCount; t++) {
           size += entry.lengths[t];
         }
@@ -334,6 +663,69 @@ public final class DiskLruCache implements Closeable {
           deleteIfExists(entry.getDirtyFile(t));
         }
         i.remove();
+        entryIndex.remove(entry.key);
+      }
+    }
+    if (groupCommitDelayMillis > 0) {
+      deleteUnjournaledFiles();
+    }
+  }
+
+  /**
+   * Deletes the entries read from a text journal whose keys don't fit in a
+   * binary journal record.
+   */
+  private void removeEntriesWithoutBinaryKeys() throws IOException {
+    for (Iterator<Entry> i = lruEntries.values().iterator(); i.hasNext(); ) {
+      Entry entry = i.next();
+      if (isBinaryKey(entry.key)) {
+        continue;
+      }
+      for (int t = 0; t < valueCount; t++) {
+        deleteIfExists(entry.getCleanFile(t));
+        size -= entry.lengths[t];
+      }
+      i.remove();
+      entryIndex.remove(entry.key);
+    }
+  }
+
+  /**
+   * Returns true if the clean files of {@code entry} match the lengths
+   * recorded in the journal.
+   */
+  private boolean hasJournaledFiles(Entry entry) {
+    for (int t = 0; t < valueCount; t++) {
+      File clean = entry.getCleanFile(t);
+      if (!clean.exists() || clean.length() != entry.lengths[t]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Deletes entry files whose DIRTY or CLEAN records were still buffered when
+   * the cache was last shut down.
+   */
+  private void deleteUnjournaledFiles() throws IOException {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      String name = file.getName();
+      if (name.equals(BINARY_JOURNAL_FILE) || name.equals(BINARY_JOURNAL_FILE_BACKUP)
+          || name.equals(BINARY_JOURNAL_FILE_TEMP)) {
+        continue;
+      }
+      int firstDot = name.indexOf('.');
+      if (firstDot == -1 || !LEGAL_KEY_PATTERN.matcher(name.substring(0, firstDot)).matches()) {
+        continue; // Not an entry file; this includes the journal files.
+      }
+      // Use containsKey() since get() would reorder the LRU queue.
+      if (!lruEntries.containsKey(name.substring(0, firstDot)) || name.endsWith(".tmp")) {
+        deleteIfExists(file);
       }
     }
   }
@@ -346,25 +738,17 @@ public final class DiskLruCache implements Closeable {
     if (journalWriter != null) {
       journalWriter.close();
     }
+    pendingJournalRecords = 0;
 
-    Writer writer = new BufferedWriter(
-        new OutputStreamWriter(new FileOutputStream(journalFileTmp), DiskLruCacheUtil.US_ASCII));
+    JournalWriter writer = newJournalWriter(journalFileTmp, false);
     try {
-      writer.write(MAGIC);
-      writer.write("\n");
-      writer.write(VERSION_1);
-      writer.write("\n");
-      writer.write(Integer.toString(appVersion));
-      writer.write("\n");
-      writer.write(Integer.toString(valueCount));
-      writer.write("\n");
-      writer.write("\n");
+      writer.writeHeader(appVersion, valueCount);
 
       for (Entry entry : lruEntries.values()) {
         if (entry.currentEditor != null) {
-          writer.write(DIRTY + ' ' + entry.key + '\n');
+          writer.writeRecord(DIRTY, entry.key, null);
         } else {
-          writer.write(CLEAN + ' ' + entry.key + entry.getLengths() + '\n');
+          writer.writeRecord(CLEAN, entry.key, entry.lengths);
         }
       }
     } finally {
@@ -377,8 +761,15 @@ public final class DiskLruCache implements Closeable {
     renameTo(journalFileTmp, journalFile, false);
     journalFileBackup.delete();
 
-    journalWriter = new BufferedWriter(
-        new OutputStreamWriter(new FileOutputStream(journalFile, true), DiskLruCacheUtil.US_ASCII));
+    journalWriter = newJournalWriter(journalFile, true);
+  }
+
+  private JournalWriter newJournalWriter(File file, boolean append) throws IOException {
+    FileOutputStream out = new FileOutputStream(file, append);
+    if (journalFormat == JournalFormat.BINARY) {
+      return new BinaryJournalWriter(out, valueCount);
+    }
+    return new TextJournalWriter(out);
   }
 
   private static void deleteIfExists(File file) throws IOException {
@@ -434,7 +825,7 @@ public final class DiskLruCache implements Closeable {
     }
 
     redundantOpCount++;
-    journalWriter.append(READ + ' ' + key + '\n');
+    journalWriter.writeRecord(READ, key, null);
     if (journalRebuildRequired()) {
       executorService.submit(cleanupCallable);
     }
@@ -442,6 +833,30 @@ public final class DiskLruCache implements Closeable {
     return new Snapshot(key, entry.sequenceNumber, ins, entry.lengths);
   }
 
+  /**
+   * Returns true if there is a readable value for {@code key}. Unlike {@link
+   * #get}, this opens no files, writes no journal record, doesn't make the
+   * entry the most recently used and doesn't allocate. Keys that
+   * {@link #get} would reject simply aren't contained.
+   */
+  public synchronized boolean contains(String key) {
+    Entry entry = entryIndex.get(key);
+    return entry != null && entry.readable;
+  }
+
+  /**
+   * Returns the byte length of the readable value at {@code index} for
+   * {@code key}, or -1 if there is none. Like {@link #contains}, this doesn't
+   * count as an access.
+   */
+  public synchronized long peekLength(String key, int index) {
+    Entry entry = entryIndex.get(key);
+    if (entry == null || !entry.readable) {
+      return -1;
+    }
+    return entry.lengths[index];
+  }
+
   /**
    * Returns an editor for the entry named {@code key}, or null if another
    * edit is in progress.
@@ -461,6 +876,7 @@ public final class DiskLruCache implements Closeable {
     if (entry == null) {
       entry = new Entry(key);
       lruEntries.put(key, entry);
+      entryIndex.put(key, entry);
     } else if (entry.currentEditor != null) {
       return null; // Another edit is in progress.
     }
@@ -468,9 +884,10 @@ public final class DiskLruCache implements Closeable {
     Editor editor = new Editor(entry);
     entry.currentEditor = editor;
 
-    // Flush the journal before creating files to prevent file leaks.
-    journalWriter.write(DIRTY + ' ' + key + '\n');
-    journalWriter.flush();
+    // Flush the journal before creating files to prevent file leaks. In group
+    // commit mode leaked files are instead collected by processJournal().
+    journalWriter.writeRecord(DIRTY, key, null);
+    commitJournalRecord();
     return editor;
   }
 
@@ -545,21 +962,64 @@ public final class DiskLruCache implements Closeable {
     entry.currentEditor = null;
     if (entry.readable | success) {
       entry.readable = true;
-      journalWriter.write(CLEAN + ' ' + entry.key + entry.getLengths() + '\n');
+      journalWriter.writeRecord(CLEAN, entry.key, entry.lengths);
       if (success) {
         entry.sequenceNumber = nextSequenceNumber++;
       }
     } else {
       lruEntries.remove(entry.key);
-      journalWriter.write(REMOVE + ' ' + entry.key + '\n');
+      entryIndex.remove(entry.key);
+      journalWriter.writeRecord(REMOVE, entry.key, null);
     }
-    journalWriter.flush();
+    commitJournalRecord();
 
     if (size > maxSize || journalRebuildRequired()) {
       executorService.submit(cleanupCallable);
     }
   }
 
+  /**
+   * Flushes the journal record that was just written, or schedules a flush
+   * for it in group commit mode.
+   */
+  private void commitJournalRecord() throws IOException {
+    if (groupCommitDelayMillis > 0) {
+      scheduleJournalFlush();
+    } else {
+      journalWriter.flush();
+    }
+  }
+
+  private void scheduleJournalFlush() throws IOException {
+    pendingJournalRecords++;
+    if (pendingJournalRecords >= GROUP_COMMIT_MAX_PENDING_RECORDS) {
+      flushJournal();
+      return;
+    }
+    if (scheduledJournalFlush == null) {
+      if (journalFlushExecutor == null) {
+        journalFlushExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "DiskLruCache journal flush");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+      }
+      scheduledJournalFlush = journalFlushExecutor.schedule(
+          journalFlushCallable, groupCommitDelayMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void flushJournal() throws IOException {
+    journalWriter.flush();
+    pendingJournalRecords = 0;
+    if (scheduledJournalFlush != null) {
+      scheduledJournalFlush.cancel(false);
+      scheduledJournalFlush = null;
+    }
+  }
+
   /**
    * We only rebuild the journal when it will halve the size of the journal
    * and eliminate at least 2000 ops.
@@ -594,8 +1054,12 @@ public final class DiskLruCache implements Closeable {
     }
 
     redundantOpCount++;
-    journalWriter.append(REMOVE + ' ' + key + '\n');
+    journalWriter.writeRecord(REMOVE, key, null);
     lruEntries.remove(key);
+    entryIndex.remove(key);
+    if (groupCommitDelayMillis > 0) {
+      scheduleJournalFlush();
+    }
 
     if (journalRebuildRequired()) {
       executorService.submit(cleanupCallable);
@@ -619,7 +1083,7 @@ public final class DiskLruCache implements Closeable {
   public synchronized void flush() throws IOException {
     checkNotClosed();
     trimToSize();
-    journalWriter.flush();
+    flushJournal();
   }
 
   /** Closes this cache. Stored values will remain on the filesystem. */
@@ -633,8 +1097,13 @@ public final class DiskLruCache implements Closeable {
       }
     }
     trimToSize();
+    flushJournal();
     journalWriter.close();
     journalWriter = null;
+    if (journalFlushExecutor != null) {
+      journalFlushExecutor.shutdown();
+      journalFlushExecutor = null;
+    }
   }
 
   private void trimToSize() throws IOException {
@@ -659,6 +1128,10 @@ public final class DiskLruCache implements Closeable {
     if (!matcher.matches()) {
       throw new IllegalArgumentException("keys must match regex [a-z0-9_-]{1,64}: \"" + key + "\"");
     }
+    if (journalFormat == JournalFormat.BINARY && !isBinaryKey(key)) {
+      throw new IllegalArgumentException(
+          "keys must be up to 40 hex digits or 20 chars with a binary journal: \"" + key + "\"");
+    }
   }
 
   private static String inputStreamToString(InputStream in) throws IOException {
@@ -703,6 +1176,15 @@ public final class DiskLruCache implements Closeable {
       return lengths[index];
     }
 
+    /**
+     * Returns the descriptor of the open file with the value for {@code index},
+     * valid until this snapshot is closed. Lets callers read the file in place
+     * rather than copy it through {@link #getInputStream}.
+     */
+    public FileDescriptor getFileDescriptor(int index) throws IOException {
+      return ((FileInputStream) ins[index]).getFD();
+    }
+
     public void close() {
       for (InputStream in : ins) {
         DiskLruCacheUtil.closeQuietly(in);
@@ -892,14 +1374,6 @@ public final class DiskLruCache implements Closeable {
       this.lengths = new long[valueCount];
     }
 
-    public String getLengths() throws IOException {
-      StringBuilder result = new StringBuilder();
-      for (long size : lengths) {
-        result.append(' ').append(size);
-      }
-      return result.toString();
-    }
-
     /** Set lengths using decimal numbers like "10123". */
     private void setLengths(String[] strings) throws IOException {
       if (strings.length != valueCount) {
@@ -927,4 +1401,114 @@ public final class DiskLruCache implements Closeable {
       return new File(directory, key + "." + i + ".tmp");
     }
   }
+
+  /** Appends records to a journal in one of the {@link JournalFormat}s. */
+  private abstract static class JournalWriter implements Closeable, Flushable {
+    abstract void writeHeader(int appVersion, int valueCount) throws IOException;
+
+    /** Writes a record; {@code lengths} is null for anything but CLEAN records. */
+    abstract void writeRecord(String state, String key, long[] lengths) throws IOException;
+  }
+
+  private static final class TextJournalWriter extends JournalWriter {
+    private final Writer writer;
+
+    private TextJournalWriter(OutputStream out) {
+      writer = new BufferedWriter(new OutputStreamWriter(out, DiskLruCacheUtil.US_ASCII));
+    }
+
+    @Override void writeHeader(int appVersion, int valueCount) throws IOException {
+      writer.write(MAGIC);
+      writer.write("\n");
+      writer.write(VERSION_1);
+      writer.write("\n");
+      writer.write(Integer.toString(appVersion));
+      writer.write("\n");
+      writer.write(Integer.toString(valueCount));
+      writer.write("\n");
+      writer.write("\n");
+    }
+
+    @Override void writeRecord(String state, String key, long[] lengths) throws IOException {
+      writer.write(state);
+      writer.write(' ');
+      writer.write(key);
+      if (lengths != null) {
+        for (long length : lengths) {
+          writer.write(' ');
+          writer.write(Long.toString(length));
+        }
+      }
+      writer.write('\n');
+    }
+
+    public void flush() throws IOException {
+      writer.flush();
+    }
+
+    public void close() throws IOException {
+      writer.close();
+    }
+  }
+
+  private static final class BinaryJournalWriter extends JournalWriter {
+    private final DataOutputStream out;
+    private final int valueCount;
+    private final byte[] keyBytes = new byte[BINARY_KEY_LENGTH];
+
+    private BinaryJournalWriter(OutputStream out, int valueCount) {
+      this.out = new DataOutputStream(new BufferedOutputStream(out));
+      this.valueCount = valueCount;
+    }
+
+    @Override void writeHeader(int appVersion, int valueCount) throws IOException {
+      out.writeInt(BINARY_MAGIC);
+      out.writeInt(BINARY_VERSION);
+      out.writeInt(appVersion);
+      out.writeInt(valueCount);
+    }
+
+    @Override void writeRecord(String state, String key, long[] lengths) throws IOException {
+      out.writeByte(binaryState(state));
+      // Keys are validated against LEGAL_KEY_PATTERN and isBinaryKey(), so
+      // every char is ASCII and the key fits in keyBytes.
+      int keyLength = key.length();
+      Arrays.fill(keyBytes, (byte) 0);
+      if (isHexKey(key)) {
+        out.writeByte(BINARY_HEX_KEY | keyLength);
+        for (int i = 0; i < keyLength; i++) {
+          int digit = Character.digit(key.charAt(i), 16);
+          keyBytes[i / 2] |= i % 2 == 0 ? digit << 4 : digit;
+        }
+      } else {
+        out.writeByte(keyLength);
+        for (int i = 0; i < keyLength; i++) {
+          keyBytes[i] = (byte) key.charAt(i);
+        }
+      }
+      out.write(keyBytes);
+      for (int i = 0; i < valueCount; i++) {
+        out.writeLong(lengths != null ? lengths[i] : 0);
+      }
+    }
+
+    private static byte binaryState(String state) {
+      if (CLEAN.equals(state)) {
+        return BINARY_CLEAN;
+      } else if (DIRTY.equals(state)) {
+        return BINARY_DIRTY;
+      } else if (REMOVE.equals(state)) {
+        return BINARY_REMOVE;
+      }
+      return BINARY_READ;
+    }
+
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    public void close() throws IOException {
+      out.close();
+    }
+  }
 }
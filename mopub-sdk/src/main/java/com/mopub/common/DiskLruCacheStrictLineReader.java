@@ -176,6 +176,14 @@ class DiskLruCacheStrictLineReader implements Closeable {
     }
   }
 
+  /**
+   * Returns true if the input ended with a line that has no terminator. Only
+   * meaningful after {@link #readLine} has thrown {@code EOFException}.
+   */
+  public boolean hasUnterminatedLine() {
+    return end == -1;
+  }
+
   /**
    * Reads new input data into the buffer. Call only with pos == end or end == -1,
    * depending on the desired outcome if the function throws.
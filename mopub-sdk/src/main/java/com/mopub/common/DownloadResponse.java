@@ -1,35 +1,43 @@
 package com.mopub.common;
 
 import com.mopub.common.util.ResponseHeader;
-import com.mopub.common.util.Streams;
 
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
-
 public class DownloadResponse {
-    private byte[] mBytes = new byte[0];
+    private final byte[] mBytes;
     private final int mStatusCode;
     private final long mContentLength;
     private final Header[] mHeaders;
 
     public DownloadResponse(final HttpResponse httpResponse) throws Exception {
-        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        BufferedInputStream inputStream = null;
-        try {
-            inputStream = new BufferedInputStream(httpResponse.getEntity().getContent());
-            Streams.copyContent(inputStream, outputStream);
-            mBytes = outputStream.toByteArray();
-        } finally {
-            Streams.closeStream(inputStream);
-            Streams.closeStream(outputStream);
-        }
+        this(new StreamingResponse(httpResponse, Long.MAX_VALUE));
+    }
+
+    /**
+     * Reads the whole body of the response.
+     */
+    public DownloadResponse(final StreamingResponse streamingResponse) throws Exception {
+        this(streamingResponse, streamingResponse.readByteArray());
+    }
+
+    /**
+     * Wraps a response whose body was already read, or discarded in which case {@code bytes} is
+     * empty.
+     */
+    public DownloadResponse(final StreamingResponse streamingResponse, final byte[] bytes) {
+        this(streamingResponse.getStatusCode(), bytes, streamingResponse.getAllHeaders());
+    }
 
-        mStatusCode = httpResponse.getStatusLine().getStatusCode();
+    /**
+     * A response whose body didn't come from the network, such as one served from the disk cache.
+     */
+    public DownloadResponse(final int statusCode, final byte[] bytes, final Header[] headers) {
+        mBytes = bytes;
+        mStatusCode = statusCode;
         mContentLength = mBytes.length;
-        mHeaders = httpResponse.getAllHeaders();
+        mHeaders = headers;
     }
 
     public byte[] getByteArray() {
@@ -1,15 +1,26 @@
 package com.mopub.common;
 
-import android.net.http.AndroidHttpClient;
 import android.os.AsyncTask;
 
+import com.mopub.common.event.BaseEvent;
+import com.mopub.common.event.MoPubEvents;
+import com.mopub.common.event.TimedEvent;
 import com.mopub.common.logging.MoPubLog;
 
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpUriRequest;
 
 public class DownloadTask extends AsyncTask<HttpUriRequest, Void, DownloadResponse> {
+    // Generous for an ad image, but stops a misbehaving server from filling the heap.
+    public static final long DEFAULT_MAX_BODY_BYTES = 8 * 1024 * 1024;
+
     private final DownloadTaskListener mDownloadTaskListener;
+    private final long mMaxBodyBytes;
+    private final boolean mUseDiskCache;
+    private final TimedEvent.Endpoint mEndpoint;
+    private boolean mBypassCachedEntry;
     private String mUrl;
 
     public static interface DownloadTaskListener {
@@ -17,11 +28,54 @@ public class DownloadTask extends AsyncTask<HttpUriRequest, Void, DownloadRespon
     }
 
     public DownloadTask(final DownloadTaskListener downloadTaskListener) throws IllegalArgumentException {
+        this(downloadTaskListener, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    /**
+     * A download whose response body fails, reporting a null response, once it is longer than
+     * {@code maxBodyBytes}.
+     */
+    public DownloadTask(final DownloadTaskListener downloadTaskListener, final long maxBodyBytes)
+            throws IllegalArgumentException {
+        this(downloadTaskListener, maxBodyBytes, false);
+    }
+
+    /**
+     * A download that, when {@code useDiskCache} is set, goes through {@link CacheService}'s disk
+     * cache under the request url: a fresh entry is returned without a request, a stale one is
+     * revalidated and a 304 is answered from the cache, and 200 bodies are cached along with
+     * their {@link CachePolicy}.
+     */
+    public DownloadTask(final DownloadTaskListener downloadTaskListener,
+            final long maxBodyBytes,
+            final boolean useDiskCache) throws IllegalArgumentException {
+        this(downloadTaskListener, maxBodyBytes, useDiskCache, TimedEvent.Endpoint.OTHER);
+    }
+
+    /**
+     * A download whose requests are recorded as {@link TimedEvent}s against {@code endpoint}.
+     */
+    public DownloadTask(final DownloadTaskListener downloadTaskListener,
+            final long maxBodyBytes,
+            final boolean useDiskCache,
+            final TimedEvent.Endpoint endpoint) throws IllegalArgumentException {
         if (downloadTaskListener == null) {
             throw new IllegalArgumentException("DownloadTaskListener must not be null.");
         }
 
         mDownloadTaskListener = downloadTaskListener;
+        mMaxBodyBytes = maxBodyBytes;
+        mUseDiskCache = useDiskCache;
+        mEndpoint = endpoint;
+    }
+
+    /**
+     * Sends the request unconditionally even when the disk cache holds an entry for the url, so
+     * that neither a fresh entry nor a 304 can hand back a body the caller already rejected. A
+     * 200 still replaces the entry. Must be called before the task is executed.
+     */
+    public void setBypassCachedEntry(final boolean bypassCachedEntry) {
+        mBypassCachedEntry = bypassCachedEntry;
     }
 
     @Override
@@ -34,22 +88,89 @@ public class DownloadTask extends AsyncTask<HttpUriRequest, Void, DownloadRespon
         final HttpUriRequest httpUriRequest = httpUriRequests[0];
         mUrl = httpUriRequest.getURI().toString();
 
-        AndroidHttpClient httpClient = null;
+        TimedEvent timedEvent = null;
         try {
-            httpClient = HttpClient.getHttpClient();
-            final HttpResponse httpResponse = httpClient.execute(httpUriRequest);
-            return new DownloadResponse(httpResponse);
+            CachePolicy cachedPolicy = null;
+            if (mUseDiskCache && !mBypassCachedEntry) {
+                cachedPolicy = CacheService.getCachePolicyDiskCache(mUrl);
+                if (cachedPolicy != null) {
+                    if (cachedPolicy.isFresh(System.currentTimeMillis())) {
+                        final byte[] cachedBytes = CacheService.getFromDiskCache(mUrl);
+                        if (cachedBytes != null) {
+                            return new DownloadResponse(HttpStatus.SC_OK, cachedBytes,
+                                    new Header[0]);
+                        }
+                    }
+                    cachedPolicy.addConditionalHeaders(httpUriRequest);
+                }
+            }
+
+            timedEvent = MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST, mEndpoint, mUrl);
+            final HttpResponse httpResponse =
+                    TimedRequests.execute(HttpClient.getHttpClient(), httpUriRequest, timedEvent);
+            // Read before decompressing, so the event records the bytes that went over the wire.
+            final long contentLength = TimedRequests.getContentLength(httpResponse);
+            HttpCompression.decompressResponse(httpUriRequest, httpResponse);
+            final StreamingResponse streamingResponse =
+                    new StreamingResponse(httpResponse, mMaxBodyBytes);
+            if (cachedPolicy != null
+                    && streamingResponse.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                streamingResponse.discard();
+                timedEvent.stop(HttpStatus.SC_NOT_MODIFIED, 0);
+                return fromNotModifiedResponse(httpResponse, cachedPolicy);
+            }
+
+            // Every listener gives up on anything but a 200, so error pages aren't worth reading.
+            if (streamingResponse.getStatusCode() != HttpStatus.SC_OK) {
+                streamingResponse.discard();
+                timedEvent.stop(streamingResponse.getStatusCode(), 0);
+                return new DownloadResponse(streamingResponse, new byte[0]);
+            }
+
+            final DownloadResponse downloadResponse = new DownloadResponse(streamingResponse);
+            timedEvent.stop(HttpStatus.SC_OK, contentLength);
+            if (mUseDiskCache) {
+                final CachePolicy cachePolicy =
+                        CachePolicy.fromResponse(httpResponse, System.currentTimeMillis());
+                if (cachePolicy.isNoStore()) {
+                    CacheService.removeFromDiskCache(mUrl);
+                } else {
+                    CacheService.putToDiskCache(mUrl, downloadResponse.getByteArray(), cachePolicy);
+                }
+            }
+            return downloadResponse;
         } catch (Exception e) {
+            if (timedEvent != null) {
+                timedEvent.stop(TimedEvent.SC_NO_RESPONSE);
+            }
             MoPubLog.d("Download task threw an internal exception", e);
             cancel(true);
             return null;
-        } finally {
-            if (httpClient != null) {
-                httpClient.close();
-            }
         }
     }
 
+    /**
+     * Answers a 304 with the cached body and refreshes the entry's policy. If the entry was
+     * evicted since the request went out, the 304 is passed on with an empty body.
+     */
+    private DownloadResponse fromNotModifiedResponse(final HttpResponse httpResponse,
+            final CachePolicy cachedPolicy) {
+        final byte[] cachedBytes = CacheService.getFromDiskCache(mUrl);
+        if (cachedBytes == null) {
+            return new DownloadResponse(HttpStatus.SC_NOT_MODIFIED, new byte[0],
+                    httpResponse.getAllHeaders());
+        }
+
+        final CachePolicy refreshedPolicy =
+                cachedPolicy.refresh(httpResponse, System.currentTimeMillis());
+        if (refreshedPolicy.isNoStore()) {
+            CacheService.removeFromDiskCache(mUrl);
+        } else {
+            CacheService.updateCachePolicyDiskCache(mUrl, refreshedPolicy);
+        }
+        return new DownloadResponse(HttpStatus.SC_OK, cachedBytes, httpResponse.getAllHeaders());
+    }
+
     @Override
     protected void onPostExecute(final DownloadResponse downloadResponse) {
         if (isCancelled()) {
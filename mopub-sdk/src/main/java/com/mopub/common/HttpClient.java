@@ -1,20 +1,20 @@
 package com.mopub.common;
 
 import android.content.Context;
-import android.net.http.AndroidHttpClient;
 import android.os.Handler;
 import android.os.Looper;
 import android.webkit.WebView;
 
-import com.mopub.common.util.AsyncTasks;
 import com.mopub.common.util.DeviceUtils;
 import com.mopub.common.logging.MoPubLog;
 
-import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
 
 import java.util.Arrays;
 
@@ -23,19 +23,32 @@ import static com.mopub.common.util.ResponseHeader.USER_AGENT;
 public class HttpClient {
     private static final int CONNECTION_TIMEOUT = 10000;
     private static final int SOCKET_TIMEOUT = 10000;
+    private static final int SOCKET_BUFFER_SIZE = 8192;
     private static String sWebViewUserAgent;
+    private static DefaultHttpClient sHttpClient;
+
+    /**
+     * Returns the process-wide client backed by {@link HttpConnectionPool}. Callers must consume
+     * or close the response entity so the connection goes back to the pool, and must not close
+     * or shut down the client.
+     */
+    public static synchronized DefaultHttpClient getHttpClient() {
+        if (sHttpClient == null) {
+            final HttpParams params = new BasicHttpParams();
+            HttpConnectionParams.setConnectionTimeout(params, CONNECTION_TIMEOUT);
+            HttpConnectionParams.setSoTimeout(params, SOCKET_TIMEOUT);
+            HttpConnectionParams.setSocketBufferSize(params, SOCKET_BUFFER_SIZE);
+            HttpClientParams.setRedirecting(params, true);
+
+            final String userAgent = DeviceUtils.getUserAgent();
+            if (userAgent != null) {
+                HttpProtocolParams.setUserAgent(params, userAgent);
+            }
 
-    public static AndroidHttpClient getHttpClient() {
-        String userAgent = DeviceUtils.getUserAgent();
-
-        AndroidHttpClient httpClient = AndroidHttpClient.newInstance(userAgent);
-
-        HttpParams params = httpClient.getParams();
-        HttpConnectionParams.setConnectionTimeout(params, CONNECTION_TIMEOUT);
-        HttpConnectionParams.setSoTimeout(params, SOCKET_TIMEOUT);
-        HttpClientParams.setRedirecting(params, true);
+            sHttpClient = HttpConnectionPool.newHttpClient(params);
+        }
 
-        return httpClient;
+        return sHttpClient;
     }
 
     public static HttpGet initializeHttpGet(final String url, final Context context) {
@@ -55,42 +68,30 @@ public class HttpClient {
         return httpGet;
     }
 
+    /**
+     * Hands the urls to {@link TrackingDispatcher}, which sends them with the WebView user agent
+     * and keeps retrying them across failures and restarts.
+     */
     public static void makeTrackingHttpRequest(final Iterable<String> urls, final Context context) {
         if (urls == null || context == null) {
             return;
         }
 
-        final DownloadTask.DownloadTaskListener downloadTaskListener = new DownloadTask.DownloadTaskListener() {
-            @Override
-            public void onComplete(final String url, final DownloadResponse downloadResponse) {
-                if (downloadResponse == null || downloadResponse.getStatusCode() != HttpStatus.SC_OK) {
-                    MoPubLog.d("Failed to hit tracking endpoint: " + url);
-                    return;
-                }
-
-                String result = HttpResponses.asResponseString(downloadResponse);
-
-                if (result != null) {
-                    MoPubLog.d("Successfully hit tracking endpoint: " + url);
-                } else {
-                    MoPubLog.d("Failed to hit tracking endpoint: " + url);
-                }
-            }
-        };
-
         // Hold onto the application context in closure instead of activity context
         final Context appContext = context.getApplicationContext();
         final Runnable trackingHttpRequestRunnable = new Runnable() {
             @Override
             public void run() {
-                for (final String url : urls) {
-                    try {
-                        final HttpGet httpGet = initializeHttpGet(url, appContext);
-                        AsyncTasks.safeExecuteOnExecutor(new DownloadTask(downloadTaskListener), httpGet);
-                    } catch (Exception e) {
-                        MoPubLog.d("Failed to hit tracking endpoint: " + url);
+                try {
+                    if (getWebViewUserAgent() == null) {
+                        // Memoize the user agent since creating WebViews is expensive
+                        setWebViewUserAgent(new WebView(appContext).getSettings().getUserAgentString());
                     }
+                } catch (Exception e) {
+                    MoPubLog.d("Unable to get WebView user agent for tracking requests.", e);
                 }
+
+                TrackingDispatcher.enqueue(appContext, urls, getWebViewUserAgent());
             }
         };
 
@@ -0,0 +1,295 @@
+package com.mopub.common;
+
+import com.mopub.common.util.ResponseHeader;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compressed transfer for the requests whose bodies we parse ourselves. A request marked with
+ * {@link #acceptCompressedResponse} asks for gzip or deflate, and {@link #decompressResponse}
+ * swaps the response's entity for one that decodes the body as it is read, so the code that
+ * parses it never sees the encoding.
+ *
+ * Wire and decoded byte counts are kept per {@link RequestType} to show what compression saves.
+ */
+public class HttpCompression {
+    public enum RequestType {
+        AD,
+        NATIVE_AD,
+        POSITIONING
+    }
+
+    public static class Stats {
+        public final RequestType requestType;
+        public final long responses;
+        public final long compressedResponses;
+        public final long wireBytes;
+        public final long decodedBytes;
+
+        Stats(final RequestType requestType,
+                final long responses,
+                final long compressedResponses,
+                final long wireBytes,
+                final long decodedBytes) {
+            this.requestType = requestType;
+            this.responses = responses;
+            this.compressedResponses = compressedResponses;
+            this.wireBytes = wireBytes;
+            this.decodedBytes = decodedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "HttpCompression.Stats{requestType=" + requestType
+                    + ", responses=" + responses
+                    + ", compressedResponses=" + compressedResponses
+                    + ", wireBytes=" + wireBytes
+                    + ", decodedBytes=" + decodedBytes + "}";
+        }
+    }
+
+    static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+    private static final String REQUEST_TYPE_PARAMETER = "com.mopub.common.HttpCompression.requestType";
+
+    private static class Counters {
+        final AtomicLong mResponses = new AtomicLong();
+        final AtomicLong mCompressedResponses = new AtomicLong();
+        final AtomicLong mWireBytes = new AtomicLong();
+        final AtomicLong mDecodedBytes = new AtomicLong();
+    }
+
+    private static final Map<RequestType, Counters> sCounters = createCounters();
+
+    private HttpCompression() {}
+
+    private static Map<RequestType, Counters> createCounters() {
+        final Map<RequestType, Counters> counters =
+                new EnumMap<RequestType, Counters>(RequestType.class);
+        for (final RequestType requestType : RequestType.values()) {
+            counters.put(requestType, new Counters());
+        }
+        return counters;
+    }
+
+    /**
+     * Asks the server for a compressed body and remembers which kind of request this is for
+     * {@link #decompressResponse}.
+     */
+    public static void acceptCompressedResponse(final HttpRequest request,
+            final RequestType requestType) {
+        if (request == null || requestType == null) {
+            return;
+        }
+        request.setHeader(ResponseHeader.ACCEPT_ENCODING.getKey(), ACCEPTED_ENCODINGS);
+        request.getParams().setParameter(REQUEST_TYPE_PARAMETER, requestType);
+    }
+
+    /**
+     * Replaces the entity of a gzip or deflate response to a request marked by
+     * {@link #acceptCompressedResponse} with one that decodes the body while it is read and
+     * counts its bytes. The decoded entity reports an unknown length. Uncompressed responses keep
+     * their entity and are counted by their Content-Length. Responses to other requests are left
+     * alone, so this is safe to call on every response.
+     */
+    public static void decompressResponse(final HttpRequest request, final HttpResponse response) {
+        if (request == null || response == null || response.getEntity() == null) {
+            return;
+        }
+        final Object requestType = request.getParams().getParameter(REQUEST_TYPE_PARAMETER);
+        if (!(requestType instanceof RequestType)) {
+            return;
+        }
+
+        final Counters counters = sCounters.get(requestType);
+        counters.mResponses.incrementAndGet();
+        final String encoding = getContentEncoding(response);
+        if (encoding == null) {
+            // Count what the server declared rather than wrap a body that needs no decoding.
+            final long contentLength = response.getEntity().getContentLength();
+            if (contentLength > 0) {
+                counters.mWireBytes.addAndGet(contentLength);
+                counters.mDecodedBytes.addAndGet(contentLength);
+            }
+            return;
+        }
+
+        counters.mCompressedResponses.incrementAndGet();
+        response.removeHeaders(ResponseHeader.CONTENT_ENCODING.getKey());
+        response.setEntity(new DecodingEntity(response.getEntity(), encoding, counters));
+    }
+
+    public static Stats getStats(final RequestType requestType) {
+        final Counters counters = sCounters.get(requestType);
+        return new Stats(requestType, counters.mResponses.get(),
+                counters.mCompressedResponses.get(), counters.mWireBytes.get(),
+                counters.mDecodedBytes.get());
+    }
+
+    @VisibleForTesting
+    static void clearStats() {
+        for (final Counters counters : sCounters.values()) {
+            counters.mResponses.set(0);
+            counters.mCompressedResponses.set(0);
+            counters.mWireBytes.set(0);
+            counters.mDecodedBytes.set(0);
+        }
+    }
+
+    /**
+     * Returns "gzip" or "deflate" if the body is encoded with one of them, otherwise null.
+     */
+    private static String getContentEncoding(final HttpResponse response) {
+        final Header header = response.getFirstHeader(ResponseHeader.CONTENT_ENCODING.getKey());
+        if (header == null || header.getValue() == null) {
+            return null;
+        }
+
+        final String encoding = header.getValue().trim().toLowerCase(Locale.US);
+        if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+            return "gzip";
+        } else if (encoding.equals("deflate")) {
+            return "deflate";
+        }
+        return null;
+    }
+
+    private static class DecodingEntity extends HttpEntityWrapper {
+        private final String mEncoding;
+        private final Counters mCounters;
+        private InputStream mContent;
+
+        DecodingEntity(final HttpEntity entity, final String encoding, final Counters counters) {
+            super(entity);
+            mEncoding = encoding;
+            mCounters = counters;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            if (mContent == null) {
+                final CountingInputStream wireStream =
+                        new CountingInputStream(wrappedEntity.getContent());
+                mContent = new DecodedInputStream(decode(wireStream), wireStream, mCounters);
+            }
+            return mContent;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public Header getContentEncoding() {
+            return null;
+        }
+
+        private InputStream decode(final InputStream wireStream) throws IOException {
+            if ("gzip".equals(mEncoding)) {
+                return new GZIPInputStream(wireStream);
+            }
+            // Deflate should be zlib wrapped, but some servers send the raw stream.
+            final BufferedInputStream bufferedStream = new BufferedInputStream(wireStream);
+            bufferedStream.mark(2);
+            final int first = bufferedStream.read();
+            final int second = bufferedStream.read();
+            bufferedStream.reset();
+            final boolean zlibWrapped = (first & 0x0f) == 8 && second != -1
+                    && ((first << 8) | second) % 31 == 0;
+            return new InflaterInputStream(bufferedStream, new Inflater(!zlibWrapped));
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long mBytesRead;
+
+        CountingInputStream(final InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int result = in.read();
+            if (result != -1) {
+                mBytesRead++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int count) throws IOException {
+            final int read = in.read(buffer, offset, count);
+            if (read > 0) {
+                mBytesRead += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Counts decoded bytes and adds both counts to the request type's totals once, when the body
+     * ends or is closed.
+     */
+    private static class DecodedInputStream extends CountingInputStream {
+        private final CountingInputStream mWireStream;
+        private final Counters mCounters;
+        private boolean mRecorded;
+
+        DecodedInputStream(final InputStream decodedStream,
+                final CountingInputStream wireStream,
+                final Counters counters) {
+            super(decodedStream);
+            mWireStream = wireStream;
+            mCounters = counters;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int result = super.read();
+            if (result == -1) {
+                record();
+            }
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int count) throws IOException {
+            final int read = super.read(buffer, offset, count);
+            if (read == -1) {
+                record();
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            record();
+            super.close();
+        }
+
+        private void record() {
+            if (mRecorded) {
+                return;
+            }
+            mRecorded = true;
+            mCounters.mWireBytes.addAndGet(mWireStream.mBytesRead);
+            mCounters.mDecodedBytes.addAndGet(mBytesRead);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.mopub.common;
+
+import com.mopub.common.logging.MoPubLog;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.protocol.RequestAddCookies;
+import org.apache.http.client.protocol.ResponseProcessCookies;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide pool of keep-alive HTTP connections shared by every SDK request. Clients built by
+ * {@link #newHttpClient(HttpParams)} borrow connections from the pool and hand them back once the
+ * response entity has been consumed, so callers must never shut down their connection manager.
+ */
+public class HttpConnectionPool {
+    static final int MAX_TOTAL_CONNECTIONS = 12;
+    static final int MAX_CONNECTIONS_PER_ROUTE = 4;
+    static final long KEEP_ALIVE_MILLIS = 30000;
+    static final long IDLE_TIMEOUT_MILLIS = 30000;
+    // How long a request waits for a free pooled connection before failing.
+    private static final long CONNECTION_REQUEST_TIMEOUT_MILLIS = 10000;
+    /**
+     * The {@link HttpContext} attribute holding how long, in milliseconds, resolving the host and
+     * opening a new connection took for the request executed with that context.
+     */
+    static final String CONNECT_DURATION_MILLIS = "com.mopub.http.connect-duration-millis";
+
+    private static final AtomicLong sPoolHits = new AtomicLong();
+    private static final AtomicLong sNewConnections = new AtomicLong();
+    private static final AtomicLong sIdleEvictions = new AtomicLong();
+    private static volatile long sLastEvictionMillis;
+
+    private static PooledClientConnManager sConnectionManager;
+
+    public static class Stats {
+        public final long poolHits;
+        public final long newConnections;
+        public final long idleEvictions;
+        public final int connectionsInPool;
+
+        Stats(final long poolHits,
+                final long newConnections,
+                final long idleEvictions,
+                final int connectionsInPool) {
+            this.poolHits = poolHits;
+            this.newConnections = newConnections;
+            this.idleEvictions = idleEvictions;
+            this.connectionsInPool = connectionsInPool;
+        }
+
+        @Override
+        public String toString() {
+            return "HttpConnectionPool.Stats{poolHits=" + poolHits
+                    + ", newConnections=" + newConnections
+                    + ", idleEvictions=" + idleEvictions
+                    + ", connectionsInPool=" + connectionsInPool + "}";
+        }
+    }
+
+    public static synchronized ClientConnectionManager getConnectionManager() {
+        if (sConnectionManager == null) {
+            final HttpParams params = new BasicHttpParams();
+            ConnManagerParams.setMaxTotalConnections(params, MAX_TOTAL_CONNECTIONS);
+            ConnManagerParams.setMaxConnectionsPerRoute(params,
+                    new ConnPerRouteBean(MAX_CONNECTIONS_PER_ROUTE));
+            ConnManagerParams.setTimeout(params, CONNECTION_REQUEST_TIMEOUT_MILLIS);
+
+            final SchemeRegistry schemeRegistry = new SchemeRegistry();
+            schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+            schemeRegistry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+            sConnectionManager = new PooledClientConnManager(params, schemeRegistry);
+        }
+        return sConnectionManager;
+    }
+
+    /**
+     * Creates a lightweight client backed by the shared connection pool. The given params apply
+     * only to requests made through the returned client. Like AndroidHttpClient, the client neither
+     * sends nor stores cookies, so a long-lived client can't carry ad server or tracker cookies
+     * from one request to the next.
+     */
+    public static DefaultHttpClient newHttpClient(final HttpParams params) {
+        evictIdleConnectionsIfNeeded();
+
+        final DefaultHttpClient httpClient = new DefaultHttpClient(getConnectionManager(), params);
+        httpClient.setKeepAliveStrategy(new BoundedKeepAliveStrategy());
+        httpClient.removeRequestInterceptorByClass(RequestAddCookies.class);
+        httpClient.removeResponseInterceptorByClass(ResponseProcessCookies.class);
+        return httpClient;
+    }
+
+    /**
+     * Closes pooled connections that have expired or sat idle for longer than
+     * {@link #IDLE_TIMEOUT_MILLIS}.
+     */
+    public static synchronized void evictIdleConnections() {
+        if (sConnectionManager == null) {
+            return;
+        }
+
+        sLastEvictionMillis = System.currentTimeMillis();
+        final int before = sConnectionManager.getConnectionsInPool();
+        sConnectionManager.closeExpiredConnections();
+        sConnectionManager.closeIdleConnections(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        final int evicted = before - sConnectionManager.getConnectionsInPool();
+        if (evicted > 0) {
+            sIdleEvictions.addAndGet(evicted);
+        }
+    }
+
+    public static Stats getStats() {
+        final int connectionsInPool;
+        synchronized (HttpConnectionPool.class) {
+            connectionsInPool = (sConnectionManager != null)
+                    ? sConnectionManager.getConnectionsInPool()
+                    : 0;
+        }
+        return new Stats(sPoolHits.get(), sNewConnections.get(), sIdleEvictions.get(),
+                connectionsInPool);
+    }
+
+    private static void evictIdleConnectionsIfNeeded() {
+        // Evicting walks the whole pool, so only do it at most once per idle timeout.
+        if (System.currentTimeMillis() - sLastEvictionMillis >= IDLE_TIMEOUT_MILLIS) {
+            evictIdleConnections();
+        }
+    }
+
+    private static class PooledClientConnManager extends ThreadSafeClientConnManager {
+        PooledClientConnManager(final HttpParams params, final SchemeRegistry schemeRegistry) {
+            super(params, schemeRegistry);
+        }
+
+        @Override
+        public ClientConnectionRequest requestConnection(final HttpRoute route, final Object state) {
+            final ClientConnectionRequest request = super.requestConnection(route, state);
+            return new ClientConnectionRequest() {
+                @Override
+                public ManagedClientConnection getConnection(final long timeout, final TimeUnit timeUnit)
+                        throws InterruptedException, ConnectionPoolTimeoutException {
+                    final ManagedClientConnection connection = request.getConnection(timeout, timeUnit);
+                    // Connections handed back open from the pool skip the TCP and TLS handshakes.
+                    if (connection.isOpen()) {
+                        sPoolHits.incrementAndGet();
+                    } else {
+                        sNewConnections.incrementAndGet();
+                    }
+                    return connection;
+                }
+
+                @Override
+                public void abortRequest() {
+                    request.abortRequest();
+                }
+            };
+        }
+
+        @Override
+        protected ClientConnectionOperator createConnectionOperator(
+                final SchemeRegistry schemeRegistry) {
+            return new TimingConnectionOperator(schemeRegistry);
+        }
+
+        @Override
+        public void shutdown() {
+            // The pool lives for the lifetime of the process.
+            MoPubLog.d("Ignoring request to shut down the shared HTTP connection pool.");
+        }
+    }
+
+    private static class TimingConnectionOperator extends DefaultClientConnectionOperator {
+        TimingConnectionOperator(final SchemeRegistry schemeRegistry) {
+            super(schemeRegistry);
+        }
+
+        @Override
+        public void openConnection(final OperatedClientConnection connection,
+                final HttpHost target,
+                final InetAddress local,
+                final HttpContext context,
+                final HttpParams params) throws IOException {
+            // Covers the DNS lookup and the TCP and TLS handshakes, which pooled connections skip.
+            final long startNanos = System.nanoTime();
+            super.openConnection(connection, target, local, context, params);
+            if (context != null) {
+                context.setAttribute(CONNECT_DURATION_MILLIS, TimeUnit.MILLISECONDS.convert(
+                        System.nanoTime() - startNanos, TimeUnit.NANOSECONDS));
+            }
+        }
+    }
+
+    private static class BoundedKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+        private final ConnectionKeepAliveStrategy mDefaultStrategy =
+                new DefaultConnectionKeepAliveStrategy();
+
+        @Override
+        public long getKeepAliveDuration(final HttpResponse response, final HttpContext context) {
+            final long serverKeepAliveMillis = mDefaultStrategy.getKeepAliveDuration(response, context);
+            if (serverKeepAliveMillis <= 0) {
+                return KEEP_ALIVE_MILLIS;
+            }
+            return Math.min(serverKeepAliveMillis, KEEP_ALIVE_MILLIS);
+        }
+    }
+
+    @Deprecated // for testing
+    static synchronized void resetForTesting() {
+        sPoolHits.set(0);
+        sNewConnections.set(0);
+        sIdleEvictions.set(0);
+        sLastEvictionMillis = 0;
+    }
+}
@@ -2,6 +2,9 @@ package com.mopub.common;
 
 import android.graphics.Bitmap;
 
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
@@ -46,4 +49,25 @@ public final class HttpResponses {
             return null;
         }
     }
+
+    /**
+     * Drains and releases the response body so its connection can be reused by
+     * {@link HttpConnectionPool}. Safe to call on responses that were already fully read.
+     */
+    public static void consumeEntity(final HttpResponse httpResponse) {
+        if (httpResponse == null) {
+            return;
+        }
+
+        final HttpEntity entity = httpResponse.getEntity();
+        if (entity == null) {
+            return;
+        }
+
+        try {
+            entity.consumeContent();
+        } catch (Exception e) {
+            // The connection will be closed rather than reused.
+        }
+    }
 }
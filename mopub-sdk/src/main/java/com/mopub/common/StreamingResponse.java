@@ -0,0 +1,170 @@
+package com.mopub.common;
+
+import com.mopub.common.util.ResponseHeader;
+import com.mopub.common.util.Streams;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An HTTP response whose body hasn't been read yet. The body is read at most once, in whichever
+ * way suits the caller: as a stream, as a byte array sized from Content-Length up front, or not
+ * at all. A body longer than the maximum fails with an IOException instead of filling the heap.
+ */
+public class StreamingResponse {
+    private final HttpResponse mHttpResponse;
+    private final long mMaxBodyBytes;
+    private boolean mBodyConsumed;
+
+    public StreamingResponse(final HttpResponse httpResponse, final long maxBodyBytes) {
+        if (httpResponse == null) {
+            throw new IllegalArgumentException("HttpResponse must not be null.");
+        }
+        mHttpResponse = httpResponse;
+        mMaxBodyBytes = maxBodyBytes;
+    }
+
+    public int getStatusCode() {
+        return mHttpResponse.getStatusLine().getStatusCode();
+    }
+
+    /**
+     * Returns the length the server declared for the body, or -1 if it didn't.
+     */
+    public long getContentLength() {
+        final HttpEntity entity = mHttpResponse.getEntity();
+        return entity != null ? entity.getContentLength() : 0;
+    }
+
+    public Header[] getAllHeaders() {
+        return mHttpResponse.getAllHeaders();
+    }
+
+    public String getFirstHeader(final ResponseHeader responseHeader) {
+        final Header header = mHttpResponse.getFirstHeader(responseHeader.getKey());
+        return header != null ? header.getValue() : null;
+    }
+
+    /**
+     * Returns the body as a stream that throws an IOException once more than the maximum has
+     * been read. The caller must close it.
+     */
+    public InputStream getInputStream() throws IOException {
+        consumeBody();
+        final HttpEntity entity = mHttpResponse.getEntity();
+        if (entity == null) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        checkContentLength(entity.getContentLength());
+        return new MaxBytesInputStream(entity.getContent(), mMaxBodyBytes);
+    }
+
+    /**
+     * Reads the whole body. When the server declared its length the body is read straight into
+     * an array of that size; otherwise it is copied through a pooled buffer.
+     */
+    public byte[] readByteArray() throws IOException {
+        consumeBody();
+        final HttpEntity entity = mHttpResponse.getEntity();
+        if (entity == null) {
+            return new byte[0];
+        }
+
+        final long contentLength = entity.getContentLength();
+        checkContentLength(contentLength);
+        if (contentLength > Integer.MAX_VALUE) {
+            HttpResponses.consumeEntity(mHttpResponse);
+            throw new IOException("Response body of " + contentLength + " bytes is too long for "
+                    + "an array.");
+        }
+        final InputStream inputStream = entity.getContent();
+        try {
+            if (contentLength >= 0) {
+                final byte[] bytes = new byte[(int) contentLength];
+                int offset = 0;
+                while (offset < bytes.length) {
+                    final int read = inputStream.read(bytes, offset, bytes.length - offset);
+                    if (read == -1) {
+                        throw new IOException("Response body ended after " + offset + " of "
+                                + contentLength + " bytes.");
+                    }
+                    offset += read;
+                }
+                return bytes;
+            }
+
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            Streams.copyContent(new MaxBytesInputStream(inputStream, mMaxBodyBytes), outputStream);
+            return outputStream.toByteArray();
+        } finally {
+            Streams.closeStream(inputStream);
+            HttpResponses.consumeEntity(mHttpResponse);
+        }
+    }
+
+    /**
+     * Releases the body unread, for callers that only need the status and headers.
+     */
+    public void discard() {
+        consumeBody();
+        HttpResponses.consumeEntity(mHttpResponse);
+    }
+
+    private void consumeBody() {
+        if (mBodyConsumed) {
+            throw new IllegalStateException("The response body has already been consumed.");
+        }
+        mBodyConsumed = true;
+    }
+
+    private void checkContentLength(final long contentLength) throws IOException {
+        if (contentLength > mMaxBodyBytes) {
+            HttpResponses.consumeEntity(mHttpResponse);
+            throw new IOException("Response body of " + contentLength + " bytes exceeds the "
+                    + mMaxBodyBytes + " byte maximum.");
+        }
+    }
+
+    private static class MaxBytesInputStream extends FilterInputStream {
+        private final long mMaxBytes;
+        private long mBytesRead;
+
+        MaxBytesInputStream(final InputStream inputStream, final long maxBytes) {
+            super(inputStream);
+            mMaxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int result = in.read();
+            if (result != -1) {
+                countBytes(1);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int count) throws IOException {
+            final int read = in.read(buffer, offset, count);
+            if (read > 0) {
+                countBytes(read);
+            }
+            return read;
+        }
+
+        private void countBytes(final int bytes) throws IOException {
+            mBytesRead += bytes;
+            if (mBytesRead > mMaxBytes) {
+                throw new IOException("Response body exceeds the " + mMaxBytes
+                        + " byte maximum.");
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.mopub.common;
+
+import com.mopub.common.event.TimedEvent;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+/**
+ * Executes requests on clients from {@link HttpConnectionPool} while recording how long they
+ * spent connecting and waiting for the response into a {@link TimedEvent}.
+ *
+ * The caller still owns the event once a response comes back: it stops it with the status code
+ * and body size once the body has been read, and with {@link TimedEvent#SC_NO_RESPONSE} if reading
+ * fails. Stopping is idempotent, so a catch-all stop after a successful one is harmless.
+ */
+public final class TimedRequests {
+
+    private TimedRequests() {}
+
+    /**
+     * Executes the request, marking the first byte once the response headers have arrived. If no
+     * response comes back, the event is stopped with {@link TimedEvent#SC_NO_RESPONSE} before the
+     * exception is rethrown.
+     */
+    public static HttpResponse execute(final HttpClient httpClient,
+            final HttpUriRequest request,
+            final TimedEvent timedEvent) throws IOException {
+        final HttpContext context = new BasicHttpContext();
+        try {
+            final HttpResponse response = httpClient.execute(request, context);
+            timedEvent.markFirstByte();
+            recordConnectDuration(context, timedEvent);
+            return response;
+        } catch (IOException e) {
+            recordConnectDuration(context, timedEvent);
+            timedEvent.stop(TimedEvent.SC_NO_RESPONSE);
+            throw e;
+        } catch (RuntimeException e) {
+            timedEvent.stop(TimedEvent.SC_NO_RESPONSE);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the length the server declared for the response body, or
+     * {@link TimedEvent#NOT_MEASURED} for chunked or missing bodies. Read it before the response
+     * is decompressed to get the bytes that went over the wire.
+     */
+    public static long getContentLength(final HttpResponse response) {
+        if (response == null) {
+            return TimedEvent.NOT_MEASURED;
+        }
+
+        final HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return 0;
+        }
+
+        final long contentLength = entity.getContentLength();
+        return contentLength >= 0 ? contentLength : TimedEvent.NOT_MEASURED;
+    }
+
+    /**
+     * Returns the response's status code, or {@link TimedEvent#SC_NO_RESPONSE} without a response.
+     */
+    public static int getStatusCode(final HttpResponse response) {
+        if (response == null || response.getStatusLine() == null) {
+            return TimedEvent.SC_NO_RESPONSE;
+        }
+        return response.getStatusLine().getStatusCode();
+    }
+
+    private static void recordConnectDuration(final HttpContext context,
+            final TimedEvent timedEvent) {
+        // Absent when the request went out on a pooled connection.
+        final Object connectDurationMillis =
+                context.getAttribute(HttpConnectionPool.CONNECT_DURATION_MILLIS);
+        if (connectDurationMillis instanceof Long) {
+            timedEvent.setConnectDurationMillis((Long) connectDurationMillis);
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package com.mopub.common;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mopub.common.event.BaseEvent;
+import com.mopub.common.event.MoPubEvents;
+import com.mopub.common.event.TimedEvent;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.SdkExecutor;
+import com.mopub.common.util.SdkExecutor.Priority;
+import com.mopub.common.util.Streams;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.mopub.common.util.ResponseHeader.USER_AGENT;
+
+/**
+ * Sends impression, click and VAST tracking beacons. Pending beacons are mirrored to a small file
+ * so the ones still queued when the process dies go out the next time the SDK starts.
+ *
+ * At most {@link #MAX_CONCURRENT_REQUESTS} beacons are in flight at once. Requests that fail with
+ * an I/O error or a server error are retried with exponential backoff, and response bodies are
+ * drained straight back into the connection rather than buffered. Beacons restored from the file
+ * are dropped once they are older than {@link #MAX_BEACON_AGE_MILLIS}.
+ */
+public class TrackingDispatcher {
+    static final int MAX_CONCURRENT_REQUESTS = 2;
+    static final int MAX_QUEUED_BEACONS = 500;
+    static final int MAX_ATTEMPTS = 5;
+    static final long INITIAL_BACKOFF_MILLIS = 1000;
+    // Impressions and clicks this old are of no use to reporting anymore.
+    static final long MAX_BEACON_AGE_MILLIS = 24 * 60 * 60 * 1000;
+    static final String QUEUE_FILE_NAME = "mopub-tracking-queue";
+
+    private static final String FIELD_SEPARATOR = "\t";
+
+    private enum Outcome {
+        SENT,
+        RETRY,
+        REJECTED
+    }
+
+    static class Beacon {
+        final String mUrl;
+        final String mUserAgent;
+        final long mEnqueuedAtMillis;
+        int mAttempts;
+        boolean mInFlight;
+        boolean mWaitingForRetry;
+
+        Beacon(final String url,
+                final String userAgent,
+                final long enqueuedAtMillis,
+                final int attempts) {
+            mUrl = url;
+            mUserAgent = userAgent;
+            mEnqueuedAtMillis = enqueuedAtMillis;
+            mAttempts = attempts;
+        }
+    }
+
+    public static class Stats {
+        public final long sent;
+        // Beacons that still failed after MAX_ATTEMPTS retryable attempts.
+        public final long failed;
+        // Beacons that failed in a way a retry won't fix, such as a 404 or a malformed url.
+        public final long rejected;
+        public final long retried;
+        public final long dropped;
+        public final int pending;
+
+        Stats(final long sent,
+                final long failed,
+                final long rejected,
+                final long retried,
+                final long dropped,
+                final int pending) {
+            this.sent = sent;
+            this.failed = failed;
+            this.rejected = rejected;
+            this.retried = retried;
+            this.dropped = dropped;
+            this.pending = pending;
+        }
+
+        @Override
+        public String toString() {
+            return "TrackingDispatcher.Stats{sent=" + sent
+                    + ", failed=" + failed
+                    + ", rejected=" + rejected
+                    + ", retried=" + retried
+                    + ", dropped=" + dropped
+                    + ", pending=" + pending + "}";
+        }
+    }
+
+    private static final LinkedList<Beacon> sQueue = new LinkedList<Beacon>();
+    private static final Object sFileLock = new Object();
+
+    private static Executor sExecutor;
+    private static Executor sFileExecutor;
+    private static Handler sHandler;
+    private static File sQueueFile;
+    private static int sInFlightCount;
+    private static boolean sPersistScheduled;
+
+    private static long sSent;
+    private static long sFailed;
+    private static long sRejected;
+    private static long sRetried;
+    private static long sDropped;
+
+    /**
+     * Starts the dispatcher and sends any beacons left over from a previous run. Safe to call
+     * more than once; {@link #enqueue} calls this itself.
+     */
+    public static void initialize(final Context context) {
+        synchronized (TrackingDispatcher.class) {
+            if (sQueueFile != null || context == null) {
+                return;
+            }
+
+            sHandler = new Handler(Looper.getMainLooper());
+            sQueueFile = new File(context.getApplicationContext().getFilesDir(), QUEUE_FILE_NAME);
+            // The restore rewrites the file once it has merged in anything queued meanwhile.
+            sPersistScheduled = true;
+        }
+
+        getFileExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                restoreQueue();
+            }
+        });
+    }
+
+    /**
+     * Queues a GET for each url. Passing a null user agent sends the request with the client's
+     * default user agent.
+     */
+    public static void enqueue(final Context context,
+            final Iterable<String> urls,
+            final String userAgent) {
+        if (urls == null || context == null) {
+            return;
+        }
+
+        initialize(context);
+
+        final long nowMillis = System.currentTimeMillis();
+        synchronized (TrackingDispatcher.class) {
+            for (final String url : urls) {
+                if (url == null || url.length() == 0) {
+                    continue;
+                }
+                sQueue.add(new Beacon(url, userAgent, nowMillis, 0));
+            }
+            trimQueue();
+        }
+
+        schedulePersist();
+        dispatch();
+    }
+
+    public static synchronized Stats getStats() {
+        return new Stats(sSent, sFailed, sRejected, sRetried, sDropped, sQueue.size());
+    }
+
+    private static void dispatch() {
+        final List<Beacon> ready = new ArrayList<Beacon>();
+        synchronized (TrackingDispatcher.class) {
+            for (final Beacon beacon : sQueue) {
+                if (sInFlightCount >= MAX_CONCURRENT_REQUESTS) {
+                    break;
+                }
+                if (beacon.mInFlight || beacon.mWaitingForRetry) {
+                    continue;
+                }
+                beacon.mInFlight = true;
+                sInFlightCount++;
+                ready.add(beacon);
+            }
+        }
+
+        for (final Beacon beacon : ready) {
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    send(beacon);
+                }
+            });
+        }
+    }
+
+    private static void send(final Beacon beacon) {
+        Outcome outcome;
+        TimedEvent timedEvent = null;
+        try {
+            final HttpGet httpGet = new HttpGet(beacon.mUrl);
+            if (beacon.mUserAgent != null) {
+                httpGet.addHeader(USER_AGENT.getKey(), beacon.mUserAgent);
+            }
+
+            timedEvent = MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST,
+                    TimedEvent.Endpoint.TRACKING, beacon.mUrl);
+            final HttpResponse response =
+                    TimedRequests.execute(HttpClient.getHttpClient(), httpGet, timedEvent);
+            final int statusCode = TimedRequests.getStatusCode(response);
+            final long contentLength = TimedRequests.getContentLength(response);
+            HttpResponses.consumeEntity(response);
+            timedEvent.stop(statusCode, contentLength);
+
+            // Pixels commonly answer 204 No Content, which counts as delivered too.
+            if (statusCode >= HttpStatus.SC_OK && statusCode < HttpStatus.SC_MULTIPLE_CHOICES) {
+                MoPubLog.d("Successfully hit tracking endpoint: " + beacon.mUrl);
+                outcome = Outcome.SENT;
+            } else {
+                MoPubLog.d("Failed to hit tracking endpoint (status " + statusCode + "): " + beacon.mUrl);
+                outcome = statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR
+                        ? Outcome.RETRY
+                        : Outcome.REJECTED;
+            }
+        } catch (IOException e) {
+            MoPubLog.d("Failed to hit tracking endpoint: " + beacon.mUrl, e);
+            outcome = Outcome.RETRY;
+        } catch (Exception e) {
+            // Malformed urls and the like won't get any better on a retry.
+            MoPubLog.d("Failed to hit tracking endpoint: " + beacon.mUrl, e);
+            outcome = Outcome.REJECTED;
+        } finally {
+            // Only records anything if the request failed before it was stopped above.
+            if (timedEvent != null) {
+                timedEvent.stop(TimedEvent.SC_NO_RESPONSE);
+            }
+        }
+
+        onSendFinished(beacon, outcome);
+    }
+
+    private static void onSendFinished(final Beacon beacon, final Outcome outcome) {
+        synchronized (TrackingDispatcher.class) {
+            if (!beacon.mInFlight || !sQueue.contains(beacon)) {
+                // The queue was cleared while this beacon was being sent.
+                return;
+            }
+            beacon.mInFlight = false;
+            sInFlightCount--;
+            beacon.mAttempts++;
+
+            if (outcome == Outcome.RETRY && beacon.mAttempts < MAX_ATTEMPTS) {
+                beacon.mWaitingForRetry = true;
+                sRetried++;
+                sHandler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (TrackingDispatcher.class) {
+                            beacon.mWaitingForRetry = false;
+                        }
+                        dispatch();
+                    }
+                }, getBackoffMillis(beacon.mAttempts));
+            } else {
+                if (outcome == Outcome.SENT) {
+                    sSent++;
+                } else if (outcome == Outcome.RETRY) {
+                    sFailed++;
+                } else {
+                    sRejected++;
+                }
+                sQueue.remove(beacon);
+            }
+        }
+
+        schedulePersist();
+        dispatch();
+    }
+
+    static long getBackoffMillis(final int attempts) {
+        return INITIAL_BACKOFF_MILLIS << (attempts - 1);
+    }
+
+    /**
+     * Drops the oldest beacons that aren't already being sent once the queue is full.
+     */
+    private static void trimQueue() {
+        final Iterator<Beacon> iterator = sQueue.iterator();
+        while (sQueue.size() > MAX_QUEUED_BEACONS && iterator.hasNext()) {
+            if (!iterator.next().mInFlight) {
+                iterator.remove();
+                sDropped++;
+            }
+        }
+    }
+
+    /**
+     * Rewrites the queue file on the file executor, so it never waits behind a slow beacon. Writes
+     * requested while one is already pending are folded into it.
+     */
+    private static void schedulePersist() {
+        synchronized (TrackingDispatcher.class) {
+            if (sPersistScheduled || sQueueFile == null) {
+                return;
+            }
+            sPersistScheduled = true;
+        }
+
+        getFileExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                persistQueue();
+            }
+        });
+    }
+
+    private static void persistQueue() {
+        final File queueFile;
+        final StringBuilder contents = new StringBuilder();
+        synchronized (TrackingDispatcher.class) {
+            sPersistScheduled = false;
+            queueFile = sQueueFile;
+            for (final Beacon beacon : sQueue) {
+                contents.append(beacon.mAttempts)
+                        .append(FIELD_SEPARATOR)
+                        .append(beacon.mEnqueuedAtMillis)
+                        .append(FIELD_SEPARATOR)
+                        .append(beacon.mUserAgent != null ? beacon.mUserAgent : "")
+                        .append(FIELD_SEPARATOR)
+                        .append(beacon.mUrl)
+                        .append('\n');
+            }
+        }
+
+        if (queueFile == null) {
+            return;
+        }
+
+        synchronized (sFileLock) {
+            final File tempFile = new File(queueFile.getPath() + ".tmp");
+            BufferedWriter writer = null;
+            try {
+                writer = new BufferedWriter(
+                        new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8"));
+                writer.write(contents.toString());
+                writer.close();
+                writer = null;
+                if (!tempFile.renameTo(queueFile)) {
+                    MoPubLog.d("Unable to replace tracking queue file.");
+                }
+            } catch (IOException e) {
+                MoPubLog.d("Unable to write tracking queue file.", e);
+            } finally {
+                Streams.closeStream(writer);
+            }
+        }
+    }
+
+    private static void restoreQueue() {
+        final File queueFile;
+        synchronized (TrackingDispatcher.class) {
+            queueFile = sQueueFile;
+        }
+        if (queueFile == null) {
+            return;
+        }
+
+        final List<Beacon> restored = new ArrayList<Beacon>();
+        final long nowMillis = System.currentTimeMillis();
+        int expiredCount = 0;
+        synchronized (sFileLock) {
+            BufferedReader reader = null;
+            try {
+                reader = new BufferedReader(
+                        new InputStreamReader(new FileInputStream(queueFile), "UTF-8"));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final Beacon beacon = parseBeacon(line);
+                    if (beacon == null) {
+                        continue;
+                    }
+                    if (isExpired(beacon, nowMillis)) {
+                        expiredCount++;
+                    } else {
+                        restored.add(beacon);
+                    }
+                }
+            } catch (FileNotFoundException e) {
+                // Nothing was left over from the previous run.
+            } catch (IOException e) {
+                MoPubLog.d("Unable to read tracking queue file.", e);
+            } finally {
+                Streams.closeStream(reader);
+            }
+        }
+
+        if (expiredCount > 0) {
+            MoPubLog.d("Dropped " + expiredCount + " expired tracking requests.");
+            synchronized (TrackingDispatcher.class) {
+                sDropped += expiredCount;
+            }
+        }
+
+        if (!restored.isEmpty()) {
+            MoPubLog.d("Restored " + restored.size() + " pending tracking requests.");
+            synchronized (TrackingDispatcher.class) {
+                // Beacons from the previous run are older than anything queued since startup.
+                sQueue.addAll(0, restored);
+                trimQueue();
+            }
+        }
+
+        persistQueue();
+        dispatch();
+    }
+
+    /**
+     * A beacon stamped far in the future was queued before the clock was set back, so its age
+     * can't be told and it is treated as expired too.
+     */
+    private static boolean isExpired(final Beacon beacon, final long nowMillis) {
+        return Math.abs(nowMillis - beacon.mEnqueuedAtMillis) > MAX_BEACON_AGE_MILLIS;
+    }
+
+    private static Beacon parseBeacon(final String line) {
+        final String[] fields = line.split(FIELD_SEPARATOR, 4);
+        if (fields.length != 4 || fields[3].length() == 0) {
+            return null;
+        }
+
+        try {
+            final int attempts = Integer.parseInt(fields[0]);
+            final long enqueuedAtMillis = Long.parseLong(fields[1]);
+            final String userAgent = fields[2].length() > 0 ? fields[2] : null;
+            return new Beacon(fields[3], userAgent, enqueuedAtMillis, attempts);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static synchronized Executor getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = SdkExecutor.getInstance().forPriority(Priority.TRACKING);
+        }
+        return sExecutor;
+    }
+
+    private static synchronized Executor getFileExecutor() {
+        if (sFileExecutor == null) {
+            sFileExecutor = SdkExecutor.getInstance().forPriority(Priority.DISK_IO);
+        }
+        return sFileExecutor;
+    }
+
+    @Deprecated // for testing
+    public static synchronized void setExecutor(final Executor executor) {
+        sExecutor = executor;
+    }
+
+    @Deprecated // for testing
+    public static synchronized void setFileExecutor(final Executor executor) {
+        sFileExecutor = executor;
+    }
+
+    @Deprecated // for testing
+    public static void clearForTesting() {
+        final File queueFile;
+        synchronized (TrackingDispatcher.class) {
+            queueFile = sQueueFile;
+            sQueue.clear();
+            sHandler = null;
+            sQueueFile = null;
+            sInFlightCount = 0;
+            sPersistScheduled = false;
+            sSent = 0;
+            sFailed = 0;
+            sRejected = 0;
+            sRetried = 0;
+            sDropped = 0;
+        }
+
+        if (queueFile != null) {
+            synchronized (sFileLock) {
+                queueFile.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.mopub.common.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue for many producer threads and a single consumer thread.
+ *
+ * Every slot has a sequence number saying whose turn it is: a producer may fill slot
+ * {@code i} on lap {@code n} once its sequence is {@code n * capacity + i}, and the consumer may
+ * empty it once the producer has published {@code n * capacity + i + 1}. Producers only contend
+ * on a compare-and-set of the tail, and {@link #offer(Object)} fails instead of waiting when the
+ * buffer is full, so callers never block.
+ */
+class EventRingBuffer<E> {
+    private final int mCapacity;
+    private final int mMask;
+    private final AtomicReferenceArray<E> mElements;
+    private final AtomicLongArray mSequences;
+    private final AtomicLong mTail = new AtomicLong();
+    // Only written by the consumer; producers read it to estimate the size.
+    private volatile long mHead;
+
+    /**
+     * @param capacity rounded up to the next power of two.
+     */
+    EventRingBuffer(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+
+        mCapacity = Integer.highestOneBit(capacity) == capacity
+                ? capacity
+                : Integer.highestOneBit(capacity) << 1;
+        mMask = mCapacity - 1;
+        mElements = new AtomicReferenceArray<E>(mCapacity);
+        mSequences = new AtomicLongArray(mCapacity);
+        for (int i = 0; i < mCapacity; i++) {
+            mSequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the element, or returns false if the buffer is full. Safe to call from any thread.
+     */
+    boolean offer(final E element) {
+        while (true) {
+            final long tail = mTail.get();
+            final int index = (int) (tail & mMask);
+            final long difference = mSequences.get(index) - tail;
+            if (difference == 0) {
+                if (mTail.compareAndSet(tail, tail + 1)) {
+                    mElements.lazySet(index, element);
+                    // The volatile write publishes the element to the consumer.
+                    mSequences.set(index, tail + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                // The consumer hasn't emptied this slot since the last lap.
+                return false;
+            }
+            // Another producer claimed this slot first; try the next one.
+        }
+    }
+
+    /**
+     * Removes the oldest published element, or returns null if there is none. Must only be
+     * called from the consumer thread.
+     */
+    E poll() {
+        final long head = mHead;
+        final int index = (int) (head & mMask);
+        if (mSequences.get(index) != head + 1) {
+            // Empty, or the producer that claimed this slot hasn't published it yet.
+            return null;
+        }
+
+        final E element = mElements.get(index);
+        mElements.lazySet(index, null);
+        // Hands the slot to the producer of the next lap.
+        mSequences.set(index, head + mCapacity);
+        mHead = head + 1;
+        return element;
+    }
+
+    /**
+     * Returns how many elements have been claimed but not yet removed. Exact only on the consumer
+     * thread when no producer is running.
+     */
+    int size() {
+        final long size = mTail.get() - mHead;
+        return (int) Math.max(0, Math.min(size, mCapacity));
+    }
+
+    int capacity() {
+        return mCapacity;
+    }
+}
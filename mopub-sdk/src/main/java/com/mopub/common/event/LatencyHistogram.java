@@ -0,0 +1,88 @@
+package com.mopub.common.event;
+
+/**
+ * A streaming histogram of millisecond latencies in a fixed number of buckets. Values below 8ms
+ * get a bucket each, and every power of two above that is split into 8 buckets, so a percentile
+ * is at most 12.5% above the true value. Values past {@link #MAX_TRACKABLE_MILLIS} are counted
+ * in the last bucket.
+ *
+ * Not thread safe.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 19;
+    static final long MAX_TRACKABLE_MILLIS = (1L << (MAX_EXPONENT + 1)) - 1;
+    static final int BUCKET_COUNT =
+            SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mMaxMillis;
+
+    void record(final long millis) {
+        final long value = Math.min(Math.max(millis, 0), MAX_TRACKABLE_MILLIS);
+        mCounts[getBucketIndex(value)]++;
+        mCount++;
+        mMaxMillis = Math.max(mMaxMillis, value);
+    }
+
+    long getCount() {
+        return mCount;
+    }
+
+    long getMaxMillis() {
+        return mMaxMillis;
+    }
+
+    /**
+     * Returns the latency that {@code percentile} percent of the recorded values are at or below,
+     * rounded up to the top of its bucket, or 0 if nothing was recorded.
+     */
+    long getPercentileMillis(final double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * mCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                // The top bucket's upper bound can be far past anything that was recorded.
+                return Math.min(getBucketUpperBound(i), mMaxMillis);
+            }
+        }
+        return mMaxMillis;
+    }
+
+    void clear() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts[i] = 0;
+        }
+        mCount = 0;
+        mMaxMillis = 0;
+    }
+
+    static int getBucketIndex(final long millis) {
+        if (millis < SUB_BUCKET_COUNT) {
+            return (int) millis;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(millis);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (millis >> shift) & (SUB_BUCKET_COUNT - 1);
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long getBucketUpperBound(final int bucketIndex) {
+        if (bucketIndex < SUB_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+
+        final int shift = (bucketIndex - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        final int subBucket = (bucketIndex - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        final long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,144 @@
+package com.mopub.common.event;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Keeps latency histograms of timed requests for each {@link TimedEvent.Endpoint}, so their
+ * percentiles can be read in-process without holding on to individual events. Memory use is
+ * fixed: every endpoint has one {@link LatencyHistogram} each for the total time, the time to
+ * first byte and the connect time.
+ */
+public class LatencyHistogramRecorder implements EventRecorder {
+
+    public static class Percentiles {
+        public final long count;
+        public final long p50Millis;
+        public final long p90Millis;
+        public final long p99Millis;
+        public final long maxMillis;
+
+        Percentiles(final LatencyHistogram histogram) {
+            this.count = histogram.getCount();
+            this.p50Millis = histogram.getPercentileMillis(50);
+            this.p90Millis = histogram.getPercentileMillis(90);
+            this.p99Millis = histogram.getPercentileMillis(99);
+            this.maxMillis = histogram.getMaxMillis();
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count
+                    + ", p50=" + p50Millis
+                    + ", p90=" + p90Millis
+                    + ", p99=" + p99Millis
+                    + ", max=" + maxMillis + "}";
+        }
+    }
+
+    public static class Stats {
+        public final TimedEvent.Endpoint endpoint;
+        public final long requests;
+        // Requests that got no response or an HTTP error.
+        public final long failures;
+        public final long bytes;
+        public final Percentiles total;
+        public final Percentiles firstByte;
+        // Only requests that opened a new connection.
+        public final Percentiles connect;
+
+        Stats(final TimedEvent.Endpoint endpoint, final EndpointHistograms histograms) {
+            this.endpoint = endpoint;
+            this.requests = histograms.mRequests;
+            this.failures = histograms.mFailures;
+            this.bytes = histograms.mBytes;
+            this.total = new Percentiles(histograms.mTotal);
+            this.firstByte = new Percentiles(histograms.mFirstByte);
+            this.connect = new Percentiles(histograms.mConnect);
+        }
+
+        @Override
+        public String toString() {
+            return "LatencyHistogramRecorder.Stats{endpoint=" + endpoint
+                    + ", requests=" + requests
+                    + ", failures=" + failures
+                    + ", bytes=" + bytes
+                    + ", total=" + total
+                    + ", firstByte=" + firstByte
+                    + ", connect=" + connect + "}";
+        }
+    }
+
+    private static class EndpointHistograms {
+        final LatencyHistogram mTotal = new LatencyHistogram();
+        final LatencyHistogram mFirstByte = new LatencyHistogram();
+        final LatencyHistogram mConnect = new LatencyHistogram();
+        long mRequests;
+        long mFailures;
+        long mBytes;
+    }
+
+    private final Map<TimedEvent.Endpoint, EndpointHistograms> mHistograms;
+
+    public LatencyHistogramRecorder() {
+        mHistograms = new EnumMap<TimedEvent.Endpoint, EndpointHistograms>(
+                TimedEvent.Endpoint.class);
+        for (final TimedEvent.Endpoint endpoint : TimedEvent.Endpoint.values()) {
+            mHistograms.put(endpoint, new EndpointHistograms());
+        }
+    }
+
+    @Override
+    public void recordEvent(final Event event) {
+        // Untimed events carry no latency.
+    }
+
+    @Override
+    public void recordTimedEvent(final TimedEvent event) {
+        record(event.getEndpoint(), event.getHttpStatusCode(), event.getDurationMillis(),
+                event.getFirstByteMillis(), event.getConnectDurationMillis(), event.getBytes());
+    }
+
+    synchronized void record(final TimedEvent.Endpoint endpoint,
+            final int statusCode,
+            final long durationMillis,
+            final long firstByteMillis,
+            final long connectDurationMillis,
+            final long bytes) {
+        final EndpointHistograms histograms = mHistograms.get(endpoint);
+        if (histograms == null) {
+            return;
+        }
+
+        histograms.mRequests++;
+        if (statusCode == TimedEvent.SC_NO_RESPONSE || statusCode >= 400) {
+            histograms.mFailures++;
+        }
+        if (bytes > 0) {
+            histograms.mBytes += bytes;
+        }
+
+        histograms.mTotal.record(durationMillis);
+        if (firstByteMillis != TimedEvent.NOT_MEASURED) {
+            histograms.mFirstByte.record(firstByteMillis);
+        }
+        if (connectDurationMillis != TimedEvent.NOT_MEASURED) {
+            histograms.mConnect.record(connectDurationMillis);
+        }
+    }
+
+    public synchronized Stats getStats(final TimedEvent.Endpoint endpoint) {
+        return new Stats(endpoint, mHistograms.get(endpoint));
+    }
+
+    public synchronized void clear() {
+        for (final EndpointHistograms histograms : mHistograms.values()) {
+            histograms.mTotal.clear();
+            histograms.mFirstByte.clear();
+            histograms.mConnect.clear();
+            histograms.mRequests = 0;
+            histograms.mFailures = 0;
+            histograms.mBytes = 0;
+        }
+    }
+}
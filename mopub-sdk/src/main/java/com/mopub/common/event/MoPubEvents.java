@@ -8,13 +8,17 @@ import com.mopub.common.ClientMetadata;
 import com.mopub.common.VisibleForTesting;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Records both untimed and timed events. This class maintains a queue of events to be recorded and
- * launches a background thread to handler their recording.
+ * Records both untimed and timed events. This class maintains a bounded queue of events to be
+ * recorded and launches a background thread to handle their recording.
  */
 public class MoPubEvents {
 
+    private static final LatencyHistogramRecorder sLatencyHistogramRecorder =
+            new LatencyHistogramRecorder();
     private static volatile EventDispatcher sEventDispatcher;
 
     private static EventDispatcher getDispatcher() {
@@ -24,7 +28,7 @@ public class MoPubEvents {
                 result = sEventDispatcher;
                 if (result == null) {
                     ArrayList<EventRecorder> recorders = new ArrayList<EventRecorder>();
-                    recorders.add(new NoopEventRecorder());
+                    recorders.add(sLatencyHistogramRecorder);
                     HandlerThread handlerThread = new HandlerThread("mopub_event_queue");
                     result = sEventDispatcher = new EventDispatcher(recorders, handlerThread);
                 }
@@ -45,7 +49,7 @@ public class MoPubEvents {
     public static void event(Event.Type eventType, String requestUrl) {
         final EventDispatcher dispatcher = MoPubEvents.getDispatcher();
         final Event event = new Event(eventType, requestUrl, ClientMetadata.getInstance());
-        dispatcher.sendEventToHandlerThread(event);
+        dispatcher.dispatch(event);
     }
 
 
@@ -54,52 +58,124 @@ public class MoPubEvents {
      * {@link com.mopub.common.event.TimedEvent#stop(int)} is called.
      */
     public static TimedEvent timedEvent(Event.Type eventType, String requestUrl) {
+        return timedEvent(eventType, TimedEvent.Endpoint.OTHER, requestUrl);
+    }
+
+    /**
+     * Create and start a TimedEvent for a request to the given class of endpoint, which its
+     * latency is broken down by.
+     */
+    public static TimedEvent timedEvent(Event.Type eventType, TimedEvent.Endpoint endpoint,
+            String requestUrl) {
         final EventDispatcher events = getDispatcher();
-        final TimedEvent event =
-                new TimedEvent(eventType, requestUrl, ClientMetadata.getInstance(), events);
+        final TimedEvent event = new TimedEvent(eventType, endpoint, requestUrl,
+                ClientMetadata.getInstance(), events);
         return event;
     }
 
-    private static class NoopEventRecorder implements EventRecorder {
+    /**
+     * Returns the latency percentiles of the requests recorded so far to the given class of
+     * endpoint.
+     */
+    public static LatencyHistogramRecorder.Stats getLatencyStats(TimedEvent.Endpoint endpoint) {
+        return sLatencyHistogramRecorder.getStats(endpoint);
+    }
 
-        @Override
-        public void recordEvent(final Event event) {
+    /**
+     * Returns how many events the dispatcher has recorded, sampled out and dropped, or null if no
+     * event has been logged yet.
+     */
+    public static EventDispatcher.Stats getDispatcherStats() {
+        final EventDispatcher dispatcher = sEventDispatcher;
+        return dispatcher != null ? dispatcher.getStats() : null;
+    }
 
-        }
+    /**
+     * Hands events to the recorders on a background thread. Logging an event only puts it in an
+     * {@link EventRingBuffer}, without locking or allocating; the handler thread is woken with a
+     * single message per batch and passes up to {@link #MAX_BATCH_SIZE} events to each recorder
+     * in turn.
+     *
+     * When recorders fall behind, untimed events are sampled once the buffer is half full, and
+     * anything that doesn't fit is dropped. Both are counted in {@link Stats}.
+     */
+    @VisibleForTesting
+    public static class EventDispatcher implements TimedEvent.Listener {
+        static final int DEFAULT_CAPACITY = 1024;
+        // Bounds how long a single drain keeps other messages on the handler thread waiting.
+        static final int MAX_BATCH_SIZE = 64;
+        // Past half full, only one in this many untimed events is kept.
+        static final int SAMPLE_RATE_UNDER_PRESSURE = 4;
+        private static final int MSG_DRAIN = 1;
 
-        @Override
-        public void recordTimedEvent(final TimedEvent event) {
+        public static class Stats {
+            public final long recorded;
+            public final long sampledOut;
+            public final long dropped;
+            public final long batches;
+            public final int queued;
 
+            Stats(final long recorded,
+                    final long sampledOut,
+                    final long dropped,
+                    final long batches,
+                    final int queued) {
+                this.recorded = recorded;
+                this.sampledOut = sampledOut;
+                this.dropped = dropped;
+                this.batches = batches;
+                this.queued = queued;
+            }
+
+            @Override
+            public String toString() {
+                return "MoPubEvents.EventDispatcher.Stats{recorded=" + recorded
+                        + ", sampledOut=" + sampledOut
+                        + ", dropped=" + dropped
+                        + ", batches=" + batches
+                        + ", queued=" + queued + "}";
+            }
         }
-    }
 
-    @VisibleForTesting
-    public static class EventDispatcher implements TimedEvent.Listener {
-        private final Iterable<EventRecorder> mEventRecorders;
+        private final EventRecorder[] mEventRecorders;
+        private final EventRingBuffer<BaseEvent> mEventBuffer;
         private final HandlerThread mHandlerThread;
         private final Handler mMessageHandler;
+        private final AtomicBoolean mDrainScheduled = new AtomicBoolean();
+        private final AtomicLong mSampleCounter = new AtomicLong();
+        private final AtomicLong mSampledOut = new AtomicLong();
+        private final AtomicLong mDropped = new AtomicLong();
+
+        // Only touched on the handler thread.
+        private final Event[] mEventBatch = new Event[MAX_BATCH_SIZE];
+        private final TimedEvent[] mTimedEventBatch = new TimedEvent[MAX_BATCH_SIZE];
+        private volatile long mRecorded;
+        private volatile long mBatches;
 
         @VisibleForTesting Handler.Callback mHandlerCallback;
 
         @VisibleForTesting
         EventDispatcher(Iterable<EventRecorder> recorders, HandlerThread handlerThread) {
-            mEventRecorders = recorders;
+            this(recorders, handlerThread, DEFAULT_CAPACITY);
+        }
+
+        @VisibleForTesting
+        EventDispatcher(Iterable<EventRecorder> recorders, HandlerThread handlerThread,
+                int capacity) {
+            final ArrayList<EventRecorder> recorderList = new ArrayList<EventRecorder>();
+            for (final EventRecorder recorder : recorders) {
+                recorderList.add(recorder);
+            }
+            // An array avoids allocating an iterator for every recorder on every batch.
+            mEventRecorders = recorderList.toArray(new EventRecorder[recorderList.size()]);
+            mEventBuffer = new EventRingBuffer<BaseEvent>(capacity);
             mHandlerCallback = new Handler.Callback() {
                 @Override
                 public boolean handleMessage(final Message msg) {
-                    if (msg.obj instanceof TimedEvent) {
-                        final TimedEvent event = (TimedEvent) msg.obj;
-                        for (final EventRecorder recorder : mEventRecorders) {
-                            recorder.recordTimedEvent(event);
-                        }
-
-                    } else if (msg.obj instanceof Event) {
-                        final Event event = (Event) msg.obj;
-                        for (final EventRecorder recorder : mEventRecorders) {
-                            recorder.recordEvent(event);
-                        }
+                    if (msg.what == MSG_DRAIN) {
+                        drain();
                     }
-                    return true; // Even if it's not an event, swallow the message.
+                    return true; // Even if it's not a drain, swallow the message.
                 }
             };
             mHandlerThread = handlerThread;
@@ -107,14 +183,90 @@ public class MoPubEvents {
             mMessageHandler = new Handler(mHandlerThread.getLooper(), mHandlerCallback);
         }
 
-        private void sendEventToHandlerThread(BaseEvent event) {
-            final Message message = Message.obtain(mMessageHandler, 0, event);
-            message.sendToTarget();
+        private void dispatch(final BaseEvent event) {
+            if (event instanceof Event && isSampledOut()) {
+                mSampledOut.incrementAndGet();
+                return;
+            }
+
+            if (!mEventBuffer.offer(event)) {
+                mDropped.incrementAndGet();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private boolean isSampledOut() {
+            if (mEventBuffer.size() < mEventBuffer.capacity() / 2) {
+                return false;
+            }
+            return mSampleCounter.getAndIncrement() % SAMPLE_RATE_UNDER_PRESSURE != 0;
+        }
+
+        private void scheduleDrain() {
+            // Only the first event since the last drain started wakes the handler thread.
+            if (mDrainScheduled.compareAndSet(false, true)) {
+                mMessageHandler.sendEmptyMessage(MSG_DRAIN);
+            }
+        }
+
+        /**
+         * Passes the next batch of events to the recorders. Must run on the handler thread.
+         */
+        @VisibleForTesting
+        void drain() {
+            // Cleared first, so an event logged while draining schedules another drain.
+            mDrainScheduled.set(false);
+
+            int eventCount = 0;
+            int timedEventCount = 0;
+            for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+                final BaseEvent event = mEventBuffer.poll();
+                if (event == null) {
+                    break;
+                }
+                if (event instanceof TimedEvent) {
+                    mTimedEventBatch[timedEventCount++] = (TimedEvent) event;
+                } else if (event instanceof Event) {
+                    mEventBatch[eventCount++] = (Event) event;
+                }
+            }
+
+            for (final EventRecorder recorder : mEventRecorders) {
+                for (int i = 0; i < eventCount; i++) {
+                    recorder.recordEvent(mEventBatch[i]);
+                }
+                for (int i = 0; i < timedEventCount; i++) {
+                    recorder.recordTimedEvent(mTimedEventBatch[i]);
+                }
+            }
+
+            for (int i = 0; i < eventCount; i++) {
+                mEventBatch[i] = null;
+            }
+            for (int i = 0; i < timedEventCount; i++) {
+                mTimedEventBatch[i] = null;
+            }
+            if (eventCount + timedEventCount > 0) {
+                mRecorded += eventCount + timedEventCount;
+                mBatches++;
+            }
+
+            // Covers a full batch with more to come, and a producer that claimed a slot but
+            // hadn't published it when the poll got there.
+            if (mEventBuffer.size() > 0) {
+                scheduleDrain();
+            }
+        }
+
+        public Stats getStats() {
+            return new Stats(mRecorded, mSampledOut.get(), mDropped.get(), mBatches,
+                    mEventBuffer.size());
         }
 
         @Override
         public void onStopped(final TimedEvent event) {
-            this.sendEventToHandlerThread(event);
+            dispatch(event);
         }
 
         @Override
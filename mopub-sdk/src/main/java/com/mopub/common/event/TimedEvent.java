@@ -5,9 +5,28 @@ import com.mopub.common.ClientMetadata;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Immutable data class with client event data, including a duration.
+ * Immutable data class with client event data, including a duration. Network requests also
+ * record the class of endpoint they went to, how long it took to connect and to receive the first
+ * byte of the response, and how many bytes the response body had.
  */
 public class TimedEvent extends BaseEvent {
+    /**
+     * The kinds of server the SDK talks to, which latency is broken down by.
+     */
+    public enum Endpoint {
+        AD,
+        NATIVE_AD,
+        POSITIONING,
+        IMAGE,
+        VAST_XML,
+        VAST_VIDEO,
+        CLICK_REDIRECT,
+        TRACKING,
+        MRAID_HTML,
+        CONVERSION,
+        OTHER
+    }
+
     interface Listener {
         public void onStopped(TimedEvent event);
 
@@ -24,24 +43,68 @@ public class TimedEvent extends BaseEvent {
      */
     public static final int SC_NO_RESPONSE = -1;
 
+    /**
+     * The value of a duration or byte count that wasn't measured, such as the connect time of a
+     * request that reused a pooled connection.
+     */
+    public static final long NOT_MEASURED = -1;
+
     private final long mStartTimeNanos;
     private enum State {
         WAITING, STOPPED, CANCELLED
     }
     private State mState;
     private final Listener mListener;
-
+    private final Endpoint mEndpoint;
 
     private long mDurationMillis;
     private int mHttpStatusCode;
+    private long mConnectDurationMillis = NOT_MEASURED;
+    private long mFirstByteMillis = NOT_MEASURED;
+    private long mBytes = NOT_MEASURED;
 
     TimedEvent(final Type eventType, final String requestUrl,
             final ClientMetadata clientMetadata, Listener listener) {
+        this(eventType, Endpoint.OTHER, requestUrl, clientMetadata, listener);
+    }
+
+    TimedEvent(final Type eventType, final Endpoint endpoint, final String requestUrl,
+            final ClientMetadata clientMetadata, Listener listener) {
         super(eventType, requestUrl, clientMetadata);
         // System.nanoTime isn't affected by changing the system time, so we use it here.
         mState = State.WAITING;
         mStartTimeNanos = System.nanoTime();
         mListener = listener;
+        mEndpoint = endpoint;
+    }
+
+    /**
+     * Records how long resolving the host and opening the connection took, for requests that
+     * opened a new one.
+     */
+    public synchronized void setConnectDurationMillis(final long connectDurationMillis) {
+        if (mState == State.WAITING) {
+            mConnectDurationMillis = connectDurationMillis;
+        }
+    }
+
+    /**
+     * Records that the response started arriving now, measured from the start of the event.
+     */
+    public synchronized void markFirstByte() {
+        if (mState == State.WAITING && mFirstByteMillis == NOT_MEASURED) {
+            mFirstByteMillis = millisSinceStart();
+        }
+    }
+
+    /**
+     * Stops the event, also recording how many bytes the response body had.
+     */
+    public synchronized void stop(int httpStatusCode, long bytes) {
+        if (mState == State.WAITING) {
+            mBytes = bytes;
+            stop(httpStatusCode);
+        }
     }
 
     public synchronized void stop(int httpStatusCode) {
@@ -73,4 +136,25 @@ public class TimedEvent extends BaseEvent {
     public final synchronized int getHttpStatusCode() {
         return mHttpStatusCode;
     }
+
+    public final Endpoint getEndpoint() {
+        return mEndpoint;
+    }
+
+    public final synchronized long getConnectDurationMillis() {
+        return mConnectDurationMillis;
+    }
+
+    public final synchronized long getFirstByteMillis() {
+        return mFirstByteMillis;
+    }
+
+    public final synchronized long getBytes() {
+        return mBytes;
+    }
+
+    private long millisSinceStart() {
+        return TimeUnit.MILLISECONDS.convert(System.nanoTime() - mStartTimeNanos,
+                TimeUnit.NANOSECONDS);
+    }
 }
@@ -7,45 +7,71 @@ import android.os.Build.VERSION_CODES;
 
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
+import com.mopub.common.util.SdkExecutor.Priority;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 public class AsyncTasks {
-    private static Executor sExecutor;
+    private static final Map<Priority, Executor> sExecutors =
+            new EnumMap<Priority, Executor>(Priority.class);
 
     static {
         init();
     }
 
     // This is in a separate method rather than a static block to pass lint.
-    @TargetApi(VERSION_CODES.HONEYCOMB)
     private static void init() {
-        // Reuse the async task executor if possible
-        if (VERSION.SDK_INT >= VERSION_CODES.HONEYCOMB) {
-            sExecutor = AsyncTask.THREAD_POOL_EXECUTOR;
-        } else {
-            sExecutor = Executors.newSingleThreadExecutor();
+        final SdkExecutor sdkExecutor = SdkExecutor.getInstance();
+        for (final Priority priority : Priority.values()) {
+            sExecutors.put(priority, sdkExecutor.forPriority(priority));
         }
     }
 
+    /**
+     * Replaces the executor for every priority.
+     */
     @VisibleForTesting
     public static void setExecutor(Executor executor) {
-        sExecutor = executor;
+        for (final Priority priority : Priority.values()) {
+            sExecutors.put(priority, executor);
+        }
+    }
+
+    @VisibleForTesting
+    public static void setDecodeExecutor(Executor executor) {
+        sExecutors.put(Priority.DECODE, executor);
     }
 
     /**
      * Starting with Honeycomb, default AsyncTask#execute behavior runs the tasks serially. This
-     * method attempts to force these AsyncTasks to run in parallel with a ThreadPoolExecutor, if
-     * possible.
+     * method runs these AsyncTasks in parallel on the SDK's executor at {@link Priority#FETCH},
+     * if possible.
      */
-    @TargetApi(VERSION_CODES.HONEYCOMB)
     public static <P> void safeExecuteOnExecutor(AsyncTask<P, ?, ?> asyncTask, P... params) {
+        safeExecuteOnExecutor(Priority.FETCH, asyncTask, params);
+    }
+
+    /**
+     * Runs CPU-heavy work such as bitmap decoding at {@link Priority#DECODE} so it neither blocks
+     * the main thread nor queues behind network and disk tasks.
+     */
+    public static <P> void safeExecuteOnDecodeExecutor(AsyncTask<P, ?, ?> asyncTask, P... params) {
+        safeExecuteOnExecutor(Priority.DECODE, asyncTask, params);
+    }
+
+    /**
+     * Runs the task on the SDK's executor at the given priority. Before Honeycomb this falls back
+     * to AsyncTask#execute.
+     */
+    @TargetApi(VERSION_CODES.HONEYCOMB)
+    public static <P> void safeExecuteOnExecutor(Priority priority, AsyncTask<P, ?, ?> asyncTask, P... params) {
         Preconditions.checkNotNull(asyncTask, "Unable to execute null AsyncTask.");
         Preconditions.checkUiThread("AsyncTask must be executed on the main thread");
 
         if (VERSION.SDK_INT >= VERSION_CODES.HONEYCOMB) {
-            asyncTask.executeOnExecutor(sExecutor, params);
+            asyncTask.executeOnExecutor(sExecutors.get(priority), params);
         } else {
             asyncTask.execute(params);
         }
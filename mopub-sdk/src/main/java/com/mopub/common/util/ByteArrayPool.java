@@ -0,0 +1,55 @@
+package com.mopub.common.util;
+
+import com.mopub.common.VisibleForTesting;
+
+import java.util.LinkedList;
+
+/**
+ * Copy buffers shared by every stream copy in the SDK, so downloading a feed of images doesn't
+ * allocate and drop a 16 KB buffer per response. A pool of a few buffers covers every SDK thread
+ * copying at once; extra buffers handed back beyond that are left to the garbage collector.
+ */
+public class ByteArrayPool {
+    public static final int BUFFER_SIZE = 16384;
+    private static final int MAX_POOLED_BUFFERS = 8;
+
+    private static final ByteArrayPool sInstance = new ByteArrayPool(MAX_POOLED_BUFFERS);
+
+    private final int mMaxPooledBuffers;
+    private final LinkedList<byte[]> mBuffers = new LinkedList<byte[]>();
+
+    public static ByteArrayPool getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ByteArrayPool(final int maxPooledBuffers) {
+        mMaxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * Takes a pooled buffer of {@link #BUFFER_SIZE} bytes, or allocates one if none is free. Its
+     * contents are undefined.
+     */
+    public synchronized byte[] getBuffer() {
+        if (mBuffers.isEmpty()) {
+            return new byte[BUFFER_SIZE];
+        }
+        return mBuffers.removeLast();
+    }
+
+    /**
+     * Gives a buffer from {@link #getBuffer()} back. The caller must not touch it afterwards.
+     */
+    public synchronized void returnBuffer(final byte[] buffer) {
+        if (buffer == null || buffer.length != BUFFER_SIZE || mBuffers.size() >= mMaxPooledBuffers) {
+            return;
+        }
+        mBuffers.add(buffer);
+    }
+
+    @VisibleForTesting
+    synchronized int getPooledCount() {
+        return mBuffers.size();
+    }
+}
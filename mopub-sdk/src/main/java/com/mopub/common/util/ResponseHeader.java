@@ -52,6 +52,15 @@ public enum ResponseHeader {
     WARMUP("X-Warmup"),
     WIDTH("X-Width"),
 
+    ACCEPT_ENCODING("Accept-Encoding"),
+    CACHE_CONTROL("Cache-Control"),
+    CONTENT_ENCODING("Content-Encoding"),
+    DATE("Date"),
+    ETAG("ETag"),
+    EXPIRES("Expires"),
+    IF_MODIFIED_SINCE("If-Modified-Since"),
+    IF_NONE_MATCH("If-None-Match"),
+    LAST_MODIFIED("Last-Modified"),
     LOCATION("Location"),
     USER_AGENT("User-Agent"),
 
@@ -0,0 +1,222 @@
+package com.mopub.common.util;
+
+import android.os.Process;
+
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SDK's own background threads, so ad work neither competes with the host app for
+ * AsyncTask.THREAD_POOL_EXECUTOR nor gets stuck behind it.
+ *
+ * Work is submitted under a {@link Priority}. Whenever a thread frees up it goes to the oldest
+ * task of the highest priority that is still under its concurrency limit, so a burst of tracking
+ * beacons or prefetches can't delay an ad the user is waiting for.
+ */
+public class SdkExecutor {
+    static final int MAX_THREADS = 6;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * In order from most to least urgent.
+     */
+    public enum Priority {
+        // Ad requests and downloads for ads that are about to be shown.
+        FETCH(4),
+        // CPU bound, so a couple of threads keep up without starving the UI thread.
+        DECODE(2),
+        // Opening the disk cache and rewriting the tracking queue file, one at a time.
+        DISK_IO(1),
+        // Work for ads that will be shown later, such as precaching video.
+        PREFETCH(2),
+        // Fire-and-forget beacons and bookkeeping.
+        TRACKING(2);
+
+        final int mMaxConcurrent;
+
+        Priority(final int maxConcurrent) {
+            mMaxConcurrent = maxConcurrent;
+        }
+    }
+
+    public static class Stats {
+        public final Priority priority;
+        public final int queued;
+        public final int running;
+        public final int maxQueued;
+        public final long completed;
+
+        Stats(final Priority priority,
+                final int queued,
+                final int running,
+                final int maxQueued,
+                final long completed) {
+            this.priority = priority;
+            this.queued = queued;
+            this.running = running;
+            this.maxQueued = maxQueued;
+            this.completed = completed;
+        }
+
+        @Override
+        public String toString() {
+            return "SdkExecutor.Stats{priority=" + priority
+                    + ", queued=" + queued
+                    + ", running=" + running
+                    + ", maxQueued=" + maxQueued
+                    + ", completed=" + completed + "}";
+        }
+    }
+
+    private static class Lane implements Executor {
+        private final SdkExecutor mSdkExecutor;
+        private final Priority mPriority;
+        private final LinkedList<Runnable> mQueue = new LinkedList<Runnable>();
+        private int mRunning;
+        private int mMaxQueued;
+        private long mCompleted;
+
+        Lane(final SdkExecutor sdkExecutor, final Priority priority) {
+            mSdkExecutor = sdkExecutor;
+            mPriority = priority;
+        }
+
+        @Override
+        public void execute(final Runnable runnable) {
+            mSdkExecutor.execute(mPriority, runnable);
+        }
+
+        boolean canRun() {
+            return !mQueue.isEmpty() && mRunning < mPriority.mMaxConcurrent;
+        }
+    }
+
+    private static SdkExecutor sInstance;
+
+    private final Executor mThreadPool;
+    private final Map<Priority, Lane> mLanes = new EnumMap<Priority, Lane>(Priority.class);
+    private int mRunning;
+
+    public static synchronized SdkExecutor getInstance() {
+        if (sInstance == null) {
+            final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new BackgroundThreadFactory("MoPub #"));
+            threadPool.allowCoreThreadTimeOut(true);
+            sInstance = new SdkExecutor(threadPool);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Runs each task on the given executor once this executor's scheduling lets it through.
+     * {@link #getInstance()} backs this with its own thread pool.
+     */
+    SdkExecutor(final Executor threadPool) {
+        mThreadPool = threadPool;
+        for (final Priority priority : Priority.values()) {
+            mLanes.put(priority, new Lane(this, priority));
+        }
+    }
+
+    /**
+     * Returns an executor that submits everything under the given priority, suitable for
+     * AsyncTask#executeOnExecutor.
+     */
+    public Executor forPriority(final Priority priority) {
+        return mLanes.get(priority);
+    }
+
+    public void execute(final Priority priority, final Runnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException("Unable to execute null Runnable.");
+        }
+
+        synchronized (this) {
+            final Lane lane = mLanes.get(priority);
+            lane.mQueue.add(runnable);
+            lane.mMaxQueued = Math.max(lane.mMaxQueued, lane.mQueue.size());
+        }
+        scheduleNext();
+    }
+
+    public synchronized Stats getStats(final Priority priority) {
+        final Lane lane = mLanes.get(priority);
+        return new Stats(priority, lane.mQueue.size(), lane.mRunning, lane.mMaxQueued,
+                lane.mCompleted);
+    }
+
+    private void scheduleNext() {
+        while (true) {
+            final Lane lane;
+            final Runnable runnable;
+            synchronized (this) {
+                if (mRunning >= MAX_THREADS) {
+                    return;
+                }
+                lane = nextRunnableLane();
+                if (lane == null) {
+                    return;
+                }
+                runnable = lane.mQueue.removeFirst();
+                lane.mRunning++;
+                mRunning++;
+            }
+
+            mThreadPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runnable.run();
+                    } finally {
+                        synchronized (SdkExecutor.this) {
+                            lane.mRunning--;
+                            lane.mCompleted++;
+                            mRunning--;
+                        }
+                        scheduleNext();
+                    }
+                }
+            });
+        }
+    }
+
+    private Lane nextRunnableLane() {
+        for (final Priority priority : Priority.values()) {
+            final Lane lane = mLanes.get(priority);
+            if (lane.canRun()) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    static class BackgroundThreadFactory implements ThreadFactory {
+        private final String mNamePrefix;
+        private final AtomicInteger mCount = new AtomicInteger(1);
+
+        BackgroundThreadFactory(final String namePrefix) {
+            mNamePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, mNamePrefix + mCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -44,11 +44,14 @@ public class Streams {
             throw new IOException("Unable to copy from or to a null stream.");
         }
 
-        byte[] buffer = new byte[16384];
-        int length;
-
-        while ((length = inputStream.read(buffer)) != -1) {
-            outputStream.write(buffer, 0, length);
+        final byte[] buffer = ByteArrayPool.getInstance().getBuffer();
+        try {
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, length);
+            }
+        } finally {
+            ByteArrayPool.getInstance().returnBuffer(buffer);
         }
     }
 
@@ -57,18 +60,21 @@ public class Streams {
             throw new IOException("Unable to copy from or to a null stream.");
         }
 
-        byte[] buffer = new byte[16384];
-        int length;
-        long totalRead = 0;
+        final byte[] buffer = ByteArrayPool.getInstance().getBuffer();
+        try {
+            int length;
+            long totalRead = 0;
+            while ((length = inputStream.read(buffer)) != -1) {
+                totalRead += length;
+                if (totalRead >= maxBytes) {
+                    throw new IOException("Error copying content: attempted to copy " +
+                            totalRead + " bytes, with " + maxBytes + " maximum.");
+                }
 
-        while ((length = inputStream.read(buffer)) != -1) {
-            totalRead += length;
-            if (totalRead >= maxBytes) {
-                throw new IOException("Error copying content: attempted to copy " +
-                        totalRead + " bytes, with " + maxBytes + " maximum.");
+                outputStream.write(buffer, 0, length);
             }
-
-            outputStream.write(buffer, 0, length);
+        } finally {
+            ByteArrayPool.getInstance().returnBuffer(buffer);
         }
     }
 
@@ -175,6 +175,26 @@ public class AdConfiguration implements Serializable {
         mDspCreativeId = extractHeader(httpResponse, DSP_CREATIVE_ID);
     }
 
+    /*
+     * Replaces everything this configuration learned from its last ad response with the response
+     * held by another configuration, e.g. a prefetched ad that is about to be shown.
+     */
+    void copyAdResponse(final AdConfiguration adResponse) {
+        mResponseString = adResponse.mResponseString;
+        mAdType = adResponse.mAdType;
+        mNetworkType = adResponse.mNetworkType;
+        mRedirectUrl = adResponse.mRedirectUrl;
+        mClickthroughUrl = adResponse.mClickthroughUrl;
+        mFailUrl = adResponse.mFailUrl;
+        mImpressionUrl = adResponse.mImpressionUrl;
+        mTimeStamp = adResponse.mTimeStamp;
+        mWidth = adResponse.mWidth;
+        mHeight = adResponse.mHeight;
+        mAdTimeoutDelay = adResponse.mAdTimeoutDelay;
+        mRefreshTimeMilliseconds = adResponse.mRefreshTimeMilliseconds;
+        mDspCreativeId = adResponse.mDspCreativeId;
+    }
+
     /*
      * MoPubView
      */
@@ -34,6 +34,12 @@ package com.mopub.mobileads;
 
 import android.os.AsyncTask;
 
+import com.mopub.common.HttpCompression;
+import com.mopub.common.HttpResponses;
+import com.mopub.common.TimedRequests;
+import com.mopub.common.event.BaseEvent;
+import com.mopub.common.event.MoPubEvents;
+import com.mopub.common.event.TimedEvent;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.mobileads.factories.HttpClientFactory;
 
@@ -41,7 +47,6 @@ import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.conn.ClientConnectionManager;
 
 import static com.mopub.common.util.ResponseHeader.AD_TYPE;
 import static com.mopub.common.util.ResponseHeader.USER_AGENT;
@@ -55,18 +60,31 @@ public class AdFetchTask extends AsyncTask<String, Void, AdLoadTask> {
     private HttpClient mHttpClient;
     private long mTaskId;
     private String mUserAgent;
+    // Non-null for prefetches, which must leave the ad that is currently showing untouched.
+    private AdConfiguration mPrefetchAdConfiguration;
 
     private AdFetcher.FetchStatus mFetchStatus = AdFetcher.FetchStatus.NOT_SET;
     private static final int MAXIMUM_REFRESH_TIME_MILLISECONDS = 600000;
     private static final double EXPONENTIAL_BACKOFF_FACTOR = 1.5;
 
     public AdFetchTask(TaskTracker taskTracker, AdViewController adViewController, String userAgent, int timeoutMilliseconds) {
+        this(taskTracker, adViewController, userAgent, timeoutMilliseconds, false);
+    }
+
+    /*
+     * A prefetch records the ad response in its own AdConfiguration and hands the result to
+     * AdViewController.adPrefetched() instead of loading it.
+     */
+    public AdFetchTask(TaskTracker taskTracker, AdViewController adViewController, String userAgent, int timeoutMilliseconds, boolean isPrefetch) {
         mTaskTracker = taskTracker;
 
         mAdViewController = adViewController;
         mHttpClient = HttpClientFactory.create(timeoutMilliseconds);
         mTaskId = mTaskTracker.getCurrentTaskId();
         mUserAgent = userAgent;
+        if (isPrefetch) {
+            mPrefetchAdConfiguration = new AdConfiguration(null);
+        }
     }
 
     @Override
@@ -77,7 +95,7 @@ public class AdFetchTask extends AsyncTask<String, Void, AdLoadTask> {
         } catch (Exception exception) {
             mException = exception;
         } finally {
-            shutdownHttpClient();
+            mHttpClient = null;
         }
         return result;
     }
@@ -85,18 +103,36 @@ public class AdFetchTask extends AsyncTask<String, Void, AdLoadTask> {
     private AdLoadTask fetch(String url) throws Exception {
         HttpGet httpget = new HttpGet(url);
         httpget.addHeader(USER_AGENT.getKey(), mUserAgent);
+        HttpCompression.acceptCompressedResponse(httpget, HttpCompression.RequestType.AD);
 
         if (!isStateValid()) return null;
 
-        HttpResponse response = mHttpClient.execute(httpget);
-
-        if (!isResponseValid(response)) return null;
+        final TimedEvent timedEvent = MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST,
+                TimedEvent.Endpoint.AD, url);
+        HttpResponse response = TimedRequests.execute(mHttpClient, httpget, timedEvent);
+        // The body is read while the ad loads, so only the declared length is known here.
+        final long contentLength = TimedRequests.getContentLength(response);
+        try {
+            HttpCompression.decompressResponse(httpget, response);
+            if (!isResponseValid(response)) return null;
 
-        mAdViewController.configureUsingHttpResponse(response);
+            if (mPrefetchAdConfiguration != null) {
+                mPrefetchAdConfiguration.addHttpResponse(response);
+            } else {
+                mAdViewController.configureUsingHttpResponse(response);
+            }
 
-        if (!responseContainsContent(response)) return null;
+            if (!responseContainsContent(response)) return null;
 
-        return AdLoadTask.fromHttpResponse(response, mAdViewController);
+            if (mPrefetchAdConfiguration != null) {
+                return AdLoadTask.fromHttpResponse(response, mAdViewController, mPrefetchAdConfiguration);
+            }
+            return AdLoadTask.fromHttpResponse(response, mAdViewController);
+        } finally {
+            // Hand the connection back to the shared pool whether or not the body was read.
+            HttpResponses.consumeEntity(response);
+            timedEvent.stop(TimedRequests.getStatusCode(response), contentLength);
+        }
     }
 
     private boolean responseContainsContent(HttpResponse response) {
@@ -178,6 +214,20 @@ public class AdFetchTask extends AsyncTask<String, Void, AdLoadTask> {
             return;
         }
 
+        if (mPrefetchAdConfiguration != null) {
+            // A failed prefetch is not an error: the refresh timer falls back to a regular load.
+            if (adLoadTask == null) {
+                MoPubLog.d("Ad prefetch failed" + ((mException != null) ? ": " + mException : "."));
+                mAdViewController.adPrefetchFailed();
+            } else {
+                mAdViewController.adPrefetched(adLoadTask, mPrefetchAdConfiguration);
+            }
+
+            mTaskTracker.markTaskCompleted(mTaskId);
+            cleanup();
+            return;
+        }
+
         if (adLoadTask == null) {
             if (mException != null) {
                 MoPubLog.d("Exception caught while loading ad: " + mException);
@@ -263,20 +313,11 @@ public class AdFetchTask extends AsyncTask<String, Void, AdLoadTask> {
 
     private void cleanup() {
         mTaskTracker = null;
+        mPrefetchAdConfiguration = null;
         mException = null;
         mFetchStatus = AdFetcher.FetchStatus.NOT_SET;
     }
 
-    private void shutdownHttpClient() {
-        if (mHttpClient != null) {
-            ClientConnectionManager manager = mHttpClient.getConnectionManager();
-            if (manager != null) {
-                manager.shutdown();
-            }
-            mHttpClient = null;
-        }
-    }
-
     private boolean isMostCurrentTask() {
         // if we've been cleaned up already, then we're definitely not the current task
         return (mTaskTracker == null) ? false : mTaskTracker.isMostCurrentTask(mTaskId);
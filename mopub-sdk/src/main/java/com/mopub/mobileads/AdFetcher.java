@@ -33,6 +33,7 @@
 package com.mopub.mobileads;
 
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.SdkExecutor.Priority;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.mobileads.factories.AdFetchTaskFactory;
 
@@ -57,6 +58,8 @@ public class AdFetcher {
     private AdFetchTask mCurrentTask;
     private String mUserAgent;
     private final TaskTracker mTaskTracker;
+    private AdFetchTask mPrefetchTask;
+    private final TaskTracker mPrefetchTaskTracker;
 
     enum FetchStatus {
         NOT_SET,
@@ -71,6 +74,7 @@ public class AdFetcher {
         mAdViewController = adview;
         mUserAgent = userAgent;
         mTaskTracker = new TaskTracker();
+        mPrefetchTaskTracker = new TaskTracker();
     }
 
     public void fetchAdForUrl(String url) {
@@ -90,6 +94,32 @@ public class AdFetcher {
         }
     }
 
+    /*
+     * Fetches the next ad alongside whatever is currently showing. Prefetches are tracked
+     * separately so they never make a regular fetch look stale, or vice versa.
+     */
+    public void prefetchAdForUrl(String url) {
+        mPrefetchTaskTracker.newTaskStarted();
+        MoPubLog.i("Prefetching ad for task #" + mPrefetchTaskTracker.getCurrentTaskId());
+
+        cancelPrefetch();
+
+        mPrefetchTask = AdFetchTaskFactory.createForPrefetch(mPrefetchTaskTracker, mAdViewController, mUserAgent, mTimeoutMilliseconds);
+
+        try {
+            AsyncTasks.safeExecuteOnExecutor(Priority.PREFETCH, mPrefetchTask, url);
+        } catch (Exception exception) {
+            MoPubLog.d("Error executing prefetch AdFetchTask", exception);
+        }
+    }
+
+    public void cancelPrefetch() {
+        if (mPrefetchTask != null) {
+            mPrefetchTask.cancel(true);
+            mPrefetchTask = null;
+        }
+    }
+
     public void cancelFetch() {
         if (mCurrentTask != null) {
             MoPubLog.i("Canceling fetch ad for task #" + getCurrentTaskId());
@@ -99,6 +129,7 @@ public class AdFetcher {
 
     void cleanup() {
         cancelFetch();
+        cancelPrefetch();
 
         mAdViewController = null;
         mUserAgent = "";
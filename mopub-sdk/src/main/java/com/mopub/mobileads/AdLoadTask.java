@@ -81,19 +81,29 @@ abstract class AdLoadTask {
     abstract void cleanup();
 
     static AdLoadTask fromHttpResponse(HttpResponse response, AdViewController adViewController) throws IOException {
-        return new TaskExtractor(response, adViewController).extract();
+        return fromHttpResponse(response, adViewController, adViewController.getAdConfiguration());
+    }
+
+    /*
+     * The response body is recorded in the given AdConfiguration, which need not be the one the
+     * AdViewController is currently showing an ad with.
+     */
+    static AdLoadTask fromHttpResponse(HttpResponse response, AdViewController adViewController, AdConfiguration adConfiguration) throws IOException {
+        return new TaskExtractor(response, adViewController, adConfiguration).extract();
     }
 
     private static class TaskExtractor {
         private final HttpResponse response;
         private final AdViewController adViewController;
+        private final AdConfiguration adConfiguration;
         private String adType;
         private String adTypeCustomEventName;
         private String fullAdType;
 
-        TaskExtractor(HttpResponse response, AdViewController adViewController){
+        TaskExtractor(HttpResponse response, AdViewController adViewController, AdConfiguration adConfiguration){
             this.response = response;
             this.adViewController = adViewController;
+            this.adConfiguration = adConfiguration;
         }
 
         AdLoadTask extract() throws IOException {
@@ -133,7 +143,7 @@ abstract class AdLoadTask {
             HttpEntity entity = response.getEntity();
             String htmlData = entity != null ? Strings.fromStream(entity.getContent()) : "";
 
-            adViewController.getAdConfiguration().setResponseString(htmlData);
+            adConfiguration.setResponseString(htmlData);
 
             String redirectUrl = extractHeader(response, REDIRECT_URL);
             String clickthroughUrl = extractHeader(response, CLICKTHROUGH_URL);
@@ -205,7 +215,6 @@ abstract class AdLoadTask {
             mParamsMap = null;
         }
 
-        @Deprecated // for testing
         Map<String, String> getParamsMap() {
             return mParamsMap;
         }
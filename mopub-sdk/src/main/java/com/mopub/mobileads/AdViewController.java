@@ -44,15 +44,15 @@ import android.view.View;
 import android.widget.FrameLayout;
 
 import com.mopub.common.MoPub;
+import com.mopub.common.TrackingDispatcher;
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.DateAndTime;
 import com.mopub.common.util.Dips;
 import com.mopub.mobileads.factories.AdFetcherFactory;
-import com.mopub.mobileads.factories.HttpClientFactory;
 
 import org.apache.http.HttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.WeakHashMap;
@@ -62,10 +62,13 @@ import static com.mopub.common.GpsHelper.GpsHelperListener;
 import static com.mopub.common.GpsHelper.asyncFetchAdvertisingInfo;
 import static com.mopub.common.GpsHelper.asyncFetchAdvertisingInfoIfNotCached;
 import static com.mopub.common.LocationService.getLastKnownLocation;
+import static com.mopub.common.util.ResponseHeader.CUSTOM_EVENT_NAME;
 
 public class AdViewController {
     static final int MINIMUM_REFRESH_TIME_MILLISECONDS = 10000;
     static final int DEFAULT_REFRESH_TIME_MILLISECONDS = 60000;
+    // A prefetched ad older than this is thrown away rather than shown.
+    static final int PREFETCHED_AD_EXPIRATION_MILLISECONDS = 120000;
     private static final FrameLayout.LayoutParams WRAP_AND_CENTER_LAYOUT_PARAMS =
             new FrameLayout.LayoutParams(
                     FrameLayout.LayoutParams.WRAP_CONTENT,
@@ -80,6 +83,8 @@ public class AdViewController {
     private AdFetcher mAdFetcher;
     private AdConfiguration mAdConfiguration;
     private final Runnable mRefreshRunnable;
+    private final Runnable mPrefetchRunnable;
+    private final CustomEventBannerAdapter.PrefetchListener mPrefetchListener;
 
     private boolean mIsDestroyed;
     private Handler mHandler;
@@ -93,6 +98,38 @@ public class AdViewController {
     private Location mLocation;
     private boolean mIsTesting;
     private boolean mAdWasLoaded;
+    private int mRefreshPrefetchLeadTimeMilliseconds;
+    private PrefetchedAd mPrefetchedAd;
+
+    /*
+     * The next ad, fetched while the current one is still showing. Banners whose creative counts
+     * an impression as soon as it renders (HTML and MRAID) are only fetched; everything else is
+     * also loaded off-screen by mBannerAdapter.
+     */
+    static class PrefetchedAd {
+        final AdLoadTask mAdLoadTask;
+        final AdConfiguration mAdConfiguration;
+        final long mFetchedAtMillis;
+        CustomEventBannerAdapter mBannerAdapter;
+
+        PrefetchedAd(final AdLoadTask adLoadTask, final AdConfiguration adConfiguration, final long fetchedAtMillis) {
+            mAdLoadTask = adLoadTask;
+            mAdConfiguration = adConfiguration;
+            mFetchedAtMillis = fetchedAtMillis;
+        }
+
+        boolean isReady() {
+            return mBannerAdapter == null || mBannerAdapter.hasPrefetchedBanner();
+        }
+
+        void discard() {
+            if (mBannerAdapter != null) {
+                mBannerAdapter.invalidate();
+                mBannerAdapter = null;
+            }
+            mAdLoadTask.cleanup();
+        }
+    }
 
     protected static void setShouldHonorServerDimensions(View view) {
         sViewShouldHonorServerDimensions.put(view, true);
@@ -117,7 +154,30 @@ public class AdViewController {
 
         mRefreshRunnable = new Runnable() {
             public void run() {
-                loadAd();
+                if (!showPrefetchedAd()) {
+                    loadAd();
+                }
+            }
+        };
+
+        mPrefetchRunnable = new Runnable() {
+            public void run() {
+                prefetchAd();
+            }
+        };
+
+        mPrefetchListener = new CustomEventBannerAdapter.PrefetchListener() {
+            @Override
+            public void onPrefetchedBannerLoaded(final CustomEventBannerAdapter adapter) {
+                MoPubLog.d("Prefetched ad is ready to be shown.");
+            }
+
+            @Override
+            public void onPrefetchedBannerFailed(final CustomEventBannerAdapter adapter, final MoPubErrorCode errorCode) {
+                if (mPrefetchedAd != null && mPrefetchedAd.mBannerAdapter == adapter) {
+                    MoPubLog.d("Prefetched ad failed to load: " + errorCode);
+                    discardPrefetchedAd();
+                }
             }
         };
 
@@ -168,6 +228,8 @@ public class AdViewController {
         mUrl = url;
         mAdConfiguration.setFailUrl(null);
         mIsLoading = true;
+        // This load replaces whatever the prefetch would have shown.
+        cancelPrefetch();
 
         fetchAd(mUrl);
     }
@@ -249,6 +311,18 @@ public class AdViewController {
         return mAdConfiguration.getResponseString();
     }
 
+    void setRefreshPrefetchLeadTime(int milliseconds) {
+        mRefreshPrefetchLeadTimeMilliseconds = Math.max(milliseconds, 0);
+        if (mRefreshPrefetchLeadTimeMilliseconds == 0) {
+            mHandler.removeCallbacks(mPrefetchRunnable);
+            cancelPrefetch();
+        }
+    }
+
+    int getRefreshPrefetchLeadTime() {
+        return mRefreshPrefetchLeadTimeMilliseconds;
+    }
+
     public boolean getAutorefreshEnabled() {
         return mAutoRefreshEnabled;
     }
@@ -310,6 +384,7 @@ public class AdViewController {
 
         setAutorefreshEnabled(false);
         cancelRefreshTimer();
+        cancelPrefetch();
 
         // WebView subclasses are not garbage-collected in a timely fashion on Froyo and below,
         // thanks to some persistent references in WebViewCore. We manually release some resources
@@ -344,42 +419,20 @@ public class AdViewController {
     }
 
     void trackImpression() {
-        new Thread(new Runnable() {
-            public void run () {
-                if (mAdConfiguration.getImpressionUrl() == null) return;
-
-                DefaultHttpClient httpClient = HttpClientFactory.create();
-                try {
-                    HttpGet httpget = new HttpGet(mAdConfiguration.getImpressionUrl());
-                    httpget.addHeader("User-Agent", mAdConfiguration.getUserAgent());
-                    httpClient.execute(httpget);
-                } catch (Exception e) {
-                    MoPubLog.d("Impression tracking failed : " + mAdConfiguration.getImpressionUrl(), e);
-                } finally {
-                    httpClient.getConnectionManager().shutdown();
-                }
-            }
-        }).start();
+        final String impressionUrl = mAdConfiguration.getImpressionUrl();
+        if (impressionUrl == null) return;
+
+        TrackingDispatcher.enqueue(mContext, Arrays.asList(impressionUrl),
+                mAdConfiguration.getUserAgent());
     }
 
     void registerClick() {
-        new Thread(new Runnable() {
-            public void run () {
-                if (mAdConfiguration.getClickthroughUrl() == null) return;
-
-                DefaultHttpClient httpClient = HttpClientFactory.create();
-                try {
-                    MoPubLog.d("Tracking click for: " + mAdConfiguration.getClickthroughUrl());
-                    HttpGet httpget = new HttpGet(mAdConfiguration.getClickthroughUrl());
-                    httpget.addHeader("User-Agent", mAdConfiguration.getUserAgent());
-                    httpClient.execute(httpget);
-                } catch (Exception e) {
-                    MoPubLog.d("Click tracking failed: " + mAdConfiguration.getClickthroughUrl(), e);
-                } finally {
-                    httpClient.getConnectionManager().shutdown();
-                }
-            }
-        }).start();
+        final String clickthroughUrl = mAdConfiguration.getClickthroughUrl();
+        if (clickthroughUrl == null) return;
+
+        MoPubLog.d("Tracking click for: " + clickthroughUrl);
+        TrackingDispatcher.enqueue(mContext, Arrays.asList(clickthroughUrl),
+                mAdConfiguration.getUserAgent());
     }
 
     void fetchAd(String mUrl) {
@@ -410,10 +463,111 @@ public class AdViewController {
 
     void scheduleRefreshTimerIfEnabled() {
         cancelRefreshTimer();
-        if (mAutoRefreshEnabled && mAdConfiguration.getRefreshTimeMilliseconds() > 0) {
-            mHandler.postDelayed(mRefreshRunnable, mAdConfiguration.getRefreshTimeMilliseconds());
+        final int refreshTimeMilliseconds = mAdConfiguration.getRefreshTimeMilliseconds();
+        if (mAutoRefreshEnabled && refreshTimeMilliseconds > 0) {
+            mHandler.postDelayed(mRefreshRunnable, refreshTimeMilliseconds);
+
+            if (mRefreshPrefetchLeadTimeMilliseconds > 0 && mPrefetchedAd == null) {
+                mHandler.postDelayed(mPrefetchRunnable,
+                        Math.max(refreshTimeMilliseconds - mRefreshPrefetchLeadTimeMilliseconds, 0));
+            }
+        }
+    }
+
+    void prefetchAd() {
+        if (mIsDestroyed || mIsLoading || mPrefetchedAd != null || mAdFetcher == null
+                || mAdConfiguration.getAdUnitId() == null || !isNetworkAvailable()) {
+            return;
+        }
+
+        asyncFetchAdvertisingInfoIfNotCached(mContext, new GpsHelperListener() {
+            @Override
+            public void onFetchAdInfoCompleted() {
+                if (mAdFetcher != null && !mIsLoading) {
+                    mAdFetcher.prefetchAdForUrl(generateAdUrl());
+                }
+            }
+        });
+    }
+
+    void adPrefetched(final AdLoadTask adLoadTask, final AdConfiguration adConfiguration) {
+        if (mIsLoading || getMoPubView() == null) {
+            // A regular load started in the meantime and takes precedence.
+            adLoadTask.cleanup();
+            return;
+        }
+
+        discardPrefetchedAd();
+        mPrefetchedAd = new PrefetchedAd(adLoadTask, adConfiguration, DateAndTime.now().getTime());
+
+        final Map<String, String> paramsMap = (adLoadTask instanceof AdLoadTask.CustomEventAdLoadTask)
+                ? ((AdLoadTask.CustomEventAdLoadTask) adLoadTask).getParamsMap()
+                : null;
+        if (paramsMap != null && !rendersImpressionOnLoad(paramsMap)) {
+            mPrefetchedAd.mBannerAdapter = getMoPubView().prefetchCustomEvent(paramsMap, mPrefetchListener);
+        }
+    }
+
+    void adPrefetchFailed() {
+        discardPrefetchedAd();
+    }
+
+    /*
+     * Swaps in the prefetched ad, if there is one that has finished loading and hasn't expired.
+     * Returns false if the caller should load an ad the regular way instead.
+     */
+    boolean showPrefetchedAd() {
+        final PrefetchedAd prefetchedAd = mPrefetchedAd;
+        if (prefetchedAd == null || mIsDestroyed || getMoPubView() == null) {
+            return false;
+        }
+
+        if (DateAndTime.now().getTime() - prefetchedAd.mFetchedAtMillis > PREFETCHED_AD_EXPIRATION_MILLISECONDS) {
+            MoPubLog.d("Prefetched ad expired before it could be shown.");
+            discardPrefetchedAd();
+            return false;
+        }
+
+        if (!prefetchedAd.isReady()) {
+            MoPubLog.d("Prefetched ad is still loading.");
+            discardPrefetchedAd();
+            return false;
         }
 
+        mPrefetchedAd = null;
+        mAdConfiguration.copyAdResponse(prefetchedAd.mAdConfiguration);
+        if (prefetchedAd.mBannerAdapter != null) {
+            getMoPubView().showPrefetchedBanner(prefetchedAd.mBannerAdapter);
+        } else {
+            prefetchedAd.mAdLoadTask.execute();
+        }
+        prefetchedAd.mAdLoadTask.cleanup();
+        return true;
+    }
+
+    @Deprecated // for testing
+    PrefetchedAd getPrefetchedAd() {
+        return mPrefetchedAd;
+    }
+
+    private void cancelPrefetch() {
+        if (mAdFetcher != null) {
+            mAdFetcher.cancelPrefetch();
+        }
+        discardPrefetchedAd();
+    }
+
+    private void discardPrefetchedAd() {
+        if (mPrefetchedAd != null) {
+            mPrefetchedAd.discard();
+            mPrefetchedAd = null;
+        }
+    }
+
+    private static boolean rendersImpressionOnLoad(final Map<String, String> paramsMap) {
+        final String customEventName = paramsMap.get(CUSTOM_EVENT_NAME.getKey());
+        return AdTypeTranslator.CustomEventType.HTML_BANNER.toString().equals(customEventName)
+                || AdTypeTranslator.CustomEventType.MRAID_BANNER.toString().equals(customEventName);
     }
 
     void setLocalExtras(Map<String, Object> localExtras) {
@@ -430,6 +584,7 @@ public class AdViewController {
 
     private void cancelRefreshTimer() {
         mHandler.removeCallbacks(mRefreshRunnable);
+        mHandler.removeCallbacks(mPrefetchRunnable);
     }
 
     private String getServerHostname() {
@@ -44,7 +44,7 @@ import static com.mopub.common.util.VersionCode.currentApiLevel;
 import static com.mopub.mobileads.ViewGestureDetector.UserClickListener;
 
 public class BaseHtmlWebView extends BaseWebView implements UserClickListener {
-    private final ViewGestureDetector mViewGestureDetector;
+    private ViewGestureDetector mViewGestureDetector;
     private boolean mClicked;
 
     public BaseHtmlWebView(Context context, AdConfiguration adConfiguration) {
@@ -53,8 +53,7 @@ public class BaseHtmlWebView extends BaseWebView implements UserClickListener {
         disableScrollingAndZoom();
         getSettings().setJavaScriptEnabled(true);
 
-        mViewGestureDetector = new ViewGestureDetector(context, this, adConfiguration);
-        mViewGestureDetector.setUserClickListener(this);
+        setAdConfiguration(context, adConfiguration);
 
         if (currentApiLevel().isAtLeast(ICE_CREAM_SANDWICH)) {
             enablePlugins(true);
@@ -62,6 +61,22 @@ public class BaseHtmlWebView extends BaseWebView implements UserClickListener {
         setBackgroundColor(Color.TRANSPARENT);
     }
 
+    /**
+     * Prepares a view taken from the {@link WebViewPool} for a new ad, as if it had just been
+     * constructed with these arguments.
+     */
+    public void reset(Context context, AdConfiguration adConfiguration) {
+        setHostContext(context);
+        mIsDestroyed = false;
+        mClicked = false;
+        setAdConfiguration(context, adConfiguration);
+    }
+
+    private void setAdConfiguration(Context context, AdConfiguration adConfiguration) {
+        mViewGestureDetector = new ViewGestureDetector(context, this, adConfiguration);
+        mViewGestureDetector.setUserClickListener(this);
+    }
+
     public void init(boolean isScrollable) {
         initializeOnTouchListener(isScrollable);
     }
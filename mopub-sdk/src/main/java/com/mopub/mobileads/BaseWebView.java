@@ -32,28 +32,60 @@
 
 package com.mopub.mobileads;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.MutableContextWrapper;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
+import android.webkit.WebViewClient;
 
 import com.mopub.common.util.VersionCode;
 import com.mopub.common.util.Views;
 import com.mopub.mobileads.util.WebViews;
 
+import static com.mopub.common.util.VersionCode.HONEYCOMB;
+import static com.mopub.common.util.VersionCode.currentApiLevel;
+
 public class BaseWebView extends WebView {
+    private static final String BLANK_PAGE_URL = "about:blank";
+
     protected boolean mIsDestroyed;
 
     public BaseWebView(Context context) {
         /*
          * Important: don't allow any WebView subclass to be instantiated using
          * an Activity context, as it will leak on Froyo devices and earlier.
+         *
+         * Where MutableContextWrapper is available the view is built on one instead, so that a
+         * view taken from the WebViewPool can be pointed at the Activity showing its new ad and
+         * back at the application context while it sits idle.
          */
-        super(context.getApplicationContext());
+        super(currentApiLevel().isAtLeast(HONEYCOMB)
+                ? createMutableContext(context)
+                : context.getApplicationContext());
         enablePlugins(false);
 
         WebViews.setDisableJSChromeClient(this);
     }
 
+    @TargetApi(11)
+    private static Context createMutableContext(final Context context) {
+        return new MutableContextWrapper(context);
+    }
+
+    /**
+     * Points the view at the context it is now being used from: the Activity showing a view's
+     * new ad, or the application context once the view goes back to the {@link WebViewPool}.
+     * Does nothing on devices without MutableContextWrapper, where views always use the
+     * application context.
+     */
+    @TargetApi(11)
+    void setHostContext(final Context context) {
+        if (currentApiLevel().isAtLeast(HONEYCOMB) && getContext() instanceof MutableContextWrapper) {
+            ((MutableContextWrapper) getContext()).setBaseContext(context);
+        }
+    }
+
     protected void enablePlugins(final boolean enabled) {
         // Android 4.3 and above has no concept of plugin states
         if (VersionCode.currentApiLevel().isAtLeast(VersionCode.JELLY_BEAN_MR2)) {
@@ -72,6 +104,50 @@ public class BaseWebView extends WebView {
         mIsDestroyed = true;
 
         Views.removeFromParent(this);
+        if (!WebViewPool.recycle(this)) {
+            super.destroy();
+        }
+    }
+
+    /**
+     * Whether {@link #scrub()} leaves nothing of the previous ad behind on this device.
+     */
+    boolean canBeRecycled() {
+        return true;
+    }
+
+    /**
+     * Drops everything the last ad attached to this view and loads a blank page. The view is
+     * handed back to the {@link WebViewPool} once the blank page has finished loading, so no
+     * callback from the old ad can reach whoever acquires it next.
+     */
+    void scrub() {
+        // Don't keep the last ad's Activity alive while the view waits in the pool.
+        setHostContext(getContext().getApplicationContext());
+        stopLoading();
+        setOnTouchListener(null);
+        WebViews.setDisableJSChromeClient(this);
+        setWebViewClient(new WebViewClient() {
+            @Override
+            public void onPageFinished(final WebView view, final String url) {
+                if (!BLANK_PAGE_URL.equals(url)) {
+                    return;
+                }
+
+                setWebViewClient(null);
+                clearHistory();
+                WebViewPool.onScrubbed(BaseWebView.this);
+            }
+        });
+        // Subclasses only load javascript: urls through loadUrl.
+        super.loadUrl(BLANK_PAGE_URL);
+    }
+
+    /**
+     * Destroys the underlying WebView without offering it to the {@link WebViewPool}.
+     */
+    void destroyWebView() {
+        mIsDestroyed = true;
         super.destroy();
     }
 
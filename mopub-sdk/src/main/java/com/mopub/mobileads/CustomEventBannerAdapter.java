@@ -51,6 +51,16 @@ import static com.mopub.mobileads.MoPubErrorCode.UNSPECIFIED;
 
 public class CustomEventBannerAdapter implements CustomEventBannerListener {
     public static final int DEFAULT_BANNER_TIMEOUT_DELAY = 10000;
+
+    /*
+     * Receives the result of a banner that is loading off-screen. The loaded banner is not
+     * attached to the MoPubView, and no impression is tracked, until showPrefetchedBanner().
+     */
+    public interface PrefetchListener {
+        void onPrefetchedBannerLoaded(CustomEventBannerAdapter adapter);
+        void onPrefetchedBannerFailed(CustomEventBannerAdapter adapter, MoPubErrorCode errorCode);
+    }
+
     private boolean mInvalidated;
     private MoPubView mMoPubView;
     private Context mContext;
@@ -61,9 +71,16 @@ public class CustomEventBannerAdapter implements CustomEventBannerListener {
     private final Handler mHandler;
     private final Runnable mTimeout;
     private boolean mStoredAutorefresh;
+    private PrefetchListener mPrefetchListener;
+    private View mPrefetchedBannerView;
 
     public CustomEventBannerAdapter(MoPubView moPubView, String className, String classData) {
+        this(moPubView, className, classData, null);
+    }
+
+    public CustomEventBannerAdapter(MoPubView moPubView, String className, String classData, PrefetchListener prefetchListener) {
         mHandler = new Handler();
+        mPrefetchListener = prefetchListener;
         mMoPubView = moPubView;
         mContext = moPubView.getContext();
         mLocalExtras = new HashMap<String, Object>();
@@ -82,7 +99,10 @@ public class CustomEventBannerAdapter implements CustomEventBannerListener {
             mCustomEventBanner = CustomEventBannerFactory.create(className);
         } catch (Exception exception) {
             MoPubLog.d("Couldn't locate or instantiate custom event: " + className + ".");
-            mMoPubView.loadFailUrl(ADAPTER_NOT_FOUND);
+            // Prefetches report this from loadAd(), once the caller holds on to the adapter.
+            if (mPrefetchListener == null) {
+                mMoPubView.loadFailUrl(ADAPTER_NOT_FOUND);
+            }
             return;
         }
 
@@ -103,7 +123,14 @@ public class CustomEventBannerAdapter implements CustomEventBannerListener {
     }
 
     void loadAd() {
-        if (isInvalidated() || mCustomEventBanner == null) {
+        if (isInvalidated()) {
+            return;
+        }
+
+        if (mCustomEventBanner == null) {
+            if (mPrefetchListener != null) {
+                mPrefetchListener.onPrefetchedBannerFailed(this, ADAPTER_NOT_FOUND);
+            }
             return;
         }
 
@@ -114,8 +141,29 @@ public class CustomEventBannerAdapter implements CustomEventBannerListener {
         mCustomEventBanner.loadBanner(mContext, this, mLocalExtras, mServerExtras);
     }
 
+    /*
+     * Attaches a banner that finished loading off-screen, tracking its impression now that it is
+     * actually shown.
+     */
+    void showPrefetchedBanner() {
+        if (isInvalidated() || mPrefetchedBannerView == null) {
+            return;
+        }
+
+        final View bannerView = mPrefetchedBannerView;
+        mPrefetchedBannerView = null;
+        mPrefetchListener = null;
+        showBanner(bannerView);
+    }
+
+    boolean hasPrefetchedBanner() {
+        return mPrefetchedBannerView != null;
+    }
+
     void invalidate() {
         if (mCustomEventBanner != null) mCustomEventBanner.onInvalidate();
+        mPrefetchListener = null;
+        mPrefetchedBannerView = null;
         mContext = null;
         mCustomEventBanner = null;
         mLocalExtras = null;
@@ -152,6 +200,16 @@ public class CustomEventBannerAdapter implements CustomEventBannerListener {
 
         cancelTimeout();
 
+        if (mPrefetchListener != null) {
+            mPrefetchedBannerView = bannerView;
+            mPrefetchListener.onPrefetchedBannerLoaded(this);
+            return;
+        }
+
+        showBanner(bannerView);
+    }
+
+    private void showBanner(View bannerView) {
         if (mMoPubView != null) {
             mMoPubView.nativeAdLoaded();
             mMoPubView.setAdContentView(bannerView);
@@ -165,6 +223,12 @@ public class CustomEventBannerAdapter implements CustomEventBannerListener {
     public void onBannerFailed(MoPubErrorCode errorCode) {
         if (isInvalidated()) return;
         
+        if (mPrefetchListener != null) {
+            cancelTimeout();
+            mPrefetchListener.onPrefetchedBannerFailed(this, (errorCode != null) ? errorCode : UNSPECIFIED);
+            return;
+        }
+
         if (mMoPubView != null) {
             if (errorCode == null) {
                 errorCode = UNSPECIFIED;
@@ -117,6 +117,12 @@ public class HtmlInterstitialWebView extends BaseHtmlWebView {
         super.destroy();
     }
 
+    @Override
+    boolean canBeRecycled() {
+        // Before Honeycomb the previous ad's javascript interface can't be removed.
+        return currentApiLevel().isAtLeast(HONEYCOMB);
+    }
+
     static class HtmlInterstitialWebViewListener implements HtmlWebViewListener {
         private final CustomEventInterstitialListener mCustomEventInterstitialListener;
 
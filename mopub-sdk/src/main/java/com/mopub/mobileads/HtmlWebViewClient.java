@@ -43,6 +43,7 @@ import com.mopub.common.MoPubBrowser;
 import com.mopub.common.util.IntentUtils;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.mobileads.util.Utils;
+import com.mopub.mobileads.util.WebViews;
 
 import static com.mopub.mobileads.MoPubErrorCode.UNSPECIFIED;
 
@@ -61,7 +62,7 @@ class HtmlWebViewClient extends WebViewClient {
         mHtmlWebView = htmlWebView;
         mClickthroughUrl = clickthrough;
         mRedirectUrl = redirect;
-        mContext = htmlWebView.getContext();
+        mContext = WebViews.getHostContext(htmlWebView);
     }
 
     @Override
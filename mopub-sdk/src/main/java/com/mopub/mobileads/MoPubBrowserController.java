@@ -41,6 +41,7 @@ import android.util.Log;
 import com.mopub.common.MoPubBrowser;
 import com.mopub.common.util.IntentUtils;
 import com.mopub.mobileads.util.Utils;
+import com.mopub.mobileads.util.WebViews;
 
 class MoPubBrowserController extends MraidAbstractController {
     private static final String LOGTAG = "MoPubBrowserController";
@@ -48,7 +49,7 @@ class MoPubBrowserController extends MraidAbstractController {
 
     MoPubBrowserController(MraidView view) {
         super(view);
-        mContext = view.getContext();
+        mContext = WebViews.getHostContext(view);
     }
     
     protected void open(String url) {
@@ -38,7 +38,12 @@ import android.content.SharedPreferences;
 import com.mopub.common.BaseUrlGenerator;
 import com.mopub.common.ClientMetadata;
 import com.mopub.common.GpsHelper;
+import com.mopub.common.HttpResponses;
 import com.mopub.common.SharedPreferencesHelper;
+import com.mopub.common.TimedRequests;
+import com.mopub.common.event.BaseEvent;
+import com.mopub.common.event.MoPubEvents;
+import com.mopub.common.event.TimedEvent;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.mobileads.factories.HttpClientFactory;
 
@@ -109,24 +114,33 @@ public class MoPubConversionTracker {
             MoPubLog.d("Conversion track: " + url);
 
             DefaultHttpClient httpClient = HttpClientFactory.create();
+            TimedEvent timedEvent = MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST,
+                    TimedEvent.Endpoint.CONVERSION, url);
             HttpResponse response;
             try {
                 HttpGet httpget = new HttpGet(url);
-                response = httpClient.execute(httpget);
+                response = TimedRequests.execute(httpClient, httpget, timedEvent);
             } catch (Exception e) {
+                timedEvent.stop(TimedEvent.SC_NO_RESPONSE);
                 MoPubLog.d("Conversion track failed [" + e.getClass().getSimpleName() + "]: " + url);
                 return;
             }
 
-            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
-                MoPubLog.d("Conversion track failed: Status code != 200.");
-                return;
-            }
-
-            HttpEntity entity = response.getEntity();
-            if (entity == null || entity.getContentLength() == 0) {
-                MoPubLog.d("Conversion track failed: Response was empty.");
-                return;
+            try {
+                if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+                    MoPubLog.d("Conversion track failed: Status code != 200.");
+                    return;
+                }
+
+                HttpEntity entity = response.getEntity();
+                if (entity == null || entity.getContentLength() == 0) {
+                    MoPubLog.d("Conversion track failed: Response was empty.");
+                    return;
+                }
+            } finally {
+                HttpResponses.consumeEntity(response);
+                timedEvent.stop(TimedRequests.getStatusCode(response),
+                        TimedRequests.getContentLength(response));
             }
 
             // If we made it here, the request has been tracked
@@ -203,6 +203,33 @@ public class MoPubView extends FrameLayout {
         mCustomEventBannerAdapter.loadAd();
     }
 
+    /*
+     * Starts loading a custom event off-screen. Unlike loadCustomEvent(), the banner that is
+     * currently showing stays in place until the returned adapter is passed to showPrefetchedBanner().
+     */
+    CustomEventBannerAdapter prefetchCustomEvent(Map<String, String> paramsMap,
+            CustomEventBannerAdapter.PrefetchListener prefetchListener) {
+        MoPubLog.d("Prefetching custom event adapter.");
+
+        final CustomEventBannerAdapter customEventBannerAdapter =
+                CustomEventBannerAdapterFactory.createForPrefetch(
+                        this,
+                        paramsMap.get(CUSTOM_EVENT_NAME.getKey()),
+                        paramsMap.get(CUSTOM_EVENT_DATA.getKey()),
+                        prefetchListener);
+        customEventBannerAdapter.loadAd();
+        return customEventBannerAdapter;
+    }
+
+    void showPrefetchedBanner(CustomEventBannerAdapter customEventBannerAdapter) {
+        if (mCustomEventBannerAdapter != null) {
+            mCustomEventBannerAdapter.invalidate();
+        }
+
+        mCustomEventBannerAdapter = customEventBannerAdapter;
+        mCustomEventBannerAdapter.showPrefetchedBanner();
+    }
+
     protected void registerClick() {
         if (mAdViewController != null) {
             mAdViewController.registerClick();
@@ -315,6 +342,14 @@ public class MoPubView extends FrameLayout {
         if (mAdViewController != null) mAdViewController.setTimeout(milliseconds);
     }
 
+    /*
+     * When set, the next ad is fetched and loaded off-screen this long before the refresh timer
+     * fires, so that refreshing only has to swap it in. Pass 0 (the default) to disable.
+     */
+    public void setRefreshPrefetchLeadTime(int milliseconds) {
+        if (mAdViewController != null) mAdViewController.setRefreshPrefetchLeadTime(milliseconds);
+    }
+
     public int getAdWidth() {
         return (mAdViewController != null) ? mAdViewController.getAdWidth() : 0;
     }
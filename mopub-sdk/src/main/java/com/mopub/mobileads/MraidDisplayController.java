@@ -76,6 +76,7 @@ import com.mopub.mobileads.factories.HttpClientFactory;
 import com.mopub.mobileads.util.HttpResponses;
 import com.mopub.mobileads.util.Interstitials;
 import com.mopub.mobileads.util.Mraids;
+import com.mopub.mobileads.util.WebViews;
 
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
@@ -465,7 +466,7 @@ class MraidDisplayController extends MraidAbstractController {
     }
 
     protected void createCalendarEvent(Map<String, String> params) {
-        Context context = getMraidView().getContext();
+        Context context = getContext();
         if (Mraids.isCalendarAvailable(context)) {
             try {
                 Map<String, Object> calendarParams = translateJSParamsToAndroidCalendarEventMapping(params);
@@ -792,7 +793,7 @@ class MraidDisplayController extends MraidAbstractController {
     }
 
     private Context getContext() {
-        return getMraidView().getContext();
+        return WebViews.getHostContext(getMraidView());
     }
 
     protected void initializeSupportedFunctionsProperty() {
@@ -0,0 +1,160 @@
+package com.mopub.mobileads;
+
+import android.os.AsyncTask;
+
+import com.mopub.common.TimedRequests;
+import com.mopub.common.event.BaseEvent;
+import com.mopub.common.event.MoPubEvents;
+import com.mopub.common.event.TimedEvent;
+import com.mopub.common.logging.MoPubLog;
+import com.mopub.mobileads.factories.HttpClientFactory;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.ref.WeakReference;
+
+/**
+ * Downloads an MRAID creative off the UI thread. The response body is decoded straight into the
+ * buffer that {@link MraidView#buildMraidHtml(StringBuilder)} injects the MRAID bridge into, so
+ * the UI thread only has to hand the finished document to the WebView.
+ */
+class MraidHtmlDownloadTask extends AsyncTask<String, Void, String> {
+    interface MraidHtmlDownloadTaskListener {
+        void onHtmlDownloaded(final String html);
+        void onHtmlDownloadFailed();
+    }
+
+    private static final int BUFFER_SIZE = 4096;
+    // Don't trust a Content-Length much larger than any reasonable creative when pre-sizing.
+    private static final int MAX_PRESIZED_LENGTH = 512 * 1024;
+
+    private final WeakReference<MraidHtmlDownloadTaskListener> mListener;
+    private volatile HttpGet mHttpGet;
+
+    MraidHtmlDownloadTask(final MraidHtmlDownloadTaskListener listener) {
+        mListener = new WeakReference<MraidHtmlDownloadTaskListener>(listener);
+    }
+
+    /**
+     * Cancels the task and aborts the request so a blocked socket read returns immediately and the
+     * pooled connection is released. Neither listener method is called afterwards.
+     */
+    void abort() {
+        cancel(true);
+        final HttpGet httpGet = mHttpGet;
+        if (httpGet != null) {
+            httpGet.abort();
+        }
+    }
+
+    @Override
+    protected String doInBackground(final String... urls) {
+        if (urls == null || urls.length == 0 || urls[0] == null) {
+            return null;
+        }
+
+        final String url = urls[0];
+        TimedEvent timedEvent = null;
+        try {
+            final HttpGet httpGet = new HttpGet(url);
+            mHttpGet = httpGet;
+            if (isCancelled()) {
+                return null;
+            }
+
+            timedEvent = MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST,
+                    TimedEvent.Endpoint.MRAID_HTML, url);
+            final HttpResponse response =
+                    TimedRequests.execute(HttpClientFactory.create(), httpGet, timedEvent);
+            final int statusCode = TimedRequests.getStatusCode(response);
+            final long contentLength = TimedRequests.getContentLength(response);
+            final HttpEntity entity = response.getEntity();
+            if (statusCode >= HttpStatus.SC_BAD_REQUEST) {
+                MoPubLog.d("Mraid loadUrl failed (status " + statusCode + "): " + url);
+                if (entity != null) {
+                    entity.consumeContent();
+                }
+                timedEvent.stop(statusCode, 0);
+                return null;
+            }
+
+            final StringBuilder html = (entity != null) ? readEntity(entity) : new StringBuilder();
+            if (html == null) {
+                return null;
+            }
+            timedEvent.stop(statusCode, contentLength);
+            return MraidView.buildMraidHtml(html);
+        } catch (IllegalArgumentException e) {
+            MoPubLog.d("Mraid loadUrl failed (IllegalArgumentException): " + url);
+        } catch (IOException e) {
+            if (!isCancelled()) {
+                MoPubLog.d("Mraid loadUrl failed: " + url, e);
+            }
+        } finally {
+            mHttpGet = null;
+            // Only records anything if the download was aborted or failed part way through.
+            if (timedEvent != null) {
+                if (isCancelled()) {
+                    timedEvent.cancel();
+                } else {
+                    timedEvent.stop(TimedEvent.SC_NO_RESPONSE);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the decoded body, or null if the task was cancelled part way through.
+     */
+    private StringBuilder readEntity(final HttpEntity entity) throws IOException {
+        final long contentLength = entity.getContentLength();
+        final StringBuilder html = new StringBuilder(
+                (contentLength > 0 && contentLength <= MAX_PRESIZED_LENGTH)
+                        ? (int) contentLength
+                        : BUFFER_SIZE);
+
+        final String charset = EntityUtils.getContentCharSet(entity);
+        final Reader reader = new InputStreamReader(entity.getContent(),
+                (charset != null) ? charset : HTTP.UTF_8);
+        try {
+            final char[] buffer = new char[BUFFER_SIZE];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                if (isCancelled()) {
+                    return null;
+                }
+                html.append(buffer, 0, read);
+            }
+        } finally {
+            reader.close();
+        }
+        return html;
+    }
+
+    @Override
+    protected void onPostExecute(final String html) {
+        if (isCancelled()) {
+            return;
+        }
+
+        final MraidHtmlDownloadTaskListener listener = mListener.get();
+        if (listener == null) {
+            return;
+        }
+
+        if (html != null) {
+            listener.onHtmlDownloaded(html);
+        } else {
+            listener.onHtmlDownloadFailed();
+        }
+    }
+}
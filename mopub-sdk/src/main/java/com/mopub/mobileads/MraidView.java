@@ -44,19 +44,12 @@ import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
 import com.mopub.common.logging.MoPubLog;
-import com.mopub.common.util.Strings;
-import com.mopub.mobileads.factories.HttpClientFactory;
+import com.mopub.common.util.AsyncTasks;
 import com.mopub.mobileads.resource.MraidJavascript;
 
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URLEncodedUtils;
 
-import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -68,6 +61,12 @@ import static com.mopub.mobileads.ViewGestureDetector.UserClickListener;
 
 public class MraidView extends BaseWebView implements UserClickListener {
     private static final String LOGTAG = "MraidView";
+    private static final String HEAD_TAG = "<head>";
+    private static final String MRAID_SCRIPT =
+            "<script>" + MraidJavascript.JAVASCRIPT_SOURCE + "</script>";
+    private static final String HTML_BOILERPLATE_PREFIX =
+            "<html><head></head><body style='margin:0;padding:0;'>";
+    private static final String HTML_BOILERPLATE_SUFFIX = "</body></html>";
     
     private MoPubBrowserController mBrowserController;
     private MraidDisplayController mDisplayController;
@@ -76,10 +75,26 @@ public class MraidView extends BaseWebView implements UserClickListener {
 
     private boolean mHasFiredReadyEvent;
     private boolean mClicked;
-    private final PlacementType mPlacementType;
+    private PlacementType mPlacementType;
     private ViewGestureDetector mViewGestureDetector;
     private AdConfiguration mAdConfiguration;
     private boolean mIsVisible;
+    private MraidHtmlDownloadTask mHtmlDownloadTask;
+
+    private final MraidHtmlDownloadTask.MraidHtmlDownloadTaskListener mHtmlDownloadTaskListener =
+            new MraidHtmlDownloadTask.MraidHtmlDownloadTaskListener() {
+                @Override
+                public void onHtmlDownloaded(final String html) {
+                    mHtmlDownloadTask = null;
+                    loadDataWithBaseURL(null, html, "text/html", "UTF-8", null);
+                }
+
+                @Override
+                public void onHtmlDownloadFailed() {
+                    mHtmlDownloadTask = null;
+                    notifyOnFailureListener();
+                }
+            };
 
     static class MraidListenerInfo {
         private MraidListener mMraidListener;
@@ -118,6 +133,30 @@ public class MraidView extends BaseWebView implements UserClickListener {
     public MraidView(Context context, AdConfiguration adConfiguration, ExpansionStyle expStyle, NativeCloseButtonStyle buttonStyle,
                      PlacementType placementType) {
         super(context);
+        bind(context, adConfiguration, placementType);
+        initialize(expStyle, buttonStyle);
+    }
+
+    /**
+     * Prepares a view taken from the {@link WebViewPool} for a new ad, as if it had just been
+     * constructed with these arguments.
+     */
+    public void reset(Context context, AdConfiguration adConfiguration, ExpansionStyle expStyle, NativeCloseButtonStyle buttonStyle,
+                      PlacementType placementType) {
+        // Views that were prewarmed but never shown still own their first display controller.
+        if (!mIsDestroyed) {
+            mDisplayController.destroy();
+        }
+        setHostContext(context);
+        mIsDestroyed = false;
+        mHasFiredReadyEvent = false;
+        mClicked = false;
+
+        bind(context, adConfiguration, placementType);
+        initialize(expStyle, buttonStyle);
+    }
+
+    private void bind(Context context, AdConfiguration adConfiguration, PlacementType placementType) {
         mPlacementType = placementType;
 
         mAdConfiguration = adConfiguration;
@@ -125,8 +164,6 @@ public class MraidView extends BaseWebView implements UserClickListener {
         mViewGestureDetector.setUserClickListener(this);
 
         mIsVisible = (getVisibility() == View.VISIBLE);
-
-        initialize(expStyle, buttonStyle);
     }
 
     @Override
@@ -184,6 +221,7 @@ public class MraidView extends BaseWebView implements UserClickListener {
 
     @Override
     public void destroy() {
+        cancelHtmlDownload();
         mDisplayController.destroy();
         super.destroy();
     }
@@ -193,16 +231,28 @@ public class MraidView extends BaseWebView implements UserClickListener {
             return;
         }
 
+        loadDataWithBaseURL(null, buildMraidHtml(new StringBuilder(data)), "text/html", "UTF-8", null);
+    }
+
+    /**
+     * Adds the HTML boilerplate if it is missing and injects the MRAID JavaScript bridge into
+     * every head tag. Works in place so callers can stream a creative straight into the builder.
+     */
+    static String buildMraidHtml(final StringBuilder data) {
         // If the string data lacks the HTML boilerplate, add it.
-        if (!data.contains("<html>")) {
-            data = "<html><head></head><body style='margin:0;padding:0;'>" + data +
-                    "</body></html>";
+        if (data.indexOf("<html>") < 0) {
+            data.insert(0, HTML_BOILERPLATE_PREFIX).append(HTML_BOILERPLATE_SUFFIX);
         }
-        
+
         // Inject the MRAID JavaScript bridge.
-        data = data.replace("<head>", "<head><script>" + MraidJavascript.JAVASCRIPT_SOURCE + "</script>");
+        int headIndex = data.indexOf(HEAD_TAG);
+        while (headIndex >= 0) {
+            final int scriptIndex = headIndex + HEAD_TAG.length();
+            data.insert(scriptIndex, MRAID_SCRIPT);
+            headIndex = data.indexOf(HEAD_TAG, scriptIndex + MRAID_SCRIPT.length());
+        }
 
-        loadDataWithBaseURL(null, data, "text/html", "UTF-8", null);
+        return data.toString();
     }
 
     @Override
@@ -216,32 +266,25 @@ public class MraidView extends BaseWebView implements UserClickListener {
             return;
         }
 
-        HttpClient httpClient = HttpClientFactory.create();
-        String outString = "";
-        
+        // Fetching the creative can take seconds, so never do it on the calling (UI) thread.
+        cancelHtmlDownload();
+        mHtmlDownloadTask = new MraidHtmlDownloadTask(mHtmlDownloadTaskListener);
         try {
-            HttpGet httpGet = new HttpGet(url);
-            HttpResponse response = httpClient.execute(httpGet);
-            HttpEntity entity = response.getEntity();
-    
-            if (entity != null) {
-                outString = Strings.fromStream(entity.getContent());
-            }
-        } catch (IllegalArgumentException e) {
-            MoPubLog.d("Mraid loadUrl failed (IllegalArgumentException): " + url);
-            notifyOnFailureListener();
-            return;
-        } catch (ClientProtocolException e) {
+            AsyncTasks.safeExecuteOnExecutor(mHtmlDownloadTask, url);
+        } catch (Exception e) {
+            MoPubLog.d("Mraid loadUrl failed to start download: " + url, e);
+            mHtmlDownloadTask = null;
             notifyOnFailureListener();
-            return;
-        } catch (IOException e) {
-            notifyOnFailureListener();
-            return;
         }
+    }
 
-        loadHtmlData(outString);
+    private void cancelHtmlDownload() {
+        if (mHtmlDownloadTask != null) {
+            mHtmlDownloadTask.abort();
+            mHtmlDownloadTask = null;
+        }
     }
-    
+
     private void notifyOnFailureListener() {
         if (mListenerInfo.mMraidListener != null) {
             mListenerInfo.mMraidListener.onFailure(this);
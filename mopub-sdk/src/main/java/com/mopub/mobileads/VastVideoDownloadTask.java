@@ -32,20 +32,31 @@
 
 package com.mopub.mobileads;
 
-import android.net.http.AndroidHttpClient;
 import android.os.AsyncTask;
 
+import com.mopub.common.CachePolicy;
 import com.mopub.common.CacheService;
 import com.mopub.common.HttpClient;
+import com.mopub.common.HttpResponses;
+import com.mopub.common.StreamingResponse;
+import com.mopub.common.TimedRequests;
+import com.mopub.common.event.BaseEvent;
+import com.mopub.common.event.MoPubEvents;
+import com.mopub.common.event.TimedEvent;
 import com.mopub.common.logging.MoPubLog;
 
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpGet;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+/**
+ * Makes sure the video is in the disk cache and still fresh. A fresh cached copy needs no
+ * request, and a stale one is revalidated so an unchanged video isn't downloaded again.
+ */
 public class VastVideoDownloadTask extends AsyncTask<String, Void, Boolean> {
     private static final int MAX_VIDEO_SIZE = 25 * 1024 * 1024; // 25 MiB
 
@@ -66,31 +77,66 @@ public class VastVideoDownloadTask extends AsyncTask<String, Void, Boolean> {
         }
 
         final String videoUrl = params[0];
-        AndroidHttpClient httpClient = null;
+        // An empty file can't be played, so it doesn't count as cached.
+        final CachePolicy cachedPolicy = CacheService.getContentLengthDiskCache(videoUrl) > 0
+                ? CacheService.getCachePolicyDiskCache(videoUrl)
+                : null;
+        if (cachedPolicy != null && cachedPolicy.isFresh(System.currentTimeMillis())) {
+            return true;
+        }
+
+        HttpResponse response = null;
+        final TimedEvent timedEvent = MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST,
+                TimedEvent.Endpoint.VAST_VIDEO, videoUrl);
         try {
-            httpClient = HttpClient.getHttpClient();
             final HttpGet httpget = new HttpGet(videoUrl);
-            final HttpResponse response = httpClient.execute(httpget);
+            if (cachedPolicy != null) {
+                cachedPolicy.addConditionalHeaders(httpget);
+            }
+            response = TimedRequests.execute(HttpClient.getHttpClient(), httpget, timedEvent);
+
+            if (response != null && cachedPolicy != null) {
+                final int statusCode = response.getStatusLine().getStatusCode();
+                if (statusCode == HttpStatus.SC_NOT_MODIFIED) {
+                    timedEvent.stop(statusCode, 0);
+                    CacheService.updateCachePolicyDiskCache(videoUrl,
+                            cachedPolicy.refresh(response, System.currentTimeMillis()));
+                    return true;
+                }
+                // A stale copy still plays, so it beats failing the ad over a server error.
+                if (statusCode != HttpStatus.SC_OK) {
+                    timedEvent.stop(statusCode, 0);
+                    MoPubLog.d("Failed to revalidate video, using cached copy: " + videoUrl);
+                    return true;
+                }
+            }
 
             if (response == null || response.getEntity() == null) {
                 throw new IOException("Obtained null response from video url: " + videoUrl);
             }
 
-            if (response.getEntity().getContentLength() > MAX_VIDEO_SIZE) {
-                throw new IOException("Video exceeded max download size");
-            }
-
-            final InputStream inputStream = new BufferedInputStream(response.getEntity().getContent());
-            final boolean diskPutResult = CacheService.putToDiskCache(videoUrl, inputStream);
+            // The video is played from its cache file, so even a no-store video is cached. Its
+            // policy is never fresh, so it is downloaded again before it is reused.
+            final CachePolicy cachePolicy =
+                    CachePolicy.fromResponse(response, System.currentTimeMillis());
+            // Fails fast on a declared length over the limit, and mid-stream on an undeclared one.
+            final InputStream inputStream = new BufferedInputStream(
+                    new StreamingResponse(response, MAX_VIDEO_SIZE).getInputStream());
+            final boolean diskPutResult =
+                    CacheService.putToDiskCache(videoUrl, inputStream, cachePolicy);
             inputStream.close();
+            // The video streams straight to disk, so the cached file is what was downloaded.
+            timedEvent.stop(TimedRequests.getStatusCode(response), diskPutResult
+                    ? CacheService.getContentLengthDiskCache(videoUrl)
+                    : TimedEvent.NOT_MEASURED);
             return diskPutResult;
         } catch (Exception e) {
+            timedEvent.stop(TimedEvent.SC_NO_RESPONSE);
             MoPubLog.d("Failed to download video: " + e.getMessage());
-            return false;
+            // A failed download leaves any stale copy in place.
+            return cachedPolicy != null;
         } finally {
-            if (httpClient != null) {
-                httpClient.close();
-            }
+            HttpResponses.consumeEntity(response);
         }
     }
 
@@ -46,6 +46,7 @@ class VastVideoInterstitial extends ResponseBodyInterstitial implements VastMana
     private String mVastResponse;
     private VastManager mVastManager;
     private VastVideoConfiguration mVastVideoConfiguration;
+    private boolean mIsInvalidated;
 
     @Override
     protected void extractExtras(Map<String, String> serverExtras) {
@@ -56,13 +57,23 @@ class VastVideoInterstitial extends ResponseBodyInterstitial implements VastMana
     protected void preRenderHtml(CustomEventInterstitialListener customEventInterstitialListener) {
         mCustomEventInterstitialListener = customEventInterstitialListener;
 
-        if (!CacheService.initializeDiskCache(mContext)) {
+        if (!CacheService.initializeDiskCacheAsync(mContext)) {
             mCustomEventInterstitialListener.onInterstitialFailed(MoPubErrorCode.VIDEO_CACHE_ERROR);
             return;
         }
 
-        mVastManager = VastManagerFactory.create(mContext);
-        mVastManager.prepareVastVideoConfiguration(mVastResponse, this);
+        // The video is looked up in and saved to the disk cache, so wait for it to open.
+        CacheService.runAfterDiskCacheInitialized(new Runnable() {
+            @Override
+            public void run() {
+                if (mIsInvalidated) {
+                    return;
+                }
+
+                mVastManager = VastManagerFactory.create(mContext);
+                mVastManager.prepareVastVideoConfiguration(mVastResponse, VastVideoInterstitial.this);
+            }
+        });
     }
 
     @Override
@@ -72,6 +83,7 @@ class VastVideoInterstitial extends ResponseBodyInterstitial implements VastMana
 
     @Override
     protected void onInvalidate() {
+        mIsInvalidated = true;
         if (mVastManager != null) {
             mVastManager.cancel();
         }
@@ -54,6 +54,7 @@ import com.mopub.common.DownloadResponse;
 import com.mopub.common.DownloadTask;
 import com.mopub.common.HttpResponses;
 import com.mopub.common.MoPubBrowser;
+import com.mopub.common.event.TimedEvent;
 import com.mopub.common.util.AsyncTasks;
 import com.mopub.common.util.Dips;
 import com.mopub.common.util.Drawables;
@@ -70,9 +71,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.Serializable;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import static android.content.pm.ActivityInfo.SCREEN_ORIENTATION_LANDSCAPE;
 import static com.mopub.common.HttpClient.initializeHttpGet;
@@ -91,7 +89,6 @@ public class VastVideoViewController extends BaseVideoViewController implements
     private static final int MAX_VIDEO_RETRIES = 1;
     private static final int VIDEO_VIEW_FILE_PERMISSION_ERROR = Integer.MIN_VALUE;
 
-    private static final ThreadPoolExecutor sThreadPoolExecutor = new ThreadPoolExecutor(10, 50, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
     static final int DEFAULT_VIDEO_DURATION_FOR_CLOSE_BUTTON = 5 * 1000;
     static final int MAX_VIDEO_DURATION_FOR_CLOSE_BUTTON = 16 * 1000;
 
@@ -257,7 +254,8 @@ public class VastVideoViewController extends BaseVideoViewController implements
         if (mVastCompanionAd != null) {
             try {
                 final HttpGet httpGet = initializeHttpGet(mVastCompanionAd.getImageUrl(), getContext());
-                final DownloadTask downloadTask = new DownloadTask(this);
+                final DownloadTask downloadTask = new DownloadTask(this,
+                        DownloadTask.DEFAULT_MAX_BODY_BYTES, false, TimedEvent.Endpoint.IMAGE);
                 AsyncTasks.safeExecuteOnExecutor(downloadTask, httpGet);
             } catch (Exception e) {
                 MoPubLog.d("Failed to download companion ad", e);
@@ -0,0 +1,264 @@
+package com.mopub.mobileads;
+
+import android.annotation.TargetApi;
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.mopub.common.logging.MoPubLog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.mopub.common.util.VersionCode.ICE_CREAM_SANDWICH;
+import static com.mopub.common.util.VersionCode.currentApiLevel;
+
+/**
+ * Keeps a few ready-to-use ad WebViews around. Constructing a WebView is the most expensive step
+ * in showing an HTML or MRAID ad, so the view factories take an idle view from here when they can
+ * and {@link BaseWebView#destroy()} scrubs views and hands them back instead of tearing them down.
+ *
+ * The pool is sized from the app's memory class, refilled shortly after each ad is created and
+ * drained when the system asks the app to trim memory. All methods must be called on the UI thread.
+ */
+public class WebViewPool {
+    static final int MAX_POOL_SIZE = 3;
+    // Each pooled view is allowed roughly this much of the app's memory class.
+    static final int MEMORY_CLASS_MEGABYTES_PER_WEB_VIEW = 48;
+    // Give the ad that triggered the prewarm time to finish loading before building another view.
+    static final long PREWARM_DELAY_MILLIS = 1000;
+
+    public interface WebViewCreator<T extends BaseWebView> {
+        T create(Context context);
+    }
+
+    private static final Map<Class<? extends BaseWebView>, WebViewCreator<?>> sCreators =
+            new HashMap<Class<? extends BaseWebView>, WebViewCreator<?>>();
+    private static final List<BaseWebView> sIdleWebViews = new ArrayList<BaseWebView>();
+    private static final Set<Class<? extends BaseWebView>> sPendingPrewarms =
+            new HashSet<Class<? extends BaseWebView>>();
+
+    private static Handler sHandler;
+    private static Context sApplicationContext;
+    private static int sMaxPoolSize;
+    private static int sScrubbingCount;
+
+    private static long sHits;
+    private static long sColdCreates;
+    private static long sRecycled;
+    private static long sDrained;
+
+    public static class Stats {
+        public final long hits;
+        public final long coldCreates;
+        public final long recycled;
+        public final long drained;
+        public final int idleWebViews;
+
+        Stats(final long hits,
+                final long coldCreates,
+                final long recycled,
+                final long drained,
+                final int idleWebViews) {
+            this.hits = hits;
+            this.coldCreates = coldCreates;
+            this.recycled = recycled;
+            this.drained = drained;
+            this.idleWebViews = idleWebViews;
+        }
+
+        @Override
+        public String toString() {
+            return "WebViewPool.Stats{hits=" + hits
+                    + ", coldCreates=" + coldCreates
+                    + ", recycled=" + recycled
+                    + ", drained=" + drained
+                    + ", idleWebViews=" + idleWebViews + "}";
+        }
+    }
+
+    /**
+     * Removes and returns an idle view of exactly the given type, or returns null if the caller
+     * has to construct one. The returned view still has to be reset for its new ad.
+     */
+    public static <T extends BaseWebView> T acquire(final Class<T> type) {
+        final Iterator<BaseWebView> iterator = sIdleWebViews.iterator();
+        while (iterator.hasNext()) {
+            final BaseWebView webView = iterator.next();
+            if (webView.getClass() == type) {
+                iterator.remove();
+                sHits++;
+                return type.cast(webView);
+            }
+        }
+
+        sColdCreates++;
+        return null;
+    }
+
+    /**
+     * Registers the given type with the pool and, if there is room and no idle view of that type,
+     * builds one on the main looper shortly afterwards.
+     */
+    public static <T extends BaseWebView> void prewarmWhenIdle(final Context context,
+            final Class<T> type,
+            final WebViewCreator<T> creator) {
+        initialize(context);
+        sCreators.put(type, creator);
+
+        if (sPendingPrewarms.contains(type) || hasIdleWebView(type) || !hasCapacity()) {
+            return;
+        }
+
+        sPendingPrewarms.add(type);
+        sHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                prewarm(type);
+            }
+        }, PREWARM_DELAY_MILLIS);
+    }
+
+    static void prewarm(final Class<? extends BaseWebView> type) {
+        sPendingPrewarms.remove(type);
+
+        final WebViewCreator<?> creator = sCreators.get(type);
+        if (creator == null || sApplicationContext == null
+                || hasIdleWebView(type) || !hasCapacity()) {
+            return;
+        }
+
+        try {
+            sIdleWebViews.add(creator.create(sApplicationContext));
+        } catch (RuntimeException e) {
+            // WebView construction can fail, e.g. while the system WebView package is updating.
+            MoPubLog.d("Unable to prewarm " + type.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Called from {@link BaseWebView#destroy()}. Returns true if the pool took the view, in which
+     * case it is scrubbed and joins the idle views once about:blank has finished loading. Returns
+     * false if the caller should destroy the view itself.
+     */
+    static boolean recycle(final BaseWebView webView) {
+        if (!sCreators.containsKey(webView.getClass())
+                || !webView.canBeRecycled()
+                || !hasCapacity()) {
+            return false;
+        }
+
+        sScrubbingCount++;
+        webView.scrub();
+        return true;
+    }
+
+    static void onScrubbed(final BaseWebView webView) {
+        sScrubbingCount--;
+        if (sIdleWebViews.size() >= sMaxPoolSize || sIdleWebViews.contains(webView)) {
+            webView.destroyWebView();
+            return;
+        }
+
+        sIdleWebViews.add(webView);
+        sRecycled++;
+    }
+
+    /**
+     * Destroys every idle view. Apps that don't run on API 14+ can forward their own
+     * onTrimMemory and onLowMemory callbacks here.
+     */
+    public static void drain() {
+        for (final BaseWebView webView : sIdleWebViews) {
+            webView.destroyWebView();
+            sDrained++;
+        }
+        sIdleWebViews.clear();
+    }
+
+    public static void onTrimMemory(final int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            drain();
+        }
+    }
+
+    public static Stats getStats() {
+        return new Stats(sHits, sColdCreates, sRecycled, sDrained, sIdleWebViews.size());
+    }
+
+    private static void initialize(final Context context) {
+        if (sApplicationContext != null) {
+            return;
+        }
+
+        sHandler = new Handler(Looper.getMainLooper());
+        sApplicationContext = context.getApplicationContext();
+        final ActivityManager activityManager =
+                (ActivityManager) sApplicationContext.getSystemService(Context.ACTIVITY_SERVICE);
+        sMaxPoolSize = Math.min(MAX_POOL_SIZE,
+                activityManager.getMemoryClass() / MEMORY_CLASS_MEGABYTES_PER_WEB_VIEW);
+        MoPubLog.d("WebView pool size: " + sMaxPoolSize);
+
+        if (currentApiLevel().isAtLeast(ICE_CREAM_SANDWICH)) {
+            registerTrimMemoryCallbacks(sApplicationContext);
+        }
+    }
+
+    @TargetApi(14)
+    private static void registerTrimMemoryCallbacks(final Context applicationContext) {
+        applicationContext.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(final int level) {
+                WebViewPool.onTrimMemory(level);
+            }
+
+            @Override
+            public void onLowMemory() {
+                drain();
+            }
+
+            @Override
+            public void onConfigurationChanged(final Configuration newConfig) {
+            }
+        });
+    }
+
+    private static boolean hasIdleWebView(final Class<? extends BaseWebView> type) {
+        for (final BaseWebView webView : sIdleWebViews) {
+            if (webView.getClass() == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasCapacity() {
+        return sIdleWebViews.size() + sScrubbingCount < sMaxPoolSize;
+    }
+
+    @Deprecated // for testing
+    public static void clearForTesting() {
+        for (final BaseWebView webView : sIdleWebViews) {
+            webView.destroyWebView();
+        }
+        sIdleWebViews.clear();
+        sCreators.clear();
+        sPendingPrewarms.clear();
+        sHandler = null;
+        sApplicationContext = null;
+        sMaxPoolSize = 0;
+        sScrubbingCount = 0;
+        sHits = 0;
+        sColdCreates = 0;
+        sRecycled = 0;
+        sDrained = 0;
+    }
+}
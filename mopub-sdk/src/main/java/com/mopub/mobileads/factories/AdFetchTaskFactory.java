@@ -48,7 +48,15 @@ public class AdFetchTaskFactory {
         return instance.internalCreate(taskTracker, adViewController, userAgent, timeoutMilliseconds);
     }
 
+    public static AdFetchTask createForPrefetch(TaskTracker taskTracker, AdViewController adViewController, String userAgent, int timeoutMilliseconds) {
+        return instance.internalCreateForPrefetch(taskTracker, adViewController, userAgent, timeoutMilliseconds);
+    }
+
     protected AdFetchTask internalCreate(TaskTracker taskTracker, AdViewController adViewController, String userAgent, int timeoutMilliseconds) {
         return new AdFetchTask(taskTracker, adViewController, userAgent, timeoutMilliseconds);
     }
+
+    protected AdFetchTask internalCreateForPrefetch(TaskTracker taskTracker, AdViewController adViewController, String userAgent, int timeoutMilliseconds) {
+        return new AdFetchTask(taskTracker, adViewController, userAgent, timeoutMilliseconds, true);
+    }
 }
@@ -35,6 +35,8 @@ package com.mopub.mobileads.factories;
 import com.mopub.mobileads.CustomEventBannerAdapter;
 import com.mopub.mobileads.MoPubView;
 
+import static com.mopub.mobileads.CustomEventBannerAdapter.PrefetchListener;
+
 public class CustomEventBannerAdapterFactory {
     protected static CustomEventBannerAdapterFactory instance = new CustomEventBannerAdapterFactory();
 
@@ -47,7 +49,15 @@ public class CustomEventBannerAdapterFactory {
         return instance.internalCreate(moPubView, className, classData);
     }
 
+    public static CustomEventBannerAdapter createForPrefetch(MoPubView moPubView, String className, String classData, PrefetchListener prefetchListener) {
+        return instance.internalCreateForPrefetch(moPubView, className, classData, prefetchListener);
+    }
+
     protected CustomEventBannerAdapter internalCreate(MoPubView moPubView, String className, String classData) {
         return new CustomEventBannerAdapter(moPubView, className, classData);
     }
+
+    protected CustomEventBannerAdapter internalCreateForPrefetch(MoPubView moPubView, String className, String classData, PrefetchListener prefetchListener) {
+        return new CustomEventBannerAdapter(moPubView, className, classData, prefetchListener);
+    }
 }
@@ -35,12 +35,21 @@ package com.mopub.mobileads.factories;
 import android.content.Context;
 import com.mopub.mobileads.AdConfiguration;
 import com.mopub.mobileads.HtmlBannerWebView;
+import com.mopub.mobileads.WebViewPool;
 
 import static com.mopub.mobileads.CustomEventBanner.CustomEventBannerListener;
 
 public class HtmlBannerWebViewFactory {
     protected static HtmlBannerWebViewFactory instance = new HtmlBannerWebViewFactory();
 
+    private static final WebViewPool.WebViewCreator<HtmlBannerWebView> WEB_VIEW_CREATOR =
+            new WebViewPool.WebViewCreator<HtmlBannerWebView>() {
+                @Override
+                public HtmlBannerWebView create(Context context) {
+                    return new HtmlBannerWebView(context, null);
+                }
+            };
+
     public static HtmlBannerWebView create(
             Context context,
             CustomEventBannerListener customEventBannerListener,
@@ -58,8 +67,15 @@ public class HtmlBannerWebViewFactory {
             String redirectUrl,
             String clickthroughUrl,
             AdConfiguration adConfiguration) {
-        HtmlBannerWebView htmlBannerWebView = new HtmlBannerWebView(context, adConfiguration);
+        HtmlBannerWebView htmlBannerWebView = WebViewPool.acquire(HtmlBannerWebView.class);
+        if (htmlBannerWebView != null) {
+            htmlBannerWebView.reset(context, adConfiguration);
+        } else {
+            htmlBannerWebView = new HtmlBannerWebView(context, adConfiguration);
+        }
         htmlBannerWebView.init(customEventBannerListener, isScrollable, redirectUrl, clickthroughUrl);
+
+        WebViewPool.prewarmWhenIdle(context, HtmlBannerWebView.class, WEB_VIEW_CREATOR);
         return htmlBannerWebView;
     }
 
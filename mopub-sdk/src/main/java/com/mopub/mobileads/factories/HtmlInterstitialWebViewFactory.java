@@ -35,12 +35,21 @@ package com.mopub.mobileads.factories;
 import android.content.Context;
 import com.mopub.mobileads.AdConfiguration;
 import com.mopub.mobileads.HtmlInterstitialWebView;
+import com.mopub.mobileads.WebViewPool;
 
 import static com.mopub.mobileads.CustomEventInterstitial.CustomEventInterstitialListener;
 
 public class HtmlInterstitialWebViewFactory {
     protected static HtmlInterstitialWebViewFactory instance = new HtmlInterstitialWebViewFactory();
 
+    private static final WebViewPool.WebViewCreator<HtmlInterstitialWebView> WEB_VIEW_CREATOR =
+            new WebViewPool.WebViewCreator<HtmlInterstitialWebView>() {
+                @Override
+                public HtmlInterstitialWebView create(Context context) {
+                    return new HtmlInterstitialWebView(context, null);
+                }
+            };
+
     public static HtmlInterstitialWebView create(
             Context context,
             CustomEventInterstitialListener customEventInterstitialListener,
@@ -58,8 +67,15 @@ public class HtmlInterstitialWebViewFactory {
             String redirectUrl,
             String clickthroughUrl,
             AdConfiguration adConfiguration) {
-        HtmlInterstitialWebView htmlInterstitialWebView = new HtmlInterstitialWebView(context, adConfiguration);
+        HtmlInterstitialWebView htmlInterstitialWebView = WebViewPool.acquire(HtmlInterstitialWebView.class);
+        if (htmlInterstitialWebView != null) {
+            htmlInterstitialWebView.reset(context, adConfiguration);
+        } else {
+            htmlInterstitialWebView = new HtmlInterstitialWebView(context, adConfiguration);
+        }
         htmlInterstitialWebView.init(customEventInterstitialListener, isScrollable, redirectUrl, clickthroughUrl);
+
+        WebViewPool.prewarmWhenIdle(context, HtmlInterstitialWebView.class, WEB_VIEW_CREATOR);
         return htmlInterstitialWebView;
     }
 
@@ -32,6 +32,8 @@
 
 package com.mopub.mobileads.factories;
 
+import com.mopub.common.HttpConnectionPool;
+
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
@@ -68,6 +70,6 @@ public class HttpClientFactory {
         // http://stackoverflow.com/questions/5358014/android-httpclient-oom-on-4g-lte-htc-thunderbolt
         HttpConnectionParams.setSocketBufferSize(httpParameters, SOCKET_SIZE);
 
-        return new DefaultHttpClient(httpParameters);
+        return HttpConnectionPool.newHttpClient(httpParameters);
     }
 }
@@ -36,10 +36,19 @@ import android.content.Context;
 import com.mopub.mobileads.AdConfiguration;
 import com.mopub.mobileads.MraidView;
 import com.mopub.mobileads.MraidView.NativeCloseButtonStyle;
+import com.mopub.mobileads.WebViewPool;
 
 public class MraidViewFactory {
     protected static MraidViewFactory instance = new MraidViewFactory();
 
+    private static final WebViewPool.WebViewCreator<MraidView> WEB_VIEW_CREATOR =
+            new WebViewPool.WebViewCreator<MraidView>() {
+                @Override
+                public MraidView create(Context context) {
+                    return new MraidView(context, null);
+                }
+            };
+
     @Deprecated // for testing
     public static void setInstance(MraidViewFactory factory) {
         instance = factory;
@@ -59,7 +68,8 @@ public class MraidViewFactory {
     }
 
     protected MraidView internalCreate(Context context, AdConfiguration adConfiguration) {
-        return new MraidView(context, adConfiguration);
+        return internalCreate(context, adConfiguration, MraidView.ExpansionStyle.ENABLED,
+                NativeCloseButtonStyle.AD_CONTROLLED, MraidView.PlacementType.INLINE);
     }
 
     protected MraidView internalCreate(
@@ -68,6 +78,14 @@ public class MraidViewFactory {
             MraidView.ExpansionStyle expansionStyle,
             NativeCloseButtonStyle buttonStyle,
             MraidView.PlacementType placementType) {
-        return new MraidView(context, adConfiguration, expansionStyle, buttonStyle, placementType);
+        MraidView mraidView = WebViewPool.acquire(MraidView.class);
+        if (mraidView != null) {
+            mraidView.reset(context, adConfiguration, expansionStyle, buttonStyle, placementType);
+        } else {
+            mraidView = new MraidView(context, adConfiguration, expansionStyle, buttonStyle, placementType);
+        }
+
+        WebViewPool.prewarmWhenIdle(context, MraidView.class, WEB_VIEW_CREATOR);
+        return mraidView;
     }
 }
@@ -32,6 +32,9 @@
 
 package com.mopub.mobileads.util;
 
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.MutableContextWrapper;
 import android.util.Log;
 import android.webkit.JsPromptResult;
 import android.webkit.JsResult;
@@ -40,6 +43,9 @@ import android.webkit.WebView;
 
 import java.lang.reflect.Method;
 
+import static com.mopub.common.util.VersionCode.HONEYCOMB;
+import static com.mopub.common.util.VersionCode.currentApiLevel;
+
 public class WebViews {
     private static final String LOGTAG = "MoPub - WebViewsUtil";
 
@@ -63,6 +69,20 @@ public class WebViews {
         }
     }
 
+    /**
+     * Returns the context an ad WebView is currently used from. Ad WebViews are built on a
+     * MutableContextWrapper so pooled views can move between Activities, so the value of
+     * getContext() is never itself an Activity.
+     */
+    @TargetApi(11)
+    public static Context getHostContext(final WebView webView) {
+        final Context context = webView.getContext();
+        if (currentApiLevel().isAtLeast(HONEYCOMB) && context instanceof MutableContextWrapper) {
+            return ((MutableContextWrapper) context).getBaseContext();
+        }
+        return context;
+    }
+
     public static void setDisableJSChromeClient(WebView webView) {
         webView.setWebChromeClient(new WebChromeClient() {
             @Override
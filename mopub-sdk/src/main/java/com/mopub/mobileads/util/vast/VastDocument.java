@@ -0,0 +1,196 @@
+package com.mopub.mobileads.util.vast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of parsing a single VAST document with {@link VastXmlPullParser}. The
+ * accessors mirror the DOM-based parser it replaced, but every value is extracted up front so
+ * instances can be handed between threads without holding on to the XML.
+ */
+class VastDocument {
+    // This class currently assumes an image type companion ad since that is what we are supporting
+    static class ImageCompanion {
+        private final Integer mWidth;
+        private final Integer mHeight;
+        private final String mType;
+        private final String mImageUrl;
+        private final String mClickThroughUrl;
+        private final List<String> mClickTrackers;
+
+        ImageCompanion(final Integer width,
+                final Integer height,
+                final String type,
+                final String imageUrl,
+                final String clickThroughUrl,
+                final List<String> clickTrackers) {
+            mWidth = width;
+            mHeight = height;
+            mType = type;
+            mImageUrl = imageUrl;
+            mClickThroughUrl = clickThroughUrl;
+            mClickTrackers = unmodifiableCopy(clickTrackers);
+        }
+
+        Integer getWidth() {
+            return mWidth;
+        }
+
+        Integer getHeight() {
+            return mHeight;
+        }
+
+        String getType() {
+            return mType;
+        }
+
+        String getImageUrl() {
+            return mImageUrl;
+        }
+
+        String getClickThroughUrl() {
+            return mClickThroughUrl;
+        }
+
+        List<String> getClickTrackers() {
+            return mClickTrackers;
+        }
+    }
+
+    static class MediaFile {
+        private final String mDelivery;
+        private final Integer mWidth;
+        private final Integer mHeight;
+        private final String mType;
+        private final String mMediaUrl;
+
+        MediaFile(final String delivery,
+                final Integer width,
+                final Integer height,
+                final String type,
+                final String mediaUrl) {
+            mDelivery = delivery;
+            mWidth = width;
+            mHeight = height;
+            mType = type;
+            mMediaUrl = mediaUrl;
+        }
+
+        String getDelivery() {
+            return mDelivery;
+        }
+
+        Integer getWidth() {
+            return mWidth;
+        }
+
+        Integer getHeight() {
+            return mHeight;
+        }
+
+        String getType() {
+            return mType;
+        }
+
+        String getMediaUrl() {
+            return mMediaUrl;
+        }
+    }
+
+    private final String mVastAdTagURI;
+    private final List<String> mImpressionTrackers;
+    private final List<String> mVideoStartTrackers;
+    private final List<String> mVideoFirstQuartileTrackers;
+    private final List<String> mVideoMidpointTrackers;
+    private final List<String> mVideoThirdQuartileTrackers;
+    private final List<String> mVideoCompleteTrackers;
+    private final String mClickThroughUrl;
+    private final List<String> mClickTrackers;
+    private final List<MediaFile> mMediaFiles;
+    private final List<ImageCompanion> mImageCompanions;
+
+    VastDocument(final String vastAdTagURI,
+            final List<String> impressionTrackers,
+            final List<String> videoStartTrackers,
+            final List<String> videoFirstQuartileTrackers,
+            final List<String> videoMidpointTrackers,
+            final List<String> videoThirdQuartileTrackers,
+            final List<String> videoCompleteTrackers,
+            final String clickThroughUrl,
+            final List<String> clickTrackers,
+            final List<MediaFile> mediaFiles,
+            final List<ImageCompanion> imageCompanions) {
+        mVastAdTagURI = vastAdTagURI;
+        mImpressionTrackers = unmodifiableCopy(impressionTrackers);
+        mVideoStartTrackers = unmodifiableCopy(videoStartTrackers);
+        mVideoFirstQuartileTrackers = unmodifiableCopy(videoFirstQuartileTrackers);
+        mVideoMidpointTrackers = unmodifiableCopy(videoMidpointTrackers);
+        mVideoThirdQuartileTrackers = unmodifiableCopy(videoThirdQuartileTrackers);
+        mVideoCompleteTrackers = unmodifiableCopy(videoCompleteTrackers);
+        mClickThroughUrl = clickThroughUrl;
+        mClickTrackers = unmodifiableCopy(clickTrackers);
+        mMediaFiles = unmodifiableCopy(mediaFiles);
+        mImageCompanions = unmodifiableCopy(imageCompanions);
+    }
+
+    String getVastAdTagURI() {
+        return mVastAdTagURI;
+    }
+
+    List<String> getImpressionTrackers() {
+        return mImpressionTrackers;
+    }
+
+    List<String> getVideoStartTrackers() {
+        return mVideoStartTrackers;
+    }
+
+    List<String> getVideoFirstQuartileTrackers() {
+        return mVideoFirstQuartileTrackers;
+    }
+
+    List<String> getVideoMidpointTrackers() {
+        return mVideoMidpointTrackers;
+    }
+
+    List<String> getVideoThirdQuartileTrackers() {
+        return mVideoThirdQuartileTrackers;
+    }
+
+    List<String> getVideoCompleteTrackers() {
+        return mVideoCompleteTrackers;
+    }
+
+    String getClickThroughUrl() {
+        return mClickThroughUrl;
+    }
+
+    List<String> getClickTrackers() {
+        return mClickTrackers;
+    }
+
+    String getMediaFileUrl() {
+        for (final MediaFile mediaFile : mMediaFiles) {
+            if (mediaFile.getMediaUrl() != null) {
+                return mediaFile.getMediaUrl();
+            }
+        }
+        return null;
+    }
+
+    List<MediaFile> getMediaFiles() {
+        return mMediaFiles;
+    }
+
+    List<ImageCompanion> getImageCompanions() {
+        return mImageCompanions;
+    }
+
+    private static <T> List<T> unmodifiableCopy(final List<T> list) {
+        if (list == null || list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<T>(list));
+    }
+}
@@ -6,6 +6,7 @@ import android.view.WindowManager;
 
 import com.mopub.common.CacheService;
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.SdkExecutor.Priority;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.mobileads.VastVideoDownloadTask;
 
@@ -64,9 +65,9 @@ public class VastManager implements VastXmlManagerAggregatorListener {
     }
 
     @Override
-    public void onAggregationComplete(final List<VastXmlManager> vastXmlManagers) {
+    public void onAggregationComplete(final List<VastDocument> vastDocuments) {
         mVastXmlManagerAggregator = null;
-        if (vastXmlManagers == null) {
+        if (vastDocuments == null) {
             if (mVastManagerListener != null) {
                 mVastManagerListener.onVastVideoConfigurationPrepared(null);
             }
@@ -74,15 +75,10 @@ public class VastManager implements VastXmlManagerAggregatorListener {
         }
 
         final VastVideoConfiguration vastVideoConfiguration =
-                createVastVideoConfigurationFromXml(vastXmlManagers);
-
-        if (updateDiskMediaFileUrl(vastVideoConfiguration)) {
-            if (mVastManagerListener != null) {
-                mVastManagerListener.onVastVideoConfigurationPrepared(vastVideoConfiguration);
-            }
-            return;
-        }
+                createVastVideoConfigurationFromXml(vastDocuments);
 
+        // The task returns right away for a video that is cached and fresh, and revalidates one
+        // that has gone stale.
         final VastVideoDownloadTask vastVideoDownloadTask = new VastVideoDownloadTask(
                 new VastVideoDownloadTaskListener() {
                     @Override
@@ -102,6 +98,7 @@ public class VastManager implements VastXmlManagerAggregatorListener {
 
         try {
             AsyncTasks.safeExecuteOnExecutor(
+                    Priority.PREFETCH,
                     vastVideoDownloadTask,
                     vastVideoConfiguration.getNetworkMediaFileUrl()
             );
@@ -116,7 +113,8 @@ public class VastManager implements VastXmlManagerAggregatorListener {
 
     private boolean updateDiskMediaFileUrl(final VastVideoConfiguration vastVideoConfiguration) {
         final String networkMediaFileUrl = vastVideoConfiguration.getNetworkMediaFileUrl();
-        if (CacheService.containsKeyDiskCache(networkMediaFileUrl)) {
+        // An empty file can't be played, so it doesn't count as cached.
+        if (CacheService.getContentLengthDiskCache(networkMediaFileUrl) > 0) {
             final String filePathDiskCache = CacheService.getFilePathDiskCache(networkMediaFileUrl);
             vastVideoConfiguration.setDiskMediaFileUrl(filePathDiskCache);
             return true;
@@ -137,54 +135,54 @@ public class VastManager implements VastXmlManagerAggregatorListener {
         mScreenArea = screenWidth * screenHeight;
     }
 
-    private VastVideoConfiguration createVastVideoConfigurationFromXml(final List<VastXmlManager> xmlManagers) {
+    private VastVideoConfiguration createVastVideoConfigurationFromXml(final List<VastDocument> vastDocuments) {
         final VastVideoConfiguration vastVideoConfiguration = new VastVideoConfiguration();
 
-        final List<VastXmlManager.MediaXmlManager> mediaXmlManagers = new ArrayList<VastXmlManager.MediaXmlManager>();
-        final List<VastXmlManager.ImageCompanionAdXmlManager> companionXmlManagers = new ArrayList<VastXmlManager.ImageCompanionAdXmlManager>();
-        for (VastXmlManager xmlManager : xmlManagers) {
-            vastVideoConfiguration.addImpressionTrackers(xmlManager.getImpressionTrackers());
+        final List<VastDocument.MediaFile> mediaFiles = new ArrayList<VastDocument.MediaFile>();
+        final List<VastDocument.ImageCompanion> imageCompanions = new ArrayList<VastDocument.ImageCompanion>();
+        for (VastDocument vastDocument : vastDocuments) {
+            vastVideoConfiguration.addImpressionTrackers(vastDocument.getImpressionTrackers());
 
-            vastVideoConfiguration.addStartTrackers(xmlManager.getVideoStartTrackers());
-            vastVideoConfiguration.addFirstQuartileTrackers(xmlManager.getVideoFirstQuartileTrackers());
-            vastVideoConfiguration.addMidpointTrackers(xmlManager.getVideoMidpointTrackers());
-            vastVideoConfiguration.addThirdQuartileTrackers(xmlManager.getVideoThirdQuartileTrackers());
-            vastVideoConfiguration.addCompleteTrackers(xmlManager.getVideoCompleteTrackers());
+            vastVideoConfiguration.addStartTrackers(vastDocument.getVideoStartTrackers());
+            vastVideoConfiguration.addFirstQuartileTrackers(vastDocument.getVideoFirstQuartileTrackers());
+            vastVideoConfiguration.addMidpointTrackers(vastDocument.getVideoMidpointTrackers());
+            vastVideoConfiguration.addThirdQuartileTrackers(vastDocument.getVideoThirdQuartileTrackers());
+            vastVideoConfiguration.addCompleteTrackers(vastDocument.getVideoCompleteTrackers());
 
-            vastVideoConfiguration.addClickTrackers(xmlManager.getClickTrackers());
+            vastVideoConfiguration.addClickTrackers(vastDocument.getClickTrackers());
 
             if (vastVideoConfiguration.getClickThroughUrl() == null) {
-                vastVideoConfiguration.setClickThroughUrl(xmlManager.getClickThroughUrl());
+                vastVideoConfiguration.setClickThroughUrl(vastDocument.getClickThroughUrl());
             }
 
-            mediaXmlManagers.addAll(xmlManager.getMediaXmlManagers());
-            companionXmlManagers.addAll(xmlManager.getCompanionAdXmlManagers());
+            mediaFiles.addAll(vastDocument.getMediaFiles());
+            imageCompanions.addAll(vastDocument.getImageCompanions());
         }
 
-        vastVideoConfiguration.setNetworkMediaFileUrl(getBestMediaFileUrl(mediaXmlManagers));
-        vastVideoConfiguration.setVastCompanionAd(getBestCompanionAd(companionXmlManagers));
+        vastVideoConfiguration.setNetworkMediaFileUrl(getBestMediaFileUrl(mediaFiles));
+        vastVideoConfiguration.setVastCompanionAd(getBestCompanionAd(imageCompanions));
 
         return vastVideoConfiguration;
     }
 
-    String getBestMediaFileUrl(final List<VastXmlManager.MediaXmlManager> managers) {
-        final List<VastXmlManager.MediaXmlManager> mediaXmlManagers = new ArrayList<VastXmlManager.MediaXmlManager>(managers);
+    String getBestMediaFileUrl(final List<VastDocument.MediaFile> candidates) {
+        final List<VastDocument.MediaFile> mediaFiles = new ArrayList<VastDocument.MediaFile>(candidates);
         double bestMediaFitness = Double.POSITIVE_INFINITY;
         String bestMediaFileUrl = null;
 
-        final Iterator<VastXmlManager.MediaXmlManager> xmlManagerIterator = mediaXmlManagers.iterator();
-        while (xmlManagerIterator.hasNext()) {
-            final VastXmlManager.MediaXmlManager mediaXmlManager = xmlManagerIterator.next();
+        final Iterator<VastDocument.MediaFile> mediaFileIterator = mediaFiles.iterator();
+        while (mediaFileIterator.hasNext()) {
+            final VastDocument.MediaFile mediaFile = mediaFileIterator.next();
 
-            final String mediaType = mediaXmlManager.getType();
-            final String mediaUrl = mediaXmlManager.getMediaUrl();
+            final String mediaType = mediaFile.getType();
+            final String mediaUrl = mediaFile.getMediaUrl();
             if (!VIDEO_MIME_TYPES.contains(mediaType) || mediaUrl == null) {
-                xmlManagerIterator.remove();
+                mediaFileIterator.remove();
                 continue;
             }
 
-            final Integer mediaWidth = mediaXmlManager.getWidth();
-            final Integer mediaHeight = mediaXmlManager.getHeight();
+            final Integer mediaWidth = mediaFile.getWidth();
+            final Integer mediaHeight = mediaFile.getHeight();
             if (mediaWidth == null || mediaWidth <= 0 || mediaHeight == null || mediaHeight <= 0) {
                 continue;
             }
@@ -196,32 +194,32 @@ public class VastManager implements VastXmlManagerAggregatorListener {
             }
         }
 
-        if (bestMediaFileUrl == null && !mediaXmlManagers.isEmpty()) {
-            bestMediaFileUrl = mediaXmlManagers.get(0).getMediaUrl();
+        if (bestMediaFileUrl == null && !mediaFiles.isEmpty()) {
+            bestMediaFileUrl = mediaFiles.get(0).getMediaUrl();
         }
 
         return bestMediaFileUrl;
     }
 
-    VastCompanionAd getBestCompanionAd(final List<VastXmlManager.ImageCompanionAdXmlManager> managers) {
-        final List<VastXmlManager.ImageCompanionAdXmlManager> companionXmlManagers =
-                new ArrayList<VastXmlManager.ImageCompanionAdXmlManager>(managers);
+    VastCompanionAd getBestCompanionAd(final List<VastDocument.ImageCompanion> candidates) {
+        final List<VastDocument.ImageCompanion> imageCompanions =
+                new ArrayList<VastDocument.ImageCompanion>(candidates);
         double bestCompanionFitness = Double.POSITIVE_INFINITY;
-        VastXmlManager.ImageCompanionAdXmlManager bestCompanionXmlManager = null;
+        VastDocument.ImageCompanion bestImageCompanion = null;
 
-        final Iterator<VastXmlManager.ImageCompanionAdXmlManager> xmlManagerIterator = companionXmlManagers.iterator();
-        while (xmlManagerIterator.hasNext()) {
-            final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager = xmlManagerIterator.next();
+        final Iterator<VastDocument.ImageCompanion> imageCompanionIterator = imageCompanions.iterator();
+        while (imageCompanionIterator.hasNext()) {
+            final VastDocument.ImageCompanion imageCompanion = imageCompanionIterator.next();
 
-            final String imageType = companionXmlManager.getType();
-            final String imageUrl = companionXmlManager.getImageUrl();
+            final String imageType = imageCompanion.getType();
+            final String imageUrl = imageCompanion.getImageUrl();
             if (!COMPANION_IMAGE_MIME_TYPES.contains(imageType) || imageUrl == null) {
-                xmlManagerIterator.remove();
+                imageCompanionIterator.remove();
                 continue;
             }
 
-            final Integer imageWidth = companionXmlManager.getWidth();
-            final Integer imageHeight = companionXmlManager.getHeight();
+            final Integer imageWidth = imageCompanion.getWidth();
+            final Integer imageHeight = imageCompanion.getHeight();
             if (imageWidth == null || imageWidth <= 0 || imageHeight == null || imageHeight <= 0) {
                 continue;
             }
@@ -229,21 +227,21 @@ public class VastManager implements VastXmlManagerAggregatorListener {
             final double companionFitness = calculateFitness(imageWidth, imageHeight);
             if (companionFitness < bestCompanionFitness) {
                 bestCompanionFitness = companionFitness;
-                bestCompanionXmlManager = companionXmlManager;
+                bestImageCompanion = imageCompanion;
             }
         }
 
-        if (bestCompanionXmlManager == null && !companionXmlManagers.isEmpty()) {
-            bestCompanionXmlManager = companionXmlManagers.get(0);
+        if (bestImageCompanion == null && !imageCompanions.isEmpty()) {
+            bestImageCompanion = imageCompanions.get(0);
         }
 
-        if (bestCompanionXmlManager != null) {
+        if (bestImageCompanion != null) {
             return new VastCompanionAd(
-                    bestCompanionXmlManager.getWidth(),
-                    bestCompanionXmlManager.getHeight(),
-                    bestCompanionXmlManager.getImageUrl(),
-                    bestCompanionXmlManager.getClickThroughUrl(),
-                    new ArrayList<String>(bestCompanionXmlManager.getClickTrackers())
+                    bestImageCompanion.getWidth(),
+                    bestImageCompanion.getHeight(),
+                    bestImageCompanion.getImageUrl(),
+                    bestImageCompanion.getClickThroughUrl(),
+                    new ArrayList<String>(bestImageCompanion.getClickTrackers())
             );
         }
         return null;
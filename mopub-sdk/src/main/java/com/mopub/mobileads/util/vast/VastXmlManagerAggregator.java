@@ -1,23 +1,27 @@
 package com.mopub.mobileads.util.vast;
 
-import android.net.http.AndroidHttpClient;
 import android.os.AsyncTask;
 
 import com.mopub.common.HttpClient;
+import com.mopub.common.TimedRequests;
+import com.mopub.common.event.BaseEvent;
+import com.mopub.common.event.MoPubEvents;
+import com.mopub.common.event.TimedEvent;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.Strings;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
 
-public class VastXmlManagerAggregator extends AsyncTask<String, Void, List<VastXmlManager>> {
+public class VastXmlManagerAggregator extends AsyncTask<String, Void, List<VastDocument>> {
     interface VastXmlManagerAggregatorListener {
-        void onAggregationComplete(final List<VastXmlManager> vastXmlManagers);
+        void onAggregationComplete(final List<VastDocument> vastDocuments);
     }
 
     // More than reasonable number of nested VAST urls to follow
@@ -32,38 +36,32 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, List<VastX
     }
 
     @Override
-    protected List<VastXmlManager> doInBackground(String... strings) {
-        List<VastXmlManager> vastXmlManagers = null;
-        AndroidHttpClient httpClient = null;
+    protected List<VastDocument> doInBackground(String... strings) {
+        List<VastDocument> vastDocuments = null;
         try {
-            httpClient = HttpClient.getHttpClient();
+            final DefaultHttpClient httpClient = HttpClient.getHttpClient();
             if (strings != null && strings.length > 0) {
                 String vastXml = strings[0];
 
-                vastXmlManagers = new ArrayList<VastXmlManager>();
+                vastDocuments = new ArrayList<VastDocument>();
                 while (vastXml != null && vastXml.length() > 0 && !isCancelled()) {
-                    final VastXmlManager xmlManager = new VastXmlManager();
-                    xmlManager.parseVastXml(vastXml);
-                    vastXmlManagers.add(xmlManager);
-                    vastXml = followVastRedirect(httpClient, xmlManager.getVastAdTagURI());
+                    final VastDocument vastDocument = VastXmlPullParser.parse(vastXml);
+                    vastDocuments.add(vastDocument);
+                    vastXml = followVastRedirect(httpClient, vastDocument.getVastAdTagURI());
                 }
             }
         } catch (Exception e) {
             MoPubLog.d("Failed to parse VAST XML", e);
-        } finally {
-            if (httpClient != null) {
-                httpClient.close();
-            }
         }
 
-        return vastXmlManagers;
+        return vastDocuments;
     }
 
     @Override
-    protected void onPostExecute(final List<VastXmlManager> vastXmlManagers) {
+    protected void onPostExecute(final List<VastDocument> vastDocuments) {
         final VastXmlManagerAggregatorListener listener = mVastXmlManagerAggregatorListener.get();
         if (listener != null) {
-            listener.onAggregationComplete(vastXmlManagers);
+            listener.onAggregationComplete(vastDocuments);
         }
     }
 
@@ -75,14 +73,25 @@ public class VastXmlManagerAggregator extends AsyncTask<String, Void, List<VastX
         }
     }
 
-    String followVastRedirect(final AndroidHttpClient httpClient, final String redirectUrl) throws Exception {
+    String followVastRedirect(final DefaultHttpClient httpClient, final String redirectUrl) throws Exception {
         if (redirectUrl != null && mTimesFollowedVastRedirect < MAX_TIMES_TO_FOLLOW_VAST_REDIRECT) {
             mTimesFollowedVastRedirect++;
 
             final HttpGet httpget = new HttpGet(redirectUrl);
-            final HttpResponse response = httpClient.execute(httpget);
-            final HttpEntity entity = response.getEntity();
-            return (entity != null) ? Strings.fromStream(entity.getContent()) : null;
+            final TimedEvent timedEvent = MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST,
+                    TimedEvent.Endpoint.VAST_XML, redirectUrl);
+            final HttpResponse response = TimedRequests.execute(httpClient, httpget, timedEvent);
+            try {
+                final HttpEntity entity = response.getEntity();
+                final String vastXml =
+                        (entity != null) ? Strings.fromStream(entity.getContent()) : null;
+                timedEvent.stop(TimedRequests.getStatusCode(response),
+                        TimedRequests.getContentLength(response));
+                return vastXml;
+            } finally {
+                // Only records anything if reading the body failed.
+                timedEvent.stop(TimedEvent.SC_NO_RESPONSE);
+            }
         }
         return null;
     }
@@ -0,0 +1,395 @@
+package com.mopub.mobileads.util.vast;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass VAST parser. Rather than building a DOM and searching it once per getter, this walks
+ * the document once with an {@link XmlPullParser} and collects every value into an immutable
+ * {@link VastDocument}. Element matching follows the DOM-based parser it replaced: trackers, media
+ * files and companions are found at any depth, an element's value is the trimmed text (including
+ * CDATA) before its first child element, and companion fields come from direct children of the
+ * {@code Companion} element.
+ */
+class VastXmlPullParser {
+    private static final String ROOT_TAG = "MPMoVideoXMLDocRoot";
+    private static final String ROOT_TAG_OPEN = "<" + ROOT_TAG + ">";
+    private static final String ROOT_TAG_CLOSE = "</" + ROOT_TAG + ">";
+    private static final String XML_DECLARATION_OPEN = "<?";
+    private static final String XML_DECLARATION_CLOSE = "?>";
+
+    // Element names
+    private static final String IMPRESSION_TRACKER = "Impression";
+    private static final String VIDEO_TRACKER = "Tracking";
+    private static final String CLICK_THROUGH = "ClickThrough";
+    private static final String CLICK_TRACKER = "ClickTracking";
+    private static final String MEDIA_FILE = "MediaFile";
+    private static final String VAST_AD_TAG = "VASTAdTagURI";
+    private static final String MP_IMPRESSION_TRACKER = "MP_TRACKING_URL";
+    private static final String COMPANION = "Companion";
+    private static final String TRACKING_EVENTS = "TrackingEvents";
+    private static final String COMPANION_STATIC_RESOURCE = "StaticResource";
+    private static final String COMPANION_CLICK_THROUGH = "CompanionClickThrough";
+
+    // Attribute names
+    private static final String EVENT = "event";
+    private static final String WIDTH = "width";
+    private static final String HEIGHT = "height";
+    private static final String DELIVERY = "delivery";
+    private static final String VIDEO_TYPE = "type";
+    private static final String CREATIVE_TYPE = "creativeType";
+
+    // Attribute values
+    private static final String START = "start";
+    private static final String FIRST_QUARTILE = "firstQuartile";
+    private static final String MIDPOINT = "midpoint";
+    private static final String THIRD_QUARTILE = "thirdQuartile";
+    private static final String COMPLETE = "complete";
+    private static final String CREATIVE_VIEW = "creativeView";
+
+    // Looking up the factory implementation is costly, so do it once per process.
+    private static XmlPullParserFactory sXmlPullParserFactory;
+
+    private VastXmlPullParser() {}
+
+    static VastDocument parse(final String vastXml) throws XmlPullParserException, IOException {
+        final XmlPullParser parser = getXmlPullParserFactory().newPullParser();
+        parser.setInput(newDocumentReader(vastXml));
+
+        final DocumentCollector collector = new DocumentCollector();
+        Element current = null;
+        int eventType = parser.getEventType();
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.START_TAG) {
+                if (current != null) {
+                    current.mHasChildElement = true;
+                }
+                current = new Element(parser.getName(), current);
+                collector.onStartElement(current, parser);
+            } else if (eventType == XmlPullParser.TEXT) {
+                // Only text before the first child element counts towards an element's value.
+                if (current != null && !current.mHasChildElement) {
+                    current.appendText(parser.getText());
+                }
+            } else if (eventType == XmlPullParser.END_TAG) {
+                if (current != null) {
+                    collector.onEndElement(current);
+                    current = current.mParent;
+                }
+            }
+            eventType = parser.next();
+        }
+
+        return collector.build();
+    }
+
+    private static synchronized XmlPullParserFactory getXmlPullParserFactory()
+            throws XmlPullParserException {
+        if (sXmlPullParserFactory == null) {
+            sXmlPullParserFactory = XmlPullParserFactory.newInstance();
+        }
+        return sXmlPullParserFactory;
+    }
+
+    /**
+     * The ad server may embed additional impression trackers as siblings of {@code <VAST>}, so the
+     * document is wrapped in a synthetic root. A leading {@code <?xml?>} declaration would be
+     * illegal inside that root and is skipped. The wrapping is done by chaining readers rather
+     * than concatenating strings so the payload isn't copied.
+     */
+    private static Reader newDocumentReader(final String vastXml) throws IOException {
+        final StringReader body = new StringReader(vastXml);
+
+        int start = 0;
+        while (start < vastXml.length() && Character.isWhitespace(vastXml.charAt(start))) {
+            start++;
+        }
+        if (vastXml.startsWith(XML_DECLARATION_OPEN, start)) {
+            final int end = vastXml.indexOf(XML_DECLARATION_CLOSE, start);
+            if (end >= 0) {
+                body.skip(end + XML_DECLARATION_CLOSE.length());
+            }
+        }
+
+        return new ConcatenatedReader(
+                new StringReader(ROOT_TAG_OPEN),
+                body,
+                new StringReader(ROOT_TAG_CLOSE));
+    }
+
+    private static class Element {
+        final String mName;
+        final Element mParent;
+        boolean mHasChildElement;
+        private StringBuilder mText;
+
+        // Only populated for the elements whose attributes or children we care about.
+        String mAttribute;
+        MediaFileBuilder mMediaFile;
+        ImageCompanionBuilder mCompanion;
+
+        Element(final String name, final Element parent) {
+            mName = name;
+            mParent = parent;
+        }
+
+        void appendText(final String text) {
+            if (mText == null) {
+                mText = new StringBuilder(text.length());
+            }
+            mText.append(text);
+        }
+
+        String getValue() {
+            return (mText != null) ? mText.toString().trim() : null;
+        }
+
+        boolean isNamed(final String name) {
+            return mName.equals(name);
+        }
+
+        boolean isChildOf(final String parentName) {
+            return mParent != null && mParent.isNamed(parentName);
+        }
+    }
+
+    private static class DocumentCollector {
+        private String mVastAdTagURI;
+        private final List<String> mImpressionTrackers = new ArrayList<String>();
+        private final List<String> mMpImpressionTrackers = new ArrayList<String>();
+        private final List<String> mStartTrackers = new ArrayList<String>();
+        private final List<String> mFirstQuartileTrackers = new ArrayList<String>();
+        private final List<String> mMidpointTrackers = new ArrayList<String>();
+        private final List<String> mThirdQuartileTrackers = new ArrayList<String>();
+        private final List<String> mCompleteTrackers = new ArrayList<String>();
+        private String mClickThroughUrl;
+        private final List<String> mClickTrackers = new ArrayList<String>();
+        // Builders are added on the start tag so nested elements keep document order.
+        private final List<MediaFileBuilder> mMediaFiles = new ArrayList<MediaFileBuilder>();
+        private final List<ImageCompanionBuilder> mCompanions = new ArrayList<ImageCompanionBuilder>();
+
+        void onStartElement(final Element element, final XmlPullParser parser) {
+            if (element.isNamed(VIDEO_TRACKER)) {
+                element.mAttribute = parser.getAttributeValue(null, EVENT);
+            } else if (element.isNamed(MEDIA_FILE)) {
+                element.mMediaFile = new MediaFileBuilder(
+                        parser.getAttributeValue(null, DELIVERY),
+                        parseInteger(parser.getAttributeValue(null, WIDTH)),
+                        parseInteger(parser.getAttributeValue(null, HEIGHT)),
+                        parser.getAttributeValue(null, VIDEO_TYPE));
+                mMediaFiles.add(element.mMediaFile);
+            } else if (element.isNamed(COMPANION)) {
+                element.mCompanion = new ImageCompanionBuilder(
+                        parseInteger(parser.getAttributeValue(null, WIDTH)),
+                        parseInteger(parser.getAttributeValue(null, HEIGHT)));
+                mCompanions.add(element.mCompanion);
+            } else if (element.isNamed(COMPANION_STATIC_RESOURCE)) {
+                element.mAttribute = parser.getAttributeValue(null, CREATIVE_TYPE);
+            } else if (element.isNamed(TRACKING_EVENTS) && element.isChildOf(COMPANION)) {
+                final ImageCompanionBuilder companion = element.mParent.mCompanion;
+                if (companion.mTrackingEvents == null) {
+                    companion.mTrackingEvents = element;
+                }
+            }
+        }
+
+        void onEndElement(final Element element) {
+            final String value = element.getValue();
+
+            if (element.isNamed(VIDEO_TRACKER)) {
+                onTrackingElement(element, value);
+            } else if (element.isNamed(IMPRESSION_TRACKER)) {
+                addIfNotNull(mImpressionTrackers, value);
+            } else if (element.isNamed(MP_IMPRESSION_TRACKER)) {
+                addIfNotNull(mMpImpressionTrackers, value);
+            } else if (element.isNamed(CLICK_TRACKER)) {
+                addIfNotNull(mClickTrackers, value);
+            } else if (element.isNamed(CLICK_THROUGH)) {
+                if (mClickThroughUrl == null) {
+                    mClickThroughUrl = value;
+                }
+            } else if (element.isNamed(VAST_AD_TAG)) {
+                if (mVastAdTagURI == null) {
+                    mVastAdTagURI = value;
+                }
+            } else if (element.isNamed(MEDIA_FILE)) {
+                element.mMediaFile.mMediaUrl = value;
+            } else if (element.isNamed(COMPANION_STATIC_RESOURCE) && element.isChildOf(COMPANION)) {
+                final ImageCompanionBuilder companion = element.mParent.mCompanion;
+                if (!companion.mHasStaticResource) {
+                    companion.mHasStaticResource = true;
+                    companion.mType = element.mAttribute;
+                    companion.mImageUrl = value;
+                }
+            } else if (element.isNamed(COMPANION_CLICK_THROUGH) && element.isChildOf(COMPANION)) {
+                final ImageCompanionBuilder companion = element.mParent.mCompanion;
+                if (!companion.mHasClickThrough) {
+                    companion.mHasClickThrough = true;
+                    companion.mClickThroughUrl = value;
+                }
+            }
+        }
+
+        private void onTrackingElement(final Element element, final String value) {
+            final String event = element.mAttribute;
+            if (event == null || value == null) {
+                return;
+            }
+
+            if (START.equals(event)) {
+                mStartTrackers.add(value);
+            } else if (FIRST_QUARTILE.equals(event)) {
+                mFirstQuartileTrackers.add(value);
+            } else if (MIDPOINT.equals(event)) {
+                mMidpointTrackers.add(value);
+            } else if (THIRD_QUARTILE.equals(event)) {
+                mThirdQuartileTrackers.add(value);
+            } else if (COMPLETE.equals(event)) {
+                mCompleteTrackers.add(value);
+            } else if (CREATIVE_VIEW.equals(event) && element.isChildOf(TRACKING_EVENTS)) {
+                // Only the first TrackingEvents directly under a Companion holds its click trackers
+                final Element trackingEvents = element.mParent;
+                final Element parent = trackingEvents.mParent;
+                if (parent != null
+                        && parent.mCompanion != null
+                        && parent.mCompanion.mTrackingEvents == trackingEvents) {
+                    parent.mCompanion.mClickTrackers.add(value);
+                }
+            }
+        }
+
+        VastDocument build() {
+            final List<String> impressionTrackers =
+                    new ArrayList<String>(mImpressionTrackers.size() + mMpImpressionTrackers.size());
+            impressionTrackers.addAll(mImpressionTrackers);
+            impressionTrackers.addAll(mMpImpressionTrackers);
+
+            final List<VastDocument.MediaFile> mediaFiles =
+                    new ArrayList<VastDocument.MediaFile>(mMediaFiles.size());
+            for (final MediaFileBuilder builder : mMediaFiles) {
+                mediaFiles.add(builder.build());
+            }
+
+            final List<VastDocument.ImageCompanion> companions =
+                    new ArrayList<VastDocument.ImageCompanion>(mCompanions.size());
+            for (final ImageCompanionBuilder builder : mCompanions) {
+                companions.add(builder.build());
+            }
+
+            return new VastDocument(
+                    mVastAdTagURI,
+                    impressionTrackers,
+                    mStartTrackers,
+                    mFirstQuartileTrackers,
+                    mMidpointTrackers,
+                    mThirdQuartileTrackers,
+                    mCompleteTrackers,
+                    mClickThroughUrl,
+                    mClickTrackers,
+                    mediaFiles,
+                    companions);
+        }
+
+        private static void addIfNotNull(final List<String> list, final String value) {
+            if (value != null) {
+                list.add(value);
+            }
+        }
+
+        private static Integer parseInteger(final String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static class MediaFileBuilder {
+        private final String mDelivery;
+        private final Integer mWidth;
+        private final Integer mHeight;
+        private final String mType;
+        String mMediaUrl;
+
+        MediaFileBuilder(final String delivery,
+                final Integer width,
+                final Integer height,
+                final String type) {
+            mDelivery = delivery;
+            mWidth = width;
+            mHeight = height;
+            mType = type;
+        }
+
+        VastDocument.MediaFile build() {
+            return new VastDocument.MediaFile(mDelivery, mWidth, mHeight, mType, mMediaUrl);
+        }
+    }
+
+    private static class ImageCompanionBuilder {
+        private final Integer mWidth;
+        private final Integer mHeight;
+        String mType;
+        String mImageUrl;
+        String mClickThroughUrl;
+        final List<String> mClickTrackers = new ArrayList<String>();
+        boolean mHasStaticResource;
+        boolean mHasClickThrough;
+        Element mTrackingEvents;
+
+        ImageCompanionBuilder(final Integer width, final Integer height) {
+            mWidth = width;
+            mHeight = height;
+        }
+
+        VastDocument.ImageCompanion build() {
+            return new VastDocument.ImageCompanion(mWidth, mHeight, mType, mImageUrl,
+                    mClickThroughUrl, mClickTrackers);
+        }
+    }
+
+    /**
+     * Reads each of the given readers to the end in turn.
+     */
+    private static class ConcatenatedReader extends Reader {
+        private final Reader[] mReaders;
+        private int mIndex;
+
+        ConcatenatedReader(final Reader... readers) {
+            mReaders = readers;
+        }
+
+        @Override
+        public int read(final char[] buffer, final int offset, final int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (mIndex < mReaders.length) {
+                final int read = mReaders[mIndex].read(buffer, offset, length);
+                if (read > 0) {
+                    return read;
+                }
+                mIndex++;
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (final Reader reader : mReaders) {
+                reader.close();
+            }
+        }
+    }
+}
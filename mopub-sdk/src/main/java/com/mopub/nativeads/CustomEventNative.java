@@ -1,10 +1,13 @@
 package com.mopub.nativeads;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 
+import com.mopub.common.logging.MoPubLog;
+
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * CustomEventNative is a base class for custom events that support native ads. By implementing
@@ -42,17 +45,34 @@ public abstract class CustomEventNative {
     final void preCacheImages(final Context context,
             final List<String> imageUrls,
             final ImageListener imageListener) {
-        ImageService.get(context, imageUrls, new ImageService.ImageServiceListener() {
-            @Override
-            public void onSuccess(final Map<String, Bitmap> bitmaps) {
-                imageListener.onImagesCached();
-            }
+        preCacheImages(context, imageUrls, Collections.<String>emptyList(), imageListener);
+    }
+
+    /**
+     * Pre caches the given image urls, only failing if one of the required images can't be
+     * cached. Images that do load are cached even when the ad fails, and a broken optional image
+     * doesn't fail the ad.
+     */
+    final void preCacheImages(final Context context,
+            final List<String> requiredImageUrls,
+            final List<String> optionalImageUrls,
+            final ImageListener imageListener) {
+        ImageService.preCache(context, requiredImageUrls, optionalImageUrls,
+                new ImageService.PreCacheListener() {
+                    @Override
+                    public void onSuccess(final Set<String> failedUrls) {
+                        if (!failedUrls.isEmpty()) {
+                            MoPubLog.d("Unable to cache optional images: " + failedUrls);
+                        }
+                        imageListener.onImagesCached();
+                    }
 
-            @Override
-            public void onFail() {
-                imageListener.onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
-            }
-        });
+                    @Override
+                    public void onFail(final Set<String> failedUrls) {
+                        MoPubLog.d("Unable to cache images: " + failedUrls);
+                        imageListener.onImagesFailedToCache(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
+                    }
+                });
     }
 
     public interface ImageListener {
@@ -2,11 +2,8 @@ package com.mopub.nativeads;
 
 import android.graphics.Bitmap;
 
-import com.mopub.common.CacheService;
-
 import java.util.List;
-
-import static com.mopub.common.CacheService.DiskLruCacheGetListener;
+import java.util.Map;
 
 class ImageDiskTaskManager extends TaskManager<Bitmap> {
     private final List<String> mUrls;
@@ -25,12 +22,20 @@ class ImageDiskTaskManager extends TaskManager<Bitmap> {
     void execute() {
         if (mUrls.isEmpty()) {
             mImageTaskManagerListener.onSuccess(mResults);
+            return;
         }
 
-        ImageDiskTaskListener imageDiskTaskListener = new ImageDiskTaskListener(mMaxImageWidth);
-        for (final String url : mUrls) {
-            CacheService.getFromDiskCacheAsync(url, imageDiskTaskListener);
-        }
+        // One task reads and decodes every url straight from its cache file, without staging
+        // it in a byte array.
+        ImageService.decodeFromDiskCacheAsync(mUrls, mMaxImageWidth,
+                new ImageService.ImageDecodeListener() {
+                    @Override
+                    public void onDecoded(final Map<String, Bitmap> bitmaps) {
+                        for (final String url : mUrls) {
+                            onImageResult(url, bitmaps.get(url));
+                        }
+                    }
+                });
     }
 
     void failAllTasks() {
@@ -40,30 +45,11 @@ class ImageDiskTaskManager extends TaskManager<Bitmap> {
         }
     }
 
-    private class ImageDiskTaskListener implements DiskLruCacheGetListener {
-
-        private final int mTargetWidth;
+    private void onImageResult(final String key, final Bitmap bitmap) {
+        mResults.put(key, bitmap);
 
-        ImageDiskTaskListener(final int targetWidth) {
-            mTargetWidth = targetWidth;
-        }
-
-        @Override
-        public void onComplete(final String key, final byte[] content) {
-            if (key == null) {
-                failAllTasks();
-                return;
-            } else {
-                Bitmap bitmap = null;
-                if (content != null) {
-                     bitmap = ImageService.byteArrayToBitmap(content, mTargetWidth);
-                }
-                mResults.put(key, bitmap);
-            }
-
-            if (mCompletedCount.incrementAndGet() == mSize) {
-                mImageTaskManagerListener.onSuccess(mResults);
-            }
+        if (mCompletedCount.incrementAndGet() == mSize) {
+            mImageTaskManagerListener.onSuccess(mResults);
         }
     }
 }
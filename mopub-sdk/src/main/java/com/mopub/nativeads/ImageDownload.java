@@ -0,0 +1,144 @@
+package com.mopub.nativeads;
+
+import com.mopub.common.DownloadResponse;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mopub.nativeads.TaskManager.TaskManagerListener;
+
+/**
+ * Downloads one image url into the disk cache. At most one download per url is in flight,
+ * whatever width the image will be decoded at: callers that need a url that is already
+ * downloading attach to the pending download and all receive its body, so the url is fetched
+ * and written to the disk cache only once.
+ *
+ * A download is cancelled once every listener attached to it has detached. All methods must be
+ * called on the main thread, and listeners are called on it.
+ */
+class ImageDownload {
+    interface ImageDownloadListener {
+        /**
+         * The body has been written to the disk cache by the time this is called.
+         */
+        void onImageDownloaded(String url, byte[] imageData);
+        void onImageDownloadFailed(String url);
+    }
+
+    private static final Map<String, ImageDownload> sInFlightDownloads =
+            new HashMap<String, ImageDownload>();
+
+    private final String mUrl;
+    private final List<ImageDownloadListener> mListeners = new ArrayList<ImageDownloadListener>(1);
+    private ImageDownloadTaskManager mImageDownloadTaskManager;
+    // Set once the download has succeeded, failed or been cancelled.
+    private boolean mIsFinished;
+
+    /**
+     * Attaches the listener to the pending download for the url, starting one if there isn't
+     * one. The listener may be called before this returns.
+     */
+    static ImageDownload attach(final String url, final ImageDownloadListener imageDownloadListener) {
+        ImageDownload imageDownload = sInFlightDownloads.get(url);
+        if (imageDownload == null) {
+            imageDownload = new ImageDownload(url);
+            sInFlightDownloads.put(url, imageDownload);
+            imageDownload.mListeners.add(imageDownloadListener);
+            imageDownload.start();
+        } else {
+            imageDownload.mListeners.add(imageDownloadListener);
+        }
+        return imageDownload;
+    }
+
+    private ImageDownload(final String url) {
+        mUrl = url;
+    }
+
+    /**
+     * Stops delivering the result to the listener, and cancels the download if no other listener
+     * is still attached to it.
+     */
+    void detach(final ImageDownloadListener imageDownloadListener) {
+        if (mIsFinished) {
+            return;
+        }
+
+        if (mListeners.remove(imageDownloadListener) && mListeners.isEmpty()) {
+            MoPubLog.d("Cancelling image download: " + mUrl);
+            finish();
+            if (mImageDownloadTaskManager != null) {
+                mImageDownloadTaskManager.cancel();
+            }
+        }
+    }
+
+    private void start() {
+        try {
+            // The download only fetches the body; each listener decodes it at its own width.
+            mImageDownloadTaskManager = new ImageDownloadTaskManager(Arrays.asList(mUrl),
+                    new TaskManagerListener<DownloadResponse>() {
+                        @Override
+                        public void onSuccess(final Map<String, DownloadResponse> responses) {
+                            onDownloaded(responses.get(mUrl).getByteArray());
+                        }
+
+                        @Override
+                        public void onFail() {
+                            onFailed();
+                        }
+                    },
+                    ImageService.getTargetWidth());
+        } catch (IllegalArgumentException e) {
+            MoPubLog.d("Unable to initialize ImageDownloadTaskManager", e);
+            onFailed();
+            return;
+        }
+
+        mImageDownloadTaskManager.execute();
+    }
+
+    private void onDownloaded(final byte[] imageData) {
+        if (mIsFinished) {
+            return;
+        }
+
+        finish();
+        for (final ImageDownloadListener listener : new ArrayList<ImageDownloadListener>(mListeners)) {
+            listener.onImageDownloaded(mUrl, imageData);
+        }
+    }
+
+    private void onFailed() {
+        if (mIsFinished) {
+            return;
+        }
+
+        finish();
+        for (final ImageDownloadListener listener : new ArrayList<ImageDownloadListener>(mListeners)) {
+            listener.onImageDownloadFailed(mUrl);
+        }
+    }
+
+    private void finish() {
+        mIsFinished = true;
+        if (sInFlightDownloads.get(mUrl) == this) {
+            sInFlightDownloads.remove(mUrl);
+        }
+    }
+
+    @VisibleForTesting
+    static int getInFlightDownloadCount() {
+        return sInFlightDownloads.size();
+    }
+
+    @VisibleForTesting
+    static void clearInFlightDownloads() {
+        sInFlightDownloads.clear();
+    }
+}
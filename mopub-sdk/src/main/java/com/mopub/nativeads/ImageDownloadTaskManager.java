@@ -2,6 +2,7 @@ package com.mopub.nativeads;
 
 import com.mopub.common.DownloadResponse;
 import com.mopub.common.DownloadTask;
+import com.mopub.common.event.TimedEvent;
 import com.mopub.common.util.AsyncTasks;
 import com.mopub.common.logging.MoPubLog;
 
@@ -33,7 +34,9 @@ class ImageDownloadTaskManager extends TaskManager<DownloadResponse> {
         mDownloadTasks = new HashMap<HttpUriRequest, DownloadTask>(urls.size());
         for (final String url : urls) {
             final HttpGet httpGet = new HttpGet(url);
-            mDownloadTasks.put(httpGet, new DownloadTask(downloadTaskListener));
+            // The download keeps the disk cache entry and its validators up to date itself.
+            mDownloadTasks.put(httpGet, new DownloadTask(downloadTaskListener,
+                    DownloadTask.DEFAULT_MAX_BODY_BYTES, true, TimedEvent.Endpoint.IMAGE));
         }
     }
 
@@ -66,6 +69,18 @@ class ImageDownloadTaskManager extends TaskManager<DownloadResponse> {
         }
     }
 
+    /**
+     * Cancels the downloads without notifying the listener. Downloads that have already started
+     * are left to finish rather than interrupted, and their results are dropped.
+     */
+    void cancel() {
+        if (mFailed.compareAndSet(false, true)) {
+            for (final DownloadTask downloadTask : mDownloadTasks.values()) {
+                downloadTask.cancel(false);
+            }
+        }
+    }
+
     private class ImageDownloadTaskListener implements DownloadTaskListener {
         @Override
         public void onComplete(final String url, final DownloadResponse downloadResponse) {
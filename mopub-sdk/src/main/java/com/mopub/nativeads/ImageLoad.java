@@ -0,0 +1,239 @@
+package com.mopub.nativeads;
+
+import android.graphics.Bitmap;
+
+import com.mopub.common.CacheService;
+import com.mopub.common.VisibleForTesting;
+import com.mopub.common.logging.MoPubLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mopub.nativeads.TaskManager.TaskManagerListener;
+
+/**
+ * Loads one image url from the disk cache, falling back to the network when it misses or has
+ * gone stale, and decodes it at a target width. At most one load per url and width is in
+ * flight: callers that ask for one that is already loading attach to the pending load and all
+ * receive its result, so shared icons are read and decoded only once. Loads of the same url at
+ * different widths share one {@link ImageDownload} and each decode the downloaded body at their
+ * own width.
+ *
+ * A load is cancelled once every listener attached to it has detached. All methods must be
+ * called on the main thread, and listeners are called on it.
+ */
+class ImageLoad implements ImageDownload.ImageDownloadListener {
+    interface ImageLoadListener {
+        void onImageLoaded(String url, Bitmap bitmap);
+        void onImageFailed(String url);
+    }
+
+    private static final Map<String, ImageLoad> sInFlightLoads = new HashMap<String, ImageLoad>();
+
+    private final String mUrl;
+    private final int mTargetWidth;
+    // Identifies the decoded bitmap in the memory cache and this load among in-flight loads.
+    private final String mMemoryCacheKey;
+    private final List<ImageLoadListener> mListeners = new ArrayList<ImageLoadListener>(1);
+    private ImageDownload mImageDownload;
+    // Set once the load has succeeded, failed or been cancelled.
+    private boolean mIsFinished;
+
+    /**
+     * Attaches the listener to the pending load for the url, starting one if there isn't one.
+     * The listener may be called before this returns.
+     */
+    static ImageLoad attach(final String url,
+            final int targetWidth,
+            final ImageLoadListener imageLoadListener) {
+        return attachAll(Collections.singletonList(url), targetWidth, imageLoadListener).get(0);
+    }
+
+    /**
+     * Attaches the listener to a load for each url, like {@link #attach}. The loads this starts
+     * check the disk cache together in a single task. The listener may be called before this
+     * returns, but only once it is attached to every load.
+     */
+    static List<ImageLoad> attachAll(final List<String> urls,
+            final int targetWidth,
+            final ImageLoadListener imageLoadListener) {
+        final List<ImageLoad> imageLoads = new ArrayList<ImageLoad>(urls.size());
+        final List<ImageLoad> newLoads = new ArrayList<ImageLoad>(urls.size());
+        for (final String url : urls) {
+            ImageLoad imageLoad = sInFlightLoads.get(ImageService.getMemoryCacheKey(url, targetWidth));
+            if (imageLoad == null) {
+                imageLoad = new ImageLoad(url, targetWidth);
+                sInFlightLoads.put(imageLoad.mMemoryCacheKey, imageLoad);
+                newLoads.add(imageLoad);
+            }
+            imageLoad.mListeners.add(imageLoadListener);
+            imageLoads.add(imageLoad);
+        }
+
+        if (!newLoads.isEmpty()) {
+            loadFromDisk(newLoads, targetWidth);
+        }
+        return imageLoads;
+    }
+
+    private ImageLoad(final String url, final int targetWidth) {
+        mUrl = url;
+        mTargetWidth = targetWidth;
+        mMemoryCacheKey = ImageService.getMemoryCacheKey(url, targetWidth);
+    }
+
+    /**
+     * Stops delivering results to the listener, and cancels the load if no other listener is
+     * still attached to it.
+     */
+    void detach(final ImageLoadListener imageLoadListener) {
+        if (mIsFinished) {
+            return;
+        }
+
+        if (mListeners.remove(imageLoadListener) && mListeners.isEmpty()) {
+            MoPubLog.d("Cancelling image load: " + mUrl);
+            finish();
+            if (mImageDownload != null) {
+                mImageDownload.detach(this);
+            }
+        }
+    }
+
+    private static void loadFromDisk(final List<ImageLoad> imageLoads, final int targetWidth) {
+        final List<String> urls = new ArrayList<String>(imageLoads.size());
+        for (final ImageLoad imageLoad : imageLoads) {
+            urls.add(imageLoad.mUrl);
+        }
+
+        final ImageDiskTaskManager imageDiskTaskManager;
+        try {
+            imageDiskTaskManager = new ImageDiskTaskManager(urls,
+                    new TaskManagerListener<Bitmap>() {
+                        @Override
+                        public void onSuccess(final Map<String, Bitmap> bitmaps) {
+                            for (final ImageLoad imageLoad : imageLoads) {
+                                imageLoad.onDiskResult(bitmaps.get(imageLoad.mUrl));
+                            }
+                        }
+
+                        @Override
+                        public void onFail() {
+                            for (final ImageLoad imageLoad : imageLoads) {
+                                imageLoad.onFailed();
+                            }
+                        }
+                    },
+                    targetWidth);
+        } catch (IllegalArgumentException e) {
+            MoPubLog.d("Unable to initialize ImageDiskTaskManager", e);
+            for (final ImageLoad imageLoad : imageLoads) {
+                imageLoad.onFailed();
+            }
+            return;
+        }
+
+        imageDiskTaskManager.execute();
+    }
+
+    private void onDiskResult(final Bitmap bitmap) {
+        if (mIsFinished) {
+            return;
+        }
+
+        if (bitmap == null) {
+            loadFromNetwork();
+            return;
+        }
+
+        ImageService.putBitmapInCache(mMemoryCacheKey, bitmap);
+        onLoaded(bitmap);
+    }
+
+    private void loadFromNetwork() {
+        mImageDownload = ImageDownload.attach(mUrl, this);
+    }
+
+    @Override
+    public void onImageDownloaded(final String url, final byte[] imageData) {
+        if (mIsFinished) {
+            return;
+        }
+
+        decode(imageData);
+    }
+
+    @Override
+    public void onImageDownloadFailed(final String url) {
+        onFailed();
+    }
+
+    private void decode(final byte[] imageData) {
+        ImageService.decodeAsync(Collections.singletonMap(mUrl, imageData), mTargetWidth,
+                new ImageService.ImageDecodeListener() {
+                    @Override
+                    public void onDecoded(final Map<String, Bitmap> bitmaps) {
+                        // A cancelled load doesn't write to the memory cache. The download
+                        // already wrote the disk cache entry.
+                        if (mIsFinished) {
+                            return;
+                        }
+
+                        final Bitmap bitmap = bitmaps.get(mUrl);
+                        if (bitmap == null) {
+                            MoPubLog.d("Error decoding image for url: " + mUrl);
+                            // The download cached the body before it could be decoded.
+                            CacheService.removeFromDiskCacheAsync(mUrl);
+                            onFailed();
+                            return;
+                        }
+
+                        ImageService.putBitmapInCache(mMemoryCacheKey, bitmap);
+                        onLoaded(bitmap);
+                    }
+                });
+    }
+
+    private void onLoaded(final Bitmap bitmap) {
+        if (mIsFinished) {
+            return;
+        }
+
+        finish();
+        for (final ImageLoadListener imageLoadListener : new ArrayList<ImageLoadListener>(mListeners)) {
+            imageLoadListener.onImageLoaded(mUrl, bitmap);
+        }
+    }
+
+    private void onFailed() {
+        if (mIsFinished) {
+            return;
+        }
+
+        finish();
+        for (final ImageLoadListener imageLoadListener : new ArrayList<ImageLoadListener>(mListeners)) {
+            imageLoadListener.onImageFailed(mUrl);
+        }
+    }
+
+    private void finish() {
+        mIsFinished = true;
+        if (sInFlightLoads.get(mMemoryCacheKey) == this) {
+            sInFlightLoads.remove(mMemoryCacheKey);
+        }
+    }
+
+    @VisibleForTesting
+    static int getInFlightLoadCount() {
+        return sInFlightLoads.size();
+    }
+
+    @VisibleForTesting
+    static void clearInFlightLoads() {
+        sInFlightLoads.clear();
+        ImageDownload.clearInFlightDownloads();
+    }
+}
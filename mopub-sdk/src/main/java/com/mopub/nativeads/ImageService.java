@@ -3,31 +3,69 @@ package com.mopub.nativeads;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
 import android.graphics.Point;
+import android.graphics.Rect;
+import android.os.AsyncTask;
+import android.os.Looper;
 import android.view.Display;
 import android.view.WindowManager;
 
+import com.mopub.common.BitmapMemoryCache;
+import com.mopub.common.BitmapPool;
 import com.mopub.common.CacheService;
 import com.mopub.common.DownloadResponse;
 import com.mopub.common.VisibleForTesting;
 import com.mopub.common.logging.MoPubLog;
+import com.mopub.common.util.AsyncTasks;
 import com.mopub.common.util.VersionCode;
 
+import java.io.FileDescriptor;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static android.graphics.BitmapFactory.Options;
-import static android.graphics.BitmapFactory.decodeByteArray;
+import static com.mopub.common.util.VersionCode.HONEYCOMB;
 import static com.mopub.common.util.VersionCode.HONEYCOMB_MR2;
-import static com.mopub.nativeads.TaskManager.TaskManagerListener;
+import static com.mopub.common.util.VersionCode.KITKAT;
+import static com.mopub.common.util.VersionCode.currentApiLevel;
+import static com.mopub.nativeads.ImageLoad.ImageLoadListener;
 import static java.util.Map.Entry;
 
 class ImageService {
     private static final int TWO_MEGABYTES = 2097152;
+    // Views narrower than the display get images decoded at the next power of two of their size,
+    // but no narrower than this, so each image is only kept in a few sizes.
+    private static final int MIN_BUCKET_WIDTH = 64;
     private static int sTargetWidth = -1;
 
+    // Hands bitmaps evicted from the memory cache to the bitmap pool, unless a view still shows
+    // them. Views can only be inspected on the main thread, where images are cached.
+    private static final BitmapMemoryCache.EvictionListener sBitmapEvictionListener =
+            new BitmapMemoryCache.EvictionListener() {
+                @Override
+                public void onBitmapEvicted(final Bitmap bitmap) {
+                    final BitmapPool bitmapPool = CacheService.getBitmapPool();
+                    if (bitmapPool == null
+                            || Looper.myLooper() != Looper.getMainLooper()
+                            || ImageViewService.isDisplayed(bitmap)) {
+                        return;
+                    }
+                    bitmapPool.put(bitmap);
+                }
+            };
+
     interface ImageServiceListener {
         void onSuccess(Map<String, Bitmap> bitmaps);
         void onFail();
@@ -50,54 +88,263 @@ class ImageService {
             // Make our images no wider than the skinny side of the display.
             sTargetWidth = Math.min(size.x, size.y);
         }
+        CacheService.setBitmapEvictionListener(sBitmapEvictionListener);
     }
 
-    static void get(final Context context, final List<String> urls, final ImageServiceListener imageServiceListener) {
+    static ImageRequest get(final Context context, final List<String> urls, final ImageServiceListener imageServiceListener) {
         initialize(context);
         CacheService.initialize(context);
-        get(urls, imageServiceListener);
+        return get(urls, imageServiceListener);
+    }
+
+    static ImageRequest get(final List<String> urls, final ImageServiceListener imageServiceListener) {
+        return get(urls, sTargetWidth, imageServiceListener);
     }
 
-    static void get(final List<String> urls, final ImageServiceListener imageServiceListener) {
+    /**
+     * Loads the images decoded no wider than targetWidth, which should come from
+     * {@link #getBucketedWidth(int)}. The download and disk cache entry for a url are shared by
+     * all widths; decoded bitmaps are cached per width.
+     */
+    static ImageRequest get(final List<String> urls,
+            final int targetWidth,
+            final ImageServiceListener imageServiceListener) {
         final Map<String, Bitmap> cacheBitmaps = new HashMap<String, Bitmap>(urls.size());
-        final List<String> urlCacheMisses = getBitmapsFromMemoryCache(urls, cacheBitmaps);
+        final List<String> urlCacheMisses = getBitmapsFromMemoryCache(urls, targetWidth, cacheBitmaps);
 
-        if (urlCacheMisses.isEmpty()) {
-            imageServiceListener.onSuccess(cacheBitmaps);
-            return;
+        final ImageRequest imageRequest =
+                new ImageRequest(cacheBitmaps, targetWidth, imageServiceListener);
+        imageRequest.load(new LinkedHashSet<String>(urlCacheMisses));
+        return imageRequest;
+    }
+
+    /**
+     * Makes sure every url is in the disk cache, downloading the ones that aren't, and reports
+     * the outcome for each once they have all finished. Nothing is decoded: views decode the
+     * images at their own size when they bind them. The request only fails if one of the required
+     * urls fails. A url in both lists is required.
+     */
+    static void preCache(final Context context,
+            final Collection<String> requiredUrls,
+            final Collection<String> optionalUrls,
+            final PreCacheListener preCacheListener) {
+        initialize(context);
+        CacheService.initialize(context);
+
+        final Set<String> urls = new LinkedHashSet<String>(requiredUrls);
+        urls.addAll(optionalUrls);
+        final Set<String> onlyOptionalUrls = new HashSet<String>(optionalUrls);
+        onlyOptionalUrls.removeAll(requiredUrls);
+
+        final PreCacheRequest preCacheRequest =
+                new PreCacheRequest(urls.size(), onlyOptionalUrls, preCacheListener);
+        // Entries already on disk only count once the disk cache has opened.
+        CacheService.runAfterDiskCacheInitialized(new Runnable() {
+            @Override
+            public void run() {
+                preCacheRequest.load(urls);
+            }
+        });
+    }
+
+    interface PreCacheListener {
+        /**
+         * Called once every url has finished and all of the required ones are cached. failedUrls
+         * holds the optional urls that aren't.
+         */
+        void onSuccess(Set<String> failedUrls);
+
+        /**
+         * Called once every url has finished and at least one required url failed. The urls that
+         * did download stay cached.
+         */
+        void onFail(Set<String> failedUrls);
+    }
+
+    private static class PreCacheRequest implements ImageDownload.ImageDownloadListener {
+        private final Set<String> mOptionalUrls;
+        private final PreCacheListener mPreCacheListener;
+        private final Set<String> mFailedUrls = new HashSet<String>();
+        private int mRemainingCount;
+
+        PreCacheRequest(final int urlCount,
+                final Set<String> optionalUrls,
+                final PreCacheListener preCacheListener) {
+            mRemainingCount = urlCount;
+            mOptionalUrls = optionalUrls;
+            mPreCacheListener = preCacheListener;
         }
 
-        final ImageDiskTaskManager imageDiskTaskManager;
-        try {
-            imageDiskTaskManager = new ImageDiskTaskManager(
-                    urlCacheMisses,
-                    new ImageDiskTaskManagerListener(imageServiceListener, cacheBitmaps),
-                    sTargetWidth
-            );
-        } catch (IllegalArgumentException e) {
-            MoPubLog.d("Unable to initialize ImageDiskTaskManager", e);
-            imageServiceListener.onFail();
-            return;
+        void load(final Collection<String> urls) {
+            if (mRemainingCount == 0) {
+                finish();
+                return;
+            }
+
+            for (final String url : urls) {
+                if (url == null) {
+                    onImageDownloadFailed(null);
+                } else if (CacheService.containsKeyDiskCache(url)) {
+                    onCached();
+                } else {
+                    ImageDownload.attach(url, this);
+                }
+            }
+        }
+
+        @Override
+        public void onImageDownloaded(final String url, final byte[] imageData) {
+            onCached();
         }
 
-        imageDiskTaskManager.execute();
+        @Override
+        public void onImageDownloadFailed(final String url) {
+            mFailedUrls.add(url);
+            onCached();
+        }
+
+        private void onCached() {
+            if (--mRemainingCount == 0) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (mOptionalUrls.containsAll(mFailedUrls)) {
+                mPreCacheListener.onSuccess(mFailedUrls);
+            } else {
+                mPreCacheListener.onFail(mFailedUrls);
+            }
+        }
     }
 
+    /**
+     * One caller's request for a list of images. Urls that miss the memory cache are loaded
+     * through {@link ImageLoad}, so callers asking for the same url at the same time share a
+     * single load.
+     */
+    static class ImageRequest implements ImageLoadListener {
+        private final Map<String, Bitmap> mBitmaps;
+        private final int mTargetWidth;
+        private final ImageServiceListener mImageServiceListener;
+        private final List<ImageLoad> mImageLoads = new ArrayList<ImageLoad>();
+        private int mRemainingCount;
+        private boolean mIsDone;
 
+        ImageRequest(final Map<String, Bitmap> bitmaps,
+                final int targetWidth,
+                final ImageServiceListener imageServiceListener) {
+            mBitmaps = bitmaps;
+            mTargetWidth = targetWidth;
+            mImageServiceListener = imageServiceListener;
+        }
+
+        void load(final Collection<String> urls) {
+            mRemainingCount = urls.size();
+            if (mRemainingCount == 0) {
+                finish();
+                return;
+            }
+
+            final List<String> nonNullUrls = new ArrayList<String>(urls.size());
+            for (final String url : urls) {
+                if (url == null) {
+                    onImageFailed(null);
+                    if (mIsDone) {
+                        return;
+                    }
+                } else {
+                    nonNullUrls.add(url);
+                }
+            }
+
+            final List<ImageLoad> imageLoads = ImageLoad.attachAll(nonNullUrls, mTargetWidth, this);
+            // Loads can finish synchronously, and may have ended the whole request before
+            // it knew which loads to let go of.
+            if (mIsDone) {
+                for (final ImageLoad imageLoad : imageLoads) {
+                    imageLoad.detach(this);
+                }
+                return;
+            }
+            mImageLoads.addAll(imageLoads);
+        }
+
+        /**
+         * Drops this request's interest in its images. Loads that no other request is waiting on
+         * are cancelled. The listener is not called afterwards.
+         */
+        void cancel() {
+            if (mIsDone) {
+                return;
+            }
+            mIsDone = true;
+            detachAll();
+        }
+
+        @Override
+        public void onImageLoaded(final String url, final Bitmap bitmap) {
+            if (mIsDone) {
+                return;
+            }
+
+            mBitmaps.put(url, bitmap);
+            if (--mRemainingCount == 0) {
+                finish();
+            }
+        }
+
+        @Override
+        public void onImageFailed(final String url) {
+            if (mIsDone) {
+                return;
+            }
+
+            // The first failure ends the request and cancels the loads nobody else needs.
+            mIsDone = true;
+            detachAll();
+            mImageServiceListener.onFail();
+        }
+
+        private void finish() {
+            mIsDone = true;
+            mImageServiceListener.onSuccess(mBitmaps);
+        }
+
+        private void detachAll() {
+            for (final ImageLoad imageLoad : mImageLoads) {
+                imageLoad.detach(this);
+            }
+            mImageLoads.clear();
+        }
+    }
 
     static void putBitmapInCache(final String key, final Bitmap bitmap) {
         CacheService.putToBitmapCache(key, bitmap);
     }
 
     static void putDataInCache(final String key, final Bitmap bitmap, final byte[] byteData) {
-        CacheService.putToBitmapCache(key, bitmap);
-        CacheService.putToDiskCacheAsync(key, byteData);
+        putDataInCache(key, sTargetWidth, bitmap, byteData);
+    }
+
+    static void putDataInCache(final String url,
+            final int targetWidth,
+            final Bitmap bitmap,
+            final byte[] byteData) {
+        CacheService.putToBitmapCache(getMemoryCacheKey(url, targetWidth), bitmap);
+        CacheService.putToDiskCacheAsync(url, byteData);
     }
 
     static List<String> getBitmapsFromMemoryCache(final List<String> urls, final Map<String, Bitmap> hits) {
+        return getBitmapsFromMemoryCache(urls, sTargetWidth, hits);
+    }
+
+    static List<String> getBitmapsFromMemoryCache(final List<String> urls,
+            final int targetWidth,
+            final Map<String, Bitmap> hits) {
         final List<String> cacheMisses = new ArrayList<String>();
         for (final String url : urls) {
-            final Bitmap bitmap = getBitmapFromMemoryCache(url);
+            final Bitmap bitmap = getBitmapFromMemoryCache(getMemoryCacheKey(url, targetWidth));
 
             if (bitmap != null) {
                 hits.put(url, bitmap);
@@ -113,88 +360,191 @@ class ImageService {
         return CacheService.getFromBitmapCache(key);
     }
 
-    private static class ImageDiskTaskManagerListener implements TaskManagerListener<Bitmap> {
-        final private ImageServiceListener mImageServiceListener;
-        final private Map<String, Bitmap> mBitmaps;
+    /**
+     * Returns the width to decode images at for a view of the given size: the next power of two
+     * up from the view size, capped at the display-wide target width. An unknown (non-positive)
+     * size gets the display-wide width.
+     */
+    static int getBucketedWidth(final int viewSize) {
+        if (viewSize <= 0 || sTargetWidth <= 0) {
+            return sTargetWidth;
+        }
+
+        int bucketedWidth = MIN_BUCKET_WIDTH;
+        while (bucketedWidth < viewSize && bucketedWidth < sTargetWidth) {
+            bucketedWidth *= 2;
+        }
+        return Math.min(bucketedWidth, sTargetWidth);
+    }
+
+    /**
+     * Returns the memory cache key for the url decoded at the given width. Images at the
+     * display-wide width are keyed by their url alone.
+     */
+    static String getMemoryCacheKey(final String url, final int targetWidth) {
+        if (url == null || targetWidth == sTargetWidth) {
+            return url;
+        }
+        return url + "#width=" + targetWidth;
+    }
 
-        ImageDiskTaskManagerListener(final ImageServiceListener imageServiceListener,
-                final Map<String, Bitmap> bitmaps) {
-            mImageServiceListener = imageServiceListener;
-            mBitmaps = bitmaps;
+    interface ImageDecodeListener {
+        /**
+         * Called on the main thread. Urls whose data could not be decoded map to null.
+         */
+        void onDecoded(Map<String, Bitmap> bitmaps);
+    }
+
+    /**
+     * Decodes and scales the given image data on the decode executor and delivers the bitmaps to
+     * the listener on the main thread. Must be called from the main thread.
+     */
+    static void decodeAsync(final Map<String, byte[]> imageData,
+            final int requestedWidth,
+            final ImageDecodeListener imageDecodeListener) {
+        try {
+            AsyncTasks.safeExecuteOnDecodeExecutor(
+                    new ImageDecodeTask(imageData, requestedWidth, imageDecodeListener));
+        } catch (Exception e) {
+            MoPubLog.d("Failed to start image decode", e);
+            imageDecodeListener.onDecoded(undecodedBitmaps(imageData.keySet()));
+        }
+    }
+
+    private static class ImageDecodeTask extends AsyncTask<Void, Void, Map<String, Bitmap>> {
+        private final Map<String, byte[]> mImageData;
+        private final int mRequestedWidth;
+        private final ImageDecodeListener mImageDecodeListener;
+
+        ImageDecodeTask(final Map<String, byte[]> imageData,
+                final int requestedWidth,
+                final ImageDecodeListener imageDecodeListener) {
+            mImageData = imageData;
+            mRequestedWidth = requestedWidth;
+            mImageDecodeListener = imageDecodeListener;
         }
 
         @Override
-        public void onSuccess(final Map<String, Bitmap> diskBitmaps) {
-            final List<String> urlDiskMisses = new ArrayList<String>();
-            for (final Entry <String, Bitmap> entry : diskBitmaps.entrySet()) {
-                if (entry.getValue() == null) {
-                    urlDiskMisses.add(entry.getKey());
-                } else {
-                    putBitmapInCache(entry.getKey(), entry.getValue());
-                    mBitmaps.put(entry.getKey(), entry.getValue());
+        protected Map<String, Bitmap> doInBackground(final Void... voids) {
+            final Map<String, Bitmap> bitmaps = new HashMap<String, Bitmap>(mImageData.size());
+            for (final Entry<String, byte[]> entry : mImageData.entrySet()) {
+                Bitmap bitmap = null;
+                final byte[] bytes = entry.getValue();
+                if (bytes != null) {
+                    try {
+                        bitmap = byteArrayToBitmap(bytes, mRequestedWidth);
+                    } catch (OutOfMemoryError e) {
+                        MoPubLog.d("Out of memory decoding image for url: " + entry.getKey());
+                    }
                 }
+                bitmaps.put(entry.getKey(), bitmap);
             }
+            return bitmaps;
+        }
 
-            if (urlDiskMisses.isEmpty()) {
-                mImageServiceListener.onSuccess(mBitmaps);
-            } else {
-
-                final ImageDownloadTaskManager imageDownloadTaskManager;
-                try {
-                    imageDownloadTaskManager = new ImageDownloadTaskManager(
-                            urlDiskMisses,
-                            new ImageDownloadResponseListener(mImageServiceListener, mBitmaps),
-                            sTargetWidth
-                    );
-                } catch (IllegalArgumentException e) {
-                    MoPubLog.d("Unable to initialize ImageDownloadTaskManager", e);
-                    mImageServiceListener.onFail();
-                    return;
-                }
-
-                imageDownloadTaskManager.execute();
+        @Override
+        protected void onPostExecute(final Map<String, Bitmap> bitmaps) {
+            if (isCancelled()) {
+                onCancelled();
+                return;
             }
+
+            mImageDecodeListener.onDecoded(bitmaps);
         }
 
         @Override
-        public void onFail() {
-            mImageServiceListener.onFail();
+        protected void onCancelled() {
+            mImageDecodeListener.onDecoded(undecodedBitmaps(mImageData.keySet()));
         }
     }
 
-    private static class ImageDownloadResponseListener implements TaskManagerListener<DownloadResponse> {
-        private final ImageServiceListener mImageServiceListener;
-        private final Map<String, Bitmap> mBitmaps;
+    /**
+     * Decodes the urls' disk cache entries straight from their files in a single task on the
+     * decode executor, and delivers the bitmaps to the listener once, on the main thread. Urls
+     * that miss map to null. Must be called from the main thread.
+     *
+     * Reading a file and decoding it are a single step, so the whole batch belongs to the decode
+     * executor rather than the disk one.
+     */
+    static void decodeFromDiskCacheAsync(final List<String> urls,
+            final int requestedWidth,
+            final ImageDecodeListener imageDecodeListener) {
+        // Waits for the disk cache to open rather than missing it.
+        CacheService.runAfterDiskCacheInitialized(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    AsyncTasks.safeExecuteOnDecodeExecutor(
+                            new DiskCacheDecodeTask(urls, requestedWidth, imageDecodeListener));
+                } catch (Exception e) {
+                    MoPubLog.d("Failed to start disk cache decode", e);
+                    imageDecodeListener.onDecoded(undecodedBitmaps(urls));
+                }
+            }
+        });
+    }
 
-        ImageDownloadResponseListener(final ImageServiceListener imageServiceListener,
-                final Map<String, Bitmap> bitmaps) {
-            mImageServiceListener = imageServiceListener;
-            mBitmaps = bitmaps;
+    static void decodeFromDiskCacheAsync(final String url,
+            final int requestedWidth,
+            final ImageDecodeListener imageDecodeListener) {
+        decodeFromDiskCacheAsync(Collections.singletonList(url), requestedWidth, imageDecodeListener);
+    }
+
+    private static class DiskCacheDecodeTask extends AsyncTask<Void, Void, Map<String, Bitmap>> {
+        private final List<String> mUrls;
+        private final int mRequestedWidth;
+        private final ImageDecodeListener mImageDecodeListener;
+
+        DiskCacheDecodeTask(final List<String> urls,
+                final int requestedWidth,
+                final ImageDecodeListener imageDecodeListener) {
+            mUrls = urls;
+            mRequestedWidth = requestedWidth;
+            mImageDecodeListener = imageDecodeListener;
         }
 
         @Override
-        public void onSuccess(final Map<String, DownloadResponse> responses) {
-            for (final Entry<String, DownloadResponse> entry : responses.entrySet()) {
-                final Bitmap bitmap = asBitmap(entry.getValue(), sTargetWidth);
-                final String key = entry.getKey();
-                if (bitmap == null) {
-                    MoPubLog.d("Error decoding image for url: " + entry.getKey());
-                    onFail();
-                    return;
-                }
+        protected Map<String, Bitmap> doInBackground(final Void... voids) {
+            return CacheService.readMultipleFromDiskCache(mUrls,
+                    new CacheService.DiskLruCacheFileReader<Bitmap>() {
+                        @Override
+                        public Bitmap read(final FileDescriptor fileDescriptor, final long length)
+                                throws IOException {
+                            try {
+                                // A null bitmap means the body isn't an image, and drops the entry.
+                                return fileDescriptorToBitmap(fileDescriptor, mRequestedWidth);
+                            } catch (OutOfMemoryError e) {
+                                // Keeps the entry, which may decode once memory frees up.
+                                throw new IOException("Out of memory decoding image from disk cache");
+                            }
+                        }
+                    });
+        }
 
-                putDataInCache(key, bitmap, entry.getValue().getByteArray());
-                mBitmaps.put(key, bitmap);
+        @Override
+        protected void onPostExecute(final Map<String, Bitmap> bitmaps) {
+            if (isCancelled()) {
+                onCancelled();
+                return;
             }
-            mImageServiceListener.onSuccess(mBitmaps);
+
+            mImageDecodeListener.onDecoded(bitmaps);
         }
 
         @Override
-        public void onFail() {
-            mImageServiceListener.onFail();
+        protected void onCancelled() {
+            mImageDecodeListener.onDecoded(undecodedBitmaps(mUrls));
         }
     }
 
+    private static Map<String, Bitmap> undecodedBitmaps(final Collection<String> keys) {
+        final Map<String, Bitmap> bitmaps = new HashMap<String, Bitmap>(keys.size());
+        for (final String key : keys) {
+            bitmaps.put(key, null);
+        }
+        return bitmaps;
+    }
+
     public static Bitmap asBitmap(final DownloadResponse downloadResponse, final int requestedWidth) {
         if (downloadResponse == null) {
             return null;
@@ -205,13 +555,61 @@ class ImageService {
     }
 
     public static Bitmap byteArrayToBitmap(final byte[] bytes, final int requestedWidth) {
+        return byteArrayToBitmap(bytes, requestedWidth, getBitmapPool());
+    }
+
+    /**
+     * Decodes into a bitmap from the pool when there is one of the right size, and returns any
+     * intermediate bitmap to it. A null pool allocates every bitmap.
+     */
+    @VisibleForTesting
+    static Bitmap byteArrayToBitmap(final byte[] bytes,
+            final int requestedWidth,
+            final BitmapPool bitmapPool) {
+        return decodeToBitmap(new EncodedImage() {
+            @Override
+            public Bitmap decode(final Options options) {
+                return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+            }
+        }, requestedWidth, bitmapPool);
+    }
+
+    /**
+     * Decodes an image file in place, so the encoded image is never copied onto the heap. The
+     * descriptor's offset is unchanged afterwards.
+     */
+    public static Bitmap fileDescriptorToBitmap(final FileDescriptor fileDescriptor,
+            final int requestedWidth) {
+        return decodeToBitmap(new EncodedImage() {
+            @Override
+            public Bitmap decode(final Options options) {
+                return BitmapFactory.decodeFileDescriptor(fileDescriptor, null, options);
+            }
+        }, requestedWidth, getBitmapPool());
+    }
+
+    private static BitmapPool getBitmapPool() {
+        // inBitmap arrived in Honeycomb.
+        return currentApiLevel().isAtLeast(HONEYCOMB) ? CacheService.getBitmapPool() : null;
+    }
+
+    /**
+     * Image data that BitmapFactory can decode more than once, first for its bounds.
+     */
+    private interface EncodedImage {
+        Bitmap decode(Options options);
+    }
+
+    private static Bitmap decodeToBitmap(final EncodedImage encodedImage,
+            final int requestedWidth,
+            final BitmapPool bitmapPool) {
         if (requestedWidth <= 0) {
             return null;
         }
 
         Options options = new Options();
         options.inJustDecodeBounds = true;
-        decodeByteArray(bytes, 0, bytes.length, options);
+        encodedImage.decode(options);
         options.inSampleSize = calculateInSampleSize(options.outWidth, requestedWidth);
 
         // If the bitmap will be very large, downsample more to avoid blowing up the heap.
@@ -220,7 +618,7 @@ class ImageService {
         }
 
         options.inJustDecodeBounds = false;
-        Bitmap bitmap = decodeByteArray(bytes, 0, bytes.length, options);
+        Bitmap bitmap = decodeIntoPooledBitmap(encodedImage, options, bitmapPool);
         if (bitmap == null) {
             return null;
         }
@@ -230,14 +628,62 @@ class ImageService {
         // If needed, scale the bitmap so it's exactly the requested width.
         if (subsampleWidth > requestedWidth) {
             final int requestedHeight = (int)(bitmap.getHeight() * (double) requestedWidth / bitmap.getWidth());
-            Bitmap subsampledBitmap = bitmap;
-            bitmap = Bitmap.createScaledBitmap(subsampledBitmap, requestedWidth, requestedHeight, true);
-            subsampledBitmap.recycle();
+            bitmap = scaleBitmap(bitmap, requestedWidth, requestedHeight, bitmapPool);
         }
         
         return bitmap;
     }
 
+    @TargetApi(11)
+    private static Bitmap decodeIntoPooledBitmap(final EncodedImage encodedImage,
+            final Options options,
+            final BitmapPool bitmapPool) {
+        // Before KitKat a bitmap can only be reused by a decode that isn't subsampled.
+        if (bitmapPool != null
+                && (options.inSampleSize == 1 || currentApiLevel().isAtLeast(KITKAT))) {
+            // Keep the result mutable so it can be pooled in turn.
+            options.inMutable = true;
+            options.inBitmap = bitmapPool.acquire(options.outWidth / options.inSampleSize,
+                    options.outHeight / options.inSampleSize, options.inPreferredConfig);
+            if (options.inBitmap != null) {
+                try {
+                    return encodedImage.decode(options);
+                } catch (IllegalArgumentException e) {
+                    MoPubLog.d("Unable to reuse bitmap for decoding", e);
+                    options.inBitmap = null;
+                }
+            }
+        }
+
+        return encodedImage.decode(options);
+    }
+
+    private static Bitmap scaleBitmap(final Bitmap bitmap,
+            final int width,
+            final int height,
+            final BitmapPool bitmapPool) {
+        if (bitmapPool == null) {
+            final Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, width, height, true);
+            bitmap.recycle();
+            return scaledBitmap;
+        }
+
+        final Bitmap.Config config =
+                bitmap.getConfig() != null ? bitmap.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap scaledBitmap = bitmapPool.acquire(width, height, config);
+        if (scaledBitmap == null) {
+            scaledBitmap = Bitmap.createBitmap(width, height, config);
+        } else {
+            scaledBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        new Canvas(scaledBitmap).drawBitmap(bitmap, null, new Rect(0, 0, width, height),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+
+        // Nothing else has seen the subsampled bitmap, so the next decode can have it.
+        bitmapPool.put(bitmap);
+        return scaledBitmap;
+    }
+
     /**
      * Returns the size of the byte array that the bitmap described by the options object will consume.
      */
@@ -278,6 +724,7 @@ class ImageService {
     @VisibleForTesting
     static void clear() {
         sTargetWidth = -1;
+        ImageLoad.clearInFlightLoads();
     }
 
     @VisibleForTesting
@@ -1,6 +1,9 @@
 package com.mopub.nativeads;
 
 import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import com.mopub.common.VisibleForTesting;
@@ -12,6 +15,7 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.WeakHashMap;
 
+import static com.mopub.nativeads.ImageService.ImageRequest;
 import static com.mopub.nativeads.ImageService.ImageServiceListener;
 
 class ImageViewService {
@@ -19,6 +23,8 @@ class ImageViewService {
     // and earlier: https://code.google.com/p/android/issues/detail?id=18273
     private static final WeakHashMap<ImageView, Long> sImageViewRequestIds =
             new WeakHashMap<ImageView, Long>();
+    private static final WeakHashMap<ImageView, ImageRequest> sImageViewRequests =
+            new WeakHashMap<ImageView, ImageRequest>();
 
     private ImageViewService(){}
 
@@ -36,12 +42,69 @@ class ImageViewService {
             long uniqueId = Utils.generateUniqueId();
             sImageViewRequestIds.put(imageView, uniqueId);
 
-            // Async call to get image from memory cache, disk and then network
-            ImageService.get(
+            // Async call to get image from memory cache, disk and then network, decoded no larger
+            // than the view needs
+            final ImageRequest imageRequest = ImageService.get(
                     Arrays.asList(url),
+                    ImageService.getBucketedWidth(getViewSize(imageView)),
                     new MyImageViewServiceListener(url, imageView, uniqueId)
             );
+
+            // Let go of the image this view was previously waiting for. This happens after the
+            // new request so rebinding to the same url keeps sharing the pending load.
+            final ImageRequest previousRequest = sImageViewRequests.put(imageView, imageRequest);
+            if (previousRequest != null) {
+                previousRequest.cancel();
+            }
+        } else {
+            final ImageRequest previousRequest = sImageViewRequests.remove(imageView);
+            if (previousRequest != null) {
+                previousRequest.cancel();
+            }
+        }
+    }
+
+    /**
+     * Returns the larger side of the view, measured once it has been laid out and otherwise taken
+     * from fixed layout params, or 0 if either side isn't known yet.
+     */
+    @VisibleForTesting
+    static int getViewSize(final ImageView imageView) {
+        int width = imageView.getWidth();
+        int height = imageView.getHeight();
+        final ViewGroup.LayoutParams layoutParams = imageView.getLayoutParams();
+        if (layoutParams != null) {
+            if (width <= 0) {
+                width = layoutParams.width;
+            }
+            if (height <= 0) {
+                height = layoutParams.height;
+            }
+        }
+
+        // A wrap_content or match_parent side may end up as large as the display.
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        return Math.max(width, height);
+    }
+
+    /**
+     * Returns true if an image view this service has loaded is still showing the bitmap. Must be
+     * called on the main thread.
+     */
+    static boolean isDisplayed(final Bitmap bitmap) {
+        for (final ImageView imageView : sImageViewRequestIds.keySet()) {
+            if (imageView == null) {
+                continue;
+            }
+            final Drawable drawable = imageView.getDrawable();
+            if (drawable instanceof BitmapDrawable
+                    && ((BitmapDrawable) drawable).getBitmap() == bitmap) {
+                return true;
+            }
         }
+        return false;
     }
 
     private static class MyImageViewServiceListener implements ImageServiceListener {
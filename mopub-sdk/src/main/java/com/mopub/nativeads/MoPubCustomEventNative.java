@@ -37,7 +37,10 @@ public class MoPubCustomEventNative extends CustomEventNative {
             customEventNativeListener.onNativeAdFailed(NativeErrorCode.INVALID_JSON);
             return;
         }
-        preCacheImages(context, moPubForwardingNativeAd.getAllImageUrls(), new ImageListener() {
+        // The ad can't render without its main and icon images, but a broken extras image
+        // shouldn't cost the impression.
+        preCacheImages(context, moPubForwardingNativeAd.getRequiredImageUrls(),
+                moPubForwardingNativeAd.getExtrasImageUrls(), new ImageListener() {
             @Override
             public void onImagesCached() {
                 customEventNativeListener.onNativeAdLoaded(moPubForwardingNativeAd);
@@ -164,15 +167,19 @@ public class MoPubCustomEventNative extends CustomEventNative {
             return extrasBitmapUrls;
         }
 
-        List<String> getAllImageUrls() {
-            final List<String> imageUrls = new ArrayList<String>();
+        List<String> getRequiredImageUrls() {
+            final List<String> imageUrls = new ArrayList<String>(2);
             if (getMainImageUrl() != null) {
                 imageUrls.add(getMainImageUrl());
             }
             if (getIconImageUrl() != null) {
                 imageUrls.add(getIconImageUrl());
             }
+            return imageUrls;
+        }
 
+        List<String> getAllImageUrls() {
+            final List<String> imageUrls = getRequiredImageUrls();
             imageUrls.addAll(getExtrasImageUrls());
             return imageUrls;
         }
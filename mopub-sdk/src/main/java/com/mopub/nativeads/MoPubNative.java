@@ -3,11 +3,14 @@ package com.mopub.nativeads;
 import android.content.Context;
 import android.view.View;
 
+import com.mopub.common.CacheService;
 import com.mopub.common.DownloadResponse;
 import com.mopub.common.DownloadTask;
 import com.mopub.common.GpsHelper;
 import com.mopub.common.HttpClient;
+import com.mopub.common.HttpCompression;
 import com.mopub.common.VisibleForTesting;
+import com.mopub.common.event.TimedEvent;
 import com.mopub.common.util.AsyncTasks;
 import com.mopub.common.util.DeviceUtils;
 import com.mopub.common.util.ManifestUtils;
@@ -74,6 +77,10 @@ public class MoPubNative {
     public interface MoPubNativeListener extends MoPubNativeNetworkListener, MoPubNativeEventListener {
     }
 
+    // Ad responses are a few KB of JSON; anything near this is not an ad.
+    @VisibleForTesting
+    static final long MAX_AD_RESPONSE_BYTES = 512 * 1024;
+
     // must be an activity context since 3rd party networks need it
     private final WeakReference<Context> mContext;
     private final String mAdUnitId;
@@ -114,6 +121,9 @@ public class MoPubNative {
 
         // warm up cache for google play services info
         asyncFetchAdvertisingInfo(context);
+
+        // start opening the image caches before the first ad needs them
+        CacheService.initialize(context);
     }
 
     public void setNativeEventListener(final MoPubNativeEventListener nativeEventListener) {
@@ -204,6 +214,7 @@ public class MoPubNative {
             mMoPubNativeNetworkListener.onNativeFail(INVALID_REQUEST_URL);
             return;
         }
+        HttpCompression.acceptCompressedResponse(httpGet, HttpCompression.RequestType.NATIVE_AD);
 
         downloadJson(httpGet);
     }
@@ -251,7 +262,7 @@ public class MoPubNative {
                     );
                 }
             }
-        });
+        }, MAX_AD_RESPONSE_BYTES, false, TimedEvent.Endpoint.NATIVE_AD);
 
         try {
             AsyncTasks.safeExecuteOnExecutor(jsonDownloadTask, httpUriRequest);
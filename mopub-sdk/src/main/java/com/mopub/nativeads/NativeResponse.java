@@ -203,9 +203,7 @@ public class NativeResponse {
             return;
         }
 
-        for (final String impressionTracker : getImpressionTrackers()) {
-            HttpClient.makeTrackingHttpRequest(impressionTracker, mContext);
-        }
+        HttpClient.makeTrackingHttpRequest(getImpressionTrackers(), mContext);
 
         mNativeAd.recordImpression();
         mRecordedImpression = true;
@@ -4,6 +4,7 @@ import com.mopub.common.logging.MoPubLog;
 import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
 
 import java.util.List;
+import java.util.Random;
 
 /**
  * A data that represents placed ads in a {@link com.mopub.nativeads.MoPubStreamAdPlacer},
@@ -110,10 +111,15 @@ import java.util.List;
  * originalPositions: {3}
  * adjustedPositions: {3}
  *
- * Some runtime guarantees in terms of number of insertion ads:
+ * Repeating insertion positions are generated lazily as the stream grows, so there is no cap on
+ * the number of ads. Both the desired and the placed positions are kept in balanced trees whose
+ * nodes carry pending position offsets, which gives these runtime guarantees in terms of number
+ * of insertion ads:
  * - Finds the next or previous insertion position in O(logN)
  * - Maps from adjusted to original positions and vice versa in O(logN)
- * - Places an ad (moves positions from desired to placed) in O(N)
+ * - Places an ad (moves positions from desired to placed) in O(logN)
+ * - Inserts or removes a content item in O(logN)
+ * - Clears K ads in O(K logN)
  */
 class PlacementData {
     /**
@@ -121,63 +127,57 @@ class PlacementData {
      */
     public final static int NOT_FOUND = -1;
 
-    // Cap the number of ads to avoid unrestrained memory usage. 200 allows the 5 positioning
-    // arrays to fit in less than 4K.
-    private final static int MAX_ADS = 200;
+    private final PositionTree mDesiredPositions = new PositionTree();
+    private final PositionTree mPlacedPositions = new PositionTree();
 
-    // Initialize all of these to their max capacity. This prevents garbage collection when
-    // reallocating the list, which causes noticeable stuttering when scrolling on some devices.
-    private final int[] mDesiredOriginalPositions = new int[MAX_ADS];
-    private final int[] mDesiredInsertionPositions = new int[MAX_ADS];
-    private int mDesiredCount = 0;
-    private final int[] mOriginalAdPositions = new int[MAX_ADS];
-    private final int[] mAdjustedAdPositions = new int[MAX_ADS];
-    private final NativeAdData[] mAdDataObjects = new NativeAdData[MAX_ADS];
-    private int mPlacedCount = 0;
+    // The repeating interval, and the original position of the first repeating ad that has not
+    // been added to mDesiredPositions yet.
+    private int mRepeatInterval;
+    private int mNextRepeatingOriginalPosition;
 
     /**
      * @param desiredInsertionPositions Insertion positions, expressed as original positions
+     * @param repeatInterval The interval for repeating ads after the last insertion position, or
+     * {@link MoPubClientPositioning#NO_REPEAT}
      */
-    private PlacementData(final int[] desiredInsertionPositions) {
-        mDesiredCount = Math.min(desiredInsertionPositions.length, MAX_ADS);
-        System.arraycopy(desiredInsertionPositions, 0, mDesiredInsertionPositions, 0, mDesiredCount);
-        System.arraycopy(desiredInsertionPositions, 0, mDesiredOriginalPositions, 0, mDesiredCount);
+    private PlacementData(final int[] desiredInsertionPositions, final int repeatInterval) {
+        int lastPosition = 0;
+        for (final int position : desiredInsertionPositions) {
+            mDesiredPositions.insert(mDesiredPositions.size(), position, position, null);
+            lastPosition = position;
+        }
+
+        mRepeatInterval = repeatInterval;
+        if (repeatInterval != MoPubClientPositioning.NO_REPEAT) {
+            mNextRepeatingOriginalPosition = lastPosition + repeatInterval - 1;
+        }
     }
 
     static PlacementData fromAdPositioning(final MoPubClientPositioning adPositioning) {
         final List<Integer> fixed = adPositioning.getFixedPositions();
-        final int interval = adPositioning.getRepeatingInterval();
-
-        final int size = (interval == MoPubClientPositioning.NO_REPEAT ? fixed.size() : MAX_ADS);
-        final int[] desiredInsertionPositions = new int[size];
+        final int[] desiredInsertionPositions = new int[fixed.size()];
 
         // Fixed positions are in terms of final positions. Calculate current insertion positions
         // by decrementing numAds at each index.
         int numAds = 0;
-        int lastPos = 0;
         for (final Integer position : fixed) {
-            lastPos = position - numAds;
-            desiredInsertionPositions[numAds++] = lastPos;
+            desiredInsertionPositions[numAds] = position - numAds;
+            numAds++;
         }
 
-        // Expand the repeating positions, if there are any
-        while (numAds < size) {
-            lastPos = lastPos + interval - 1;
-            desiredInsertionPositions[numAds++] = lastPos;
-        }
-        return new PlacementData(desiredInsertionPositions);
+        // Repeating positions are expanded on demand as the stream is scrolled.
+        return new PlacementData(desiredInsertionPositions, adPositioning.getRepeatingInterval());
     }
 
     static PlacementData empty() {
-        return new PlacementData(new int[] {});
+        return new PlacementData(new int[] {}, MoPubClientPositioning.NO_REPEAT);
     }
 
     /**
      * Whether the given position should be an ad.
      */
     boolean shouldPlaceAd(final int position) {
-        final int index = binarySearch(mDesiredInsertionPositions, 0, mDesiredCount, position);
-        return index >= 0;
+        return indexOfAdjusted(mDesiredPositions, position) >= 0;
     }
 
     /**
@@ -185,12 +185,15 @@ class PlacementData {
      * more ads.
      */
     int nextInsertionPosition(final int position) {
-        final int index = binarySearchGreaterThan(
-                mDesiredInsertionPositions, mDesiredCount, position);
-        if (index == mDesiredCount) {
-            return NOT_FOUND;
+        expandRepeatingPositionsThrough(position);
+        final int index = mDesiredPositions.firstIndexGreaterThan(position, true);
+        if (index == mDesiredPositions.size()) {
+            if (mRepeatInterval == MoPubClientPositioning.NO_REPEAT) {
+                return NOT_FOUND;
+            }
+            addNextRepeatingPosition();
         }
-        return mDesiredInsertionPositions[index];
+        return mDesiredPositions.getAdjusted(index);
     }
 
     /**
@@ -198,12 +201,12 @@ class PlacementData {
      * are no more ads.
      */
     int previousInsertionPosition(final int position) {
-        final int index = binarySearchFirstEquals(
-                mDesiredInsertionPositions,  mDesiredCount, position);
+        expandRepeatingPositionsThrough(position);
+        final int index = mDesiredPositions.firstIndexAtLeast(position, true);
         if (index == 0) {
             return NOT_FOUND;
         }
-        return mDesiredInsertionPositions[index - 1];
+        return mDesiredPositions.getAdjusted(index - 1);
     }
 
     /**
@@ -211,54 +214,28 @@ class PlacementData {
      */
     void placeAd(final int adjustedPosition, final NativeAdData adData) {
         // See if this is a insertion ad
-        final int desiredIndex = binarySearchFirstEquals(
-                mDesiredInsertionPositions, mDesiredCount, adjustedPosition);
-        if (desiredIndex == mDesiredCount
-                || mDesiredInsertionPositions[desiredIndex] != adjustedPosition) {
+        final int desiredIndex = indexOfAdjusted(mDesiredPositions, adjustedPosition);
+        if (desiredIndex < 0) {
             MoPubLog.w("Attempted to insert an ad at an invalid position");
             return;
         }
 
-        // Add to placed array
-        final int originalPosition = mDesiredOriginalPositions[desiredIndex];
-        int placeIndex = binarySearchGreaterThan(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
-        if (placeIndex < mPlacedCount) {
-            final int num = mPlacedCount - placeIndex;
-            System.arraycopy(mOriginalAdPositions, placeIndex,
-                    mOriginalAdPositions, placeIndex + 1, num);
-            System.arraycopy(mAdjustedAdPositions, placeIndex,
-                    mAdjustedAdPositions, placeIndex + 1, num);
-            System.arraycopy(mAdDataObjects, placeIndex, mAdDataObjects, placeIndex + 1, num);
-        }
-        mOriginalAdPositions[placeIndex] = originalPosition;
-        mAdjustedAdPositions[placeIndex] = adjustedPosition;
-        mAdDataObjects[placeIndex] = adData;
-        mPlacedCount++;
-
-        // Remove desired index
-        final int num = mDesiredCount - desiredIndex - 1;
-        System.arraycopy(mDesiredInsertionPositions, desiredIndex + 1,
-                mDesiredInsertionPositions, desiredIndex, num);
-        System.arraycopy(mDesiredOriginalPositions, desiredIndex + 1,
-                mDesiredOriginalPositions, desiredIndex, num);
-        mDesiredCount--;
-
-        // Increment adjusted positions
-        for (int i = desiredIndex; i < mDesiredCount; ++i) {
-            mDesiredInsertionPositions[i]++;
-        }
-        for (int i = placeIndex + 1; i < mPlacedCount; ++i) {
-            mAdjustedAdPositions[i]++;
-        }
+        // Move from the desired positions to the placed positions
+        final int originalPosition = mDesiredPositions.getOriginal(desiredIndex);
+        mDesiredPositions.remove(desiredIndex);
+        final int placeIndex = mPlacedPositions.firstIndexGreaterThan(originalPosition, false);
+        mPlacedPositions.insert(placeIndex, originalPosition, adjustedPosition, adData);
+
+        // Increment adjusted positions after the new ad
+        mDesiredPositions.addToSuffix(desiredIndex, 0, 1);
+        mPlacedPositions.addToSuffix(placeIndex + 1, 0, 1);
     }
 
     /**
      * @see {@link com.mopub.nativeads.MoPubStreamAdPlacer#isAd(int)}
      */
     boolean isPlacedAd(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
-        return index >= 0;
+        return indexOfAdjusted(mPlacedPositions, position) >= 0;
     }
 
     /**
@@ -266,11 +243,11 @@ class PlacementData {
      * no ad at this position.
      */
     NativeAdData getPlacedAd(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
+        final int index = indexOfAdjusted(mPlacedPositions, position);
         if (index < 0) {
             return null;
         }
-        return mAdDataObjects[index];
+        return mPlacedPositions.getAdData(index);
     }
 
     /**
@@ -278,32 +255,30 @@ class PlacementData {
      * not call it from performance critical code.
      */
     int[] getPlacedAdPositions() {
-        int[] positions = new int[mPlacedCount];
-        System.arraycopy(mAdjustedAdPositions, 0, positions, 0, mPlacedCount);
-        return positions;
+        return mPlacedPositions.getAdjustedPositions();
     }
 
     /**
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#getOriginalPosition(int)
      */
     int getOriginalPosition(final int position) {
-        final int index = binarySearch(mAdjustedAdPositions, 0, mPlacedCount, position);
+        final int index = mPlacedPositions.firstIndexAtLeast(position, true);
 
-        // No match, ~index is the number of ads before this pos.
-        if (index < 0) {
-            return position - ~index;
+        // This is an ad - there is no original position
+        if (index < mPlacedPositions.size() && mPlacedPositions.getAdjusted(index) == position) {
+            return NOT_FOUND;
         }
 
-        // This is an ad - there is no original position
-        return NOT_FOUND;
+        // No match, index is the number of ads before this pos.
+        return position - index;
     }
 
     /**
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#getAdjustedPosition(int)
      */
     int getAdjustedPosition(final int originalPosition) {
-        // This is an ad. Since binary search doesn't properly handle dups, find the first non-ad.
-        int index = binarySearchGreaterThan(mOriginalAdPositions, mPlacedCount, originalPosition);
+        // Ads sharing this original position are placed before the item.
+        final int index = mPlacedPositions.firstIndexGreaterThan(originalPosition, false);
         return originalPosition + index;
     }
 
@@ -336,61 +311,34 @@ class PlacementData {
      * positions.
      */
     int clearAdsInRange(final int adjustedStartRange, final int adjustedEndRange) {
-        // Temporary arrays to store the cleared positions. Using temporary arrays makes it
-        // easy to debug what positions are being cleared.
-        int[] clearOriginalPositions = new int[mPlacedCount];
-        int[] clearAdjustedPositions = new int[mPlacedCount];
-        int clearCount = 0;
-
-        // Add to the clear position arrays any positions that fall inside
-        // [adjustedRangeStart, adjustedRangeEnd).
-        for (int i = 0; i < mPlacedCount; ++i) {
-            int originalPosition = mOriginalAdPositions[i];
-            int adjustedPosition = mAdjustedAdPositions[i];
-            if (adjustedStartRange <= adjustedPosition && adjustedPosition < adjustedEndRange) {
-                // When copying adjusted positions, subtract the current clear count because there
-                // is no longer an ad incrementing the desired insertion position.
-                clearOriginalPositions[clearCount] = originalPosition;
-                clearAdjustedPositions[clearCount] = adjustedPosition - clearCount;
-
-                // Destroying and nulling out the ad objects to avoids a memory leak.
-                mAdDataObjects[i].getAd().destroy();
-                mAdDataObjects[i] = null;
-                clearCount++;
-            } else if (clearCount > 0) {
-                // The position is not in the range; shift it by the number of cleared ads.
-                int newIndex = i - clearCount;
-                mOriginalAdPositions[newIndex] = originalPosition;
-                mAdjustedAdPositions[newIndex] = adjustedPosition - clearCount;
-                mAdDataObjects[newIndex] = mAdDataObjects[i];
-            }
-        }
+        // Ads in [adjustedRangeStart, adjustedRangeEnd).
+        final int startIndex = mPlacedPositions.firstIndexAtLeast(adjustedStartRange, true);
+        final int endIndex = mPlacedPositions.firstIndexAtLeast(adjustedEndRange, true);
+        final int clearCount = endIndex - startIndex;
 
         // If we have cleared nothing, this method was a no-op.
-        if (clearCount == 0) {
+        if (clearCount <= 0) {
             return 0;
         }
 
-        // Modify the desired positions arrays in order to make space to put back the
-        // cleared ad positions. For example if the desired array was {1, 10,
-        // 15} and we need to insert {3, 7} we'll shift the desired array to be {1, ?, ? , 10, 15}.
-        int firstCleared = clearAdjustedPositions[0];
-        int desiredIndex = binarySearchFirstEquals(
-                mDesiredInsertionPositions, mDesiredCount, firstCleared);
-        for (int i = mDesiredCount - 1; i >= desiredIndex; --i) {
-            mDesiredOriginalPositions[i + clearCount] = mDesiredOriginalPositions[i];
-            mDesiredInsertionPositions[i + clearCount] = mDesiredInsertionPositions[i] - clearCount;
-        }
-
-        // Copy the cleared ad positions into the desired arrays.
         for (int i = 0; i < clearCount; ++i) {
-            mDesiredOriginalPositions[desiredIndex + i] = clearOriginalPositions[i];
-            mDesiredInsertionPositions[desiredIndex + i] = clearAdjustedPositions[i];
+            final int originalPosition = mPlacedPositions.getOriginal(startIndex);
+            // Each cleared ad no longer pushes down the positions after it, so subtract the
+            // number of ads already cleared before it.
+            final int insertionPosition = mPlacedPositions.getAdjusted(startIndex) - i;
+
+            // Destroying and nulling out the ad objects to avoids a memory leak.
+            mPlacedPositions.getAdData(startIndex).getAd().destroy();
+            mPlacedPositions.remove(startIndex);
+
+            final int desiredIndex =
+                    mDesiredPositions.firstIndexGreaterThan(insertionPosition, true);
+            mDesiredPositions.addToSuffix(desiredIndex, 0, -1);
+            mDesiredPositions.insert(desiredIndex, originalPosition, insertionPosition, null);
         }
 
-        // Update the array counts, and we're done.
-        mDesiredCount = mDesiredCount + clearCount;
-        mPlacedCount = mPlacedCount - clearCount;
+        // Shift the remaining placed ads by the number of cleared ads.
+        mPlacedPositions.addToSuffix(startIndex, 0, -clearCount);
         return clearCount;
     }
 
@@ -399,32 +347,30 @@ class PlacementData {
      * will be back to the desired insertion positions.
      */
     void clearAds() {
-        if (mPlacedCount == 0) {
+        final int placedCount = mPlacedPositions.size();
+        if (placedCount == 0) {
             return;
         }
 
-        clearAdsInRange(0, mAdjustedAdPositions[mPlacedCount - 1] + 1);
+        clearAdsInRange(0, mPlacedPositions.getAdjusted(placedCount - 1) + 1);
     }
 
     /**
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#insertItem(int)
      */
     void insertItem(final int originalPosition) {
+        expandRepeatingPositionsThroughOriginal(originalPosition);
 
-        // Increment desired arrays.
-        int indexToIncrement = binarySearchFirstEquals(
-                mDesiredOriginalPositions, mDesiredCount, originalPosition);
-        for (int i = indexToIncrement; i < mDesiredCount; ++i) {
-            mDesiredOriginalPositions[i]++;
-            mDesiredInsertionPositions[i]++;
-        }
+        // Increment desired positions.
+        mDesiredPositions.addToSuffix(
+                mDesiredPositions.firstIndexAtLeast(originalPosition, false), 1, 1);
 
-        // Increment placed arrays.
-        indexToIncrement = binarySearchFirstEquals(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
-        for (int i = indexToIncrement; i < mPlacedCount; ++i) {
-            mOriginalAdPositions[i]++;
-            mAdjustedAdPositions[i]++;
+        // Increment placed positions.
+        mPlacedPositions.addToSuffix(
+                mPlacedPositions.firstIndexAtLeast(originalPosition, false), 1, 1);
+
+        if (mRepeatInterval != MoPubClientPositioning.NO_REPEAT) {
+            mNextRepeatingOriginalPosition++;
         }
     }
 
@@ -432,25 +378,19 @@ class PlacementData {
      * @see com.mopub.nativeads.MoPubStreamAdPlacer#removeItem(int)
      */
     void removeItem(final int originalPosition) {
+        expandRepeatingPositionsThroughOriginal(originalPosition);
+
         // When removing items, we only decrement ad position values *greater* than the original
         // position we're removing. The original position associated with an ad is the original
         // position of the first content item after the ad, so we shouldn't change the original
         // position of an ad that matches the original position removed.
-        int indexToDecrement = binarySearchGreaterThan(
-                mDesiredOriginalPositions, mDesiredCount, originalPosition);
-
-        // Decrement desired arrays.
-        for (int i = indexToDecrement; i < mDesiredCount; ++i) {
-            mDesiredOriginalPositions[i]--;
-            mDesiredInsertionPositions[i]--;
-        }
-
-        indexToDecrement = binarySearchGreaterThan(
-                mOriginalAdPositions, mPlacedCount, originalPosition);
+        mDesiredPositions.addToSuffix(
+                mDesiredPositions.firstIndexGreaterThan(originalPosition, false), -1, -1);
+        mPlacedPositions.addToSuffix(
+                mPlacedPositions.firstIndexGreaterThan(originalPosition, false), -1, -1);
 
-        for (int i = indexToDecrement; i < mPlacedCount; ++i) {
-            mOriginalAdPositions[i]--;
-            mAdjustedAdPositions[i]--;
+        if (mRepeatInterval != MoPubClientPositioning.NO_REPEAT) {
+            mNextRepeatingOriginalPosition--;
         }
     }
 
@@ -462,59 +402,271 @@ class PlacementData {
         insertItem(newPosition);
     }
 
-    private static int binarySearchFirstEquals(int[] array, int count, int value) {
-        int index = binarySearch(array, 0, count, value);
+    /**
+     * Returns the index of the given adjusted position in the tree, or -1 if it isn't there.
+     */
+    private int indexOfAdjusted(final PositionTree tree, final int position) {
+        if (tree == mDesiredPositions) {
+            expandRepeatingPositionsThrough(position);
+        }
+        final int index = tree.firstIndexAtLeast(position, true);
+        if (index < tree.size() && tree.getAdjusted(index) == position) {
+            return index;
+        }
+        return -1;
+    }
 
-        // If not found, binarySearch returns the 2's complement of the index of the nearest
-        // value higher than the target value, which is also the insertion index.
-        if (index < 0) {
-            return ~index;
+    /**
+     * Adds repeating positions until every desired insertion position up to and including the
+     * given adjusted position exists.
+     */
+    private void expandRepeatingPositionsThrough(final int position) {
+        // Every placed ad comes before the unexpanded repeating positions.
+        while (mRepeatInterval != MoPubClientPositioning.NO_REPEAT
+                && mNextRepeatingOriginalPosition + mPlacedPositions.size() <= position) {
+            addNextRepeatingPosition();
         }
+    }
 
-        int duplicateValue = array[index];
-        while (index >= 0 && array[index] == duplicateValue) {
-            index--;
+    /**
+     * Adds repeating positions until every original position up to and including the given
+     * position exists. Afterwards, inserting or removing an item at this position shifts all of
+     * the unexpanded repeating positions alike.
+     */
+    private void expandRepeatingPositionsThroughOriginal(final int originalPosition) {
+        while (mRepeatInterval != MoPubClientPositioning.NO_REPEAT
+                && mNextRepeatingOriginalPosition <= originalPosition) {
+            addNextRepeatingPosition();
         }
+    }
+
+    private void addNextRepeatingPosition() {
+        final int originalPosition = mNextRepeatingOriginalPosition;
+        mDesiredPositions.insert(mDesiredPositions.size(), originalPosition,
+                originalPosition + mPlacedPositions.size(), null);
 
-        return index + 1;
+        // Stop repeating rather than overflow.
+        if (originalPosition > Integer.MAX_VALUE - mRepeatInterval) {
+            mRepeatInterval = MoPubClientPositioning.NO_REPEAT;
+            return;
+        }
+        mNextRepeatingOriginalPosition = originalPosition + mRepeatInterval - 1;
     }
 
-    private static int binarySearchGreaterThan(int[] array, int count, int value) {
-        int index = binarySearch(array, 0, count, value);
+    /**
+     * A list of (original position, adjusted position, ad data) entries sorted by position,
+     * stored as a treap ordered by index. Position offsets applied to a range of entries are
+     * kept on the root of the affected subtree and pushed down lazily, so that shifting every
+     * entry after an index is O(logN) rather than O(N).
+     */
+    private static class PositionTree {
+        private static class Node {
+            int original;
+            int adjusted;
+            NativeAdData adData;
+            final int priority;
+            int size = 1;
+            // Offsets still to be applied to every node below this one.
+            int pendingOriginalOffset;
+            int pendingAdjustedOffset;
+            Node left;
+            Node right;
+
+            Node(final int priority) {
+                this.priority = priority;
+            }
+        }
 
-        // If not found, binarySearch returns the 2's complement of the index of the nearest
-        // value higher than the target value, which is also the insertion index.
-        if (index < 0) {
-            return ~index;
+        private final Random mRandom = new Random();
+        // Reused by split() to avoid allocating on every operation.
+        private final Node[] mSplit = new Node[2];
+        private Node mRoot;
+
+        int size() {
+            return size(mRoot);
         }
 
-        int duplicateValue = array[index];
-        while (index < count && array[index] == duplicateValue) {
-            index++;
+        int getOriginal(final int index) {
+            return nodeAt(index).original;
         }
 
-        return index;
-    }
+        int getAdjusted(final int index) {
+            return nodeAt(index).adjusted;
+        }
 
-    /**
-     * Copied from Arrays.java, which isn't available until Gingerbread.
-     */
-    private static int binarySearch(int[] array, int startIndex, int endIndex, int value) {
-        int lo = startIndex;
-        int hi = endIndex - 1;
-
-        while (lo <= hi) {
-            int mid = (lo + hi) >>> 1;
-            int midVal = array[mid];
-
-            if (midVal < value) {
-                lo = mid + 1;
-            } else if (midVal > value) {
-                hi = mid - 1;
+        NativeAdData getAdData(final int index) {
+            return nodeAt(index).adData;
+        }
+
+        /**
+         * Returns the index of the first entry whose position is at least the given value, or
+         * size() if there is none.
+         */
+        int firstIndexAtLeast(final int value, final boolean adjusted) {
+            return search(value, adjusted, false);
+        }
+
+        /**
+         * Returns the index of the first entry whose position is greater than the given value,
+         * or size() if there is none.
+         */
+        int firstIndexGreaterThan(final int value, final boolean adjusted) {
+            return search(value, adjusted, true);
+        }
+
+        void insert(final int index, final int original, final int adjusted,
+                final NativeAdData adData) {
+            final Node node = new Node(mRandom.nextInt());
+            node.original = original;
+            node.adjusted = adjusted;
+            node.adData = adData;
+
+            split(mRoot, index);
+            final Node right = mSplit[1];
+            mRoot = merge(merge(mSplit[0], node), right);
+        }
+
+        void remove(final int index) {
+            split(mRoot, index);
+            final Node left = mSplit[0];
+            split(mSplit[1], 1);
+            mRoot = merge(left, mSplit[1]);
+        }
+
+        /**
+         * Adds the given offsets to the positions of every entry from the given index onward.
+         */
+        void addToSuffix(final int fromIndex, final int originalOffset, final int adjustedOffset) {
+            if (fromIndex >= size()) {
+                return;
+            }
+            split(mRoot, fromIndex);
+            final Node left = mSplit[0];
+            final Node right = mSplit[1];
+            applyOffset(right, originalOffset, adjustedOffset);
+            mRoot = merge(left, right);
+        }
+
+        int[] getAdjustedPositions() {
+            final int[] positions = new int[size()];
+            collectAdjusted(mRoot, positions, 0);
+            return positions;
+        }
+
+        private int search(final int value, final boolean adjusted, final boolean strict) {
+            int result = size();
+            int index = 0;
+            Node node = mRoot;
+            while (node != null) {
+                pushDown(node);
+                final int position = adjusted ? node.adjusted : node.original;
+                if (strict ? position > value : position >= value) {
+                    result = index + size(node.left);
+                    node = node.left;
+                } else {
+                    index += size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return result;
+        }
+
+        private Node nodeAt(int index) {
+            Node node = mRoot;
+            while (true) {
+                pushDown(node);
+                final int leftSize = size(node.left);
+                if (index < leftSize) {
+                    node = node.left;
+                } else if (index == leftSize) {
+                    return node;
+                } else {
+                    index -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        private static int collectAdjusted(final Node node, final int[] positions, int index) {
+            if (node == null) {
+                return index;
+            }
+            pushDown(node);
+            index = collectAdjusted(node.left, positions, index);
+            positions[index++] = node.adjusted;
+            return collectAdjusted(node.right, positions, index);
+        }
+
+        /**
+         * Splits the tree into its first count entries and the rest, stored in mSplit[0] and
+         * mSplit[1] respectively.
+         */
+        private void split(final Node node, final int count) {
+            if (node == null) {
+                mSplit[0] = null;
+                mSplit[1] = null;
+                return;
+            }
+            pushDown(node);
+            if (count <= size(node.left)) {
+                split(node.left, count);
+                node.left = mSplit[1];
+                update(node);
+                mSplit[1] = node;
+            } else {
+                split(node.right, count - size(node.left) - 1);
+                node.right = mSplit[0];
+                update(node);
+                mSplit[0] = node;
+            }
+        }
+
+        private static Node merge(final Node left, final Node right) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            if (left.priority > right.priority) {
+                pushDown(left);
+                left.right = merge(left.right, right);
+                update(left);
+                return left;
             } else {
-                return mid;  // value found
+                pushDown(right);
+                right.left = merge(left, right.left);
+                update(right);
+                return right;
+            }
+        }
+
+        private static void applyOffset(final Node node, final int originalOffset,
+                final int adjustedOffset) {
+            if (node == null) {
+                return;
             }
+            node.original += originalOffset;
+            node.adjusted += adjustedOffset;
+            node.pendingOriginalOffset += originalOffset;
+            node.pendingAdjustedOffset += adjustedOffset;
+        }
+
+        private static void pushDown(final Node node) {
+            if (node.pendingOriginalOffset != 0 || node.pendingAdjustedOffset != 0) {
+                applyOffset(node.left, node.pendingOriginalOffset, node.pendingAdjustedOffset);
+                applyOffset(node.right, node.pendingOriginalOffset, node.pendingAdjustedOffset);
+                node.pendingOriginalOffset = 0;
+                node.pendingAdjustedOffset = 0;
+            }
+        }
+
+        private static void update(final Node node) {
+            node.size = 1 + size(node.left) + size(node.right);
+        }
+
+        private static int size(final Node node) {
+            return node == null ? 0 : node.size;
         }
-        return ~lo;  // value not present
     }
 }
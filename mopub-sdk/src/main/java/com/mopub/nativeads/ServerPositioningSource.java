@@ -3,13 +3,16 @@ package com.mopub.nativeads;
 import android.content.Context;
 import android.os.Handler;
 
+import com.mopub.common.CacheService;
 import com.mopub.common.DownloadResponse;
 import com.mopub.common.DownloadTask;
 import com.mopub.common.DownloadTask.DownloadTaskListener;
 import com.mopub.common.HttpClient;
+import com.mopub.common.HttpCompression;
 import com.mopub.common.HttpResponses;
 import com.mopub.common.Preconditions;
 import com.mopub.common.VisibleForTesting;
+import com.mopub.common.event.TimedEvent;
 import com.mopub.common.logging.MoPubLog;
 import com.mopub.common.util.AsyncTasks;
 import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
@@ -64,6 +67,10 @@ class ServerPositioningSource implements PositioningSource {
     // Max value to avoid bad integer math calculations. This is 2 ^ 16.
     private static final int MAX_VALUE = 1 << 16;
 
+    // Positioning is a few hundred bytes of JSON.
+    @VisibleForTesting
+    static final long MAX_RESPONSE_BYTES = 64 * 1024;
+
     private final Context mContext;
 
     private final DownloadTaskProvider mDownloadTaskProvider;
@@ -111,6 +118,9 @@ class ServerPositioningSource implements PositioningSource {
             mRetryCount = 0;
         }
 
+        // Positioning rarely changes, so a cached copy is reused or revalidated once this is open.
+        CacheService.initializeDiskCacheAsync(mContext);
+
         mListener = listener;
         mRetryUrl = new PositioningUrlGenerator(mContext)
                 .withAdUnitId(adUnitId)
@@ -121,7 +131,10 @@ class ServerPositioningSource implements PositioningSource {
     private void requestPositioningInternal() {
         MoPubLog.d("Loading positioning from: " + mRetryUrl);
         mDownloadTask = mDownloadTaskProvider.get(mTaskListener);
+        // A retry must not be answered with the cached body that was just rejected.
+        mDownloadTask.setBypassCachedEntry(mRetryCount > 0);
         final HttpGet httpGet = HttpClient.initializeHttpGet(mRetryUrl, mContext);
+        HttpCompression.acceptCompressedResponse(httpGet, HttpCompression.RequestType.POSITIONING);
         AsyncTasks.safeExecuteOnExecutor(mDownloadTask, httpGet);
     }
 
@@ -146,6 +159,8 @@ class ServerPositioningSource implements PositioningSource {
                 positioning = parseJsonResponse(responseText);
             } catch (JSONException exception) {
                 MoPubLog.e("Error parsing JSON: ", exception);
+                // The download cached the body before it could be parsed.
+                CacheService.removeFromDiskCacheAsync(url);
                 handleFailure();
                 return;
             }
@@ -157,7 +172,8 @@ class ServerPositioningSource implements PositioningSource {
     @VisibleForTesting
     static class DownloadTaskProvider {
         DownloadTask get(DownloadTaskListener listener) {
-            return new DownloadTask(listener);
+            return new DownloadTask(listener, MAX_RESPONSE_BYTES, true,
+                    TimedEvent.Endpoint.POSITIONING);
         }
     }
 
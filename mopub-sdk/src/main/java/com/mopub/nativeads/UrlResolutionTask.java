@@ -2,6 +2,9 @@ package com.mopub.nativeads;
 
 import android.os.AsyncTask;
 
+import com.mopub.common.event.BaseEvent;
+import com.mopub.common.event.MoPubEvents;
+import com.mopub.common.event.TimedEvent;
 import com.mopub.common.util.AsyncTasks;
 import com.mopub.common.util.IntentUtils;
 import com.mopub.common.logging.MoPubLog;
@@ -9,6 +12,7 @@ import com.mopub.common.logging.MoPubLog;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.concurrent.TimeUnit;
 
 class UrlResolutionTask extends AsyncTask<String, Void, String> {
     private static final int REDIRECT_LIMIT = 10;
@@ -69,12 +73,23 @@ class UrlResolutionTask extends AsyncTask<String, Void, String> {
     private String getRedirectLocation(final String urlString) throws IOException {
         final URL url = new URL(urlString);
 
+        final TimedEvent timedEvent = MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST,
+                TimedEvent.Endpoint.CLICK_REDIRECT, urlString);
+        int responseCode = TimedEvent.SC_NO_RESPONSE;
         HttpURLConnection httpUrlConnection = null;
         try {
             httpUrlConnection = (HttpURLConnection) url.openConnection();
             httpUrlConnection.setInstanceFollowRedirects(false);
 
-            int responseCode = httpUrlConnection.getResponseCode();
+            // Connecting explicitly separates the DNS lookup and handshakes from the wait for the
+            // response. A connection reused from the platform's pool connects almost instantly.
+            final long connectStartNanos = System.nanoTime();
+            httpUrlConnection.connect();
+            timedEvent.setConnectDurationMillis(TimeUnit.MILLISECONDS.convert(
+                    System.nanoTime() - connectStartNanos, TimeUnit.NANOSECONDS));
+
+            responseCode = httpUrlConnection.getResponseCode();
+            timedEvent.markFirstByte();
 
             if (responseCode >= 300 && responseCode < 400) {
                 return httpUrlConnection.getHeaderField("Location");
@@ -82,6 +97,8 @@ class UrlResolutionTask extends AsyncTask<String, Void, String> {
                 return null;
             }
         } finally {
+            // Only the status line and headers are read.
+            timedEvent.stop(responseCode, 0);
             if (httpUrlConnection != null) {
                 httpUrlConnection.disconnect();
             }
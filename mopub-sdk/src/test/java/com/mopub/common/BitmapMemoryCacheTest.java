@@ -0,0 +1,145 @@
+package com.mopub.common;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class BitmapMemoryCacheTest {
+    private static final int MAX_BYTES = 4 * 1024 * 1024;
+
+    private BitmapMemoryCache subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new BitmapMemoryCache(MAX_BYTES);
+    }
+
+    @Test
+    public void sizeOf_shouldBeFourBytesPerPixel() throws Exception {
+        assertThat(BitmapMemoryCache.sizeOf(createBitmap(10, 20))).isEqualTo(800);
+    }
+
+    @Test
+    public void get_shouldCountHitsAndMisses() throws Exception {
+        final Bitmap icon = createBitmap(50, 50);
+        subject.put("icon", icon);
+
+        assertThat(subject.get("icon")).isSameAs(icon);
+        assertThat(subject.get("missing")).isNull();
+
+        final BitmapMemoryCache.Stats stats = subject.getStats();
+        assertThat(stats.hits).isEqualTo(1);
+        assertThat(stats.misses).isEqualTo(1);
+        assertThat(stats.iconBytes).isEqualTo(BitmapMemoryCache.sizeOf(icon));
+        assertThat(stats.mainImageBytes).isEqualTo(0);
+    }
+
+    @Test
+    public void put_withLargeImages_shouldNotEvictIcons() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            subject.put("icon" + i, createBitmap(50, 50));
+        }
+
+        // Only three main images fit in the main image budget.
+        for (int i = 0; i < 10; i++) {
+            subject.put("main" + i, createBitmap(500, 500));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(subject.get("icon" + i)).isNotNull();
+        }
+        assertThat(subject.get("main0")).isNull();
+        assertThat(subject.get("main9")).isNotNull();
+        assertThat(subject.getStats().evictions).isEqualTo(7);
+        assertThat(subject.getStats().mainImageBytes).isLessThanOrEqualTo(
+                MAX_BYTES - (int) (MAX_BYTES * BitmapMemoryCache.ICON_BUDGET_FRACTION));
+    }
+
+    @Test
+    public void put_shouldEvictLeastRecentlyUsedFirst() throws Exception {
+        subject.put("main0", createBitmap(500, 500));
+        subject.put("main1", createBitmap(500, 500));
+        subject.put("main2", createBitmap(500, 500));
+        subject.get("main0");
+
+        subject.put("main3", createBitmap(500, 500));
+
+        assertThat(subject.get("main0")).isNotNull();
+        assertThat(subject.get("main1")).isNull();
+    }
+
+    @Test
+    public void put_withBitmapLargerThanItsBudget_shouldNotCacheIt() throws Exception {
+        subject.put("main", createBitmap(500, 500));
+
+        subject.put("huge", createBitmap(2000, 2000));
+
+        assertThat(subject.get("huge")).isNull();
+        assertThat(subject.get("main")).isNotNull();
+    }
+
+    @Test
+    public void put_withKeyInOtherSizeClass_shouldMoveIt() throws Exception {
+        subject.put("url", createBitmap(500, 500));
+        final Bitmap icon = createBitmap(50, 50);
+
+        subject.put("url", icon);
+
+        assertThat(subject.get("url")).isSameAs(icon);
+        assertThat(subject.getStats().mainImageBytes).isEqualTo(0);
+        assertThat(subject.size()).isEqualTo(BitmapMemoryCache.sizeOf(icon));
+    }
+
+    @Test
+    public void trimMemory_shouldTrimInProportionToLevel() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            subject.put("icon" + i, createBitmap(50, 50));
+        }
+        final int iconBytes = subject.size();
+
+        subject.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertThat(subject.size()).isEqualTo(iconBytes * 3 / 4);
+
+        subject.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertThat(subject.size()).isEqualTo(iconBytes * 3 / 8);
+
+        subject.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertThat(subject.size()).isEqualTo(0);
+        assertThat(subject.getStats().evictions).isEqualTo(8);
+    }
+
+    @Test
+    public void trimMemory_withRunningCritical_shouldEvictEverything() throws Exception {
+        subject.put("icon", createBitmap(50, 50));
+        subject.put("main", createBitmap(500, 500));
+
+        subject.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+
+        assertThat(subject.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void onTrimMemory_shouldTrimCacheServiceBitmapCache() throws Exception {
+        CacheService.initializeBitmapCache(new Activity());
+        CacheService.putToBitmapCache("icon", createBitmap(50, 50));
+
+        CacheService.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+        assertThat(CacheService.getFromBitmapCache("icon")).isNull();
+        assertThat(CacheService.getBitmapCacheStats().evictions).isEqualTo(1);
+        CacheService.clearAndNullCaches();
+    }
+
+    private static Bitmap createBitmap(final int width, final int height) {
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,87 @@
+package com.mopub.common;
+
+import android.graphics.Bitmap;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.nativeads.test.support.MoPubShadowBitmap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.robolectric.Robolectric.shadowOf;
+
+@RunWith(SdkTestRunner.class)
+@Config(shadows={MoPubShadowBitmap.class})
+public class BitmapPoolTest {
+    // Room for two 100x100 bitmaps.
+    private static final int MAX_BYTES = 2 * 100 * 100 * 4;
+
+    private BitmapPool subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new BitmapPool(MAX_BYTES);
+    }
+
+    @Test
+    public void acquire_shouldOnlyReturnBitmapsOfTheRequestedSize() throws Exception {
+        final Bitmap bitmap = createBitmap(100, 100);
+        subject.put(bitmap);
+
+        assertThat(subject.acquire(100, 50, Bitmap.Config.ARGB_8888)).isNull();
+        assertThat(subject.acquire(100, 100, Bitmap.Config.RGB_565)).isNull();
+        assertThat(subject.acquire(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(bitmap);
+        assertThat(subject.acquire(100, 100, Bitmap.Config.ARGB_8888)).isNull();
+
+        final BitmapPool.Stats stats = subject.getStats();
+        assertThat(stats.hits).isEqualTo(1);
+        assertThat(stats.misses).isEqualTo(3);
+        assertThat(stats.bytes).isEqualTo(0);
+    }
+
+    @Test
+    public void put_withImmutableOrRecycledBitmap_shouldIgnoreIt() throws Exception {
+        final Bitmap immutable = createBitmap(100, 100);
+        shadowOf(immutable).setMutable(false);
+        final Bitmap recycled = createBitmap(100, 100);
+        recycled.recycle();
+
+        subject.put(immutable);
+        subject.put(recycled);
+
+        assertThat(subject.getStats().bytes).isEqualTo(0);
+    }
+
+    @Test
+    public void put_withPoolFull_shouldDropOldestBitmaps() throws Exception {
+        final Bitmap first = createBitmap(100, 100);
+        final Bitmap second = createBitmap(100, 100);
+        final Bitmap third = createBitmap(100, 100);
+
+        subject.put(first);
+        subject.put(second);
+        subject.put(third);
+
+        assertThat(subject.getStats().bytes).isEqualTo(MAX_BYTES);
+        assertThat(subject.acquire(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(third);
+        assertThat(subject.acquire(100, 100, Bitmap.Config.ARGB_8888)).isSameAs(second);
+        assertThat(subject.acquire(100, 100, Bitmap.Config.ARGB_8888)).isNull();
+    }
+
+    @Test
+    public void clear_shouldEmptyPool() throws Exception {
+        subject.put(createBitmap(100, 100));
+
+        subject.clear();
+
+        assertThat(subject.getStats().bytes).isEqualTo(0);
+        assertThat(subject.acquire(100, 100, Bitmap.Config.ARGB_8888)).isNull();
+    }
+
+    private static Bitmap createBitmap(final int width, final int height) {
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,202 @@
+package com.mopub.common;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class CachePolicyTest {
+    private static final long NOW = 1000000000000L;
+
+    @Test
+    public void fromResponse_withMaxAge_shouldBeFreshForMaxAge() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(
+                createResponse(200, "Cache-Control", "public, max-age=60"), NOW);
+
+        assertThat(cachePolicy.isFresh(NOW + 59999)).isTrue();
+        assertThat(cachePolicy.isFresh(NOW + 60000)).isFalse();
+        assertThat(cachePolicy.isNoStore()).isFalse();
+    }
+
+    @Test
+    public void fromResponse_withNoStore_shouldBeNoStoreAndNeverFresh() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(
+                createResponse(200, "Cache-Control", "no-store, max-age=60", "ETag", "\"v1\""), NOW);
+
+        assertThat(cachePolicy.isNoStore()).isTrue();
+        assertThat(cachePolicy.isFresh(NOW)).isFalse();
+        assertThat(cachePolicy.hasValidators()).isFalse();
+    }
+
+    @Test
+    public void fromResponse_withNoCache_shouldBeStaleRightAway() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(
+                createResponse(200, "Cache-Control", "no-cache", "ETag", "\"v1\""), NOW);
+
+        assertThat(cachePolicy.isFresh(NOW)).isFalse();
+        assertThat(cachePolicy.isNoStore()).isFalse();
+        assertThat(cachePolicy.hasValidators()).isTrue();
+    }
+
+    @Test
+    public void fromResponse_withExpires_shouldMeasureLifetimeFromDate() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(createResponse(200,
+                "Date", "Sun, 06 Nov 1994 08:49:37 GMT",
+                "Expires", "Sun, 06 Nov 1994 08:50:37 GMT"), NOW);
+
+        assertThat(cachePolicy.getExpiresAtMillis()).isEqualTo(NOW + 60000);
+    }
+
+    @Test
+    public void fromResponse_withMaxAgeAndExpires_shouldPreferMaxAge() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(createResponse(200,
+                "Cache-Control", "max-age=10",
+                "Date", "Sun, 06 Nov 1994 08:49:37 GMT",
+                "Expires", "Sun, 06 Nov 1994 08:50:37 GMT"), NOW);
+
+        assertThat(cachePolicy.getExpiresAtMillis()).isEqualTo(NOW + 10000);
+    }
+
+    @Test
+    public void fromResponse_withInvalidExpires_shouldBeStale() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(
+                createResponse(200, "Expires", "0"), NOW);
+
+        assertThat(cachePolicy.isFresh(NOW)).isFalse();
+    }
+
+    @Test
+    public void fromResponse_withLastModifiedButNoLifetime_shouldBeFreshForATenthOfItsAge() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(createResponse(200,
+                "Date", "Sun, 06 Nov 1994 08:49:37 GMT",
+                "Last-Modified", "Sun, 06 Nov 1994 08:39:37 GMT"), NOW);
+
+        assertThat(cachePolicy.getExpiresAtMillis()).isEqualTo(NOW + 60000);
+        assertThat(cachePolicy.hasValidators()).isTrue();
+    }
+
+    @Test
+    public void fromResponse_withLongUnmodifiedBodyButNoLifetime_shouldCapHeuristicLifetime() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(createResponse(200,
+                "Date", "Sun, 06 Nov 1994 08:49:37 GMT",
+                "Last-Modified", "Sun, 06 Nov 1984 08:49:37 GMT"), NOW);
+
+        assertThat(cachePolicy.getExpiresAtMillis())
+                .isEqualTo(NOW + CachePolicy.MAX_HEURISTIC_LIFETIME_MILLIS);
+    }
+
+    @Test
+    public void fromResponse_withLastModifiedInTheFuture_shouldBeStale() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(createResponse(200,
+                "Date", "Sun, 06 Nov 1994 08:49:37 GMT",
+                "Last-Modified", "Sun, 06 Nov 1994 08:59:37 GMT"), NOW);
+
+        assertThat(cachePolicy.isFresh(NOW)).isFalse();
+    }
+
+    @Test
+    public void fromResponse_withETagButNoLifetime_shouldUseDefaultLifetime() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(
+                createResponse(200, "ETag", "\"v1\""), NOW);
+
+        assertThat(cachePolicy.getExpiresAtMillis())
+                .isEqualTo(NOW + CachePolicy.DEFAULT_LIFETIME_MILLIS);
+        assertThat(cachePolicy.hasValidators()).isTrue();
+    }
+
+    @Test
+    public void fromResponse_withNeitherValidatorsNorLifetime_shouldUseDefaultLifetime() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(createResponse(200), NOW);
+
+        assertThat(cachePolicy.isFresh(NOW + CachePolicy.DEFAULT_LIFETIME_MILLIS - 1)).isTrue();
+        assertThat(cachePolicy.isFresh(NOW + CachePolicy.DEFAULT_LIFETIME_MILLIS)).isFalse();
+    }
+
+    @Test
+    public void addConditionalHeaders_shouldAddIfNoneMatchAndIfModifiedSince() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(createResponse(200,
+                "ETag", "\"v1\"",
+                "Last-Modified", "Sun, 06 Nov 1994 08:49:37 GMT"), NOW);
+        final HttpGet httpGet = new HttpGet("http://www.mopub.com/");
+
+        cachePolicy.addConditionalHeaders(httpGet);
+
+        assertThat(httpGet.getFirstHeader("If-None-Match").getValue()).isEqualTo("\"v1\"");
+        assertThat(httpGet.getFirstHeader("If-Modified-Since").getValue())
+                .isEqualTo("Sun, 06 Nov 1994 08:49:37 GMT");
+    }
+
+    @Test
+    public void addConditionalHeaders_withoutValidators_shouldNotAddHeaders() throws Exception {
+        final HttpGet httpGet = new HttpGet("http://www.mopub.com/");
+
+        CachePolicy.UNKNOWN.addConditionalHeaders(httpGet);
+
+        assertThat(httpGet.getAllHeaders()).isEmpty();
+    }
+
+    @Test
+    public void refresh_shouldTakeNewLifetimeAndKeepValidatorsTheResponseLeavesOut() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(createResponse(200,
+                "Cache-Control", "no-cache",
+                "ETag", "\"v1\"",
+                "Last-Modified", "Sun, 06 Nov 1994 08:49:37 GMT"), NOW);
+
+        final CachePolicy refreshed = cachePolicy.refresh(
+                createResponse(304, "Cache-Control", "max-age=60", "ETag", "\"v2\""), NOW + 1000);
+
+        assertThat(refreshed.isFresh(NOW + 60999)).isTrue();
+        assertThat(refreshed.isFresh(NOW + 61000)).isFalse();
+        assertThat(refreshed.getETag()).isEqualTo("\"v2\"");
+        assertThat(refreshed.getLastModified()).isEqualTo("Sun, 06 Nov 1994 08:49:37 GMT");
+    }
+
+    @Test
+    public void refresh_withoutLifetime_shouldUseHeuristicLifetimeFromCachedLastModified() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(createResponse(200,
+                "Cache-Control", "no-cache",
+                "ETag", "\"v1\"",
+                "Last-Modified", "Sun, 06 Nov 1994 08:39:37 GMT"), NOW);
+
+        final CachePolicy refreshed = cachePolicy.refresh(
+                createResponse(304, "Date", "Sun, 06 Nov 1994 08:49:37 GMT"), NOW + 1000);
+
+        assertThat(refreshed.getExpiresAtMillis()).isEqualTo(NOW + 61000);
+        assertThat(refreshed.getETag()).isEqualTo("\"v1\"");
+    }
+
+    @Test
+    public void toByteArray_fromByteArray_shouldRoundTrip() throws Exception {
+        final CachePolicy cachePolicy = CachePolicy.fromResponse(createResponse(200,
+                "Cache-Control", "max-age=60",
+                "ETag", "\"v1\""), NOW);
+
+        final CachePolicy restored = CachePolicy.fromByteArray(cachePolicy.toByteArray());
+
+        assertThat(restored.getETag()).isEqualTo("\"v1\"");
+        assertThat(restored.getLastModified()).isNull();
+        assertThat(restored.getExpiresAtMillis()).isEqualTo(NOW + 60000);
+        assertThat(restored.isNoStore()).isFalse();
+    }
+
+    @Test
+    public void fromByteArray_withEmptyArray_shouldReturnUnknown() throws Exception {
+        assertThat(CachePolicy.fromByteArray(new byte[0])).isSameAs(CachePolicy.UNKNOWN);
+    }
+
+    private static HttpResponse createResponse(final int statusCode, final String... headers) {
+        final BasicHttpResponse response =
+                new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "");
+        for (int i = 0; i < headers.length; i += 2) {
+            response.addHeader(headers[i], headers[i + 1]);
+        }
+        return response;
+    }
+}
@@ -2,29 +2,32 @@ package com.mopub.common;
 
 import android.app.Activity;
 import android.graphics.Bitmap;
-import android.support.v4.util.LruCache;
 
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.Streams;
 
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.invocation.InvocationOnMock;
-import org.mockito.stubbing.Answer;
+import org.robolectric.Robolectric;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.Semaphore;
+import java.util.Arrays;
+import java.util.Map;
 
-import static com.mopub.common.CacheService.DiskLruCacheGetListener;
 import static org.fest.assertions.api.Assertions.assertThat;
-import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyString;
-import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 @RunWith(SdkTestRunner.class)
 public class CacheServiceTest {
@@ -32,10 +35,6 @@ public class CacheServiceTest {
     private Activity context;
     private String key1;
     private String data1;
-    private String getKey;
-    private byte[] getBytes;
-    private DiskLruCacheGetListener diskCacheGetListener;
-    private Semaphore semaphore;
 
     @Before
     public void setUp() throws Exception {
@@ -44,19 +43,6 @@ public class CacheServiceTest {
         context = new Activity();
         key1 = "http://www.mopub.com/";
         data1 = "image_data_1";
-
-        semaphore = new Semaphore(0);
-        diskCacheGetListener = mock(DiskLruCacheGetListener.class);
-        doAnswer(new Answer() {
-            @Override
-            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
-                Object[] args = invocationOnMock.getArguments();
-                CacheServiceTest.this.getKey = (String)args[0];
-                CacheServiceTest.this.getBytes = (byte[])args[1];
-                semaphore.release();
-                return null;
-            }
-        }).when(diskCacheGetListener).onComplete(anyString(), any(byte[].class));
     }
 
     @After
@@ -71,7 +57,7 @@ public class CacheServiceTest {
         CacheService.initialize(context);
         DiskLruCache diskLruCache = CacheService.getDiskLruCache();
         assertThat(diskLruCache).isNotNull();
-        LruCache<String, Bitmap> memoryLruCache = CacheService.getBitmapLruCache();
+        BitmapMemoryCache memoryLruCache = CacheService.getBitmapLruCache();
         assertThat(memoryLruCache).isNotNull();
 
         CacheService.initialize(context);
@@ -79,6 +65,52 @@ public class CacheServiceTest {
         assertThat(memoryLruCache).isEqualTo(CacheService.getBitmapLruCache());
     }
     
+    @Test
+    public void initialize_shouldOpenDiskCacheInBackgroundOnce() throws Exception {
+        Robolectric.getBackgroundScheduler().pause();
+
+        CacheService.initialize(context);
+        CacheService.initialize(context);
+
+        assertThat(CacheService.getBitmapLruCache()).isNotNull();
+        assertThat(CacheService.getDiskLruCache()).isNull();
+        assertThat(Robolectric.getBackgroundScheduler().enqueuedTaskCount()).isEqualTo(1);
+
+        Robolectric.getBackgroundScheduler().unPause();
+
+        assertThat(CacheService.getDiskLruCache()).isNotNull();
+    }
+
+    @Test
+    public void diskCacheAccess_beforeInitializationFinishes_shouldMissOrWait() throws Exception {
+        Robolectric.getBackgroundScheduler().pause();
+        CacheService.initialize(context);
+
+        // Synchronous calls miss, async ones wait for the cache to open.
+        assertThat(CacheService.putToDiskCache(key1, data1.getBytes())).isFalse();
+        assertThat(CacheService.containsKeyDiskCache(key1)).isFalse();
+        assertThat(CacheService.getFromDiskCache(key1)).isNull();
+        CacheService.putToDiskCacheAsync(key1, data1.getBytes());
+
+        Robolectric.getBackgroundScheduler().unPause();
+
+        assertThat(CacheService.getFromDiskCache(key1)).isEqualTo(data1.getBytes());
+    }
+
+    @Test
+    public void runAfterDiskCacheInitialized_withoutInitializationInProgress_shouldRunImmediately() throws Exception {
+        final Runnable runnable = mock(Runnable.class);
+
+        CacheService.runAfterDiskCacheInitialized(runnable);
+
+        verify(runnable).run();
+    }
+
+    @Test
+    public void initializeDiskCacheAsync_withNullContext_shouldReturnFalse() throws Exception {
+        assertThat(CacheService.initializeDiskCacheAsync(null)).isFalse();
+    }
+
     @Test
     public void getDiskLruCacheDirectory_shouldReturnValidCacheDirectory() throws Exception {
         File file = CacheService.getDiskCacheDirectory(context);
@@ -101,23 +133,172 @@ public class CacheServiceTest {
     }
 
     @Test
-    public void diskLruCacheAsyncGet_whenPopulated_shouldReturnValue() throws Exception {
+    public void containsKeyDiskCache_shouldReflectDiskCacheContents() throws Exception {
+        assertThat(CacheService.containsKeyDiskCache(key1)).isFalse();
         CacheService.initialize(context);
-        assertCachesAreEmpty();
+        assertThat(CacheService.containsKeyDiskCache(key1)).isFalse();
+
         CacheService.putToDiskCache(key1, data1.getBytes());
-        CacheService.getFromDiskCacheAsync(key1, diskCacheGetListener);
-        semaphore.acquire();
-        assertThat(getKey).isEqualTo(key1);
-        assertThat(getBytes).isEqualTo(data1.getBytes());
+
+        assertThat(CacheService.containsKeyDiskCache(key1)).isTrue();
     }
 
     @Test
-    public void diskLruCacheAsyncGet_whenEmpty_shouldReturnNull() throws Exception {
+    public void getContentLengthDiskCache_shouldReturnEntryLengthOrMinusOne() throws Exception {
+        assertThat(CacheService.getContentLengthDiskCache(key1)).isEqualTo(-1);
         CacheService.initialize(context);
-        CacheService.getFromDiskCacheAsync(key1, diskCacheGetListener);
-        semaphore.acquire();
-        assertThat(getKey).isEqualTo(key1);
-        assertThat(getBytes).isNull();
+        assertThat(CacheService.getContentLengthDiskCache(key1)).isEqualTo(-1);
+
+        CacheService.putToDiskCache(key1, data1.getBytes());
+
+        assertThat(CacheService.getContentLengthDiskCache(key1)).isEqualTo(data1.length());
+    }
+
+    @Test
+    public void readFromDiskCache_whenPopulated_shouldPassOpenFileToReader() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(key1, data1.getBytes());
+
+        final byte[] content = CacheService.readFromDiskCache(key1,
+                new CacheService.DiskLruCacheFileReader<byte[]>() {
+                    @Override
+                    public byte[] read(final FileDescriptor fileDescriptor, final long length)
+                            throws IOException {
+                        final byte[] bytes = new byte[(int) length];
+                        Streams.readStream(new FileInputStream(fileDescriptor), bytes);
+                        return bytes;
+                    }
+                });
+
+        assertThat(content).isEqualTo(data1.getBytes());
+    }
+
+    @Test
+    public void readFromDiskCache_whenEmpty_shouldReturnNullWithoutCallingReader() throws Exception {
+        CacheService.initialize(context);
+        final CacheService.DiskLruCacheFileReader<byte[]> reader =
+                mock(CacheService.DiskLruCacheFileReader.class);
+
+        assertThat(CacheService.readFromDiskCache(key1, reader)).isNull();
+        verifyZeroInteractions(reader);
+    }
+
+    @Test
+    public void readFromDiskCache_withReaderThrowingIOException_shouldReturnNull() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(key1, data1.getBytes());
+
+        assertThat(CacheService.readFromDiskCache(key1,
+                new CacheService.DiskLruCacheFileReader<byte[]>() {
+                    @Override
+                    public byte[] read(final FileDescriptor fileDescriptor, final long length)
+                            throws IOException {
+                        throw new IOException();
+                    }
+                })).isNull();
+        assertThat(CacheService.containsKeyDiskCache(key1)).isTrue();
+    }
+
+    @Test
+    public void readFromDiskCache_withReaderReturningNull_shouldRemoveEntry() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(key1, data1.getBytes());
+
+        assertThat(CacheService.readFromDiskCache(key1,
+                new CacheService.DiskLruCacheFileReader<byte[]>() {
+                    @Override
+                    public byte[] read(final FileDescriptor fileDescriptor, final long length) {
+                        return null;
+                    }
+                })).isNull();
+        assertThat(CacheService.containsKeyDiskCache(key1)).isFalse();
+    }
+
+    @Test
+    public void readMultipleFromDiskCache_shouldReadEachKeyInOrder() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(key1, data1.getBytes());
+        final String key2 = "http://www.mopub.com/2";
+
+        final Map<String, Long> lengths = CacheService.readMultipleFromDiskCache(
+                Arrays.asList(key2, key1),
+                new CacheService.DiskLruCacheFileReader<Long>() {
+                    @Override
+                    public Long read(final FileDescriptor fileDescriptor, final long length) {
+                        return length;
+                    }
+                });
+
+        assertThat(lengths.keySet()).containsExactly(key2, key1);
+        assertThat(lengths.get(key1)).isEqualTo(data1.length());
+        assertThat(lengths.get(key2)).isNull();
+    }
+
+    @Test
+    public void readFromDiskCache_withStaleEntry_shouldReturnNullWithoutCallingReader() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(key1, data1.getBytes(),
+                createCachePolicy("no-cache", "\"v1\""));
+        final CacheService.DiskLruCacheFileReader<byte[]> reader =
+                mock(CacheService.DiskLruCacheFileReader.class);
+
+        assertThat(CacheService.readFromDiskCache(key1, reader)).isNull();
+        verifyZeroInteractions(reader);
+        assertThat(CacheService.getFromDiskCache(key1)).isEqualTo(data1.getBytes());
+    }
+
+    @Test
+    public void getCachePolicyDiskCache_shouldReturnPolicyCachedWithEntry() throws Exception {
+        CacheService.initialize(context);
+        assertThat(CacheService.getCachePolicyDiskCache(key1)).isNull();
+
+        CacheService.putToDiskCache(key1, data1.getBytes(),
+                createCachePolicy("max-age=60", "\"v1\""));
+
+        final CachePolicy cachePolicy = CacheService.getCachePolicyDiskCache(key1);
+        assertThat(cachePolicy.getETag()).isEqualTo("\"v1\"");
+        assertThat(cachePolicy.isFresh(System.currentTimeMillis())).isTrue();
+    }
+
+    @Test
+    public void getCachePolicyDiskCache_withEntryCachedWithoutPolicy_shouldReturnUnknown() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(key1, data1.getBytes());
+
+        assertThat(CacheService.getCachePolicyDiskCache(key1)).isSameAs(CachePolicy.UNKNOWN);
+    }
+
+    @Test
+    public void updateCachePolicyDiskCache_shouldReplacePolicyAndKeepBody() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(key1, data1.getBytes(),
+                createCachePolicy("no-cache", "\"v1\""));
+
+        assertThat(CacheService.updateCachePolicyDiskCache(key1,
+                createCachePolicy("max-age=60", "\"v1\""))).isTrue();
+
+        assertThat(CacheService.getCachePolicyDiskCache(key1)
+                .isFresh(System.currentTimeMillis())).isTrue();
+        assertThat(CacheService.getFromDiskCache(key1)).isEqualTo(data1.getBytes());
+    }
+
+    @Test
+    public void updateCachePolicyDiskCache_withoutEntry_shouldReturnFalse() throws Exception {
+        CacheService.initialize(context);
+
+        assertThat(CacheService.updateCachePolicyDiskCache(key1,
+                createCachePolicy("max-age=60", "\"v1\""))).isFalse();
+        assertThat(CacheService.containsKeyDiskCache(key1)).isFalse();
+    }
+
+    @Test
+    public void removeFromDiskCache_shouldRemoveEntry() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(key1, data1.getBytes());
+
+        assertThat(CacheService.removeFromDiskCache(key1)).isTrue();
+
+        assertThat(CacheService.containsKeyDiskCache(key1)).isFalse();
     }
 
     @Test
@@ -151,6 +332,13 @@ public class CacheServiceTest {
         assertThat(CacheService.getFromDiskCache(key1)).isEqualTo(data1.getBytes());
     }
 
+    private static CachePolicy createCachePolicy(final String cacheControl, final String eTag) {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.addHeader("Cache-Control", cacheControl);
+        response.addHeader("ETag", eTag);
+        return CachePolicy.fromResponse(response, System.currentTimeMillis());
+    }
+
     private static InputStream getInputStreamFromString(final String string) {
         return spy(new ByteArrayInputStream(string.getBytes()));
     }
@@ -0,0 +1,426 @@
+package com.mopub.common;
+
+import com.mopub.common.util.Strings;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class DiskLruCacheTest {
+    private static final long LONG_GROUP_COMMIT_DELAY_MILLIS = 60000;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+    private DiskLruCache subject;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryFolder.newFolder("cache");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (subject != null) {
+            subject.close();
+        }
+    }
+
+    @Test
+    public void edit_withoutGroupCommit_shouldFlushJournalOnEveryEdit() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+
+        put(subject, "key1", "value1");
+
+        assertThat(readJournal()).contains("DIRTY key1\n").contains("CLEAN key1 6\n");
+    }
+
+    @Test
+    public void edit_withGroupCommit_shouldBufferJournalRecordsUntilFlush() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE,
+                LONG_GROUP_COMMIT_DELAY_MILLIS);
+
+        put(subject, "key1", "value1");
+
+        assertThat(readJournal()).doesNotContain("key1");
+
+        subject.flush();
+
+        assertThat(readJournal()).contains("DIRTY key1\n").contains("CLEAN key1 6\n");
+    }
+
+    @Test
+    public void edit_withGroupCommit_withMaxPendingRecords_shouldFlushJournal() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE,
+                LONG_GROUP_COMMIT_DELAY_MILLIS);
+
+        // Each put writes a DIRTY and a CLEAN record.
+        final int puts = DiskLruCache.GROUP_COMMIT_MAX_PENDING_RECORDS / 2;
+        for (int i = 0; i < puts; i++) {
+            put(subject, "key" + i, "value");
+        }
+
+        assertThat(readJournal()).contains("CLEAN key" + (puts - 1) + " 5\n");
+    }
+
+    @Test
+    public void edit_withGroupCommit_shouldFlushJournalAfterDelay() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE, 10);
+
+        put(subject, "key1", "value1");
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!readJournal().contains("CLEAN key1 6\n") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(readJournal()).contains("CLEAN key1 6\n");
+    }
+
+    @Test
+    public void close_withGroupCommit_shouldFlushPendingJournalRecords() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE,
+                LONG_GROUP_COMMIT_DELAY_MILLIS);
+        put(subject, "key1", "value1");
+
+        subject.close();
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE,
+                LONG_GROUP_COMMIT_DELAY_MILLIS);
+
+        assertThat(subject.get("key1").getString(0)).isEqualTo("value1");
+        assertThat(subject.size()).isEqualTo(6);
+    }
+
+    @Test
+    public void open_withGroupCommit_shouldDropEntriesWhoseRecordsWereNotFlushed() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE,
+                LONG_GROUP_COMMIT_DELAY_MILLIS);
+        put(subject, "key1", "value1");
+        put(subject, "key2", "value2");
+        subject.flush();
+        // Simulate the process dying with these records still buffered.
+        put(subject, "key1", "a longer value1");
+        put(subject, "key3", "value3");
+        subject.remove("key2");
+
+        final DiskLruCache reopened = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE,
+                LONG_GROUP_COMMIT_DELAY_MILLIS);
+        try {
+            assertThat(reopened.get("key1")).isNull();
+            assertThat(reopened.get("key2")).isNull();
+            assertThat(reopened.get("key3")).isNull();
+            assertThat(reopened.size()).isEqualTo(0);
+            assertThat(new File(directory, "key1.0").exists()).isFalse();
+            assertThat(new File(directory, "key3.0").exists()).isFalse();
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void open_withGroupCommit_shouldDeleteOrphanedDirtyFiles() throws Exception {
+        final File orphan = new File(directory, "key1.0.tmp");
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+        subject.close();
+        assertThat(orphan.createNewFile()).isTrue();
+
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE,
+                LONG_GROUP_COMMIT_DELAY_MILLIS);
+
+        assertThat(orphan.exists()).isFalse();
+        assertThat(new File(directory, DiskLruCache.JOURNAL_FILE).exists()).isTrue();
+    }
+
+    @Test
+    public void open_withPartialJournalLine_shouldRebuildJournalBeforeAppending() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+        put(subject, "key1", "value1");
+        subject.close();
+        final FileWriter writer =
+                new FileWriter(new File(directory, DiskLruCache.JOURNAL_FILE), true);
+        writer.write("CLEAN ke");
+        writer.close();
+
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+        put(subject, "key2", "value2");
+        subject.close();
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+
+        assertThat(readJournal()).doesNotContain("CLEAN keDIRTY");
+        assertThat(subject.get("key1").getString(0)).isEqualTo("value1");
+        assertThat(subject.get("key2").getString(0)).isEqualTo("value2");
+    }
+
+    @Test
+    public void contains_shouldOnlyReportReadableEntries() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+        assertThat(subject.contains("key1")).isFalse();
+
+        final DiskLruCache.Editor editor = subject.edit("key1");
+        assertThat(subject.contains("key1")).isFalse();
+        editor.set(0, "value1");
+        editor.commit();
+        assertThat(subject.contains("key1")).isTrue();
+
+        subject.remove("key1");
+        assertThat(subject.contains("key1")).isFalse();
+        assertThat(subject.contains("Not a valid key!")).isFalse();
+    }
+
+    @Test
+    public void peekLength_shouldReturnLengthOfReadableValue() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+        put(subject, "key1", "value1");
+
+        assertThat(subject.peekLength("key1", 0)).isEqualTo(6);
+        assertThat(subject.peekLength("key2", 0)).isEqualTo(-1);
+    }
+
+    @Test
+    public void contains_shouldNotWriteJournalOrCountAsAccess() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, 12);
+        put(subject, "key1", "value1");
+        put(subject, "key2", "value2");
+        final String journal = readJournal();
+
+        assertThat(subject.contains("key1")).isTrue();
+        assertThat(subject.peekLength("key1", 0)).isEqualTo(6);
+        assertThat(readJournal()).isEqualTo(journal);
+
+        // key1 is still the least recently used entry, so it is the one evicted.
+        put(subject, "key3", "value3");
+        subject.flush();
+        assertThat(subject.contains("key1")).isFalse();
+        assertThat(subject.contains("key2")).isTrue();
+        assertThat(subject.contains("key3")).isTrue();
+    }
+
+    @Test
+    public void contains_afterReopen_shouldReflectJournal() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+        put(subject, "key1", "value1");
+        put(subject, "key2", "value2");
+        subject.remove("key2");
+        subject.close();
+
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+
+        assertThat(subject.contains("key1")).isTrue();
+        assertThat(subject.peekLength("key1", 0)).isEqualTo(6);
+        assertThat(subject.contains("key2")).isFalse();
+    }
+
+    @Test
+    public void open_withBinaryJournal_shouldReplayEntriesAfterReopen() throws Exception {
+        subject = openBinary(0);
+        put(subject, "key1", "value1");
+        put(subject, "key2", "value2");
+        subject.remove("key2");
+        subject.get("key1").close();
+        subject.close();
+
+        subject = openBinary(0);
+
+        assertThat(subject.get("key1").getString(0)).isEqualTo("value1");
+        assertThat(subject.contains("key2")).isFalse();
+        assertThat(subject.size()).isEqualTo(6);
+        assertThat(new File(directory, DiskLruCache.BINARY_JOURNAL_FILE).exists()).isTrue();
+        assertThat(new File(directory, DiskLruCache.JOURNAL_FILE).exists()).isFalse();
+    }
+
+    @Test
+    public void open_withBinaryJournal_shouldWriteFixedSizeRecords() throws Exception {
+        subject = openBinary(0);
+        final File journal = new File(directory, DiskLruCache.BINARY_JOURNAL_FILE);
+        assertThat(journal.length()).isEqualTo(DiskLruCache.BINARY_HEADER_LENGTH);
+
+        put(subject, "key1", "value1");
+        subject.get("key1").close();
+        subject.flush();
+
+        // DIRTY, CLEAN and READ.
+        assertThat(journal.length()).isEqualTo(DiskLruCache.BINARY_HEADER_LENGTH
+                + 3 * DiskLruCache.binaryRecordLength(1));
+    }
+
+    @Test
+    public void open_withBinaryJournal_withHexKey_shouldPackKeyAndReplayIt() throws Exception {
+        final String key = "da39a3ee5e6b4b0d3255bfef95601890afd80709";
+        subject = openBinary(0);
+        put(subject, key, "value1");
+        subject.close();
+
+        // DIRTY and CLEAN, with the 40 hex digits in 20 bytes.
+        assertThat(DiskLruCache.binaryRecordLength(1)).isEqualTo(30);
+        assertThat(new File(directory, DiskLruCache.BINARY_JOURNAL_FILE).length()).isEqualTo(
+                DiskLruCache.BINARY_HEADER_LENGTH + 2 * DiskLruCache.binaryRecordLength(1));
+
+        subject = openBinary(0);
+
+        assertThat(subject.get(key).getString(0)).isEqualTo("value1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void edit_withBinaryJournal_withKeyTooLongForRecord_shouldThrowIllegalArgumentException()
+            throws Exception {
+        subject = openBinary(0);
+
+        subject.edit("not_a_hex_key_and_too_long");
+    }
+
+    @Test
+    public void open_withBinaryJournal_withTextJournal_withKeyTooLongForRecord_shouldDropIt()
+            throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+        put(subject, "key1", "value1");
+        put(subject, "not_a_hex_key_and_too_long", "value2");
+        subject.close();
+
+        subject = openBinary(0);
+
+        assertThat(subject.get("key1").getString(0)).isEqualTo("value1");
+        assertThat(subject.size()).isEqualTo(6);
+        assertThat(new File(directory, "not_a_hex_key_and_too_long.0").exists()).isFalse();
+    }
+
+    @Test
+    public void open_withBinaryJournal_withTextJournal_shouldMigrateIt() throws Exception {
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+        put(subject, "key1", "value1");
+        put(subject, "key2", "value2");
+        subject.remove("key2");
+        subject.close();
+
+        subject = openBinary(0);
+        put(subject, "key3", "value3");
+        subject.close();
+        subject = openBinary(0);
+
+        assertThat(new File(directory, DiskLruCache.JOURNAL_FILE).exists()).isFalse();
+        assertThat(subject.get("key1").getString(0)).isEqualTo("value1");
+        assertThat(subject.contains("key2")).isFalse();
+        assertThat(subject.get("key3").getString(0)).isEqualTo("value3");
+        assertThat(subject.size()).isEqualTo(12);
+    }
+
+    @Test
+    public void open_withTextJournal_withBinaryJournal_shouldMigrateIt() throws Exception {
+        subject = openBinary(0);
+        put(subject, "key1", "value1");
+        subject.close();
+
+        subject = DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE);
+
+        assertThat(new File(directory, DiskLruCache.BINARY_JOURNAL_FILE).exists()).isFalse();
+        assertThat(readJournal()).contains("CLEAN key1 6\n");
+        assertThat(subject.get("key1").getString(0)).isEqualTo("value1");
+    }
+
+    @Test
+    public void open_withBinaryJournal_withPartialRecord_shouldRebuildJournalBeforeAppending()
+            throws Exception {
+        subject = openBinary(0);
+        put(subject, "key1", "value1");
+        subject.close();
+        final FileOutputStream outputStream =
+                new FileOutputStream(new File(directory, DiskLruCache.BINARY_JOURNAL_FILE), true);
+        outputStream.write(new byte[] {1, 4, 'k', 'e'});
+        outputStream.close();
+
+        subject = openBinary(0);
+        put(subject, "key2", "value2");
+        subject.close();
+        subject = openBinary(0);
+
+        assertThat(subject.get("key1").getString(0)).isEqualTo("value1");
+        assertThat(subject.get("key2").getString(0)).isEqualTo("value2");
+    }
+
+    @Test
+    public void open_withBinaryJournal_withCorruptHeader_shouldStartEmpty() throws Exception {
+        subject = openBinary(0);
+        put(subject, "key1", "value1");
+        subject.close();
+        final RandomAccessFile journal =
+                new RandomAccessFile(new File(directory, DiskLruCache.BINARY_JOURNAL_FILE), "rw");
+        journal.writeInt(0);
+        journal.close();
+
+        subject = openBinary(0);
+
+        assertThat(subject.contains("key1")).isFalse();
+        assertThat(subject.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void open_withBinaryJournal_withMostlyRedundantRecords_shouldSnapshotJournal()
+            throws Exception {
+        subject = openBinary(0);
+        put(subject, "key1", "value1");
+        subject.close();
+        // As if the process died before the cleanup these reads queued could run.
+        final File journal = new File(directory, DiskLruCache.BINARY_JOURNAL_FILE);
+        final DataOutputStream outputStream =
+                new DataOutputStream(new FileOutputStream(journal, true));
+        for (int i = 0; i < 2000; i++) {
+            outputStream.writeByte(4);
+            outputStream.writeByte(4);
+            outputStream.write(Arrays.copyOf("key1".getBytes(), DiskLruCache.BINARY_KEY_LENGTH));
+            outputStream.writeLong(0);
+        }
+        outputStream.close();
+
+        subject = openBinary(0);
+        // Wait for the cleanup task queued by open.
+        subject.executorService.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+
+        assertThat(journal.length()).isEqualTo(DiskLruCache.BINARY_HEADER_LENGTH
+                + DiskLruCache.binaryRecordLength(1));
+        assertThat(subject.get("key1").getString(0)).isEqualTo("value1");
+    }
+
+    @Test
+    public void open_withBinaryJournal_withGroupCommit_shouldKeepJournalFiles() throws Exception {
+        subject = openBinary(LONG_GROUP_COMMIT_DELAY_MILLIS);
+        put(subject, "key1", "value1");
+        subject.close();
+
+        subject = openBinary(LONG_GROUP_COMMIT_DELAY_MILLIS);
+
+        assertThat(new File(directory, DiskLruCache.BINARY_JOURNAL_FILE).exists()).isTrue();
+        assertThat(subject.get("key1").getString(0)).isEqualTo("value1");
+    }
+
+    private DiskLruCache openBinary(final long groupCommitDelayMillis) throws IOException {
+        return DiskLruCache.open(directory, 1, 1, Integer.MAX_VALUE, groupCommitDelayMillis,
+                DiskLruCache.JournalFormat.BINARY);
+    }
+
+    private static void put(final DiskLruCache cache, final String key, final String value)
+            throws IOException {
+        final DiskLruCache.Editor editor = cache.edit(key);
+        editor.set(0, value);
+        editor.commit();
+    }
+
+    private String readJournal() throws IOException {
+        return Strings.fromStream(
+                new FileInputStream(new File(directory, DiskLruCache.JOURNAL_FILE)));
+    }
+}
@@ -1,11 +1,18 @@
 package com.mopub.common;
 
+import com.mopub.common.event.MoPubEvents;
+import com.mopub.common.event.TimedEvent;
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.test.support.TestHttpCacheServer;
 import com.mopub.common.util.ResponseHeader;
 import com.mopub.mobileads.test.support.TestHttpResponseWithHeaders;
 
+import org.apache.http.HttpVersion;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -19,13 +26,16 @@ import org.robolectric.tester.org.apache.http.FakeHttpLayer;
 import static junit.framework.Assert.fail;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
 @RunWith(SdkTestRunner.class)
 public class DownloadTaskTest {
 
     @Mock private DownloadTask.DownloadTaskListener mockDownloadTaskListener;
+    @Mock private MoPubEvents.EventDispatcher mockEventDispatcher;
     @Captor private ArgumentCaptor<DownloadResponse> responseCaptor;
+    @Captor private ArgumentCaptor<TimedEvent> timedEventCaptor;
 
     private DownloadTask mDownloadTask;
     private HttpGet httpGet;
@@ -50,6 +60,11 @@ public class DownloadTaskTest {
         mFakeHttpLayer = Robolectric.getFakeHttpLayer();
     }
 
+    @After
+    public void tearDown() {
+        CacheService.clearAndNullCaches();
+    }
+
     @Test
     public void execute_whenDownloadTaskAndHttpClientCompleteSuccessfully_shouldReturn200HttpResponse() {
         mFakeHttpLayer.addPendingHttpResponse(mTestHttpResponseWithHeaders);
@@ -76,6 +91,173 @@ public class DownloadTaskTest {
         assertThat(HttpResponses.asResponseString(response)).isEqualTo("");
     }
 
+    @Test
+    public void execute_shouldRecordTimedEventWithEndpointStatusAndBytes() {
+        MoPubEvents.setEventDispatcher(mockEventDispatcher);
+        mFakeHttpLayer.addPendingHttpResponse(mTestHttpResponseWithHeaders);
+        mDownloadTask = new DownloadTask(mockDownloadTaskListener,
+                DownloadTask.DEFAULT_MAX_BODY_BYTES, false, TimedEvent.Endpoint.IMAGE);
+
+        mDownloadTask.execute(httpGet);
+
+        verify(mockEventDispatcher).onStopped(timedEventCaptor.capture());
+        final TimedEvent timedEvent = timedEventCaptor.getValue();
+        assertThat(timedEvent.getEndpoint()).isEqualTo(TimedEvent.Endpoint.IMAGE);
+        assertThat(timedEvent.getRequestUrl()).isEqualTo(httpGet.getURI().toString());
+        assertThat(timedEvent.getHttpStatusCode()).isEqualTo(200);
+        assertThat(timedEvent.getBytes()).isEqualTo(mTestResponse.length());
+        assertThat(timedEvent.getFirstByteMillis()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    public void execute_withErrorResponse_shouldRecordTimedEventWithStatus() {
+        MoPubEvents.setEventDispatcher(mockEventDispatcher);
+        mFakeHttpLayer.addPendingHttpResponse(500, "error");
+
+        mDownloadTask.execute(httpGet);
+
+        verify(mockEventDispatcher).onStopped(timedEventCaptor.capture());
+        assertThat(timedEventCaptor.getValue().getEndpoint())
+                .isEqualTo(TimedEvent.Endpoint.OTHER);
+        assertThat(timedEventCaptor.getValue().getHttpStatusCode()).isEqualTo(500);
+        assertThat(timedEventCaptor.getValue().getBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void execute_withCompressionAccepted_withGzipResponse_shouldDecodeBody() throws Exception {
+        final BasicHttpResponse gzipResponse =
+                new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        gzipResponse.setEntity(new ByteArrayEntity(HttpCompressionTest.gzip(mTestResponse)));
+        gzipResponse.addHeader(ResponseHeader.CONTENT_ENCODING.getKey(), "gzip");
+        mFakeHttpLayer.addPendingHttpResponse(gzipResponse);
+        HttpCompression.acceptCompressedResponse(httpGet, HttpCompression.RequestType.NATIVE_AD);
+
+        mDownloadTask.execute(httpGet);
+
+        verify(mockDownloadTaskListener).onComplete(eq(httpGet.getURI().toString()),
+                responseCaptor.capture());
+        assertThat(HttpResponses.asResponseString(responseCaptor.getValue()))
+                .isEqualTo(mTestResponse);
+    }
+
+    @Test
+    public void execute_withGzipResponse_shouldRecordCompressedBytes() throws Exception {
+        MoPubEvents.setEventDispatcher(mockEventDispatcher);
+        final byte[] gzipped = HttpCompressionTest.gzip(mTestResponse);
+        final BasicHttpResponse gzipResponse =
+                new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        gzipResponse.setEntity(new ByteArrayEntity(gzipped));
+        gzipResponse.addHeader(ResponseHeader.CONTENT_ENCODING.getKey(), "gzip");
+        mFakeHttpLayer.addPendingHttpResponse(gzipResponse);
+        HttpCompression.acceptCompressedResponse(httpGet, HttpCompression.RequestType.NATIVE_AD);
+
+        mDownloadTask.execute(httpGet);
+
+        verify(mockEventDispatcher).onStopped(timedEventCaptor.capture());
+        assertThat(timedEventCaptor.getValue().getBytes()).isEqualTo(gzipped.length);
+    }
+
+    @Test
+    public void execute_withDiskCache_withFreshEntry_shouldNotMakeRequest() throws Exception {
+        CacheService.initializeDiskCache(Robolectric.application);
+        final TestHttpCacheServer server = new TestHttpCacheServer(httpGet.getURI().toString(),
+                mTestResponse, "\"v1\"", "max-age=60");
+        mFakeHttpLayer.addHttpResponseRule(server);
+
+        downloadWithDiskCache();
+        final DownloadResponse response = downloadWithDiskCache();
+
+        assertThat(server.getOkCount()).isEqualTo(1);
+        assertThat(mFakeHttpLayer.getSentHttpRequestInfos()).hasSize(1);
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(HttpResponses.asResponseString(response)).isEqualTo(mTestResponse);
+    }
+
+    @Test
+    public void execute_withDiskCache_withStaleEntry_shouldRevalidateAndAnswer304FromCache() throws Exception {
+        CacheService.initializeDiskCache(Robolectric.application);
+        final TestHttpCacheServer server = new TestHttpCacheServer(httpGet.getURI().toString(),
+                mTestResponse, "\"v1\"", "no-cache");
+        mFakeHttpLayer.addHttpResponseRule(server);
+
+        downloadWithDiskCache();
+        server.setCacheControl("max-age=60");
+        final DownloadResponse response = downloadWithDiskCache();
+
+        assertThat(server.getLastRequest().getFirstHeader("If-None-Match").getValue())
+                .isEqualTo("\"v1\"");
+        assertThat(server.getOkCount()).isEqualTo(1);
+        assertThat(server.getNotModifiedCount()).isEqualTo(1);
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(HttpResponses.asResponseString(response)).isEqualTo(mTestResponse);
+
+        // The 304's max-age refreshed the entry, so the third download doesn't go out.
+        downloadWithDiskCache();
+        assertThat(mFakeHttpLayer.getSentHttpRequestInfos()).hasSize(2);
+    }
+
+    @Test
+    public void execute_withDiskCache_withChangedResource_shouldReplaceEntry() throws Exception {
+        CacheService.initializeDiskCache(Robolectric.application);
+        final TestHttpCacheServer server = new TestHttpCacheServer(httpGet.getURI().toString(),
+                mTestResponse, "\"v1\"", "no-cache");
+        mFakeHttpLayer.addHttpResponseRule(server);
+
+        downloadWithDiskCache();
+        server.setResource("NEW RESPONSE", "\"v2\"");
+        final DownloadResponse response = downloadWithDiskCache();
+
+        assertThat(server.getOkCount()).isEqualTo(2);
+        assertThat(HttpResponses.asResponseString(response)).isEqualTo("NEW RESPONSE");
+        assertThat(CacheService.getFromDiskCache(httpGet.getURI().toString()))
+                .isEqualTo("NEW RESPONSE".getBytes());
+        assertThat(CacheService.getCachePolicyDiskCache(httpGet.getURI().toString()).getETag())
+                .isEqualTo("\"v2\"");
+    }
+
+    @Test
+    public void execute_withDiskCache_withNoStore_shouldNotCache() throws Exception {
+        CacheService.initializeDiskCache(Robolectric.application);
+        mFakeHttpLayer.addHttpResponseRule(new TestHttpCacheServer(httpGet.getURI().toString(),
+                mTestResponse, "\"v1\"", "no-store"));
+
+        downloadWithDiskCache();
+
+        assertThat(CacheService.containsKeyDiskCache(httpGet.getURI().toString())).isFalse();
+    }
+
+    @Test
+    public void execute_withoutDiskCache_shouldNotCache() throws Exception {
+        CacheService.initializeDiskCache(Robolectric.application);
+        mFakeHttpLayer.addHttpResponseRule(new TestHttpCacheServer(httpGet.getURI().toString(),
+                mTestResponse, "\"v1\"", "max-age=60"));
+
+        mDownloadTask.execute(httpGet);
+
+        assertThat(CacheService.containsKeyDiskCache(httpGet.getURI().toString())).isFalse();
+    }
+
+    @Test
+    public void execute_withNon200Response_shouldDiscardBody() {
+        mFakeHttpLayer.addPendingHttpResponse(404, "Not found");
+        mDownloadTask.execute(httpGet);
+
+        verify(mockDownloadTaskListener).onComplete(eq(httpGet.getURI().toString()),
+                responseCaptor.capture());
+        DownloadResponse response = responseCaptor.getValue();
+        assertThat(response.getStatusCode()).isEqualTo(404);
+        assertThat(response.getByteArray()).isEmpty();
+    }
+
+    @Test
+    public void execute_withBodyOverMaxBodyBytes_shouldReturnNullResponse() {
+        mFakeHttpLayer.addPendingHttpResponse(mTestHttpResponseWithHeaders);
+        mDownloadTask = new DownloadTask(mockDownloadTaskListener, mTestResponse.length() - 1);
+        mDownloadTask.execute(httpGet);
+
+        verify(mockDownloadTaskListener).onComplete(httpGet.getURI().toString(), null);
+    }
+
     @Test
     public void execute_whenDownloadTaskIsCancelledBeforeExecute_shouldReturnNullHttpReponseAndNullUrl() {
         mFakeHttpLayer.addPendingHttpResponse(200, mTestResponse);
@@ -132,4 +314,13 @@ public class DownloadTaskTest {
             // passed
         }
     }
+
+    private DownloadResponse downloadWithDiskCache() {
+        final DownloadTask.DownloadTaskListener listener =
+                mock(DownloadTask.DownloadTaskListener.class);
+        new DownloadTask(listener, DownloadTask.DEFAULT_MAX_BODY_BYTES, true)
+                .execute(new HttpGet(httpGet.getURI()));
+        verify(listener).onComplete(eq(httpGet.getURI().toString()), responseCaptor.capture());
+        return responseCaptor.getValue();
+    }
 }
@@ -47,6 +47,7 @@ public class HttpClientTest {
     @After
     public void tearDown() throws Exception {
         HttpClient.setWebViewUserAgent(null);
+        TrackingDispatcher.clearForTesting();
         Robolectric.getBackgroundScheduler().reset();
         Robolectric.clearPendingHttpResponses();
     }
@@ -0,0 +1,151 @@
+package com.mopub.common;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.ResponseHeader;
+import com.mopub.common.util.Strings;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.mopub.common.HttpCompression.RequestType;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class HttpCompressionTest {
+    private static final String BODY = createBody();
+
+    private HttpGet request;
+
+    @Before
+    public void setUp() throws Exception {
+        HttpCompression.clearStats();
+        request = new HttpGet("http://www.mopub.com/");
+        HttpCompression.acceptCompressedResponse(request, RequestType.NATIVE_AD);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HttpCompression.clearStats();
+    }
+
+    @Test
+    public void acceptCompressedResponse_shouldSetAcceptEncodingHeader() throws Exception {
+        assertThat(request.getFirstHeader(ResponseHeader.ACCEPT_ENCODING.getKey()).getValue())
+                .isEqualTo("gzip, deflate");
+    }
+
+    @Test
+    public void decompressResponse_withGzipBody_shouldDecodeBodyAndCountBytes() throws Exception {
+        final byte[] gzipped = gzip(BODY);
+        final HttpResponse response = createResponse(gzipped, "gzip");
+
+        HttpCompression.decompressResponse(request, response);
+
+        final HttpEntity entity = response.getEntity();
+        assertThat(entity.getContentLength()).isEqualTo(-1);
+        assertThat(response.getFirstHeader(ResponseHeader.CONTENT_ENCODING.getKey())).isNull();
+        assertThat(Strings.fromStream(entity.getContent())).isEqualTo(BODY);
+
+        final HttpCompression.Stats stats = HttpCompression.getStats(RequestType.NATIVE_AD);
+        assertThat(stats.responses).isEqualTo(1);
+        assertThat(stats.compressedResponses).isEqualTo(1);
+        assertThat(stats.wireBytes).isEqualTo(gzipped.length);
+        assertThat(stats.decodedBytes).isEqualTo(BODY.length());
+        assertThat(stats.wireBytes).isLessThan(stats.decodedBytes);
+        assertThat(HttpCompression.getStats(RequestType.AD).responses).isEqualTo(0);
+    }
+
+    @Test
+    public void decompressResponse_withZlibDeflateBody_shouldDecodeBody() throws Exception {
+        final HttpResponse response = createResponse(deflate(BODY, false), "deflate");
+
+        HttpCompression.decompressResponse(request, response);
+
+        assertThat(Strings.fromStream(response.getEntity().getContent())).isEqualTo(BODY);
+    }
+
+    @Test
+    public void decompressResponse_withRawDeflateBody_shouldDecodeBody() throws Exception {
+        final HttpResponse response = createResponse(deflate(BODY, true), "deflate");
+
+        HttpCompression.decompressResponse(request, response);
+
+        assertThat(Strings.fromStream(response.getEntity().getContent())).isEqualTo(BODY);
+    }
+
+    @Test
+    public void decompressResponse_withUncompressedBody_shouldKeepEntityAndCountLength()
+            throws Exception {
+        final HttpResponse response = createResponse(BODY.getBytes(), null);
+        final HttpEntity entity = response.getEntity();
+
+        HttpCompression.decompressResponse(request, response);
+
+        assertThat(response.getEntity()).isSameAs(entity);
+        final HttpCompression.Stats stats = HttpCompression.getStats(RequestType.NATIVE_AD);
+        assertThat(stats.responses).isEqualTo(1);
+        assertThat(stats.compressedResponses).isEqualTo(0);
+        assertThat(stats.wireBytes).isEqualTo(BODY.length());
+        assertThat(stats.decodedBytes).isEqualTo(BODY.length());
+    }
+
+    @Test
+    public void decompressResponse_withUnmarkedRequest_shouldLeaveResponseAlone() throws Exception {
+        final HttpResponse response = createResponse(gzip(BODY), "gzip");
+        final HttpEntity entity = response.getEntity();
+
+        HttpCompression.decompressResponse(new HttpGet("http://www.mopub.com/"), response);
+
+        assertThat(response.getEntity()).isSameAs(entity);
+        assertThat(HttpCompression.getStats(RequestType.NATIVE_AD).responses).isEqualTo(0);
+    }
+
+    private static HttpResponse createResponse(final byte[] body, final String contentEncoding) {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(body));
+        if (contentEncoding != null) {
+            response.addHeader(ResponseHeader.CONTENT_ENCODING.getKey(), contentEncoding);
+        }
+        return response;
+    }
+
+    static byte[] gzip(final String body) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final GZIPOutputStream outputStream = new GZIPOutputStream(bytes);
+        outputStream.write(body.getBytes());
+        outputStream.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(final String body, final boolean raw) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DeflaterOutputStream outputStream =
+                new DeflaterOutputStream(bytes, new Deflater(Deflater.DEFAULT_COMPRESSION, raw));
+        outputStream.write(body.getBytes());
+        outputStream.close();
+        return bytes.toByteArray();
+    }
+
+    // Repetitive like the JSON and HTML we serve, so it compresses well.
+    private static String createBody() {
+        final StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            body.append("{\"position\": ").append(i).append(", \"section\": 0}");
+        }
+        return body.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package com.mopub.common;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.RequestAddCookies;
+import org.apache.http.client.protocol.ResponseProcessCookies;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.params.BasicHttpParams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class HttpConnectionPoolTest {
+    private HttpRoute route;
+
+    @Before
+    public void setUp() throws Exception {
+        HttpConnectionPool.resetForTesting();
+        route = new HttpRoute(new HttpHost("www.mopub.com", 80, "http"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        HttpConnectionPool.resetForTesting();
+    }
+
+    @Test
+    public void getConnectionManager_shouldReturnSameInstance() throws Exception {
+        assertThat(HttpConnectionPool.getConnectionManager())
+                .isSameAs(HttpConnectionPool.getConnectionManager());
+    }
+
+    @Test
+    public void newHttpClient_shouldShareConnectionManager() throws Exception {
+        final DefaultHttpClient first = HttpConnectionPool.newHttpClient(new BasicHttpParams());
+        final DefaultHttpClient second = HttpConnectionPool.newHttpClient(new BasicHttpParams());
+
+        assertThat(first).isNotSameAs(second);
+        assertThat(first.getConnectionManager()).isSameAs(HttpConnectionPool.getConnectionManager());
+        assertThat(second.getConnectionManager()).isSameAs(HttpConnectionPool.getConnectionManager());
+    }
+
+    @Test
+    public void newHttpClient_shouldNotSendOrStoreCookies() throws Exception {
+        final DefaultHttpClient httpClient =
+                HttpConnectionPool.newHttpClient(new BasicHttpParams());
+
+        for (int i = 0; i < httpClient.getRequestInterceptorCount(); i++) {
+            assertThat(httpClient.getRequestInterceptor(i))
+                    .isNotInstanceOf(RequestAddCookies.class);
+        }
+        for (int i = 0; i < httpClient.getResponseInterceptorCount(); i++) {
+            assertThat(httpClient.getResponseInterceptor(i))
+                    .isNotInstanceOf(ResponseProcessCookies.class);
+        }
+        assertThat(httpClient.getRequestInterceptorCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void getHttpClient_shouldReturnSharedPooledClient() throws Exception {
+        assertThat(HttpClient.getHttpClient()).isSameAs(HttpClient.getHttpClient());
+        assertThat(HttpClient.getHttpClient().getConnectionManager())
+                .isSameAs(HttpConnectionPool.getConnectionManager());
+    }
+
+    @Test
+    public void shutdown_shouldNotShutDownSharedPool() throws Exception {
+        final ClientConnectionManager connectionManager = HttpConnectionPool.getConnectionManager();
+        connectionManager.shutdown();
+
+        final ManagedClientConnection connection =
+                connectionManager.requestConnection(route, null).getConnection(1, TimeUnit.SECONDS);
+        assertThat(connection).isNotNull();
+        connectionManager.releaseConnection(connection, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void requestConnection_withClosedConnection_shouldCountNewConnection() throws Exception {
+        final ClientConnectionManager connectionManager = HttpConnectionPool.getConnectionManager();
+
+        final ManagedClientConnection connection =
+                connectionManager.requestConnection(route, null).getConnection(1, TimeUnit.SECONDS);
+        connectionManager.releaseConnection(connection, 0, TimeUnit.MILLISECONDS);
+
+        final HttpConnectionPool.Stats stats = HttpConnectionPool.getStats();
+        assertThat(stats.newConnections).isEqualTo(1);
+        assertThat(stats.poolHits).isEqualTo(0);
+    }
+
+    @Test
+    public void evictIdleConnections_withEmptyPool_shouldNotCountEvictions() throws Exception {
+        // The pool is process-wide, so clear out anything left over from other tests first
+        HttpConnectionPool.getConnectionManager().closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        HttpConnectionPool.resetForTesting();
+
+        HttpConnectionPool.evictIdleConnections();
+
+        assertThat(HttpConnectionPool.getStats().idleEvictions).isEqualTo(0);
+    }
+}
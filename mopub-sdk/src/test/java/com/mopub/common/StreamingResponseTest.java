@@ -0,0 +1,166 @@
+package com.mopub.common;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.util.ResponseHeader;
+import com.mopub.common.util.Strings;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+@RunWith(SdkTestRunner.class)
+public class StreamingResponseTest {
+    private static final String BODY = "0123456789";
+
+    @Test
+    public void readByteArray_withContentLength_shouldReadBody() throws Exception {
+        final StreamingResponse subject = new StreamingResponse(createResponse(BODY, true), 100);
+
+        assertThat(subject.getContentLength()).isEqualTo(BODY.length());
+        assertThat(new String(subject.readByteArray())).isEqualTo(BODY);
+    }
+
+    @Test
+    public void readByteArray_withoutContentLength_shouldReadBody() throws Exception {
+        final StreamingResponse subject = new StreamingResponse(createResponse(BODY, false), 100);
+
+        assertThat(subject.getContentLength()).isEqualTo(-1);
+        assertThat(new String(subject.readByteArray())).isEqualTo(BODY);
+    }
+
+    @Test
+    public void readByteArray_withBodyOfMaxLength_shouldReadBody() throws Exception {
+        assertThat(new StreamingResponse(createResponse(BODY, true), BODY.length())
+                .readByteArray()).hasSize(BODY.length());
+        assertThat(new StreamingResponse(createResponse(BODY, false), BODY.length())
+                .readByteArray()).hasSize(BODY.length());
+    }
+
+    @Test
+    public void readByteArray_withContentLengthOverMax_shouldThrowWithoutReading() throws Exception {
+        final CountingInputStream content = new CountingInputStream(BODY);
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new InputStreamEntity(content, BODY.length()));
+
+        try {
+            new StreamingResponse(response, BODY.length() - 1).readByteArray();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // passed
+        }
+        assertThat(content.mBytesRead).isEqualTo(0);
+    }
+
+    @Test
+    public void readByteArray_withoutContentLength_withBodyOverMax_shouldThrow() throws Exception {
+        try {
+            new StreamingResponse(createResponse(BODY, false), BODY.length() - 1).readByteArray();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // passed
+        }
+    }
+
+    @Test
+    public void readByteArray_withTruncatedBody_shouldThrow() throws Exception {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new InputStreamEntity(
+                new ByteArrayInputStream(BODY.getBytes()), BODY.length() + 5));
+
+        try {
+            new StreamingResponse(response, 100).readByteArray();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // passed
+        }
+    }
+
+    @Test
+    public void getInputStream_shouldStreamBody() throws Exception {
+        final StreamingResponse subject = new StreamingResponse(createResponse(BODY, false), 100);
+
+        assertThat(Strings.fromStream(subject.getInputStream())).isEqualTo(BODY);
+    }
+
+    @Test
+    public void getInputStream_withBodyOverMax_shouldThrowOnceMaxIsPassed() throws Exception {
+        final InputStream inputStream =
+                new StreamingResponse(createResponse(BODY, false), 4).getInputStream();
+
+        assertThat(inputStream.read(new byte[4])).isEqualTo(4);
+        try {
+            inputStream.read();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            // passed
+        }
+    }
+
+    @Test
+    public void discard_shouldReleaseBodyUnread() throws Exception {
+        final CountingInputStream content = new CountingInputStream(BODY);
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 404, "");
+        response.setEntity(new InputStreamEntity(content, -1));
+        response.addHeader(ResponseHeader.FAIL_URL.getKey(), "failUrl");
+        final StreamingResponse subject = new StreamingResponse(response, 100);
+
+        subject.discard();
+
+        assertThat(content.mClosed).isTrue();
+        assertThat(subject.getStatusCode()).isEqualTo(404);
+        assertThat(subject.getFirstHeader(ResponseHeader.FAIL_URL)).isEqualTo("failUrl");
+    }
+
+    @Test
+    public void readByteArray_afterBodyWasConsumed_shouldThrowIllegalStateException()
+            throws Exception {
+        final StreamingResponse subject = new StreamingResponse(createResponse(BODY, true), 100);
+        subject.readByteArray();
+
+        try {
+            subject.readByteArray();
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // passed
+        }
+    }
+
+    private static HttpResponse createResponse(final String body, final boolean withLength) {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new InputStreamEntity(new ByteArrayInputStream(body.getBytes()),
+                withLength ? body.length() : -1));
+        return response;
+    }
+
+    private static class CountingInputStream extends ByteArrayInputStream {
+        int mBytesRead;
+        boolean mClosed;
+
+        CountingInputStream(final String body) {
+            super(body.getBytes());
+        }
+
+        @Override
+        public synchronized int read(final byte[] buffer, final int offset, final int length) {
+            final int read = super.read(buffer, offset, length);
+            mBytesRead += Math.max(read, 0);
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mClosed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.mopub.common;
+
+import com.mopub.common.event.BaseEvent;
+import com.mopub.common.event.MoPubEvents;
+import com.mopub.common.event.TimedEvent;
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+
+import static junit.framework.Assert.fail;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SdkTestRunner.class)
+public class TimedRequestsTest {
+
+    @Mock private HttpClient mockHttpClient;
+    @Mock private MoPubEvents.EventDispatcher mockEventDispatcher;
+
+    private HttpGet httpGet;
+    private BasicHttpResponse response;
+    private TimedEvent timedEvent;
+
+    @Before
+    public void setUp() throws Exception {
+        MoPubEvents.setEventDispatcher(mockEventDispatcher);
+        httpGet = new HttpGet("http://www.mopub.com/");
+        response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        response.setEntity(new StringEntity("body"));
+        timedEvent = MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST,
+                TimedEvent.Endpoint.AD, httpGet.getURI().toString());
+    }
+
+    @Test
+    public void execute_shouldMarkFirstByteAndLeaveEventRunning() throws Exception {
+        when(mockHttpClient.execute(eq(httpGet), any(HttpContext.class))).thenReturn(response);
+
+        final HttpResponse result = TimedRequests.execute(mockHttpClient, httpGet, timedEvent);
+
+        assertThat(result).isSameAs(response);
+        assertThat(timedEvent.getFirstByteMillis()).isGreaterThanOrEqualTo(0);
+        assertThat(timedEvent.getConnectDurationMillis()).isEqualTo(TimedEvent.NOT_MEASURED);
+        verify(mockEventDispatcher, never()).onStopped(timedEvent);
+    }
+
+    @Test
+    public void execute_withNewConnection_shouldRecordConnectDuration() throws Exception {
+        when(mockHttpClient.execute(eq(httpGet), any(HttpContext.class))).thenAnswer(
+                new Answer<HttpResponse>() {
+                    @Override
+                    public HttpResponse answer(final InvocationOnMock invocation) {
+                        final HttpContext context = (HttpContext) invocation.getArguments()[1];
+                        context.setAttribute(HttpConnectionPool.CONNECT_DURATION_MILLIS, 42L);
+                        return response;
+                    }
+                });
+
+        TimedRequests.execute(mockHttpClient, httpGet, timedEvent);
+
+        assertThat(timedEvent.getConnectDurationMillis()).isEqualTo(42);
+    }
+
+    @Test
+    public void execute_whenRequestFails_shouldStopEventWithNoResponseAndRethrow()
+            throws Exception {
+        final IOException exception = new IOException("timed out");
+        when(mockHttpClient.execute(eq(httpGet), any(HttpContext.class))).thenThrow(exception);
+
+        try {
+            TimedRequests.execute(mockHttpClient, httpGet, timedEvent);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertThat(e).isSameAs(exception);
+        }
+
+        assertThat(timedEvent.getHttpStatusCode()).isEqualTo(TimedEvent.SC_NO_RESPONSE);
+        assertThat(timedEvent.getFirstByteMillis()).isEqualTo(TimedEvent.NOT_MEASURED);
+        verify(mockEventDispatcher).onStopped(timedEvent);
+    }
+
+    @Test
+    public void getContentLength_shouldReturnDeclaredLengthOrNotMeasured() {
+        assertThat(TimedRequests.getContentLength(response)).isEqualTo(4);
+        assertThat(TimedRequests.getContentLength(null)).isEqualTo(TimedEvent.NOT_MEASURED);
+
+        response.setEntity(null);
+        assertThat(TimedRequests.getContentLength(response)).isEqualTo(0);
+    }
+
+    @Test
+    public void getStatusCode_shouldReturnStatusCodeOrNoResponse() {
+        assertThat(TimedRequests.getStatusCode(response)).isEqualTo(HttpStatus.SC_OK);
+        assertThat(TimedRequests.getStatusCode(null)).isEqualTo(TimedEvent.SC_NO_RESPONSE);
+    }
+}
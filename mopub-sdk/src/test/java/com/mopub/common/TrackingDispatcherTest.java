@@ -0,0 +1,268 @@
+package com.mopub.common;
+
+import android.app.Activity;
+
+import com.mopub.common.event.MoPubEvents;
+import com.mopub.common.event.TimedEvent;
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.apache.http.HttpRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.mopub.common.util.ResponseHeader.USER_AGENT;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+public class TrackingDispatcherTest {
+    private Activity context;
+    private File queueFile;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new Activity();
+        queueFile = new File(context.getFilesDir(), TrackingDispatcher.QUEUE_FILE_NAME);
+    }
+
+    @Test
+    public void enqueue_shouldSendEachUrlWithUserAgent() throws Exception {
+        Robolectric.addPendingHttpResponse(200, "");
+        Robolectric.addPendingHttpResponse(200, "");
+
+        TrackingDispatcher.enqueue(context, Arrays.asList("http://first", "http://second"), "user agent");
+
+        assertThat(Robolectric.httpRequestWasMade("http://first")).isTrue();
+        assertThat(Robolectric.httpRequestWasMade("http://second")).isTrue();
+        final HttpRequest request = Robolectric.getSentHttpRequest(0);
+        assertThat(request.getFirstHeader(USER_AGENT.getKey()).getValue()).isEqualTo("user agent");
+        assertThat(TrackingDispatcher.getStats().sent).isEqualTo(2);
+        assertThat(TrackingDispatcher.getStats().pending).isEqualTo(0);
+    }
+
+    @Test
+    public void send_shouldRecordTimedEventForTrackingEndpoint() throws Exception {
+        final MoPubEvents.EventDispatcher eventDispatcher = mock(MoPubEvents.EventDispatcher.class);
+        MoPubEvents.setEventDispatcher(eventDispatcher);
+        Robolectric.addPendingHttpResponse(204, "");
+
+        TrackingDispatcher.enqueue(context, Arrays.asList("http://tracker"), null);
+
+        final ArgumentCaptor<TimedEvent> timedEventCaptor = ArgumentCaptor.forClass(TimedEvent.class);
+        verify(eventDispatcher).onStopped(timedEventCaptor.capture());
+        assertThat(timedEventCaptor.getValue().getEndpoint()).isEqualTo(TimedEvent.Endpoint.TRACKING);
+        assertThat(timedEventCaptor.getValue().getRequestUrl()).isEqualTo("http://tracker");
+        assertThat(timedEventCaptor.getValue().getHttpStatusCode()).isEqualTo(204);
+    }
+
+    @Test
+    public void enqueue_withNullOrEmptyUrls_shouldIgnoreThem() throws Exception {
+        TrackingDispatcher.enqueue(context, Arrays.asList(null, ""), null);
+
+        assertThat(Robolectric.getFakeHttpLayer().getSentHttpRequestInfos()).isEmpty();
+        assertThat(TrackingDispatcher.getStats().pending).isEqualTo(0);
+    }
+
+    @Test
+    public void enqueue_withMoreUrlsThanConcurrencyLimit_shouldHoldBackTheRest() throws Exception {
+        final ManualExecutor executor = new ManualExecutor();
+        TrackingDispatcher.setExecutor(executor);
+        final List<String> urls = new ArrayList<String>();
+        for (int i = 0; i < TrackingDispatcher.MAX_CONCURRENT_REQUESTS + 2; i++) {
+            urls.add("http://tracker" + i);
+            Robolectric.addPendingHttpResponse(200, "");
+        }
+
+        TrackingDispatcher.enqueue(context, urls, null);
+
+        assertThat(executor.mTasks).hasSize(TrackingDispatcher.MAX_CONCURRENT_REQUESTS);
+
+        executor.runAll();
+
+        assertThat(Robolectric.getFakeHttpLayer().getSentHttpRequestInfos()).hasSize(urls.size());
+        assertThat(TrackingDispatcher.getStats().pending).isEqualTo(0);
+    }
+
+    @Test
+    public void send_withServerError_shouldRetryAfterBackoff() throws Exception {
+        Robolectric.addPendingHttpResponse(503, "");
+        Robolectric.addPendingHttpResponse(200, "");
+
+        TrackingDispatcher.enqueue(context, Arrays.asList("http://tracker"), null);
+
+        assertThat(Robolectric.getFakeHttpLayer().getSentHttpRequestInfos()).hasSize(1);
+        assertThat(TrackingDispatcher.getStats().retried).isEqualTo(1);
+        assertThat(TrackingDispatcher.getStats().pending).isEqualTo(1);
+
+        ShadowLooper.idleMainLooper(TrackingDispatcher.INITIAL_BACKOFF_MILLIS - 1);
+        assertThat(Robolectric.getFakeHttpLayer().getSentHttpRequestInfos()).hasSize(1);
+
+        ShadowLooper.idleMainLooper(1);
+        assertThat(Robolectric.getFakeHttpLayer().getSentHttpRequestInfos()).hasSize(2);
+        assertThat(TrackingDispatcher.getStats().sent).isEqualTo(1);
+        assertThat(TrackingDispatcher.getStats().pending).isEqualTo(0);
+    }
+
+    @Test
+    public void send_withServerErrorOnEveryAttempt_shouldGiveUpAfterMaxAttempts() throws Exception {
+        for (int i = 0; i < TrackingDispatcher.MAX_ATTEMPTS; i++) {
+            Robolectric.addPendingHttpResponse(500, "");
+        }
+
+        TrackingDispatcher.enqueue(context, Arrays.asList("http://tracker"), null);
+        for (int attempt = 1; attempt < TrackingDispatcher.MAX_ATTEMPTS; attempt++) {
+            ShadowLooper.idleMainLooper(TrackingDispatcher.getBackoffMillis(attempt));
+        }
+
+        assertThat(Robolectric.getFakeHttpLayer().getSentHttpRequestInfos())
+                .hasSize(TrackingDispatcher.MAX_ATTEMPTS);
+        assertThat(TrackingDispatcher.getStats().failed).isEqualTo(1);
+        assertThat(TrackingDispatcher.getStats().pending).isEqualTo(0);
+    }
+
+    @Test
+    public void send_withClientError_shouldNotRetry() throws Exception {
+        Robolectric.addPendingHttpResponse(404, "");
+
+        TrackingDispatcher.enqueue(context, Arrays.asList("http://tracker"), null);
+
+        assertThat(TrackingDispatcher.getStats().retried).isEqualTo(0);
+        assertThat(TrackingDispatcher.getStats().sent).isEqualTo(0);
+        assertThat(TrackingDispatcher.getStats().rejected).isEqualTo(1);
+        assertThat(TrackingDispatcher.getStats().pending).isEqualTo(0);
+    }
+
+    @Test
+    public void send_withMalformedUrl_shouldRejectWithoutRetrying() throws Exception {
+        TrackingDispatcher.enqueue(context, Arrays.asList("not a url"), null);
+
+        assertThat(Robolectric.getFakeHttpLayer().getSentHttpRequestInfos()).isEmpty();
+        assertThat(TrackingDispatcher.getStats().sent).isEqualTo(0);
+        assertThat(TrackingDispatcher.getStats().rejected).isEqualTo(1);
+        assertThat(TrackingDispatcher.getStats().retried).isEqualTo(0);
+        assertThat(TrackingDispatcher.getStats().pending).isEqualTo(0);
+    }
+
+    @Test
+    public void enqueue_withSendsStillWaiting_shouldPersistQueueWithoutWaitingForThem() throws Exception {
+        TrackingDispatcher.setExecutor(new ManualExecutor());
+
+        TrackingDispatcher.enqueue(context, Arrays.asList("http://tracker"), null);
+
+        assertThat(new String(readFile(queueFile), "UTF-8")).contains("http://tracker");
+    }
+
+    @Test
+    public void send_withNoContent_shouldCountAsSent() throws Exception {
+        Robolectric.addPendingHttpResponse(204, "");
+
+        TrackingDispatcher.enqueue(context, Arrays.asList("http://tracker"), null);
+
+        assertThat(TrackingDispatcher.getStats().sent).isEqualTo(1);
+        assertThat(TrackingDispatcher.getStats().rejected).isEqualTo(0);
+    }
+
+    @Test
+    public void initialize_shouldSendBeaconsPersistedByAPreviousRun() throws Exception {
+        Robolectric.addPendingHttpResponse(503, "");
+        TrackingDispatcher.enqueue(context, Arrays.asList("http://tracker"), "user agent");
+        final byte[] persistedQueue = readFile(queueFile);
+        assertThat(new String(persistedQueue, "UTF-8")).contains("http://tracker");
+
+        // Simulate the process dying while the beacon waits for its retry.
+        TrackingDispatcher.clearForTesting();
+        writeFile(queueFile, persistedQueue);
+        Robolectric.getFakeHttpLayer().clearRequestInfos();
+        Robolectric.addPendingHttpResponse(200, "");
+
+        TrackingDispatcher.initialize(context);
+
+        assertThat(Robolectric.httpRequestWasMade("http://tracker")).isTrue();
+        final HttpRequest request = Robolectric.getSentHttpRequest(0);
+        assertThat(request.getFirstHeader(USER_AGENT.getKey()).getValue()).isEqualTo("user agent");
+        assertThat(TrackingDispatcher.getStats().pending).isEqualTo(0);
+        assertThat(readFile(queueFile)).isEmpty();
+    }
+
+    @Test
+    public void initialize_withExpiredPersistedBeacon_shouldDropItUnsent() throws Exception {
+        final long nowMillis = System.currentTimeMillis();
+        final long expiredMillis = nowMillis - TrackingDispatcher.MAX_BEACON_AGE_MILLIS - 1000;
+        writeFile(queueFile, ("0\t" + expiredMillis + "\t\thttp://expired\n"
+                + "0\t" + nowMillis + "\t\thttp://fresh\n").getBytes("UTF-8"));
+        Robolectric.addPendingHttpResponse(200, "");
+
+        TrackingDispatcher.initialize(context);
+
+        assertThat(Robolectric.httpRequestWasMade("http://fresh")).isTrue();
+        assertThat(Robolectric.httpRequestWasMade("http://expired")).isFalse();
+        assertThat(TrackingDispatcher.getStats().dropped).isEqualTo(1);
+        assertThat(TrackingDispatcher.getStats().sent).isEqualTo(1);
+        assertThat(TrackingDispatcher.getStats().pending).isEqualTo(0);
+    }
+
+    @Test
+    public void enqueue_withFullQueue_shouldDropOldestBeaconsThatAreNotInFlight() throws Exception {
+        TrackingDispatcher.setExecutor(new ManualExecutor());
+        final List<String> urls = new ArrayList<String>();
+        for (int i = 0; i < TrackingDispatcher.MAX_QUEUED_BEACONS + 2; i++) {
+            urls.add("http://tracker" + i);
+        }
+
+        TrackingDispatcher.enqueue(context, urls, null);
+
+        assertThat(TrackingDispatcher.getStats().dropped).isEqualTo(2);
+        assertThat(TrackingDispatcher.getStats().pending).isEqualTo(TrackingDispatcher.MAX_QUEUED_BEACONS);
+    }
+
+    private static byte[] readFile(final File file) throws Exception {
+        final byte[] contents = new byte[(int) file.length()];
+        final FileInputStream inputStream = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < contents.length) {
+                offset += inputStream.read(contents, offset, contents.length - offset);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return contents;
+    }
+
+    private static void writeFile(final File file, final byte[] contents) throws Exception {
+        final FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(contents);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> mTasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(final Runnable runnable) {
+            mTasks.add(runnable);
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty()) {
+                mTasks.remove(0).run();
+            }
+        }
+    }
+}
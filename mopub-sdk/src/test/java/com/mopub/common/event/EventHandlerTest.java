@@ -3,55 +3,154 @@ package com.mopub.common.event;
 import android.os.HandlerThread;
 import android.os.Message;
 
-import com.mopub.common.ClientMetadata;
 import com.mopub.common.test.support.SdkTestRunner;
 
 import org.apache.http.HttpStatus;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLooper;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import static org.mockito.Matchers.eq;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.robolectric.Robolectric.shadowOf;
 
 
 @RunWith(SdkTestRunner.class)
 public class EventHandlerTest {
 
     private EventRecorder testRecorder;
+    private List<EventRecorder> recorders;
     private MoPubEvents.EventDispatcher subject;
     private HandlerThread testHandlerThread;
 
     @Before
     public void setup() {
         // Set up test event recorders and test handler thread.
-        List<EventRecorder> recorders = new ArrayList<EventRecorder>();
+        recorders = new ArrayList<EventRecorder>();
         testRecorder = mock(EventRecorder.class);
         recorders.add(testRecorder);
         testHandlerThread = new HandlerThread("mopub-test-events");
-        subject = new MoPubEvents.EventDispatcher(recorders, testHandlerThread);
-        // The test runner uses a mock dispatcher that does nothing.
-        MoPubEvents.setEventDispatcher(subject);
+        setSubject(new MoPubEvents.EventDispatcher(recorders, testHandlerThread));
+    }
+
+    @Test
+    public void createEvent_shouldBeRecordedWhenHandlerThreadDrains() throws Exception {
+        MoPubEvents.event(BaseEvent.Type.DATA_ERROR, "Test URL");
+        verify(testRecorder, never()).recordEvent(any(Event.class));
+
+        idleHandlerThread();
+
+        verify(testRecorder).recordEvent(any(Event.class));
+        assertThat(subject.getStats().recorded).isEqualTo(1);
     }
 
     @Test
-    public void createEvent_testCallbackCallsHandler() throws Exception {
-        Message message = new Message();
-        message.obj = new Event(BaseEvent.Type.DATA_ERROR, "Test URL", ClientMetadata.getInstance());
-        subject.mHandlerCallback.handleMessage(message);
-        verify(testRecorder).recordEvent(eq((Event) message.obj));
+    public void createTimedEvent_shouldBeRecordedOnceStoppedAndDrained() throws Exception {
+        final TimedEvent timedEvent =
+                MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST, "Test URL");
+        idleHandlerThread();
+        verify(testRecorder, never()).recordTimedEvent(any(TimedEvent.class));
+
+        timedEvent.stop(HttpStatus.SC_OK);
+        idleHandlerThread();
+
+        verify(testRecorder).recordTimedEvent(timedEvent);
     }
 
     @Test
-    public void createTimedEvent_testCallbackCallsHandler() throws Exception {
-        Message message = new Message();
-        message.obj = new TimedEvent(BaseEvent.Type.DATA_ERROR, "Test URL", ClientMetadata.getInstance(), null);
-        ((TimedEvent) message.obj).stop(HttpStatus.SC_OK);
-        subject.mHandlerCallback.handleMessage(message);
-        verify(testRecorder).recordTimedEvent((TimedEvent) eq(message.obj));
-    }
-}
\ No newline at end of file
+    public void dispatch_withMoreEventsThanOneBatch_shouldDrainInBatches() throws Exception {
+        final int eventCount = MoPubEvents.EventDispatcher.MAX_BATCH_SIZE * 2 + 1;
+        for (int i = 0; i < eventCount; i++) {
+            MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST, "Test URL")
+                    .stop(HttpStatus.SC_OK);
+        }
+        assertThat(subject.getStats().queued).isEqualTo(eventCount);
+
+        idleHandlerThread();
+
+        verify(testRecorder, times(eventCount)).recordTimedEvent(any(TimedEvent.class));
+        final MoPubEvents.EventDispatcher.Stats stats = subject.getStats();
+        assertThat(stats.recorded).isEqualTo(eventCount);
+        assertThat(stats.batches).isEqualTo(3);
+        assertThat(stats.queued).isEqualTo(0);
+        assertThat(stats.dropped).isEqualTo(0);
+    }
+
+    @Test
+    public void dispatch_whenBufferIsFull_shouldDropAndCountEvents() throws Exception {
+        testHandlerThread = new HandlerThread("mopub-test-small-events");
+        setSubject(new MoPubEvents.EventDispatcher(recorders, testHandlerThread, 8));
+        for (int i = 0; i < 10; i++) {
+            MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST, "Test URL")
+                    .stop(HttpStatus.SC_OK);
+        }
+
+        assertThat(subject.getStats().queued).isEqualTo(8);
+        assertThat(subject.getStats().dropped).isEqualTo(2);
+
+        idleHandlerThread();
+
+        verify(testRecorder, times(8)).recordTimedEvent(any(TimedEvent.class));
+        assertThat(subject.getStats().recorded).isEqualTo(8);
+
+        // Draining frees the buffer for new events.
+        MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST, "Test URL").stop(HttpStatus.SC_OK);
+        idleHandlerThread();
+        assertThat(subject.getStats().recorded).isEqualTo(9);
+        assertThat(subject.getStats().dropped).isEqualTo(2);
+    }
+
+    @Test
+    public void dispatch_whenBufferIsHalfFull_shouldSampleUntimedEvents() throws Exception {
+        testHandlerThread = new HandlerThread("mopub-test-small-events");
+        setSubject(new MoPubEvents.EventDispatcher(recorders, testHandlerThread, 8));
+        for (int i = 0; i < 4; i++) {
+            MoPubEvents.timedEvent(BaseEvent.Type.NETWORK_REQUEST, "Test URL")
+                    .stop(HttpStatus.SC_OK);
+        }
+
+        for (int i = 0; i < 8; i++) {
+            MoPubEvents.event(BaseEvent.Type.DATA_ERROR, "Test URL");
+        }
+
+        final MoPubEvents.EventDispatcher.Stats stats = subject.getStats();
+        assertThat(stats.queued).isEqualTo(6);
+        assertThat(stats.sampledOut).isEqualTo(6);
+        assertThat(stats.dropped).isEqualTo(0);
+
+        idleHandlerThread();
+
+        verify(testRecorder, times(4)).recordTimedEvent(any(TimedEvent.class));
+        verify(testRecorder, times(2)).recordEvent(any(Event.class));
+    }
+
+    @Test
+    public void handleMessage_withUnknownMessage_shouldSwallowItWithoutRecording() {
+        final Message message = new Message();
+        message.obj = new Event(BaseEvent.Type.DATA_ERROR, "Test URL", null);
+
+        assertThat(subject.mHandlerCallback.handleMessage(message)).isTrue();
+
+        verify(testRecorder, never()).recordEvent(any(Event.class));
+    }
+
+    private void setSubject(final MoPubEvents.EventDispatcher dispatcher) {
+        subject = dispatcher;
+        // The test runner uses a mock dispatcher that does nothing.
+        MoPubEvents.setEventDispatcher(subject);
+        // Hold drains until the test idles the handler thread.
+        ShadowLooper.pauseLooper(testHandlerThread.getLooper());
+    }
+
+    private void idleHandlerThread() {
+        shadowOf(testHandlerThread.getLooper()).idle();
+    }
+}
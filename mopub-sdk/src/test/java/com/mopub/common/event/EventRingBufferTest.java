@@ -0,0 +1,142 @@
+package com.mopub.common.event;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class EventRingBufferTest {
+
+    private EventRingBuffer<Integer> subject;
+
+    @Before
+    public void setUp() {
+        subject = new EventRingBuffer<Integer>(4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_withZeroCapacity_shouldThrowIllegalArgumentException() {
+        new EventRingBuffer<Integer>(0);
+    }
+
+    @Test
+    public void constructor_shouldRoundCapacityUpToPowerOfTwo() {
+        assertThat(new EventRingBuffer<Integer>(5).capacity()).isEqualTo(8);
+        assertThat(new EventRingBuffer<Integer>(8).capacity()).isEqualTo(8);
+        assertThat(new EventRingBuffer<Integer>(1).capacity()).isEqualTo(1);
+    }
+
+    @Test
+    public void poll_withEmptyBuffer_shouldReturnNull() {
+        assertThat(subject.poll()).isNull();
+        assertThat(subject.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void offer_thenPoll_shouldReturnElementsInOrder() {
+        assertThat(subject.offer(1)).isTrue();
+        assertThat(subject.offer(2)).isTrue();
+        assertThat(subject.offer(3)).isTrue();
+        assertThat(subject.size()).isEqualTo(3);
+
+        assertThat(subject.poll()).isEqualTo(1);
+        assertThat(subject.poll()).isEqualTo(2);
+        assertThat(subject.poll()).isEqualTo(3);
+        assertThat(subject.poll()).isNull();
+    }
+
+    @Test
+    public void offer_whenFull_shouldReturnFalseUntilPolled() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(subject.offer(i)).isTrue();
+        }
+
+        assertThat(subject.offer(4)).isFalse();
+        assertThat(subject.size()).isEqualTo(4);
+
+        assertThat(subject.poll()).isEqualTo(0);
+        assertThat(subject.offer(4)).isTrue();
+    }
+
+    @Test
+    public void offerAndPoll_overManyLaps_shouldKeepOrder() {
+        int next = 0;
+        for (int i = 0; i < 100; i++) {
+            assertThat(subject.offer(i)).isTrue();
+            if (i % 3 == 2) {
+                assertThat(subject.poll()).isEqualTo(next++);
+                assertThat(subject.poll()).isEqualTo(next++);
+            }
+            while (subject.size() == 4) {
+                assertThat(subject.poll()).isEqualTo(next++);
+            }
+        }
+
+        Integer element;
+        while ((element = subject.poll()) != null) {
+            assertThat(element).isEqualTo(next++);
+        }
+        assertThat(next).isEqualTo(100);
+    }
+
+    @Test
+    public void offer_fromConcurrentProducers_shouldDeliverEveryElementOnce() throws Exception {
+        final int producerCount = 4;
+        final int elementsPerProducer = 5000;
+        subject = new EventRingBuffer<Integer>(64);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final Thread[] producers = new Thread[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < elementsPerProducer; i++) {
+                        final int element = producer * elementsPerProducer + i;
+                        while (!subject.offer(element)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            producers[p].start();
+        }
+
+        startLatch.countDown();
+        final Set<Integer> received = new HashSet<Integer>();
+        final int[] lastFromProducer = new int[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            lastFromProducer[p] = -1;
+        }
+        while (received.size() < producerCount * elementsPerProducer) {
+            final Integer element = subject.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            assertThat(received.add(element)).isTrue();
+            // Each producer's elements arrive in the order it offered them.
+            final int producer = element / elementsPerProducer;
+            assertThat(element).isGreaterThan(lastFromProducer[producer]);
+            lastFromProducer[producer] = element;
+        }
+
+        for (final Thread producer : producers) {
+            producer.join();
+        }
+        assertThat(subject.poll()).isNull();
+    }
+}
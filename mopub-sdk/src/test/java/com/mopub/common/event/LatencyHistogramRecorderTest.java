@@ -0,0 +1,113 @@
+package com.mopub.common.event;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.apache.http.HttpStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class LatencyHistogramRecorderTest {
+
+    private LatencyHistogramRecorder subject;
+
+    @Before
+    public void setUp() {
+        subject = new LatencyHistogramRecorder();
+    }
+
+    @Test
+    public void getStats_withNoEvents_shouldBeEmpty() {
+        final LatencyHistogramRecorder.Stats stats = subject.getStats(TimedEvent.Endpoint.AD);
+
+        assertThat(stats.endpoint).isEqualTo(TimedEvent.Endpoint.AD);
+        assertThat(stats.requests).isEqualTo(0);
+        assertThat(stats.total.count).isEqualTo(0);
+        assertThat(stats.total.p99Millis).isEqualTo(0);
+    }
+
+    @Test
+    public void recordTimedEvent_shouldKeepPercentilesPerEndpoint() {
+        for (int i = 1; i <= 100; i++) {
+            subject.record(TimedEvent.Endpoint.AD, HttpStatus.SC_OK,
+                    i, i / 2, TimedEvent.NOT_MEASURED, 10);
+        }
+        subject.record(TimedEvent.Endpoint.IMAGE, HttpStatus.SC_OK,
+                5000, 100, 50, 10);
+
+        final LatencyHistogramRecorder.Stats adStats = subject.getStats(TimedEvent.Endpoint.AD);
+        assertThat(adStats.requests).isEqualTo(100);
+        assertThat(adStats.failures).isEqualTo(0);
+        assertThat(adStats.bytes).isEqualTo(1000);
+        assertThat(adStats.total.count).isEqualTo(100);
+        // Percentiles are rounded up to the top of their bucket.
+        assertThat(adStats.total.p50Millis).isEqualTo(51);
+        assertThat(adStats.total.p90Millis).isEqualTo(95);
+        assertThat(adStats.total.p99Millis).isEqualTo(100);
+        assertThat(adStats.total.maxMillis).isEqualTo(100);
+        assertThat(adStats.firstByte.count).isEqualTo(100);
+        assertThat(adStats.firstByte.p50Millis).isEqualTo(25);
+        assertThat(adStats.connect.count).isEqualTo(0);
+
+        final LatencyHistogramRecorder.Stats imageStats =
+                subject.getStats(TimedEvent.Endpoint.IMAGE);
+        assertThat(imageStats.requests).isEqualTo(1);
+        assertThat(imageStats.total.p50Millis).isEqualTo(5000);
+        assertThat(imageStats.connect.count).isEqualTo(1);
+        assertThat(imageStats.connect.p50Millis).isEqualTo(50);
+    }
+
+    @Test
+    public void recordTimedEvent_withErrorOrNoResponse_shouldCountFailure() {
+        subject.record(TimedEvent.Endpoint.VAST_XML,
+                HttpStatus.SC_INTERNAL_SERVER_ERROR, 10, 10, TimedEvent.NOT_MEASURED, 0);
+        subject.record(TimedEvent.Endpoint.VAST_XML,
+                TimedEvent.SC_NO_RESPONSE, 10000, TimedEvent.NOT_MEASURED,
+                TimedEvent.NOT_MEASURED, TimedEvent.NOT_MEASURED);
+        subject.record(TimedEvent.Endpoint.VAST_XML,
+                HttpStatus.SC_NOT_MODIFIED, 10, 10, TimedEvent.NOT_MEASURED, 0);
+
+        final LatencyHistogramRecorder.Stats stats = subject.getStats(TimedEvent.Endpoint.VAST_XML);
+        assertThat(stats.requests).isEqualTo(3);
+        assertThat(stats.failures).isEqualTo(2);
+        assertThat(stats.bytes).isEqualTo(0);
+        assertThat(stats.total.count).isEqualTo(3);
+        assertThat(stats.firstByte.count).isEqualTo(2);
+    }
+
+    @Test
+    public void clear_shouldResetAllEndpoints() {
+        subject.record(TimedEvent.Endpoint.AD, HttpStatus.SC_OK,
+                10, 5, 2, 100);
+
+        subject.clear();
+
+        final LatencyHistogramRecorder.Stats stats = subject.getStats(TimedEvent.Endpoint.AD);
+        assertThat(stats.requests).isEqualTo(0);
+        assertThat(stats.bytes).isEqualTo(0);
+        assertThat(stats.total.count).isEqualTo(0);
+        assertThat(stats.connect.count).isEqualTo(0);
+    }
+
+    @Test
+    public void recordTimedEvent_shouldRecordEventMeasurements() {
+        final TimedEvent timedEvent = new TimedEvent(BaseEvent.Type.NETWORK_REQUEST,
+                TimedEvent.Endpoint.POSITIONING, "http://www.mopub.com/", null, null);
+        timedEvent.setConnectDurationMillis(20);
+        timedEvent.markFirstByte();
+        timedEvent.stop(HttpStatus.SC_OK, 256);
+
+        subject.recordTimedEvent(timedEvent);
+
+        final LatencyHistogramRecorder.Stats stats =
+                subject.getStats(TimedEvent.Endpoint.POSITIONING);
+        assertThat(stats.requests).isEqualTo(1);
+        assertThat(stats.bytes).isEqualTo(256);
+        assertThat(stats.total.count).isEqualTo(1);
+        assertThat(stats.firstByte.count).isEqualTo(1);
+        assertThat(stats.connect.p50Millis).isEqualTo(20);
+    }
+}
@@ -0,0 +1,88 @@
+package com.mopub.common.event;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(SdkTestRunner.class)
+public class LatencyHistogramTest {
+
+    private LatencyHistogram subject;
+
+    @Before
+    public void setUp() {
+        subject = new LatencyHistogram();
+    }
+
+    @Test
+    public void getPercentileMillis_withNoValues_shouldReturnZero() {
+        assertThat(subject.getCount()).isEqualTo(0);
+        assertThat(subject.getPercentileMillis(50)).isEqualTo(0);
+    }
+
+    @Test
+    public void getPercentileMillis_withSmallValues_shouldBeExact() {
+        for (int i = 0; i < 8; i++) {
+            subject.record(i);
+        }
+
+        assertThat(subject.getPercentileMillis(50)).isEqualTo(3);
+        assertThat(subject.getPercentileMillis(100)).isEqualTo(7);
+    }
+
+    @Test
+    public void getPercentileMillis_shouldBeWithinBucketPrecision() {
+        for (int i = 1; i <= 1000; i++) {
+            subject.record(i);
+        }
+
+        assertThat(subject.getCount()).isEqualTo(1000);
+        assertPercentileNear(subject.getPercentileMillis(50), 500);
+        assertPercentileNear(subject.getPercentileMillis(90), 900);
+        assertPercentileNear(subject.getPercentileMillis(99), 990);
+        assertThat(subject.getPercentileMillis(100)).isEqualTo(1000);
+        assertThat(subject.getMaxMillis()).isEqualTo(1000);
+    }
+
+    @Test
+    public void record_withValuesOutOfRange_shouldClamp() {
+        subject.record(-5);
+        subject.record(Long.MAX_VALUE);
+
+        assertThat(subject.getPercentileMillis(50)).isEqualTo(0);
+        assertThat(subject.getPercentileMillis(100))
+                .isEqualTo(LatencyHistogram.MAX_TRACKABLE_MILLIS);
+    }
+
+    @Test
+    public void getBucketIndex_shouldCoverEveryBucketWithContiguousBounds() {
+        assertThat(LatencyHistogram.getBucketIndex(LatencyHistogram.MAX_TRACKABLE_MILLIS))
+                .isEqualTo(LatencyHistogram.BUCKET_COUNT - 1);
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            final long upperBound = LatencyHistogram.getBucketUpperBound(i);
+            assertThat(LatencyHistogram.getBucketIndex(upperBound)).isEqualTo(i);
+            if (i + 1 < LatencyHistogram.BUCKET_COUNT) {
+                assertThat(LatencyHistogram.getBucketIndex(upperBound + 1)).isEqualTo(i + 1);
+            }
+        }
+    }
+
+    @Test
+    public void clear_shouldRemoveAllValues() {
+        subject.record(100);
+        subject.clear();
+
+        assertThat(subject.getCount()).isEqualTo(0);
+        assertThat(subject.getMaxMillis()).isEqualTo(0);
+        assertThat(subject.getPercentileMillis(99)).isEqualTo(0);
+    }
+
+    private static void assertPercentileNear(final long actual, final long expected) {
+        assertThat(actual).isGreaterThanOrEqualTo(expected);
+        assertThat(actual).isLessThanOrEqualTo(expected + expected / 8);
+    }
+}
@@ -0,0 +1,88 @@
+package com.mopub.common.event;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.apache.http.HttpStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SdkTestRunner.class)
+public class TimedEventTest {
+
+    @Mock private TimedEvent.Listener mockListener;
+
+    private TimedEvent subject;
+
+    @Before
+    public void setUp() {
+        subject = new TimedEvent(BaseEvent.Type.NETWORK_REQUEST, TimedEvent.Endpoint.IMAGE,
+                "http://www.mopub.com/", null, mockListener);
+    }
+
+    @Test
+    public void constructor_withoutEndpoint_shouldUseOther() {
+        subject = new TimedEvent(BaseEvent.Type.NETWORK_REQUEST, "http://www.mopub.com/", null,
+                mockListener);
+
+        assertThat(subject.getEndpoint()).isEqualTo(TimedEvent.Endpoint.OTHER);
+    }
+
+    @Test
+    public void constructor_shouldLeaveTimingsAndBytesNotMeasured() {
+        assertThat(subject.getEndpoint()).isEqualTo(TimedEvent.Endpoint.IMAGE);
+        assertThat(subject.getConnectDurationMillis()).isEqualTo(TimedEvent.NOT_MEASURED);
+        assertThat(subject.getFirstByteMillis()).isEqualTo(TimedEvent.NOT_MEASURED);
+        assertThat(subject.getBytes()).isEqualTo(TimedEvent.NOT_MEASURED);
+    }
+
+    @Test
+    public void stop_withBytes_shouldRecordStatusCodeAndBytesAndNotifyListener() {
+        subject.setConnectDurationMillis(12);
+        subject.markFirstByte();
+        subject.stop(HttpStatus.SC_OK, 1024);
+
+        assertThat(subject.getHttpStatusCode()).isEqualTo(HttpStatus.SC_OK);
+        assertThat(subject.getBytes()).isEqualTo(1024);
+        assertThat(subject.getConnectDurationMillis()).isEqualTo(12);
+        assertThat(subject.getFirstByteMillis()).isGreaterThanOrEqualTo(0);
+        assertThat(subject.getDurationMillis()).isGreaterThanOrEqualTo(subject.getFirstByteMillis());
+        verify(mockListener).onStopped(subject);
+    }
+
+    @Test
+    public void stop_calledTwice_shouldKeepFirstResultAndNotifyOnce() {
+        subject.stop(HttpStatus.SC_OK, 1024);
+        subject.stop(TimedEvent.SC_NO_RESPONSE);
+
+        assertThat(subject.getHttpStatusCode()).isEqualTo(HttpStatus.SC_OK);
+        assertThat(subject.getBytes()).isEqualTo(1024);
+        verify(mockListener, times(1)).onStopped(subject);
+    }
+
+    @Test
+    public void markFirstByte_afterStop_shouldNotRecord() {
+        subject.stop(TimedEvent.SC_NO_RESPONSE);
+        subject.markFirstByte();
+        subject.setConnectDurationMillis(12);
+
+        assertThat(subject.getFirstByteMillis()).isEqualTo(TimedEvent.NOT_MEASURED);
+        assertThat(subject.getConnectDurationMillis()).isEqualTo(TimedEvent.NOT_MEASURED);
+    }
+
+    @Test
+    public void cancel_shouldNotifyListenerAndPreventStop() {
+        subject.cancel();
+        subject.stop(HttpStatus.SC_OK, 1024);
+
+        verify(mockListener).onCancelled(subject);
+        verify(mockListener, never()).onStopped(subject);
+        assertThat(subject.getBytes()).isEqualTo(TimedEvent.NOT_MEASURED);
+    }
+}
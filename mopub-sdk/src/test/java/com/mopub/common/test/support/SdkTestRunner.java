@@ -34,6 +34,7 @@ package com.mopub.common.test.support;
 
 import com.mopub.common.ClientMetadata;
 import com.mopub.common.MoPub;
+import com.mopub.common.TrackingDispatcher;
 import com.mopub.common.event.MoPubEvents;
 import com.mopub.common.factories.MethodBuilderFactory;
 import com.mopub.common.util.AsyncTasks;
@@ -41,6 +42,7 @@ import com.mopub.common.util.DateAndTime;
 import com.mopub.common.util.test.support.ShadowAsyncTasks;
 import com.mopub.common.util.test.support.TestDateAndTime;
 import com.mopub.common.util.test.support.TestMethodBuilderFactory;
+import com.mopub.mobileads.WebViewPool;
 import com.mopub.mobileads.factories.AdFetcherFactory;
 import com.mopub.mobileads.factories.AdViewControllerFactory;
 import com.mopub.mobileads.factories.CustomEventBannerAdapterFactory;
@@ -136,11 +138,19 @@ public class SdkTestRunner extends RobolectricTestRunner {
             MockitoAnnotations.initMocks(test);
 
             AsyncTasks.setExecutor(new RobolectricBackgroundExecutorService());
+            AsyncTasks.setDecodeExecutor(new RobolectricBackgroundExecutorService());
+            TrackingDispatcher.setExecutor(new RobolectricBackgroundExecutorService());
+            TrackingDispatcher.setFileExecutor(new RobolectricBackgroundExecutorService());
         }
 
         @Override
         public void afterTest(final Method method) {
             ClientMetadata.clearForTesting();
+            WebViewPool.clearForTesting();
+            TrackingDispatcher.clearForTesting();
+            // Background tasks run on the test thread, so a task that cancels itself with
+            // interruption would otherwise leave the next test's thread interrupted.
+            Thread.interrupted();
         }
     }
 }
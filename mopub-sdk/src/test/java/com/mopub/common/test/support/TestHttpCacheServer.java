@@ -0,0 +1,85 @@
+package com.mopub.common.test.support;
+
+import org.apache.http.Header;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.robolectric.tester.org.apache.http.HttpEntityStub;
+
+/**
+ * Stands in for an HTTP server that serves one resource with cache headers. Add it with
+ * FakeHttpLayer#addHttpResponseRule. It answers a request whose If-None-Match matches the current
+ * ETag with a bodiless 304, and anything else with a 200 and the body. A null url serves the
+ * resource for every request.
+ */
+public class TestHttpCacheServer implements HttpEntityStub.ResponseRule {
+    private final String mUrl;
+    private String mBody;
+    private String mETag;
+    private String mCacheControl;
+    private HttpRequest mLastRequest;
+    private int mOkCount;
+    private int mNotModifiedCount;
+
+    public TestHttpCacheServer(final String url,
+            final String body,
+            final String eTag,
+            final String cacheControl) {
+        mUrl = url;
+        setResource(body, eTag);
+        mCacheControl = cacheControl;
+    }
+
+    public void setResource(final String body, final String eTag) {
+        mBody = body;
+        mETag = eTag;
+    }
+
+    public void setCacheControl(final String cacheControl) {
+        mCacheControl = cacheControl;
+    }
+
+    @Override
+    public boolean matches(final HttpRequest request) {
+        if (mUrl != null && !request.getRequestLine().getUri().equals(mUrl)) {
+            return false;
+        }
+        mLastRequest = request;
+        return true;
+    }
+
+    @Override
+    public HttpResponse getResponse() {
+        final Header ifNoneMatch = mLastRequest.getFirstHeader("If-None-Match");
+        final BasicHttpResponse response;
+        if (ifNoneMatch != null && ifNoneMatch.getValue().equals(mETag)) {
+            mNotModifiedCount++;
+            response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 304, "Not Modified");
+        } else {
+            mOkCount++;
+            response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+            response.setEntity(new ByteArrayEntity(mBody.getBytes()));
+        }
+        if (mETag != null) {
+            response.addHeader("ETag", mETag);
+        }
+        if (mCacheControl != null) {
+            response.addHeader("Cache-Control", mCacheControl);
+        }
+        return response;
+    }
+
+    public HttpRequest getLastRequest() {
+        return mLastRequest;
+    }
+
+    public int getOkCount() {
+        return mOkCount;
+    }
+
+    public int getNotModifiedCount() {
+        return mNotModifiedCount;
+    }
+}
@@ -20,6 +20,8 @@ import java.util.concurrent.Executor;
 import static junit.framework.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
@@ -104,6 +106,36 @@ public class AsyncTasksTest {
         ensureFastFailWhenTaskIsRunOnBackgroundThread();
     }
 
+    @Config(reportSdk = VERSION_CODES.GINGERBREAD_MR1)
+    @Test
+    public void safeExecuteOnDecodeExecutor_beforeHoneycomb_shouldCallExecuteWithParams() throws Exception {
+        AsyncTasks.safeExecuteOnDecodeExecutor(asyncTask, "hello");
+
+        verify(asyncTask).execute(eq("hello"));
+    }
+
+    @Config(reportSdk = VERSION_CODES.HONEYCOMB)
+    @Test
+    public void safeExecuteOnDecodeExecutor_atLeastHoneycomb_shouldCallExecuteWithParamsWithDecodeExecutor() throws Exception {
+        Executor decodeExecutor = mock(Executor.class);
+        AsyncTasks.setDecodeExecutor(decodeExecutor);
+
+        AsyncTasks.safeExecuteOnDecodeExecutor(asyncTask, "goodbye");
+
+        verify(asyncTask).executeOnExecutor(same(decodeExecutor), eq("goodbye"));
+    }
+
+    @Config(reportSdk = VERSION_CODES.HONEYCOMB)
+    @Test
+    public void safeExecuteOnDecodeExecutor_withNullAsyncTask_shouldThrowNullPointerException() throws Exception {
+        try {
+            AsyncTasks.safeExecuteOnDecodeExecutor(null, "hello");
+            fail("Should have thrown NullPointerException");
+        } catch (NullPointerException exception) {
+            // pass
+        }
+    }
+
     private void ensureFastFailWhenTaskIsRunOnBackgroundThread() {
         new Thread(new Runnable() {
             @Override
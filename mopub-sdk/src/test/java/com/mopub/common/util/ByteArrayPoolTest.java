@@ -0,0 +1,46 @@
+package com.mopub.common.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ByteArrayPoolTest {
+    private ByteArrayPool subject;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new ByteArrayPool(2);
+    }
+
+    @Test
+    public void getBuffer_withEmptyPool_shouldAllocateBuffer() throws Exception {
+        assertThat(subject.getBuffer()).hasSize(ByteArrayPool.BUFFER_SIZE);
+    }
+
+    @Test
+    public void getBuffer_shouldReuseReturnedBuffer() throws Exception {
+        final byte[] buffer = subject.getBuffer();
+        subject.returnBuffer(buffer);
+
+        assertThat(subject.getBuffer()).isSameAs(buffer);
+        assertThat(subject.getPooledCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void returnBuffer_whenFull_shouldDropBuffer() throws Exception {
+        subject.returnBuffer(new byte[ByteArrayPool.BUFFER_SIZE]);
+        subject.returnBuffer(new byte[ByteArrayPool.BUFFER_SIZE]);
+        subject.returnBuffer(new byte[ByteArrayPool.BUFFER_SIZE]);
+
+        assertThat(subject.getPooledCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void returnBuffer_withWrongSizeOrNull_shouldIgnoreIt() throws Exception {
+        subject.returnBuffer(new byte[10]);
+        subject.returnBuffer(null);
+
+        assertThat(subject.getPooledCount()).isEqualTo(0);
+    }
+}
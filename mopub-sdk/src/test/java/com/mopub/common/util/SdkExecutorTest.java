@@ -0,0 +1,171 @@
+package com.mopub.common.util;
+
+import com.mopub.common.util.SdkExecutor.Priority;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class SdkExecutorTest {
+    private ManualThreadPool threadPool;
+    private SdkExecutor subject;
+    private List<String> ran;
+
+    @Before
+    public void setUp() throws Exception {
+        threadPool = new ManualThreadPool();
+        subject = new SdkExecutor(threadPool);
+        ran = new ArrayList<String>();
+    }
+
+    @Test
+    public void execute_shouldNotRunMoreThanTheLimitForEachPriority() throws Exception {
+        for (int i = 0; i < Priority.DECODE.mMaxConcurrent + 2; i++) {
+            subject.execute(Priority.DECODE, record("decode" + i));
+        }
+
+        assertThat(threadPool.mRunnables).hasSize(Priority.DECODE.mMaxConcurrent);
+        assertThat(subject.getStats(Priority.DECODE).running).isEqualTo(Priority.DECODE.mMaxConcurrent);
+        assertThat(subject.getStats(Priority.DECODE).queued).isEqualTo(2);
+    }
+
+    @Test
+    public void execute_shouldNotRunMoreThanMaxThreadsAcrossPriorities() throws Exception {
+        for (final Priority priority : Priority.values()) {
+            for (int i = 0; i < priority.mMaxConcurrent; i++) {
+                subject.execute(priority, record(priority.name()));
+            }
+        }
+
+        assertThat(threadPool.mRunnables).hasSize(SdkExecutor.MAX_THREADS);
+    }
+
+    @Test
+    public void execute_whenAThreadFreesUp_shouldRunTheHighestPriorityTaskNext() throws Exception {
+        for (int i = 0; i < Priority.FETCH.mMaxConcurrent; i++) {
+            subject.execute(Priority.FETCH, record("fetch" + i));
+        }
+        for (int i = 0; i < Priority.DECODE.mMaxConcurrent; i++) {
+            subject.execute(Priority.DECODE, record("decode" + i));
+        }
+        assertThat(threadPool.mRunnables).hasSize(SdkExecutor.MAX_THREADS);
+
+        subject.execute(Priority.TRACKING, record("tracking"));
+        subject.execute(Priority.PREFETCH, record("prefetch"));
+        subject.execute(Priority.FETCH, record("fetch"));
+
+        threadPool.runAll();
+
+        assertThat(ran.subList(ran.size() - 3, ran.size()))
+                .containsExactly("fetch", "prefetch", "tracking");
+    }
+
+    @Test
+    public void execute_atDiskIoPriority_shouldRunOneTaskAtATime() throws Exception {
+        subject.execute(Priority.DISK_IO, record("first"));
+        subject.execute(Priority.DISK_IO, record("second"));
+
+        assertThat(threadPool.mRunnables).hasSize(1);
+        assertThat(subject.getStats(Priority.DISK_IO).queued).isEqualTo(1);
+
+        threadPool.runAll();
+
+        assertThat(ran).containsExactly("first", "second");
+    }
+
+    @Test
+    public void execute_withinAPriority_shouldRunTasksInOrder() throws Exception {
+        subject.execute(Priority.TRACKING, record("first"));
+        subject.execute(Priority.TRACKING, record("second"));
+        subject.execute(Priority.TRACKING, record("third"));
+
+        threadPool.runAll();
+
+        assertThat(ran).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    public void getStats_shouldTrackQueueDepthAndCompletedTasks() throws Exception {
+        for (int i = 0; i < Priority.PREFETCH.mMaxConcurrent + 3; i++) {
+            subject.execute(Priority.PREFETCH, record("prefetch" + i));
+        }
+
+        threadPool.runAll();
+
+        final SdkExecutor.Stats stats = subject.getStats(Priority.PREFETCH);
+        assertThat(stats.queued).isEqualTo(0);
+        assertThat(stats.running).isEqualTo(0);
+        assertThat(stats.maxQueued).isEqualTo(3);
+        assertThat(stats.completed).isEqualTo(Priority.PREFETCH.mMaxConcurrent + 3);
+    }
+
+    @Test
+    public void execute_whenTaskThrows_shouldStillFreeItsSlot() throws Exception {
+        subject.execute(Priority.DECODE, new Runnable() {
+            @Override
+            public void run() {
+                throw new RuntimeException();
+            }
+        });
+        subject.execute(Priority.DECODE, record("next"));
+        subject.execute(Priority.DECODE, record("last"));
+
+        try {
+            threadPool.runNext();
+        } catch (RuntimeException e) {
+            // expected
+        }
+        threadPool.runAll();
+
+        assertThat(ran).containsExactly("next", "last");
+        assertThat(subject.getStats(Priority.DECODE).running).isEqualTo(0);
+    }
+
+    @Test
+    public void forPriority_shouldSubmitAtThatPriority() throws Exception {
+        final Executor executor = subject.forPriority(Priority.TRACKING);
+
+        executor.execute(record("tracking"));
+
+        assertThat(subject.getStats(Priority.TRACKING).running).isEqualTo(1);
+        assertThat(subject.getStats(Priority.FETCH).running).isEqualTo(0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void execute_withNullRunnable_shouldThrowNullPointerException() throws Exception {
+        subject.execute(Priority.FETCH, null);
+    }
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+
+    private static class ManualThreadPool implements Executor {
+        final List<Runnable> mRunnables = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(final Runnable runnable) {
+            mRunnables.add(runnable);
+        }
+
+        void runNext() {
+            mRunnables.remove(0).run();
+        }
+
+        void runAll() {
+            while (!mRunnables.isEmpty()) {
+                runNext();
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.mopub.common.util.test.support;
 import android.os.AsyncTask;
 
 import com.mopub.common.util.AsyncTasks;
+import com.mopub.common.util.SdkExecutor.Priority;
 
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
@@ -24,6 +25,12 @@ public class ShadowAsyncTasks {
         sParams = Arrays.asList(params);
     }
 
+    @Implementation
+    public static <P> void safeExecuteOnExecutor(Priority priority, AsyncTask<P, ?, ?> asyncTask, P... params)
+            throws IllegalArgumentException, IllegalStateException {
+        safeExecuteOnExecutor(asyncTask, params);
+    }
+
     public static boolean wasCalled() {
         return sWasCalled;
     }
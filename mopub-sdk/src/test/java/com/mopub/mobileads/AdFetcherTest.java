@@ -44,6 +44,7 @@ import org.apache.http.HttpResponse;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.robolectric.Robolectric;
 import org.robolectric.annotation.Config;
 
@@ -51,6 +52,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executor;
 
+import static com.mopub.common.util.ResponseHeader.ACCEPT_ENCODING;
 import static com.mopub.common.util.ResponseHeader.AD_TYPE;
 import static com.mopub.common.util.ResponseHeader.CUSTOM_EVENT_DATA;
 import static com.mopub.common.util.ResponseHeader.CUSTOM_EVENT_NAME;
@@ -58,6 +60,7 @@ import static com.mopub.common.util.ResponseHeader.FULL_AD_TYPE;
 import static com.mopub.common.util.ResponseHeader.NATIVE_PARAMS;
 import static com.mopub.common.util.VersionCode.GINGERBREAD;
 import static com.mopub.common.util.VersionCode.ICE_CREAM_SANDWICH;
+import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
@@ -75,6 +78,7 @@ public class AdFetcherTest {
 
     @Before
     public void setup() {
+        AdFetchTaskFactory.setInstance(new AdFetchTaskFactory());
         adViewController = mock(AdViewController.class);
         moPubView = mock(MoPubView.class);
         stub(adViewController.getMoPubView()).toReturn(moPubView);
@@ -92,6 +96,16 @@ public class AdFetcherTest {
         verify(adViewController).configureUsingHttpResponse(eq(response));
     }
 
+    @Test
+    public void fetchAdForUrl_shouldAcceptCompressedResponse() {
+        Robolectric.addPendingHttpResponse(response);
+
+        subject.fetchAdForUrl("url");
+
+        assertThat(Robolectric.getSentHttpRequest(0)
+                .getFirstHeader(ACCEPT_ENCODING.getKey()).getValue()).isEqualTo("gzip, deflate");
+    }
+
     @Test
     public void fetchAdForUrl_shouldRouteMillennialBannerToCustomEventHandling() throws Exception {
         String json = "{\"adWidth\": 320, \"adHeight\": 50, \"adUnitID\": \"44310\"}";
@@ -109,6 +123,37 @@ public class AdFetcherTest {
         verify(moPubView).loadCustomEvent(eq(paramsMap));
     }
 
+    @Test
+    public void prefetchAdForUrl_shouldHandResultToAdViewControllerWithoutConfiguringOrLoadingIt() throws Exception {
+        String json = "{\"adWidth\": 320, \"adHeight\": 50, \"adUnitID\": \"44310\"}";
+        response.addHeader(AD_TYPE.getKey(), "millennial_native");
+        response.addHeader(NATIVE_PARAMS.getKey(), json);
+        response.addHeader("X-Clickthrough", "http://prefetchedClickUrl");
+        Robolectric.addPendingHttpResponse(response);
+
+        subject.prefetchAdForUrl("ignored_url");
+
+        ArgumentCaptor<AdLoadTask> adLoadTaskCaptor = ArgumentCaptor.forClass(AdLoadTask.class);
+        ArgumentCaptor<AdConfiguration> adConfigurationCaptor = ArgumentCaptor.forClass(AdConfiguration.class);
+        verify(adViewController).adPrefetched(adLoadTaskCaptor.capture(), adConfigurationCaptor.capture());
+        verify(adViewController, never()).configureUsingHttpResponse(any(HttpResponse.class));
+        verify(moPubView, never()).loadCustomEvent(any(Map.class));
+
+        Map<String, String> paramsMap = ((AdLoadTask.CustomEventAdLoadTask) adLoadTaskCaptor.getValue()).getParamsMap();
+        assertThat(paramsMap.get(CUSTOM_EVENT_NAME.getKey())).isEqualTo("com.mopub.mobileads.MillennialBanner");
+        assertThat(adConfigurationCaptor.getValue().getClickthroughUrl()).isEqualTo("http://prefetchedClickUrl");
+    }
+
+    @Test
+    public void prefetchAdForUrl_withServerError_shouldNotFailTheAdView() throws Exception {
+        Robolectric.addPendingHttpResponse(new TestHttpResponseWithHeaders(500, ""));
+
+        subject.prefetchAdForUrl("ignored_url");
+
+        verify(adViewController).adPrefetchFailed();
+        verify(adViewController, never()).adDidFail(any(MoPubErrorCode.class));
+    }
+
     @Test
     public void fetchAdForUrl_shouldRouteMillennialInterstitialToCustomEventHandling() throws Exception {
         AdViewController interstitialAdViewController = mock(AdViewController.class);
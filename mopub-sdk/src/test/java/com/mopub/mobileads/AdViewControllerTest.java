@@ -46,6 +46,9 @@ import com.mopub.common.GpsHelper;
 import com.mopub.common.GpsHelperTest;
 import com.mopub.common.MoPub;
 import com.mopub.common.SharedPreferencesHelper;
+import com.mopub.common.util.DateAndTime;
+import com.mopub.common.util.ResponseHeader;
+import com.mopub.common.util.test.support.TestDateAndTime;
 import com.mopub.common.util.test.support.TestMethodBuilderFactory;
 import com.mopub.mobileads.factories.HttpClientFactory;
 import com.mopub.common.test.support.SdkTestRunner;
@@ -65,7 +68,9 @@ import org.mockito.ArgumentCaptor;
 import org.robolectric.Robolectric;
 import org.robolectric.tester.org.apache.http.FakeHttpLayer;
 
-import java.lang.reflect.InvocationTargetException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 import static android.Manifest.permission.ACCESS_NETWORK_STATE;
 import static com.mopub.common.util.Reflection.MethodBuilder;
@@ -74,7 +79,6 @@ import static com.mopub.mobileads.MoPubErrorCode.INTERNAL_ERROR;
 import static com.mopub.mobileads.MoPubErrorCode.NO_FILL;
 import static com.mopub.mobileads.test.support.ThreadUtils.NETWORK_DELAY;
 import static org.fest.assertions.api.Assertions.assertThat;
-import static org.fest.assertions.api.Fail.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
@@ -267,13 +271,9 @@ public class AdViewControllerTest {
         assertThat(request.getFirstHeader("User-Agent").getValue()).isEqualTo(expectedUserAgent);
         assertThat(request.getRequestLine().getUri()).isEqualTo("http://trackingUrl");
 
+        // Connections are pooled, so the connection manager must stay up for the next request
         ClientConnectionManager connectionManager = httpClient.getConnectionManager();
-        try {
-            new MethodBuilder(connectionManager, "assertStillUp").setAccessible().execute();
-            fail("should have thrown an exception");
-        } catch (InvocationTargetException expected) {
-            assertThat(expected.getCause()).isInstanceOf(IllegalStateException.class);
-        }
+        new MethodBuilder(connectionManager, "assertStillUp").setAccessible().execute();
     }
 
     // this test for impressionUrl is unnecessary (since we're catching the NullPointerException)
@@ -306,13 +306,9 @@ public class AdViewControllerTest {
         assertThat(request.getFirstHeader("User-Agent").getValue()).isEqualTo(expectedUserAgent);
         assertThat(request.getRequestLine().getUri()).isEqualTo("http://clickUrl");
 
+        // Connections are pooled, so the connection manager must stay up for the next request
         ClientConnectionManager connectionManager = httpClient.getConnectionManager();
-        try {
-            new MethodBuilder(connectionManager, "assertStillUp").setAccessible().execute();
-            fail("should have thrown an exception");
-        } catch (InvocationTargetException expected) {
-            assertThat(expected.getCause()).isInstanceOf(IllegalStateException.class);
-        }
+        new MethodBuilder(connectionManager, "assertStillUp").setAccessible().execute();
     }
 
     // this test for clickthroughUrl is unnecessary (since we're catching the NullPointerException)
@@ -629,4 +625,132 @@ public class AdViewControllerTest {
         assertThat(layoutParams.height).isEqualTo(FrameLayout.LayoutParams.WRAP_CONTENT);
         assertThat(layoutParams.gravity).isEqualTo(Gravity.CENTER);
     }
+
+    @Test
+    public void scheduleRefreshTimer_withRefreshPrefetchLeadTime_shouldPrefetchBeforeRefreshing() throws Exception {
+        stubGooglePlayServicesNotLinked();
+        response.addHeader("X-Refreshtime", "30");
+        subject.configureUsingHttpResponse(response);
+        subject.setAdUnitId("adUnitId");
+        subject.setRefreshPrefetchLeadTime(5000);
+        Robolectric.pauseMainLooper();
+
+        subject.scheduleRefreshTimerIfEnabled();
+        assertThat(Robolectric.getUiThreadScheduler().enqueuedTaskCount()).isEqualTo(2);
+
+        Robolectric.idleMainLooper(25000 - 1);
+        verify(adFetcher, never()).prefetchAdForUrl(anyString());
+
+        Robolectric.idleMainLooper(1);
+        verify(adFetcher).prefetchAdForUrl(anyString());
+        assertThat(Robolectric.getUiThreadScheduler().enqueuedTaskCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void adPrefetched_withHtmlBanner_shouldNotRenderCreativeUntilRefresh() throws Exception {
+        Map<String, String> paramsMap = createParamsMap(AdTypeTranslator.CustomEventType.HTML_BANNER.toString());
+        AdConfiguration prefetchAdConfiguration = new AdConfiguration(null);
+        response.addHeader("X-Clickthrough", "http://prefetchedClickUrl");
+        prefetchAdConfiguration.addHttpResponse(response);
+
+        subject.adPrefetched(new AdLoadTask.CustomEventAdLoadTask(subject, paramsMap), prefetchAdConfiguration);
+
+        verify(moPubView, never()).loadCustomEvent(any(Map.class));
+        verify(moPubView, never()).prefetchCustomEvent(any(Map.class), any(CustomEventBannerAdapter.PrefetchListener.class));
+        assertThat(subject.getClickthroughUrl()).isNull();
+
+        assertThat(subject.showPrefetchedAd()).isTrue();
+
+        verify(moPubView).loadCustomEvent(eq(paramsMap));
+        assertThat(subject.getClickthroughUrl()).isEqualTo("http://prefetchedClickUrl");
+        assertThat(subject.getPrefetchedAd()).isNull();
+    }
+
+    @Test
+    public void adPrefetched_withNativeBanner_shouldLoadOffscreenAndSwapInOnRefresh() throws Exception {
+        Map<String, String> paramsMap = createParamsMap("com.mopub.mobileads.SomeNetworkBanner");
+        CustomEventBannerAdapter adapter = mock(CustomEventBannerAdapter.class);
+        when(moPubView.prefetchCustomEvent(eq(paramsMap), any(CustomEventBannerAdapter.PrefetchListener.class))).thenReturn(adapter);
+
+        subject.adPrefetched(new AdLoadTask.CustomEventAdLoadTask(subject, paramsMap), new AdConfiguration(null));
+
+        verify(moPubView).prefetchCustomEvent(eq(paramsMap), any(CustomEventBannerAdapter.PrefetchListener.class));
+        verify(moPubView, never()).showPrefetchedBanner(any(CustomEventBannerAdapter.class));
+
+        when(adapter.hasPrefetchedBanner()).thenReturn(true);
+        assertThat(subject.showPrefetchedAd()).isTrue();
+
+        verify(moPubView).showPrefetchedBanner(eq(adapter));
+        verify(moPubView, never()).loadCustomEvent(any(Map.class));
+        verify(adapter, never()).invalidate();
+    }
+
+    @Test
+    public void showPrefetchedAd_whenOffscreenBannerStillLoading_shouldDiscardItAndReturnFalse() throws Exception {
+        Map<String, String> paramsMap = createParamsMap("com.mopub.mobileads.SomeNetworkBanner");
+        CustomEventBannerAdapter adapter = mock(CustomEventBannerAdapter.class);
+        when(moPubView.prefetchCustomEvent(eq(paramsMap), any(CustomEventBannerAdapter.PrefetchListener.class))).thenReturn(adapter);
+        subject.adPrefetched(new AdLoadTask.CustomEventAdLoadTask(subject, paramsMap), new AdConfiguration(null));
+
+        assertThat(subject.showPrefetchedAd()).isFalse();
+
+        verify(adapter).invalidate();
+        verify(moPubView, never()).showPrefetchedBanner(any(CustomEventBannerAdapter.class));
+        assertThat(subject.getPrefetchedAd()).isNull();
+    }
+
+    @Test
+    public void showPrefetchedAd_whenPrefetchedAdHasExpired_shouldDiscardItWithoutShowingIt() throws Exception {
+        Map<String, String> paramsMap = createParamsMap("com.mopub.mobileads.SomeNetworkBanner");
+        CustomEventBannerAdapter adapter = mock(CustomEventBannerAdapter.class);
+        when(adapter.hasPrefetchedBanner()).thenReturn(true);
+        when(moPubView.prefetchCustomEvent(eq(paramsMap), any(CustomEventBannerAdapter.PrefetchListener.class))).thenReturn(adapter);
+        Date now = DateAndTime.now();
+        subject.adPrefetched(new AdLoadTask.CustomEventAdLoadTask(subject, paramsMap), new AdConfiguration(null));
+
+        TestDateAndTime.getInstance().setNow(new Date(now.getTime() + AdViewController.PREFETCHED_AD_EXPIRATION_MILLISECONDS + 1));
+
+        assertThat(subject.showPrefetchedAd()).isFalse();
+        verify(adapter).invalidate();
+        verify(moPubView, never()).showPrefetchedBanner(any(CustomEventBannerAdapter.class));
+    }
+
+    @Test
+    public void cleanup_shouldDiscardPrefetchedAdWithoutShowingIt() throws Exception {
+        Map<String, String> paramsMap = createParamsMap("com.mopub.mobileads.SomeNetworkBanner");
+        CustomEventBannerAdapter adapter = mock(CustomEventBannerAdapter.class);
+        when(moPubView.prefetchCustomEvent(eq(paramsMap), any(CustomEventBannerAdapter.PrefetchListener.class))).thenReturn(adapter);
+        subject.adPrefetched(new AdLoadTask.CustomEventAdLoadTask(subject, paramsMap), new AdConfiguration(null));
+
+        subject.cleanup();
+
+        verify(adapter).invalidate();
+        verify(adapter, never()).showPrefetchedBanner();
+        verify(adFetcher).cancelPrefetch();
+    }
+
+    @Test
+    public void loadNonJavascript_shouldDiscardPrefetchedAd() throws Exception {
+        Map<String, String> paramsMap = createParamsMap(AdTypeTranslator.CustomEventType.HTML_BANNER.toString());
+        subject.adPrefetched(new AdLoadTask.CustomEventAdLoadTask(subject, paramsMap), new AdConfiguration(null));
+
+        subject.loadNonJavascript("http://www.mopub.com/ad");
+
+        assertThat(subject.getPrefetchedAd()).isNull();
+        assertThat(subject.showPrefetchedAd()).isFalse();
+    }
+
+    private static Map<String, String> createParamsMap(final String customEventName) {
+        Map<String, String> paramsMap = new HashMap<String, String>();
+        paramsMap.put(ResponseHeader.CUSTOM_EVENT_NAME.getKey(), customEventName);
+        paramsMap.put(ResponseHeader.CUSTOM_EVENT_DATA.getKey(), "{}");
+        return paramsMap;
+    }
+
+    private void stubGooglePlayServicesNotLinked() throws Exception {
+        GpsHelper.setClassNamesForTesting();
+        when(methodBuilder.setStatic(any(Class.class))).thenReturn(methodBuilder);
+        when(methodBuilder.addParam(any(Class.class), any())).thenReturn(methodBuilder);
+        when(methodBuilder.execute()).thenReturn(GpsHelper.GOOGLE_PLAY_SUCCESS_CODE + 1);
+    }
 }
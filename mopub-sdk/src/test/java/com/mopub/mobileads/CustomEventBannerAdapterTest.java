@@ -271,6 +271,47 @@ public class CustomEventBannerAdapterTest {
         verify(moPubView, never()).trackNativeImpression();
     }
 
+    @Test
+    public void onBannerLoaded_whenPrefetching_shouldHoldBannerWithoutSignalingMoPubView() throws Exception {
+        CustomEventBannerAdapter.PrefetchListener prefetchListener = mock(CustomEventBannerAdapter.PrefetchListener.class);
+        subject = new CustomEventBannerAdapter(moPubView, CLASS_NAME, JSON_PARAMS, prefetchListener);
+        View view = new View(new Activity());
+
+        subject.onBannerLoaded(view);
+
+        verify(prefetchListener).onPrefetchedBannerLoaded(eq(subject));
+        assertThat(subject.hasPrefetchedBanner()).isTrue();
+        verify(moPubView, never()).nativeAdLoaded();
+        verify(moPubView, never()).setAdContentView(any(View.class));
+        verify(moPubView, never()).trackNativeImpression();
+    }
+
+    @Test
+    public void showPrefetchedBanner_shouldSignalMoPubViewAndTrackImpression() throws Exception {
+        CustomEventBannerAdapter.PrefetchListener prefetchListener = mock(CustomEventBannerAdapter.PrefetchListener.class);
+        subject = new CustomEventBannerAdapter(moPubView, CLASS_NAME, JSON_PARAMS, prefetchListener);
+        View view = new View(new Activity());
+        subject.onBannerLoaded(view);
+
+        subject.showPrefetchedBanner();
+
+        verify(moPubView).nativeAdLoaded();
+        verify(moPubView).setAdContentView(eq(view));
+        verify(moPubView).trackNativeImpression();
+        assertThat(subject.hasPrefetchedBanner()).isFalse();
+    }
+
+    @Test
+    public void onBannerFailed_whenPrefetching_shouldNotifyPrefetchListenerInsteadOfLoadingFailUrl() throws Exception {
+        CustomEventBannerAdapter.PrefetchListener prefetchListener = mock(CustomEventBannerAdapter.PrefetchListener.class);
+        subject = new CustomEventBannerAdapter(moPubView, CLASS_NAME, JSON_PARAMS, prefetchListener);
+
+        subject.onBannerFailed(null);
+
+        verify(prefetchListener).onPrefetchedBannerFailed(eq(subject), eq(UNSPECIFIED));
+        verify(moPubView, never()).loadFailUrl(any(MoPubErrorCode.class));
+    }
+
     @Test
     public void onBannerFailed_shouldLoadFailUrl() throws Exception {
         subject.onBannerFailed(ADAPTER_CONFIGURATION_ERROR);
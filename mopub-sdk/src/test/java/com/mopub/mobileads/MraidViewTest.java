@@ -229,6 +229,64 @@ public class MraidViewTest {
         verify(mraidViewSpy).loadDataWithBaseURL(anyString(), eq(expectedResult), eq("text/html"), eq("UTF-8"), anyString());
     }
 
+    @Test
+    public void loadUrl_shouldDownloadInBackgroundAndLoadHtmlWithMraidJs() throws Exception {
+        Robolectric.getBackgroundScheduler().pause();
+        Robolectric.addPendingHttpResponse(200, "<html><head></head></html>");
+        String expectedResult = "<html><head><script>" + MraidJavascript.JAVASCRIPT_SOURCE + "</script></head></html>";
+
+        bannerSubject.loadUrl("http://www.mopub.com/mraid");
+
+        assertThat(shadowOf(bannerSubject).getLastLoadDataWithBaseURL()).isNull();
+
+        Robolectric.runBackgroundTasks();
+        Robolectric.runUiThreadTasks();
+
+        assertThat(shadowOf(bannerSubject).getLastLoadDataWithBaseURL().data).isEqualTo(expectedResult);
+    }
+
+    @Test
+    public void loadUrl_withErrorResponse_shouldNotifyOnFailure() throws Exception {
+        MraidView.MraidListener mraidListener = mock(MraidView.MraidListener.class);
+        bannerSubject.setMraidListener(mraidListener);
+        Robolectric.addPendingHttpResponse(500, "");
+
+        bannerSubject.loadUrl("http://www.mopub.com/mraid");
+        Robolectric.runBackgroundTasks();
+        Robolectric.runUiThreadTasks();
+
+        verify(mraidListener).onFailure(bannerSubject);
+        assertThat(shadowOf(bannerSubject).getLastLoadDataWithBaseURL()).isNull();
+    }
+
+    @Test
+    public void loadUrl_withInvalidUrl_shouldNotifyOnFailure() throws Exception {
+        MraidView.MraidListener mraidListener = mock(MraidView.MraidListener.class);
+        bannerSubject.setMraidListener(mraidListener);
+
+        bannerSubject.loadUrl("http://www.mopub.com/mraid?bad=|");
+        Robolectric.runBackgroundTasks();
+        Robolectric.runUiThreadTasks();
+
+        verify(mraidListener).onFailure(bannerSubject);
+    }
+
+    @Test
+    public void destroy_whileDownloading_shouldNotLoadHtmlOrNotifyListener() throws Exception {
+        MraidView.MraidListener mraidListener = mock(MraidView.MraidListener.class);
+        bannerSubject.setMraidListener(mraidListener);
+        Robolectric.getBackgroundScheduler().pause();
+        Robolectric.addPendingHttpResponse(200, "<html><head></head></html>");
+
+        bannerSubject.loadUrl("http://www.mopub.com/mraid");
+        bannerSubject.destroy();
+        Robolectric.runBackgroundTasks();
+        Robolectric.runUiThreadTasks();
+
+        verify(mraidListener, never()).onFailure(any(MraidView.class));
+        assertThat(shadowOf(bannerSubject).getLastLoadDataWithBaseURL()).isNull();
+    }
+
     @Test
     public void shouldOverrideUrlLoading_withMraidCommandCreateCalendarEvent_forBanners_withUserClick_shouldOpenNewCalendarIntent() throws Exception {
         String url = "mraid://createCalendarEvent?description=hi&start=1";
@@ -5,12 +5,14 @@ import android.app.Activity;
 import com.mopub.common.CacheService;
 import com.mopub.common.CacheServiceTest;
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.test.support.TestHttpCacheServer;
 import com.mopub.mobileads.test.support.TestHttpResponseWithHeaders;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.robolectric.Robolectric;
@@ -122,6 +124,54 @@ public class VastVideoDownloadTaskTest {
         verify(mVastVideoDownloadTaskListener).onComplete(false);
     }
 
+    @Test
+    public void execute_withFreshCachedVideo_shouldSignalSuccessWithoutDownloading() throws Exception {
+        Robolectric.clearPendingHttpResponses();
+        final TestHttpCacheServer server =
+                new TestHttpCacheServer(videoUrl, "video_data", "\"v1\"", "max-age=60");
+        Robolectric.getFakeHttpLayer().addHttpResponseRule(server);
+
+        assertThat(downloadVideo()).isTrue();
+        assertThat(downloadVideo()).isTrue();
+
+        assertThat(server.getOkCount()).isEqualTo(1);
+        assertThat(Robolectric.getFakeHttpLayer().getSentHttpRequestInfos()).hasSize(1);
+    }
+
+    @Test
+    public void execute_withStaleCachedVideo_shouldRevalidateWithoutDownloadingAgain() throws Exception {
+        Robolectric.clearPendingHttpResponses();
+        final TestHttpCacheServer server =
+                new TestHttpCacheServer(videoUrl, "video_data", "\"v1\"", "no-cache");
+        Robolectric.getFakeHttpLayer().addHttpResponseRule(server);
+
+        assertThat(downloadVideo()).isTrue();
+        server.setCacheControl("max-age=60");
+        assertThat(downloadVideo()).isTrue();
+
+        assertThat(server.getLastRequest().getFirstHeader("If-None-Match").getValue())
+                .isEqualTo("\"v1\"");
+        assertThat(server.getOkCount()).isEqualTo(1);
+        assertThat(server.getNotModifiedCount()).isEqualTo(1);
+        assertThat(CacheService.getCachePolicyDiskCache(videoUrl)
+                .isFresh(System.currentTimeMillis())).isTrue();
+        assertThat(CacheService.getFromDiskCache(videoUrl)).isEqualTo("video_data".getBytes());
+    }
+
+    @Test
+    public void execute_withStaleCachedVideo_whenRevalidationFails_shouldSignalSuccessAndKeepCachedVideo() throws Exception {
+        Robolectric.clearPendingHttpResponses();
+        Robolectric.getFakeHttpLayer().addHttpResponseRule(
+                new TestHttpCacheServer(videoUrl, "video_data", "\"v1\"", "no-cache"));
+        assertThat(downloadVideo()).isTrue();
+
+        Robolectric.getFakeHttpLayer().clearHttpResponseRules();
+        Robolectric.addPendingHttpResponse(500, "error_page");
+
+        assertThat(downloadVideo()).isTrue();
+        assertThat(CacheService.getFromDiskCache(videoUrl)).isEqualTo("video_data".getBytes());
+    }
+
     @Test
     public void onPostExecute_whenOnDownloadCompleteListenerIsNull_shouldNotBlowUp() throws Exception {
         subject = new VastVideoDownloadTask(null);
@@ -132,6 +182,15 @@ public class VastVideoDownloadTaskTest {
         // pass
     }
 
+    private boolean downloadVideo() {
+        final VastVideoDownloadTask.VastVideoDownloadTaskListener listener =
+                mock(VastVideoDownloadTask.VastVideoDownloadTaskListener.class);
+        new VastVideoDownloadTask(listener).execute(videoUrl);
+        final ArgumentCaptor<Boolean> successCaptor = ArgumentCaptor.forClass(Boolean.class);
+        verify(listener).onComplete(successCaptor.capture());
+        return successCaptor.getValue();
+    }
+
     private static String createRandomString(int size) {
         byte[] buffer = new byte[size];
         new Random().nextBytes(buffer);
@@ -153,6 +153,30 @@ public class VastVideoInterstitialTest extends ResponseBodyInterstitialTest {
         verify(vastManager).prepareVastVideoConfiguration(eq(expectedResponse), eq((VastVideoInterstitial) subject));
     }
 
+    @Test
+    public void loadInterstitial_whileDiskCacheIsOpening_shouldProcessVastOnceItIsOpen() throws Exception {
+        Robolectric.getBackgroundScheduler().pause();
+
+        subject.loadInterstitial(context, customEventInterstitialListener, localExtras, serverExtras);
+        verify(vastManager, never()).prepareVastVideoConfiguration(anyString(), any(VastManagerListener.class));
+
+        Robolectric.getBackgroundScheduler().unPause();
+
+        CacheServiceTest.assertDiskCacheIsEmpty();
+        verify(vastManager).prepareVastVideoConfiguration(eq(expectedResponse), eq((VastVideoInterstitial) subject));
+    }
+
+    @Test
+    public void onInvalidate_whileDiskCacheIsOpening_shouldNotProcessVast() throws Exception {
+        Robolectric.getBackgroundScheduler().pause();
+        subject.loadInterstitial(context, customEventInterstitialListener, localExtras, serverExtras);
+
+        subject.onInvalidate();
+        Robolectric.getBackgroundScheduler().unPause();
+
+        verify(vastManager, never()).prepareVastVideoConfiguration(anyString(), any(VastManagerListener.class));
+    }
+
     @Test
     public void loadInterstitial_whenServerExtrasDoesNotContainResponse_shouldSignalOnInterstitialFailed() throws Exception {
         serverExtras.remove(HTML_RESPONSE_BODY_KEY);
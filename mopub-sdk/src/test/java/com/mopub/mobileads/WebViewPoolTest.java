@@ -0,0 +1,210 @@
+package com.mopub.mobileads;
+
+import android.app.Activity;
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Build.VERSION_CODES;
+import android.webkit.WebViewClient;
+
+import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.mobileads.factories.HtmlBannerWebViewFactory;
+import com.mopub.mobileads.factories.HtmlInterstitialWebViewFactory;
+import com.mopub.mobileads.util.WebViews;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.mopub.mobileads.CustomEventBanner.CustomEventBannerListener;
+import static com.mopub.mobileads.CustomEventInterstitial.CustomEventInterstitialListener;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.robolectric.Robolectric.shadowOf;
+
+@RunWith(SdkTestRunner.class)
+public class WebViewPoolTest {
+    private Activity context;
+    private AdConfiguration adConfiguration;
+    private CustomEventBannerListener customEventBannerListener;
+
+    @Before
+    public void setUp() throws Exception {
+        context = new Activity();
+        adConfiguration = mock(AdConfiguration.class);
+        customEventBannerListener = mock(CustomEventBannerListener.class);
+        setMemoryClass(256);
+    }
+
+    @Test
+    public void create_withEmptyPool_shouldColdCreateAndPrewarm() throws Exception {
+        final HtmlBannerWebView webView = createHtmlBannerWebView();
+
+        assertThat(webView).isNotNull();
+        assertThat(WebViewPool.getStats().coldCreates).isEqualTo(1);
+        assertThat(WebViewPool.getStats().idleWebViews).isEqualTo(0);
+
+        ShadowLooper.idleMainLooper(WebViewPool.PREWARM_DELAY_MILLIS);
+
+        assertThat(WebViewPool.getStats().idleWebViews).isEqualTo(1);
+    }
+
+    @Test
+    public void create_withIdleWebView_shouldReturnPrewarmedWebView() throws Exception {
+        final HtmlBannerWebView first = createHtmlBannerWebView();
+        ShadowLooper.idleMainLooper(WebViewPool.PREWARM_DELAY_MILLIS);
+
+        final HtmlBannerWebView webView = createHtmlBannerWebView();
+
+        assertThat(webView).isNotSameAs(first);
+        assertThat(webView.mIsDestroyed).isFalse();
+        assertThat(shadowOf(webView).getWebViewClient()).isInstanceOf(HtmlWebViewClient.class);
+        assertThat(WebViewPool.getStats().hits).isEqualTo(1);
+        assertThat(WebViewPool.getStats().coldCreates).isEqualTo(1);
+    }
+
+    @Test
+    public void acquire_shouldOnlyReturnWebViewsOfTheRequestedType() throws Exception {
+        createHtmlBannerWebView();
+        ShadowLooper.idleMainLooper(WebViewPool.PREWARM_DELAY_MILLIS);
+
+        assertThat(WebViewPool.acquire(HtmlInterstitialWebView.class)).isNull();
+        assertThat(WebViewPool.acquire(HtmlBannerWebView.class)).isNotNull();
+    }
+
+    @Test
+    public void destroy_shouldScrubWebViewAndReturnItToPoolOnceBlankPageHasLoaded() throws Exception {
+        final HtmlBannerWebView webView = createHtmlBannerWebView();
+
+        webView.destroy();
+
+        assertThat(webView.mIsDestroyed).isTrue();
+        assertThat(shadowOf(webView).wasDestroyCalled()).isFalse();
+        assertThat(shadowOf(webView).getLastLoadedUrl()).isEqualTo("about:blank");
+        assertThat(WebViewPool.getStats().idleWebViews).isEqualTo(0);
+
+        final WebViewClient scrubbingClient = shadowOf(webView).getWebViewClient();
+        assertThat(scrubbingClient).isNotInstanceOf(HtmlWebViewClient.class);
+        scrubbingClient.onPageFinished(webView, "about:blank");
+
+        assertThat(shadowOf(webView).wasClearHistoryCalled()).isTrue();
+        assertThat(WebViewPool.getStats().idleWebViews).isEqualTo(1);
+        assertThat(WebViewPool.getStats().recycled).isEqualTo(1);
+        assertThat(createHtmlBannerWebView()).isSameAs(webView);
+    }
+
+    @Test
+    public void create_withPrewarmedWebView_shouldPointWebViewAtCallingActivity() throws Exception {
+        createHtmlBannerWebView();
+        ShadowLooper.idleMainLooper(WebViewPool.PREWARM_DELAY_MILLIS);
+
+        final HtmlBannerWebView webView = createHtmlBannerWebView();
+
+        assertThat(WebViewPool.getStats().hits).isEqualTo(1);
+        assertThat(WebViews.getHostContext(webView)).isSameAs(context);
+    }
+
+    @Test
+    public void create_withRecycledWebView_shouldPointWebViewAtNewActivity() throws Exception {
+        final HtmlBannerWebView webView = createHtmlBannerWebView();
+        webView.destroy();
+        shadowOf(webView).getWebViewClient().onPageFinished(webView, "about:blank");
+
+        assertThat(WebViews.getHostContext(webView)).isSameAs(context.getApplicationContext());
+
+        context = new Activity();
+        assertThat(createHtmlBannerWebView()).isSameAs(webView);
+
+        assertThat(WebViews.getHostContext(webView)).isSameAs(context);
+    }
+
+    @Test
+    public void destroy_withPoolFull_shouldDestroyWebView() throws Exception {
+        final HtmlBannerWebView first = createHtmlBannerWebView();
+        final HtmlBannerWebView second = createHtmlBannerWebView();
+        final HtmlBannerWebView third = createHtmlBannerWebView();
+        final HtmlBannerWebView fourth = createHtmlBannerWebView();
+
+        first.destroy();
+        second.destroy();
+        third.destroy();
+        fourth.destroy();
+
+        assertThat(shadowOf(third).wasDestroyCalled()).isFalse();
+        assertThat(shadowOf(fourth).wasDestroyCalled()).isTrue();
+    }
+
+    @Test
+    public void destroy_withLowMemoryClass_shouldNotPoolWebViews() throws Exception {
+        setMemoryClass(32);
+        final HtmlBannerWebView webView = createHtmlBannerWebView();
+        ShadowLooper.idleMainLooper(WebViewPool.PREWARM_DELAY_MILLIS);
+
+        webView.destroy();
+
+        assertThat(shadowOf(webView).wasDestroyCalled()).isTrue();
+        assertThat(WebViewPool.getStats().idleWebViews).isEqualTo(0);
+    }
+
+    @Test
+    public void destroy_withUnregisteredType_shouldDestroyWebView() throws Exception {
+        final BaseWebView webView = new BaseWebView(context);
+
+        webView.destroy();
+
+        assertThat(shadowOf(webView).wasDestroyCalled()).isTrue();
+    }
+
+    @Config(reportSdk = VERSION_CODES.GINGERBREAD_MR1)
+    @Test
+    public void destroy_withHtmlInterstitialWebViewBeforeHoneycomb_shouldDestroyWebView() throws Exception {
+        final HtmlInterstitialWebView webView = new HtmlInterstitialWebViewFactory().internalCreate(
+                context, mock(CustomEventInterstitialListener.class), false, null, null, adConfiguration);
+
+        webView.destroy();
+
+        assertThat(shadowOf(webView).wasDestroyCalled()).isTrue();
+    }
+
+    @Test
+    public void mraidViewReset_withPrewarmedView_shouldRebindForNewAd() throws Exception {
+        final MraidView webView = new MraidView(context, null);
+        final MraidDisplayController prewarmedDisplayController = webView.getDisplayController();
+
+        webView.reset(context, adConfiguration, MraidView.ExpansionStyle.DISABLED,
+                MraidView.NativeCloseButtonStyle.ALWAYS_VISIBLE, MraidView.PlacementType.INTERSTITIAL);
+
+        assertThat(webView.getAdConfiguration()).isSameAs(adConfiguration);
+        assertThat(webView.getDisplayController()).isNotSameAs(prewarmedDisplayController);
+        assertThat(webView.mIsDestroyed).isFalse();
+    }
+
+    @Test
+    public void onTrimMemory_withRunningLow_shouldDrainPool() throws Exception {
+        createHtmlBannerWebView();
+        ShadowLooper.idleMainLooper(WebViewPool.PREWARM_DELAY_MILLIS);
+
+        WebViewPool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertThat(WebViewPool.getStats().idleWebViews).isEqualTo(1);
+
+        WebViewPool.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        assertThat(WebViewPool.getStats().idleWebViews).isEqualTo(0);
+        assertThat(WebViewPool.getStats().drained).isEqualTo(1);
+        assertThat(WebViewPool.acquire(HtmlBannerWebView.class)).isNull();
+    }
+
+    private HtmlBannerWebView createHtmlBannerWebView() {
+        return new HtmlBannerWebViewFactory().internalCreate(context, customEventBannerListener,
+                false, null, null, adConfiguration);
+    }
+
+    private static void setMemoryClass(final int memoryClass) {
+        final ActivityManager activityManager = (ActivityManager) Robolectric.application
+                .getSystemService(Context.ACTIVITY_SERVICE);
+        shadowOf(activityManager).setMemoryClass(memoryClass);
+    }
+}
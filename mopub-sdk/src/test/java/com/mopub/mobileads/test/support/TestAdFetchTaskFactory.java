@@ -54,4 +54,9 @@ public class TestAdFetchTaskFactory extends AdFetchTaskFactory {
     protected AdFetchTask internalCreate(TaskTracker taskTracker, AdViewController adViewController, String userAgent, int timeoutMilliseconds) {
         return mockAdFetchTask;
     }
+
+    @Override
+    protected AdFetchTask internalCreateForPrefetch(TaskTracker taskTracker, AdViewController adViewController, String userAgent, int timeoutMilliseconds) {
+        return mockAdFetchTask;
+    }
 }
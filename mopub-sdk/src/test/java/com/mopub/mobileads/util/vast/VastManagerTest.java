@@ -19,6 +19,7 @@ import org.robolectric.tester.org.apache.http.FakeHttpLayer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.Semaphore;
 
 import static com.mopub.mobileads.util.vast.VastManager.VastManagerListener;
@@ -27,7 +28,6 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
 @RunWith(SdkTestRunner.class)
 public class VastManagerTest {
@@ -218,6 +218,22 @@ public class VastManagerTest {
                 .isEqualTo(CacheService.getFilePathDiskCache("https://s3.amazonaws.com/mopub-vast/tapad-video.mp4"));
     }
 
+    @Test
+    public void prepareVastVideoConfiguration_withEmptyVideoInDiskCache_shouldDownloadVideo() throws Exception {
+        mFakeHttpLayer.addPendingHttpResponse(200, TEST_NESTED_VAST_XML_STRING);
+        mFakeHttpLayer.addPendingHttpResponse(200, "video_data");
+
+        CacheService.putToDiskCache("https://s3.amazonaws.com/mopub-vast/tapad-video.mp4", new byte[0]);
+
+        prepareVastVideoConfiguration();
+        semaphore.acquire();
+
+        assertThat(mFakeHttpLayer.getSentHttpRequestInfos().size()).isEqualTo(2);
+        verify(vastManagerListener).onVastVideoConfigurationPrepared(any(VastVideoConfiguration.class));
+        assertThat(CacheService.getContentLengthDiskCache("https://s3.amazonaws.com/mopub-vast/tapad-video.mp4"))
+                .isEqualTo("video_data".length());
+    }
+
     @Test
     public void prepareVastVideoConfiguration_withUninitializedDiskCache_shouldReturnNull() throws Exception {
         CacheService.clearAndNullCaches();
@@ -250,57 +266,57 @@ public class VastManagerTest {
 
     @Test
     public void getBestMediaFileUrl_shouldReturnMediaFileUrl() throws Exception {
-        final VastXmlManager.MediaXmlManager mediaXmlManager = initializeMediaXmlManagerMock(300, 250, "video/mp4", "video_url");
+        final VastDocument.MediaFile mediaFile = createMediaFile(300, 250, "video/mp4", "video_url");
 
-        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager));
+        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile));
         assertThat(bestMediaFileUrl).isEqualTo("video_url");
     }
 
     @Test
     public void getBestMediaFileUrl_withNullMediaType_shouldReturnNull() throws Exception {
-        final VastXmlManager.MediaXmlManager mediaXmlManager = initializeMediaXmlManagerMock(300, 250, null, "video_url");
+        final VastDocument.MediaFile mediaFile = createMediaFile(300, 250, null, "video_url");
 
-        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager));
+        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile));
         assertThat(bestMediaFileUrl).isNull();
     }
 
     @Test
     public void getBestMediaFileUrl_withIncompatibleMediaType_shouldReturnNull() throws Exception {
-        final VastXmlManager.MediaXmlManager mediaXmlManager = initializeMediaXmlManagerMock(300, 250, "video/rubbish", "video_url");
+        final VastDocument.MediaFile mediaFile = createMediaFile(300, 250, "video/rubbish", "video_url");
 
-        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager));
+        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile));
         assertThat(bestMediaFileUrl).isNull();
     }
 
     @Test
     public void getBestMediaFileUrl_withNullMediaUrl_shouldReturnNull() throws Exception {
-        final VastXmlManager.MediaXmlManager mediaXmlManager = initializeMediaXmlManagerMock(300, 250, "video/mp4", null);
+        final VastDocument.MediaFile mediaFile = createMediaFile(300, 250, "video/mp4", null);
 
-        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager));
+        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile));
         assertThat(bestMediaFileUrl).isNull();
     }
 
     @Test
     public void getBestMediaFileUrl_withNullDimension_shouldReturnMediaFileUrl() throws Exception {
-        final VastXmlManager.MediaXmlManager mediaXmlManager = initializeMediaXmlManagerMock(null, 250, "video/mp4", "video_url");
+        final VastDocument.MediaFile mediaFile = createMediaFile(null, 250, "video/mp4", "video_url");
 
-        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager));
+        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile));
         assertThat(bestMediaFileUrl).isEqualTo("video_url");
     }
 
     @Test
     public void getBestMediaFileUrl_withZeroDimension_shouldReturnMediaFileUrl() throws Exception {
-        final VastXmlManager.MediaXmlManager mediaXmlManager = initializeMediaXmlManagerMock(0, 250, "video/mp4", "video_url");
+        final VastDocument.MediaFile mediaFile = createMediaFile(0, 250, "video/mp4", "video_url");
 
-        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager));
+        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile));
         assertThat(bestMediaFileUrl).isEqualTo("video_url");
     }
 
     @Test
     public void getBestMediaFileUrl_withNegativeDimension_shouldReturnMediaFileUrl() throws Exception {
-        final VastXmlManager.MediaXmlManager mediaXmlManager = initializeMediaXmlManagerMock(-1, 250, "video/mp4", "video_url");
+        final VastDocument.MediaFile mediaFile = createMediaFile(-1, 250, "video/mp4", "video_url");
 
-        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager));
+        final String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile));
         assertThat(bestMediaFileUrl).isEqualTo("video_url");
     }
 
@@ -312,11 +328,11 @@ public class VastManagerTest {
         assertThat(display.getHeight()).isEqualTo(800);
 
         // Triple screen size
-        final VastXmlManager.MediaXmlManager mediaXmlManager1 = initializeMediaXmlManagerMock(2400, 1440, "video/mp4", "video_url1");
+        final VastDocument.MediaFile mediaFile1 = createMediaFile(2400, 1440, "video/mp4", "video_url1");
         // Double screen size
-        final VastXmlManager.MediaXmlManager mediaXmlManager2 = initializeMediaXmlManagerMock(1600, 960, "video/mp4", "video_url2");
+        final VastDocument.MediaFile mediaFile2 = createMediaFile(1600, 960, "video/mp4", "video_url2");
 
-        String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager1, mediaXmlManager2));
+        String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile1, mediaFile2));
         assertThat(bestMediaFileUrl).isEqualTo("video_url2");
     }
 
@@ -328,11 +344,11 @@ public class VastManagerTest {
         assertThat(display.getHeight()).isEqualTo(800);
 
         // Triple screen size
-        final VastXmlManager.MediaXmlManager mediaXmlManager1 = initializeMediaXmlManagerMock(2400, 1440, "video/mp4", "video_url1");
+        final VastDocument.MediaFile mediaFile1 = createMediaFile(2400, 1440, "video/mp4", "video_url1");
         // Half screen size
-        final VastXmlManager.MediaXmlManager mediaXmlManager2 = initializeMediaXmlManagerMock(400, 240, "video/mp4", "video_url2");
+        final VastDocument.MediaFile mediaFile2 = createMediaFile(400, 240, "video/mp4", "video_url2");
 
-        String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager1, mediaXmlManager2));
+        String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile1, mediaFile2));
         assertThat(bestMediaFileUrl).isEqualTo("video_url2");
     }
 
@@ -344,11 +360,11 @@ public class VastManagerTest {
         assertThat(display.getHeight()).isEqualTo(800);
 
         // Landscape
-        final VastXmlManager.MediaXmlManager mediaXmlManager1 = initializeMediaXmlManagerMock(400, 240, "video/mp4", "video_url1");
+        final VastDocument.MediaFile mediaFile1 = createMediaFile(400, 240, "video/mp4", "video_url1");
         // Portrait
-        final VastXmlManager.MediaXmlManager mediaXmlManager2 = initializeMediaXmlManagerMock(240, 400, "video/mp4", "video_url2");
+        final VastDocument.MediaFile mediaFile2 = createMediaFile(240, 400, "video/mp4", "video_url2");
 
-        String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager1, mediaXmlManager2));
+        String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile1, mediaFile2));
         assertThat(bestMediaFileUrl).isEqualTo("video_url1");
     }
 
@@ -360,11 +376,11 @@ public class VastManagerTest {
         assertThat(display.getHeight()).isEqualTo(800);
 
         // Invalid media type
-        final VastXmlManager.MediaXmlManager mediaXmlManager1 = initializeMediaXmlManagerMock(800, 480, "video/invalid", "video_url1");
+        final VastDocument.MediaFile mediaFile1 = createMediaFile(800, 480, "video/invalid", "video_url1");
         // Null dimension
-        final VastXmlManager.MediaXmlManager mediaXmlManager2 = initializeMediaXmlManagerMock(null, null, "video/mp4", "video_url2");
+        final VastDocument.MediaFile mediaFile2 = createMediaFile(null, null, "video/mp4", "video_url2");
 
-        String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager1, mediaXmlManager2));
+        String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile1, mediaFile2));
         assertThat(bestMediaFileUrl).isEqualTo("video_url2");
     }
 
@@ -375,67 +391,67 @@ public class VastManagerTest {
         assertThat(display.getWidth()).isEqualTo(480);
         assertThat(display.getHeight()).isEqualTo(800);
 
-        final VastXmlManager.MediaXmlManager mediaXmlManager1 = initializeMediaXmlManagerMock(800, 480, "video/invalid", "video_url1");
-        final VastXmlManager.MediaXmlManager mediaXmlManager2 = initializeMediaXmlManagerMock(800, 480, null, "video_url2");
+        final VastDocument.MediaFile mediaFile1 = createMediaFile(800, 480, "video/invalid", "video_url1");
+        final VastDocument.MediaFile mediaFile2 = createMediaFile(800, 480, null, "video_url2");
 
-        String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaXmlManager1, mediaXmlManager2));
+        String bestMediaFileUrl = subject.getBestMediaFileUrl(Arrays.asList(mediaFile1, mediaFile2));
         assertThat(bestMediaFileUrl).isNull();
     }
 
     @Test
     public void getBestCompanionAd_shouldReturnCompanionAd() throws Exception {
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager = initializeCompanionXmlManagerMock(300, 250, "image/jpeg", "image_url");
+        final VastDocument.ImageCompanion imageCompanion = createImageCompanion(300, 250, "image/jpeg", "image_url");
 
-        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager));
-        assertCompanionAdsAreEqual(companionXmlManager, bestCompanionAd);
+        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion));
+        assertCompanionAdsAreEqual(imageCompanion, bestCompanionAd);
     }
 
     @Test
     public void getBestCompanionAd_withNullMediaType_shouldReturnNull() throws Exception {
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager = initializeCompanionXmlManagerMock(300, 250, null, "image_url");
+        final VastDocument.ImageCompanion imageCompanion = createImageCompanion(300, 250, null, "image_url");
 
-        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager));
+        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion));
         assertThat(bestCompanionAd).isNull();
     }
 
     @Test
     public void getBestCompanionAd_withIncompatibleMediaType_shouldReturnNull() throws Exception {
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager = initializeCompanionXmlManagerMock(300, 250, "image/rubbish", "image_url");
+        final VastDocument.ImageCompanion imageCompanion = createImageCompanion(300, 250, "image/rubbish", "image_url");
 
-        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager));
+        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion));
         assertThat(bestCompanionAd).isNull();
     }
 
     @Test
     public void getBestCompanionAd_withNullImageUrl_shouldReturnNull() throws Exception {
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager = initializeCompanionXmlManagerMock(300, 250, "image/png", null);
+        final VastDocument.ImageCompanion imageCompanion = createImageCompanion(300, 250, "image/png", null);
 
-        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager));
+        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion));
         assertThat(bestCompanionAd).isNull();
     }
 
     @Test
     public void getBestCompanionAd_withNullDimension_shouldReturnCompanionAd() throws Exception {
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager = initializeCompanionXmlManagerMock(null, 250, "image/png", "image_url");
+        final VastDocument.ImageCompanion imageCompanion = createImageCompanion(null, 250, "image/png", "image_url");
 
-        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager));
-        assertCompanionAdsAreEqual(companionXmlManager, bestCompanionAd);
+        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion));
+        assertCompanionAdsAreEqual(imageCompanion, bestCompanionAd);
     }
 
     @Test
     public void getBestCompanionAd_withZeroDimension_shouldReturnMediaFileUrl() throws Exception {
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager = initializeCompanionXmlManagerMock(0, 250, "image/png", "image_url");
+        final VastDocument.ImageCompanion imageCompanion = createImageCompanion(0, 250, "image/png", "image_url");
 
-        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager));
-        assertCompanionAdsAreEqual(companionXmlManager, bestCompanionAd);
+        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion));
+        assertCompanionAdsAreEqual(imageCompanion, bestCompanionAd);
     }
 
     @Test
     public void getBestCompanionAd_withNegativeDimension_shouldReturnMediaFileUrl() throws Exception {
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager = initializeCompanionXmlManagerMock(-300, 250, "image/png", "image_url");
+        final VastDocument.ImageCompanion imageCompanion = createImageCompanion(-300, 250, "image/png", "image_url");
 
-        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager));
-        assertCompanionAdsAreEqual(companionXmlManager, bestCompanionAd);
+        final VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion));
+        assertCompanionAdsAreEqual(imageCompanion, bestCompanionAd);
     }
 
     @Test
@@ -446,12 +462,12 @@ public class VastManagerTest {
         assertThat(display.getHeight()).isEqualTo(800);
 
         // Triple screen size
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager1 = initializeCompanionXmlManagerMock(2400, 1440, "image/png", "image_url1");
+        final VastDocument.ImageCompanion imageCompanion1 = createImageCompanion(2400, 1440, "image/png", "image_url1");
         // Double screen size
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager2 = initializeCompanionXmlManagerMock(1600, 960, "image/bmp", "image_url2");
+        final VastDocument.ImageCompanion imageCompanion2 = createImageCompanion(1600, 960, "image/bmp", "image_url2");
 
-        VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager1, companionXmlManager2));
-        assertCompanionAdsAreEqual(companionXmlManager2, bestCompanionAd);
+        VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion1, imageCompanion2));
+        assertCompanionAdsAreEqual(imageCompanion2, bestCompanionAd);
     }
 
     @Test
@@ -462,12 +478,12 @@ public class VastManagerTest {
         assertThat(display.getHeight()).isEqualTo(800);
 
         // Triple screen size
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager1 = initializeCompanionXmlManagerMock(2400, 1440, "image/png", "image_url1");
+        final VastDocument.ImageCompanion imageCompanion1 = createImageCompanion(2400, 1440, "image/png", "image_url1");
         // Half screen size
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager2 = initializeCompanionXmlManagerMock(400, 240, "image/bmp", "image_url2");
+        final VastDocument.ImageCompanion imageCompanion2 = createImageCompanion(400, 240, "image/bmp", "image_url2");
 
-        VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager1, companionXmlManager2));
-        assertCompanionAdsAreEqual(companionXmlManager2, bestCompanionAd);
+        VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion1, imageCompanion2));
+        assertCompanionAdsAreEqual(imageCompanion2, bestCompanionAd);
     }
 
     @Test
@@ -478,12 +494,12 @@ public class VastManagerTest {
         assertThat(display.getHeight()).isEqualTo(800);
 
         // Landscape
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager1 = initializeCompanionXmlManagerMock(400, 240, "image/png", "image_url1");
+        final VastDocument.ImageCompanion imageCompanion1 = createImageCompanion(400, 240, "image/png", "image_url1");
         // Portrait
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager2 = initializeCompanionXmlManagerMock(240, 400, "image/bmp", "image_url2");
+        final VastDocument.ImageCompanion imageCompanion2 = createImageCompanion(240, 400, "image/bmp", "image_url2");
 
-        VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager1, companionXmlManager2));
-        assertCompanionAdsAreEqual(companionXmlManager1, bestCompanionAd);
+        VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion1, imageCompanion2));
+        assertCompanionAdsAreEqual(imageCompanion1, bestCompanionAd);
     }
 
     @Test
@@ -493,11 +509,11 @@ public class VastManagerTest {
         assertThat(display.getWidth()).isEqualTo(480);
         assertThat(display.getHeight()).isEqualTo(800);
 
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager1 = initializeCompanionXmlManagerMock(800, 480, "image/invalid", "image_url1");
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager2 = initializeCompanionXmlManagerMock(null, null, "image/bmp", "image_url2");
+        final VastDocument.ImageCompanion imageCompanion1 = createImageCompanion(800, 480, "image/invalid", "image_url1");
+        final VastDocument.ImageCompanion imageCompanion2 = createImageCompanion(null, null, "image/bmp", "image_url2");
 
-        VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager1, companionXmlManager2));
-        assertCompanionAdsAreEqual(companionXmlManager2, bestCompanionAd);
+        VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion1, imageCompanion2));
+        assertCompanionAdsAreEqual(imageCompanion2, bestCompanionAd);
     }
 
     @Test
@@ -507,48 +523,39 @@ public class VastManagerTest {
         assertThat(display.getWidth()).isEqualTo(480);
         assertThat(display.getHeight()).isEqualTo(800);
 
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager1 = initializeCompanionXmlManagerMock(800, 480, "image/invalid", "image_url1");
-        final VastXmlManager.ImageCompanionAdXmlManager companionXmlManager2 = initializeCompanionXmlManagerMock(800, 480, null, "image_url2");
+        final VastDocument.ImageCompanion imageCompanion1 = createImageCompanion(800, 480, "image/invalid", "image_url1");
+        final VastDocument.ImageCompanion imageCompanion2 = createImageCompanion(800, 480, null, "image_url2");
 
-        VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(companionXmlManager1, companionXmlManager2));
+        VastCompanionAd bestCompanionAd = subject.getBestCompanionAd(Arrays.asList(imageCompanion1, imageCompanion2));
         assertThat(bestCompanionAd).isEqualTo(null);
     }
 
-    private VastXmlManager.MediaXmlManager initializeMediaXmlManagerMock(
+    private VastDocument.MediaFile createMediaFile(
             final Integer width,
             final Integer height,
             final String type,
             final String mediaUrl) {
-        VastXmlManager.MediaXmlManager mediaXmlManager = mock(VastXmlManager.MediaXmlManager.class);
-        when(mediaXmlManager.getWidth()).thenReturn(width);
-        when(mediaXmlManager.getHeight()).thenReturn(height);
-        when(mediaXmlManager.getType()).thenReturn(type);
-        when(mediaXmlManager.getMediaUrl()).thenReturn(mediaUrl);
-        return mediaXmlManager;
+        return new VastDocument.MediaFile("progressive", width, height, type, mediaUrl);
     }
 
-    private VastXmlManager.ImageCompanionAdXmlManager initializeCompanionXmlManagerMock(
+    private VastDocument.ImageCompanion createImageCompanion(
             final Integer width,
             final Integer height,
             final String type,
             final String imageUrl) {
-        VastXmlManager.ImageCompanionAdXmlManager companionXmlManager = mock(VastXmlManager.ImageCompanionAdXmlManager.class);
-        when(companionXmlManager.getWidth()).thenReturn(width);
-        when(companionXmlManager.getHeight()).thenReturn(height);
-        when(companionXmlManager.getType()).thenReturn(type);
-        when(companionXmlManager.getImageUrl()).thenReturn(imageUrl);
-        return companionXmlManager;
+        return new VastDocument.ImageCompanion(width, height, type, imageUrl, null,
+                Collections.<String>emptyList());
     }
 
     private void assertCompanionAdsAreEqual(
-            final VastXmlManager.ImageCompanionAdXmlManager imageCompanionAdXmlManager,
+            final VastDocument.ImageCompanion imageCompanion,
             final VastCompanionAd vastCompanionAd) {
         final VastCompanionAd vastCompanionAd1 = new VastCompanionAd(
-                imageCompanionAdXmlManager.getWidth(),
-                imageCompanionAdXmlManager.getHeight(),
-                imageCompanionAdXmlManager.getImageUrl(),
-                imageCompanionAdXmlManager.getClickThroughUrl(),
-                new ArrayList<String>(imageCompanionAdXmlManager.getClickTrackers())
+                imageCompanion.getWidth(),
+                imageCompanion.getHeight(),
+                imageCompanion.getImageUrl(),
+                imageCompanion.getClickThroughUrl(),
+                new ArrayList<String>(imageCompanion.getClickTrackers())
         );
         assertCompanionAdsAreEqual(vastCompanionAd, vastCompanionAd1);
     }
@@ -16,6 +16,10 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+/**
+ * DOM-based VAST parser. {@link VastManager} parses with {@link VastXmlPullParser}; this class is
+ * kept as the reference implementation that the pull parser is tested and benchmarked against.
+ */
 class VastXmlManager {
     private static final String ROOT_TAG = "MPMoVideoXMLDocRoot";
     private static final String ROOT_TAG_OPEN = "<" + ROOT_TAG + ">";
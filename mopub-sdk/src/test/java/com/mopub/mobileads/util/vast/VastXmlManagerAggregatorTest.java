@@ -29,7 +29,7 @@ public class VastXmlManagerAggregatorTest {
     private Semaphore semaphore;
     private VastXmlManagerAggregatorListener vastXmlManagerAggregatorListener;
     private VastXmlManagerAggregator subject;
-    private List<VastXmlManager> vastXmlManagers;
+    private List<VastDocument> vastDocuments;
 
     @Before
     public void setup() {
@@ -41,11 +41,11 @@ public class VastXmlManagerAggregatorTest {
             @Override
             public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
                 Object[] args = invocationOnMock.getArguments();
-                VastXmlManagerAggregatorTest.this.vastXmlManagers = (List<VastXmlManager>) args[0];
+                VastXmlManagerAggregatorTest.this.vastDocuments = (List<VastDocument>) args[0];
                 semaphore.release();
                 return null;
             }
-        }).when(vastXmlManagerAggregatorListener).onAggregationComplete(anyListOf(VastXmlManager.class));
+        }).when(vastXmlManagerAggregatorListener).onAggregationComplete(anyListOf(VastDocument.class));
 
         subject = new VastXmlManagerAggregator(vastXmlManagerAggregatorListener);
     }
@@ -61,11 +61,11 @@ public class VastXmlManagerAggregatorTest {
         subject.execute(TEST_VAST_XML_STRING);
         semaphore.acquire();
 
-        assertThat(vastXmlManagers.size()).isEqualTo(1);
-        assertThat(vastXmlManagers.get(0).getMediaFileUrl()).isEqualTo("https://s3.amazonaws.com/mopub-vast/tapad-video1.mp4");
-        assertThat(vastXmlManagers.get(0).getClickThroughUrl()).isEqualTo(null);
-        assertThat(vastXmlManagers.get(0).getImpressionTrackers().size()).isEqualTo(4);
-        assertThat(vastXmlManagers.get(0).getVideoFirstQuartileTrackers().size()).isEqualTo(1);
+        assertThat(vastDocuments.size()).isEqualTo(1);
+        assertThat(vastDocuments.get(0).getMediaFileUrl()).isEqualTo("https://s3.amazonaws.com/mopub-vast/tapad-video1.mp4");
+        assertThat(vastDocuments.get(0).getClickThroughUrl()).isEqualTo(null);
+        assertThat(vastDocuments.get(0).getImpressionTrackers().size()).isEqualTo(4);
+        assertThat(vastDocuments.get(0).getVideoFirstQuartileTrackers().size()).isEqualTo(1);
     }
 
 }
@@ -0,0 +1,126 @@
+package com.mopub.mobileads.util.vast;
+
+import com.mopub.common.test.support.SdkTestRunner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+@RunWith(SdkTestRunner.class)
+public class VastXmlPullParserTest {
+
+    @Test
+    public void parse_shouldMatchDomParser() throws Exception {
+        assertMatchesDomParser(VastXmlManagerTest.TEST_VAST_XML_STRING);
+        assertMatchesDomParser(VastXmlManagerTest.XML_HEADER_TAG + VastXmlManagerTest.TEST_VAST_XML_STRING);
+        assertMatchesDomParser(VastManagerTest.TEST_VAST_XML_STRING);
+        assertMatchesDomParser(VastManagerTest.TEST_NESTED_VAST_XML_STRING);
+        assertMatchesDomParser(VastManagerTest.TEST_VAST_BAD_NEST_URL_XML_STRING);
+    }
+
+    @Test
+    public void parse_shouldPopulateVastDocument() throws Exception {
+        final VastDocument vastDocument = VastXmlPullParser.parse(VastXmlManagerTest.TEST_VAST_XML_STRING);
+
+        assertThat(vastDocument.getVastAdTagURI()).isEqualTo("http://0.dsp.dev1.mopub.com/xml");
+        assertThat(vastDocument.getImpressionTrackers()).hasSize(4);
+        assertThat(vastDocument.getImpressionTrackers().get(3)).isEqualTo("http://www.mopub.com/imp2");
+        assertThat(vastDocument.getMediaFileUrl())
+                .isEqualTo("http://s3.amazonaws.com/uploads.hipchat.com/10627/429509/t8hqeqf98nvtir7/big_buck_bunny.mp4");
+
+        final List<VastDocument.ImageCompanion> imageCompanions = vastDocument.getImageCompanions();
+        assertThat(imageCompanions).hasSize(7);
+        assertThat(imageCompanions.get(1).getWidth()).isEqualTo(300);
+        assertThat(imageCompanions.get(1).getHeight()).isEqualTo(250);
+        assertThat(imageCompanions.get(1).getType()).isEqualTo("image/png");
+        assertThat(imageCompanions.get(1).getClickTrackers())
+                .containsOnly("http://myTrackingURL/firstCompanionCreativeView", "http://myTrackingURL/secondCompanionCreativeView");
+        assertThat(imageCompanions.get(6).getHeight()).isNull();
+    }
+
+    @Test
+    public void parse_withMalformedXml_shouldThrowXmlPullParserException() throws Exception {
+        try {
+            VastXmlPullParser.parse("<im>going<<<to||***crash></,>CDATA[]YOUR_FACE");
+            fail("Expected malformed xml to be rejected");
+        } catch (XmlPullParserException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void parse_withMalformedNodes_shouldOnlyUseTextBeforeFirstChildElement() throws Exception {
+        final VastDocument vastDocument = VastXmlPullParser.parse("<VAST><Impression id=\"DART\"></Impression><Tracking event=\"start\"><![CDATA[ good ]]><ExtraNode><![CDATA[ bad ]]></ExtraNode></Tracking></VAST>");
+
+        assertThat(vastDocument.getMediaFileUrl()).isNull();
+        assertThat(vastDocument.getImpressionTrackers()).isEmpty();
+        assertThat(vastDocument.getVideoMidpointTrackers()).isEmpty();
+        assertThat(vastDocument.getVideoStartTrackers()).containsExactly("good");
+    }
+
+    @Test
+    public void parse_withLeadingWhitespaceAndXmlHeader_shouldSkipXmlHeader() throws Exception {
+        final VastDocument vastDocument = VastXmlPullParser.parse("\n  " + VastXmlManagerTest.XML_HEADER_TAG
+                + "<VAST><Impression>http://www.mopub.com/imp</Impression></VAST>");
+
+        assertThat(vastDocument.getImpressionTrackers()).containsExactly("http://www.mopub.com/imp");
+    }
+
+    @Test
+    public void vastDocument_shouldNotBeModifiable() throws Exception {
+        final VastDocument vastDocument = VastXmlPullParser.parse(VastManagerTest.TEST_VAST_XML_STRING);
+
+        try {
+            vastDocument.getImpressionTrackers().add("http://www.mopub.com/other");
+            fail("Expected VastDocument lists to be unmodifiable");
+        } catch (UnsupportedOperationException e) {
+            // pass
+        }
+    }
+
+    private static void assertMatchesDomParser(final String vastXml) throws Exception {
+        final VastXmlManager xmlManager = new VastXmlManager();
+        xmlManager.parseVastXml(vastXml);
+        final VastDocument vastDocument = VastXmlPullParser.parse(vastXml);
+
+        assertThat(vastDocument.getVastAdTagURI()).isEqualTo(xmlManager.getVastAdTagURI());
+        assertThat(vastDocument.getImpressionTrackers()).isEqualTo(xmlManager.getImpressionTrackers());
+        assertThat(vastDocument.getVideoStartTrackers()).isEqualTo(xmlManager.getVideoStartTrackers());
+        assertThat(vastDocument.getVideoFirstQuartileTrackers()).isEqualTo(xmlManager.getVideoFirstQuartileTrackers());
+        assertThat(vastDocument.getVideoMidpointTrackers()).isEqualTo(xmlManager.getVideoMidpointTrackers());
+        assertThat(vastDocument.getVideoThirdQuartileTrackers()).isEqualTo(xmlManager.getVideoThirdQuartileTrackers());
+        assertThat(vastDocument.getVideoCompleteTrackers()).isEqualTo(xmlManager.getVideoCompleteTrackers());
+        assertThat(vastDocument.getClickThroughUrl()).isEqualTo(xmlManager.getClickThroughUrl());
+        assertThat(vastDocument.getClickTrackers()).isEqualTo(xmlManager.getClickTrackers());
+        assertThat(vastDocument.getMediaFileUrl()).isEqualTo(xmlManager.getMediaFileUrl());
+
+        final List<VastXmlManager.MediaXmlManager> mediaXmlManagers = xmlManager.getMediaXmlManagers();
+        assertThat(vastDocument.getMediaFiles()).hasSize(mediaXmlManagers.size());
+        for (int i = 0; i < mediaXmlManagers.size(); i++) {
+            final VastDocument.MediaFile mediaFile = vastDocument.getMediaFiles().get(i);
+            assertThat(mediaFile.getDelivery()).isEqualTo(mediaXmlManagers.get(i).getDelivery());
+            assertThat(mediaFile.getWidth()).isEqualTo(mediaXmlManagers.get(i).getWidth());
+            assertThat(mediaFile.getHeight()).isEqualTo(mediaXmlManagers.get(i).getHeight());
+            assertThat(mediaFile.getType()).isEqualTo(mediaXmlManagers.get(i).getType());
+            assertThat(mediaFile.getMediaUrl()).isEqualTo(mediaXmlManagers.get(i).getMediaUrl());
+        }
+
+        final List<VastXmlManager.ImageCompanionAdXmlManager> companionXmlManagers =
+                xmlManager.getCompanionAdXmlManagers();
+        assertThat(vastDocument.getImageCompanions()).hasSize(companionXmlManagers.size());
+        for (int i = 0; i < companionXmlManagers.size(); i++) {
+            final VastDocument.ImageCompanion imageCompanion = vastDocument.getImageCompanions().get(i);
+            assertThat(imageCompanion.getWidth()).isEqualTo(companionXmlManagers.get(i).getWidth());
+            assertThat(imageCompanion.getHeight()).isEqualTo(companionXmlManagers.get(i).getHeight());
+            assertThat(imageCompanion.getType()).isEqualTo(companionXmlManagers.get(i).getType());
+            assertThat(imageCompanion.getImageUrl()).isEqualTo(companionXmlManagers.get(i).getImageUrl());
+            assertThat(imageCompanion.getClickThroughUrl()).isEqualTo(companionXmlManagers.get(i).getClickThroughUrl());
+            assertThat(imageCompanion.getClickTrackers()).isEqualTo(companionXmlManagers.get(i).getClickTrackers());
+        }
+    }
+}
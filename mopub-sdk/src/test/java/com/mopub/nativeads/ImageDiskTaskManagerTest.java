@@ -7,6 +7,7 @@ import android.graphics.Bitmap;
 import com.mopub.common.CacheService;
 import com.mopub.common.CacheServiceTest;
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.nativeads.test.support.MoPubShadowBitmapFactory;
 
 import org.junit.After;
 import org.junit.Before;
@@ -16,6 +17,7 @@ import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.robolectric.Robolectric;
+import org.robolectric.annotation.Config;
 import org.robolectric.tester.org.apache.http.FakeHttpLayer;
 
 import java.util.ArrayList;
@@ -30,6 +32,7 @@ import static org.mockito.Matchers.anyMap;
 import static org.mockito.Mockito.doAnswer;
 
 @RunWith(SdkTestRunner.class)
+@Config(shadows={MoPubShadowBitmapFactory.class})
 public class ImageDiskTaskManagerTest {
 
     @Mock private TaskManagerListener<Bitmap> imageTaskManagerListener;
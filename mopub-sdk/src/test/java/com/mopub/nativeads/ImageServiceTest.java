@@ -1,47 +1,60 @@
 package com.mopub.nativeads;
 
 import android.app.Activity;
+import android.app.ActivityManager;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.widget.ImageView;
 
+import com.mopub.common.BitmapPool;
 import com.mopub.common.CacheService;
 import com.mopub.common.CacheServiceTest;
 import com.mopub.common.DownloadResponse;
 import com.mopub.nativeads.test.support.MoPubShadowBitmap;
+import com.mopub.nativeads.test.support.MoPubShadowBitmapFactory;
 import com.mopub.nativeads.test.support.MoPubShadowDisplay;
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.test.support.TestHttpCacheServer;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.robolectric.Robolectric;
 import org.robolectric.annotation.Config;
 import org.robolectric.tester.org.apache.http.FakeHttpLayer;
+import org.robolectric.tester.org.apache.http.TestHttpResponse;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Semaphore;
 
 import static com.mopub.nativeads.ImageService.ImageServiceListener;
+import static com.mopub.nativeads.ImageService.PreCacheListener;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anySet;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.robolectric.Robolectric.shadowOf;
 
 @RunWith(SdkTestRunner.class)
-@Config(shadows={MoPubShadowBitmap.class, MoPubShadowDisplay.class})
+@Config(shadows={MoPubShadowBitmap.class, MoPubShadowBitmapFactory.class, MoPubShadowDisplay.class})
 public class ImageServiceTest {
     private ImageServiceListener imageServiceListener;
     private Semaphore semaphore;
@@ -98,6 +111,7 @@ public class ImageServiceTest {
     @After
     public void tearDown() throws Exception {
         CacheService.clearAndNullCaches();
+        ImageLoad.clearInFlightLoads();
     }
 
     @Test
@@ -162,6 +176,34 @@ public class ImageServiceTest {
                 .isEqualTo("Bitmap for image_data_1");
     }
 
+    @Test
+    public void get_withUndecodableImageInDiskCache_shouldReplaceItFromNetwork() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(url1, MoPubShadowBitmapFactory.UNDECODABLE_DATA.getBytes());
+        fakeHttpLayer.addPendingHttpResponse(200, imageData1);
+
+        ImageService.get(context, Arrays.asList(url1), imageServiceListener);
+        semaphore.acquire();
+
+        assertThat(fakeHttpLayer.getSentHttpRequestInfos()).hasSize(1);
+        assertThat(shadowOf(bitmaps.get(url1)).getDescription())
+                .isEqualTo("Bitmap for image_data_1");
+        assertThat(CacheService.getFromDiskCache(url1)).isEqualTo(imageData1.getBytes());
+    }
+
+    @Test
+    public void get_withUndecodableDownload_shouldFailAndNotKeepItInDiskCache() throws Exception {
+        CacheService.initialize(context);
+        fakeHttpLayer.addHttpResponseRule(new TestHttpCacheServer(url1,
+                MoPubShadowBitmapFactory.UNDECODABLE_DATA, null, "max-age=3600"));
+
+        ImageService.get(context, Arrays.asList(url1), imageServiceListener);
+        semaphore.acquire();
+
+        verify(imageServiceListener).onFail();
+        assertThat(CacheService.containsKeyDiskCache(url1)).isFalse();
+    }
+
     @Test
     public void get_withImagesInMemoryCacheAndDiskCache_shouldReturnBothImages() throws Exception {
         CacheService.initialize(context);
@@ -307,6 +349,94 @@ public class ImageServiceTest {
         assertThat(bitmaps).isNull();
     }
 
+    @Test
+    public void preCache_withOptionalUrlFailure_shouldSucceedAndReportFailedUrl() throws Exception {
+        CacheService.initialize(context);
+        CacheServiceTest.assertCachesAreEmpty();
+        Robolectric.addHttpResponseRule(url1, imageData1);
+        Robolectric.addHttpResponseRule(url2, new TestHttpResponse(404, ""));
+        final PreCacheListener preCacheListener = mock(PreCacheListener.class);
+
+        ImageService.preCache(context, Arrays.asList(url1), Arrays.asList(url2), preCacheListener);
+
+        verify(preCacheListener).onSuccess(eq(Collections.singleton(url2)));
+        verify(preCacheListener, never()).onFail(anySet());
+        assertThat(CacheService.getFromDiskCache(url1)).isEqualTo(imageData1.getBytes());
+    }
+
+    @Test
+    public void preCache_withRequiredUrlFailure_shouldFailButStillCacheOtherImages() throws Exception {
+        CacheService.initialize(context);
+        CacheServiceTest.assertCachesAreEmpty();
+        Robolectric.addHttpResponseRule(url1, new TestHttpResponse(500, ""));
+        Robolectric.addHttpResponseRule(url2, imageData2);
+        Robolectric.addHttpResponseRule(url3, imageData3);
+        final PreCacheListener preCacheListener = mock(PreCacheListener.class);
+
+        ImageService.preCache(context, Arrays.asList(url1, url2), Arrays.asList(url3),
+                preCacheListener);
+
+        verify(preCacheListener).onFail(eq(Collections.singleton(url1)));
+        verify(preCacheListener, never()).onSuccess(anySet());
+        assertThat(fakeHttpLayer.getSentHttpRequestInfos()).hasSize(3);
+        assertThat(CacheService.containsKeyDiskCache(url2)).isTrue();
+        assertThat(CacheService.containsKeyDiskCache(url3)).isTrue();
+    }
+
+    @Test
+    public void preCache_withUrlBothRequiredAndOptional_shouldTreatItAsRequired() throws Exception {
+        CacheService.initialize(context);
+        CacheServiceTest.assertCachesAreEmpty();
+        Robolectric.addHttpResponseRule(url1, new TestHttpResponse(500, ""));
+        final PreCacheListener preCacheListener = mock(PreCacheListener.class);
+
+        ImageService.preCache(context, Arrays.asList(url1), Arrays.asList(url1), preCacheListener);
+
+        verify(preCacheListener).onFail(eq(Collections.singleton(url1)));
+        assertThat(fakeHttpLayer.getSentHttpRequestInfos()).hasSize(1);
+    }
+
+    @Test
+    public void preCache_shouldOnlyDownloadUrlsMissingFromDiskCacheAndNotDecodeThem() throws Exception {
+        CacheService.initialize(context);
+        CacheServiceTest.assertCachesAreEmpty();
+        CacheService.putToDiskCache(url1, imageData1.getBytes());
+        Robolectric.addHttpResponseRule(url2, imageData2);
+        final PreCacheListener preCacheListener = mock(PreCacheListener.class);
+
+        ImageService.preCache(context, Arrays.asList(url1, url2),
+                Collections.<String>emptyList(), preCacheListener);
+
+        verify(preCacheListener).onSuccess(eq(Collections.<String>emptySet()));
+        assertThat(fakeHttpLayer.getSentHttpRequestInfos()).hasSize(1);
+        assertThat(fakeHttpLayer.getLastSentHttpRequestInfo().getHttpHost().toString())
+                .isEqualTo(url2);
+        assertThat(CacheService.getBitmapLruCache().size()).isEqualTo(0);
+    }
+
+    @Test
+    public void preCache_whileViewLoadsSameUrl_shouldShareOneDownload() throws Exception {
+        CacheService.initialize(context);
+        CacheServiceTest.assertCachesAreEmpty();
+        fakeHttpLayer.addPendingHttpResponse(200, imageData1);
+        final PreCacheListener preCacheListener = mock(PreCacheListener.class);
+
+        Robolectric.getBackgroundScheduler().pause();
+        ImageService.get(Arrays.asList(url1), 64, imageServiceListener);
+        // Lets the disk cache miss through to the network.
+        Robolectric.getBackgroundScheduler().runOneTask();
+        ImageService.preCache(context, Arrays.asList(url1),
+                Collections.<String>emptyList(), preCacheListener);
+        assertThat(ImageDownload.getInFlightDownloadCount()).isEqualTo(1);
+
+        Robolectric.getBackgroundScheduler().unPause();
+        semaphore.acquire();
+
+        assertThat(fakeHttpLayer.getSentHttpRequestInfos()).hasSize(1);
+        verify(preCacheListener).onSuccess(eq(Collections.<String>emptySet()));
+        assertThat(bitmaps.get(url1).getWidth()).isEqualTo(64);
+    }
+
     @Test
     public void putDataInCache_populatesCaches() throws Exception {
         CacheService.initialize(context);
@@ -361,6 +491,32 @@ public class ImageServiceTest {
         assertThat(cacheMisses).containsOnly(url2);
     }
 
+    @Test
+    public void decodeAsync_shouldDecodeOnDecodeExecutorAndDeliverBitmaps() throws Exception {
+        final Map<String, byte[]> imageData = new HashMap<String, byte[]>();
+        imageData.put(url1, imageData1.getBytes());
+        imageData.put(url2, imageData2.getBytes());
+        final Map<String, Bitmap> decoded = new HashMap<String, Bitmap>();
+
+        Robolectric.getBackgroundScheduler().pause();
+        ImageService.decodeAsync(imageData, ImageService.getTargetWidth(), new ImageService.ImageDecodeListener() {
+            @Override
+            public void onDecoded(final Map<String, Bitmap> bitmaps) {
+                decoded.putAll(bitmaps);
+            }
+        });
+
+        // Nothing is decoded until the background executor runs
+        assertThat(decoded).isEmpty();
+
+        Robolectric.getBackgroundScheduler().unPause();
+
+        assertThat(shadowOf(decoded.get(url1)).getDescription())
+                .isEqualTo("Bitmap for image_data_1");
+        assertThat(shadowOf(decoded.get(url2)).getDescription())
+                .isEqualTo("Bitmap for image_data_2");
+    }
+
     @Test
     public void asBitmap_withMaxSize_shouldReturnBitmap() {
 
@@ -380,6 +536,273 @@ public class ImageServiceTest {
         assertThat(bitmap).isNull();
     }
 
+    @Test
+    public void get_withSameUrlAlreadyLoading_shouldShareOneDownload() throws Exception {
+        CacheService.initialize(context);
+        CacheServiceTest.assertCachesAreEmpty();
+        fakeHttpLayer.addPendingHttpResponse(200, imageData1);
+        final ImageServiceListener otherListener = mock(ImageServiceListener.class);
+
+        Robolectric.getBackgroundScheduler().pause();
+        ImageService.get(context, Arrays.asList(url1), imageServiceListener);
+        ImageService.get(context, Arrays.asList(url1), otherListener);
+        assertThat(ImageLoad.getInFlightLoadCount()).isEqualTo(1);
+
+        Robolectric.getBackgroundScheduler().unPause();
+        semaphore.acquire();
+
+        assertThat(fakeHttpLayer.getSentHttpRequestInfos()).hasSize(1);
+        assertThat(shadowOf(bitmaps.get(url1)).getDescription())
+                .isEqualTo("Bitmap for image_data_1");
+        verify(otherListener).onSuccess(anyMap());
+        assertThat(ImageLoad.getInFlightLoadCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void cancel_shouldOnlyCancelLoadOnceNoRequestIsWaitingOnIt() throws Exception {
+        CacheService.initialize(context);
+        CacheServiceTest.assertCachesAreEmpty();
+        fakeHttpLayer.addPendingHttpResponse(200, imageData1);
+        final ImageServiceListener otherListener = mock(ImageServiceListener.class);
+
+        Robolectric.getBackgroundScheduler().pause();
+        final ImageService.ImageRequest first =
+                ImageService.get(context, Arrays.asList(url1), imageServiceListener);
+        final ImageService.ImageRequest second =
+                ImageService.get(context, Arrays.asList(url1), otherListener);
+
+        first.cancel();
+        assertThat(ImageLoad.getInFlightLoadCount()).isEqualTo(1);
+
+        second.cancel();
+        assertThat(ImageLoad.getInFlightLoadCount()).isEqualTo(0);
+
+        Robolectric.getBackgroundScheduler().unPause();
+
+        verify(imageServiceListener, never()).onSuccess(anyMap());
+        verify(otherListener, never()).onSuccess(anyMap());
+        verify(otherListener, never()).onFail();
+        assertThat(CacheService.getFromBitmapCache(url1)).isNull();
+    }
+
+    @Test
+    public void byteArrayToBitmap_withPool_shouldOnlyAllocateForFirstDecodeOfEachSize() throws Exception {
+        CacheService.initialize(context);
+        final BitmapPool bitmapPool = CacheService.getBitmapPool();
+        resetAllocationCounts();
+
+        for (int i = 0; i < 5; i++) {
+            final Bitmap bitmap = ImageService.byteArrayToBitmap(imageData1.getBytes(), 100, bitmapPool);
+            assertThat(bitmap).isNotNull();
+            // As if the bitmap had been cached, then evicted.
+            bitmapPool.put(bitmap);
+        }
+
+        assertThat(getAllocationCount()).isEqualTo(1);
+        assertThat(bitmapPool.getStats().hits).isEqualTo(4);
+    }
+
+    @Test
+    public void byteArrayToBitmap_withoutPool_shouldAllocateForEveryDecode() throws Exception {
+        resetAllocationCounts();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(ImageService.byteArrayToBitmap(imageData1.getBytes(), 100, null)).isNotNull();
+        }
+
+        assertThat(getAllocationCount()).isEqualTo(5);
+    }
+
+    // KitKat, where inBitmap also takes subsampled decodes.
+    @Config(reportSdk = 19)
+    @Test
+    public void byteArrayToBitmap_withPoolAndScaling_shouldReuseSubsampledAndScaledBitmaps() throws Exception {
+        CacheService.initialize(context);
+        final BitmapPool bitmapPool = CacheService.getBitmapPool();
+        resetAllocationCounts();
+
+        for (int i = 0; i < 5; i++) {
+            // Decodes at half size, then scales down to the requested width.
+            final Bitmap bitmap = ImageService.byteArrayToBitmap(imageData1.getBytes(), 40, bitmapPool);
+            assertThat(bitmap.getWidth()).isEqualTo(40);
+            bitmapPool.put(bitmap);
+        }
+
+        assertThat(getAllocationCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void bitmapEvictedFromMemoryCache_shouldGoToPoolUnlessDisplayed() throws Exception {
+        final ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        // A 32MB heap gives a 4MB memory cache with room for three 480x480 main images, and a
+        // 1MB pool with room for one.
+        shadowOf(activityManager).setMemoryClass(32);
+        ImageService.initialize(context);
+        CacheService.initialize(context);
+        final Bitmap displayed = createMainImage();
+        final Bitmap hidden = createMainImage();
+        final ImageView imageView = new ImageView(context);
+
+        ImageService.putBitmapInCache(url1, displayed);
+        ImageViewService.loadImageView(url1, imageView);
+        ImageService.putBitmapInCache(url2, hidden);
+        ImageService.putBitmapInCache(url3, createMainImage());
+        ImageService.putBitmapInCache("http://www.mopub.com/4", createMainImage());
+        ImageService.putBitmapInCache("http://www.mopub.com/5", createMainImage());
+
+        final BitmapPool bitmapPool = CacheService.getBitmapPool();
+        assertThat(bitmapPool.acquire(480, 480, Bitmap.Config.ARGB_8888)).isSameAs(hidden);
+        assertThat(bitmapPool.acquire(480, 480, Bitmap.Config.ARGB_8888)).isNull();
+    }
+
+    @Test
+    public void decodeFromDiskCacheAsync_whenPopulated_shouldDecodeCacheFile() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(url1, imageData1.getBytes());
+        final ImageService.ImageDecodeListener imageDecodeListener =
+                mock(ImageService.ImageDecodeListener.class);
+
+        ImageService.decodeFromDiskCacheAsync(url1, 50, imageDecodeListener);
+
+        final ArgumentCaptor<Map> bitmapsCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(imageDecodeListener).onDecoded(bitmapsCaptor.capture());
+        final Bitmap bitmap = (Bitmap) bitmapsCaptor.getValue().get(url1);
+        assertThat(shadowOf(bitmap).getDescription()).contains("Bitmap for image_data_1");
+        assertThat(bitmap.getWidth()).isEqualTo(50);
+    }
+
+    @Test
+    public void decodeFromDiskCacheAsync_whenEmpty_shouldReturnNullBitmap() throws Exception {
+        CacheService.initialize(context);
+        final ImageService.ImageDecodeListener imageDecodeListener =
+                mock(ImageService.ImageDecodeListener.class);
+
+        ImageService.decodeFromDiskCacheAsync(url1, 50, imageDecodeListener);
+
+        final ArgumentCaptor<Map> bitmapsCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(imageDecodeListener).onDecoded(bitmapsCaptor.capture());
+        assertThat(bitmapsCaptor.getValue()).hasSize(1);
+        assertThat(bitmapsCaptor.getValue().get(url1)).isNull();
+    }
+
+    @Test
+    public void get_withSeveralUrlsInDiskCache_shouldReadThemInOneTask() throws Exception {
+        CacheService.initialize(context);
+        CacheService.putToDiskCache(url1, imageData1.getBytes());
+        CacheService.putToDiskCache(url2, imageData2.getBytes());
+        CacheService.putToDiskCache(url3, imageData3.getBytes());
+        Robolectric.getBackgroundScheduler().pause();
+
+        ImageService.get(context, Arrays.asList(url1, url2, url3), imageServiceListener);
+
+        assertThat(Robolectric.getBackgroundScheduler().enqueuedTaskCount()).isEqualTo(1);
+        Robolectric.getBackgroundScheduler().unPause();
+        semaphore.acquire();
+        assertThat(bitmaps.keySet()).containsOnly(url1, url2, url3);
+        assertThat(fakeHttpLayer.getSentHttpRequestInfos()).isEmpty();
+    }
+
+    @Test
+    public void getBucketedWidth_withUnknownViewSize_shouldReturnTargetWidth() throws Exception {
+        assertThat(ImageService.getBucketedWidth(0)).isEqualTo(ImageService.getTargetWidth());
+    }
+
+    @Test
+    public void getBucketedWidth_shouldRoundUpToPowerOfTwo() throws Exception {
+        assertThat(ImageService.getBucketedWidth(10)).isEqualTo(64);
+        assertThat(ImageService.getBucketedWidth(64)).isEqualTo(64);
+        assertThat(ImageService.getBucketedWidth(100)).isEqualTo(128);
+    }
+
+    @Test
+    public void getBucketedWidth_withViewWiderThanTargetWidth_shouldReturnTargetWidth() throws Exception {
+        final int targetWidth = ImageService.getTargetWidth();
+
+        assertThat(ImageService.getBucketedWidth(targetWidth - 1)).isEqualTo(targetWidth);
+        assertThat(ImageService.getBucketedWidth(targetWidth * 4)).isEqualTo(targetWidth);
+    }
+
+    @Test
+    public void getMemoryCacheKey_shouldOnlyUseUrlForTargetWidth() throws Exception {
+        assertThat(ImageService.getMemoryCacheKey(url1, ImageService.getTargetWidth()))
+                .isEqualTo(url1);
+        assertThat(ImageService.getMemoryCacheKey(url1, 64)).isNotEqualTo(url1);
+        assertThat(ImageService.getMemoryCacheKey(url1, 64))
+                .isNotEqualTo(ImageService.getMemoryCacheKey(url1, 128));
+    }
+
+    @Test
+    public void get_withSameUrlAtTwoWidthsLoading_shouldShareOneDownloadAndDecodeEachWidth() throws Exception {
+        CacheService.initialize(context);
+        CacheServiceTest.assertCachesAreEmpty();
+        fakeHttpLayer.addPendingHttpResponse(200, imageData1);
+        final ImageServiceListener otherListener = mock(ImageServiceListener.class);
+
+        Robolectric.getBackgroundScheduler().pause();
+        ImageService.get(Arrays.asList(url1), 64, imageServiceListener);
+        ImageService.get(Arrays.asList(url1), 32, otherListener);
+        assertThat(ImageLoad.getInFlightLoadCount()).isEqualTo(2);
+
+        Robolectric.getBackgroundScheduler().unPause();
+        semaphore.acquire();
+
+        assertThat(fakeHttpLayer.getSentHttpRequestInfos()).hasSize(1);
+        final ArgumentCaptor<Map> bitmapsCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(otherListener).onSuccess(bitmapsCaptor.capture());
+        assertThat(((Bitmap) bitmapsCaptor.getValue().get(url1)).getWidth()).isEqualTo(32);
+        assertThat(bitmaps.get(url1).getWidth()).isEqualTo(64);
+        assertThat(ImageDownload.getInFlightDownloadCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void cancel_withSameUrlLoadingAtAnotherWidth_shouldKeepSharedDownload() throws Exception {
+        CacheService.initialize(context);
+        CacheServiceTest.assertCachesAreEmpty();
+        fakeHttpLayer.addPendingHttpResponse(200, imageData1);
+
+        Robolectric.getBackgroundScheduler().pause();
+        final ImageService.ImageRequest smallRequest =
+                ImageService.get(Arrays.asList(url1), 64, mock(ImageServiceListener.class));
+        ImageService.get(Arrays.asList(url1), 32, imageServiceListener);
+        // Both disk reads miss, so both loads wait on the download.
+        Robolectric.getBackgroundScheduler().runOneTask();
+        Robolectric.getBackgroundScheduler().runOneTask();
+        assertThat(ImageDownload.getInFlightDownloadCount()).isEqualTo(1);
+
+        smallRequest.cancel();
+        assertThat(ImageDownload.getInFlightDownloadCount()).isEqualTo(1);
+
+        Robolectric.getBackgroundScheduler().unPause();
+        semaphore.acquire();
+
+        assertThat(bitmaps.get(url1).getWidth()).isEqualTo(32);
+        assertThat(ImageService.getBitmapFromMemoryCache(ImageService.getMemoryCacheKey(url1, 64)))
+                .isNull();
+    }
+
+    @Test
+    public void get_withTargetWidth_shouldShareDiskCacheButNotDecodedBitmaps() throws Exception {
+        CacheService.initialize(context);
+        fakeHttpLayer.addPendingHttpResponse(200, imageData1);
+
+        ImageService.get(context, Arrays.asList(url1), imageServiceListener);
+        semaphore.acquire();
+        final Bitmap fullWidthBitmap = bitmaps.get(url1);
+
+        // A small view reads the downloaded image back from disk and decodes its own copy.
+        ImageService.get(Arrays.asList(url1), 64, imageServiceListener);
+        semaphore.acquire();
+        final Bitmap smallBitmap = bitmaps.get(url1);
+
+        assertThat(fakeHttpLayer.getSentHttpRequestInfos()).hasSize(1);
+        assertThat(smallBitmap.getWidth()).isEqualTo(64);
+        assertThat(fullWidthBitmap.getWidth()).isNotEqualTo(64);
+        assertThat(ImageService.getBitmapFromMemoryCache(url1)).isSameAs(fullWidthBitmap);
+        assertThat(ImageService.getBitmapFromMemoryCache(ImageService.getMemoryCacheKey(url1, 64)))
+                .isSameAs(smallBitmap);
+    }
+
     @Test
     public void calculateInSampleSize_withImageSmallerThanRequested_shouldBe1() {
         int nativeWidth = 1024;
@@ -400,6 +823,19 @@ public class ImageServiceTest {
         assertThat(ImageService.calculateInSampleSize(nativeWidth, 512)).isEqualTo(4);
     }
 
+    private static Bitmap createMainImage() {
+        return Bitmap.createBitmap(480, 480, Bitmap.Config.ARGB_8888);
+    }
+
+    private static void resetAllocationCounts() {
+        MoPubShadowBitmapFactory.resetAllocationCount();
+        MoPubShadowBitmap.resetCreateCount();
+    }
+
+    private static int getAllocationCount() {
+        return MoPubShadowBitmapFactory.getAllocationCount() + MoPubShadowBitmap.getCreateCount();
+    }
+
     private static InputStream getInputStreamFromString(final String string) {
         return spy(new ByteArrayInputStream(string.getBytes()));
     }
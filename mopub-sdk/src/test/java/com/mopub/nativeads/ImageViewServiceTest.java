@@ -5,11 +5,13 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.drawable.BitmapDrawable;
+import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import com.mopub.common.CacheService;
 import com.mopub.common.CacheServiceTest;
 import com.mopub.nativeads.test.support.MoPubShadowBitmap;
+import com.mopub.nativeads.test.support.MoPubShadowBitmapFactory;
 import com.mopub.nativeads.test.support.MoPubShadowDisplay;
 import com.mopub.common.test.support.SdkTestRunner;
 
@@ -25,7 +27,7 @@ import static org.fest.assertions.api.Assertions.assertThat;
 import static org.robolectric.Robolectric.shadowOf;
 
 @RunWith(SdkTestRunner.class)
-@Config(shadows={MoPubShadowBitmap.class, MoPubShadowDisplay.class})
+@Config(shadows={MoPubShadowBitmap.class, MoPubShadowBitmapFactory.class, MoPubShadowDisplay.class})
 public class ImageViewServiceTest {
 
     private ImageView imageView;
@@ -53,6 +55,7 @@ public class ImageViewServiceTest {
     @After
     public void tearDown() throws Exception {
         CacheService.clearAndNullCaches();
+        ImageLoad.clearInFlightLoads();
     }
 
     @Test
@@ -147,8 +150,9 @@ public class ImageViewServiceTest {
     public void loadImageView_withTwoNetworkRequests_shouldLoadSecondImageData() throws Exception {
         CacheServiceTest.assertCachesAreEmpty();
         assertThat(imageView.getDrawable()).isNull();
-        fakeHttpLayer.addPendingHttpResponse(200, imageData1);
-        fakeHttpLayer.addPendingHttpResponse(200, imageData2);
+        // Rebinding cancels the first download, so match responses by url rather than by order.
+        Robolectric.addHttpResponseRule(url1, imageData1);
+        Robolectric.addHttpResponseRule(url2, imageData2);
 
         assertThat(ImageViewService.getImageViewUniqueId(imageView)).isNull();
 
@@ -196,6 +200,37 @@ public class ImageViewServiceTest {
         assertThat(imageView.getDrawable()).isNull();
     }
 
+    @Test
+    public void loadImageView_withSizedImageView_shouldNotUseFullWidthBitmap() throws Exception {
+        CacheServiceTest.assertCachesAreEmpty();
+        CacheService.putToBitmapCache(url1, image1);
+        CacheService.putToDiskCache(url1, imageData1.getBytes());
+        imageView.setLayoutParams(new ViewGroup.LayoutParams(50, 50));
+
+        ImageViewService.loadImageView(url1, imageView);
+        Thread.sleep(500);
+
+        final Bitmap bitmap = getBitmapFromImageView(imageView);
+        assertThat(bitmap).isNotSameAs(image1);
+        assertThat(bitmap.getWidth()).isEqualTo(64);
+        assertThat(CacheService.getFromBitmapCache(ImageService.getMemoryCacheKey(url1, 64)))
+                .isSameAs(bitmap);
+    }
+
+    @Test
+    public void getViewSize_shouldUseLargerSideOfMeasuredOrFixedSize() throws Exception {
+        assertThat(ImageViewService.getViewSize(imageView)).isEqualTo(0);
+
+        imageView.setLayoutParams(new ViewGroup.LayoutParams(50, 40));
+        assertThat(ImageViewService.getViewSize(imageView)).isEqualTo(50);
+
+        imageView.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 40));
+        assertThat(ImageViewService.getViewSize(imageView)).isEqualTo(0);
+
+        imageView.layout(0, 0, 30, 70);
+        assertThat(ImageViewService.getViewSize(imageView)).isEqualTo(70);
+    }
+
     static Bitmap getBitmapFromImageView(final ImageView imageView) {
         return ((BitmapDrawable)imageView.getDrawable()).getBitmap();
     }
@@ -4,6 +4,7 @@ import android.app.Activity;
 
 import com.mopub.common.CacheService;
 import com.mopub.nativeads.test.support.MoPubShadowBitmap;
+import com.mopub.nativeads.test.support.MoPubShadowDisplay;
 import com.mopub.common.test.support.SdkTestRunner;
 
 import org.apache.http.HttpRequest;
@@ -23,6 +24,7 @@ import java.util.HashMap;
 
 import static com.mopub.common.util.test.support.CommonUtils.assertHttpRequestsMade;
 import static com.mopub.nativeads.CustomEventNative.CustomEventNativeListener;
+import static org.fest.assertions.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -30,7 +32,7 @@ import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 
 @RunWith(SdkTestRunner.class)
-@Config(shadows={MoPubShadowBitmap.class})
+@Config(shadows={MoPubShadowBitmap.class, MoPubShadowDisplay.class})
 public class MoPubCustomEventNativeTest {
 
     private MoPubCustomEventNative subject;
@@ -101,6 +103,34 @@ public class MoPubCustomEventNativeTest {
         verify(mCustomEventNativeListener).onNativeAdFailed(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
     }
 
+    @Test
+    public void loadNativeAd_withFailedExtrasImageDownload_shouldStillNotifyListenerOfOnNativeAdLoaded() throws Exception {
+        fakeHttpLayer.clearHttpResponseRules();
+        Robolectric.addHttpResponseRule("mainimageurl", "body");
+        Robolectric.addHttpResponseRule("iconimageurl", "body");
+        Robolectric.addHttpResponseRule("extraimageurl", new TestHttpResponse(404, ""));
+
+        subject.loadNativeAd(context, mCustomEventNativeListener, localExtras, serverExtras);
+
+        assertHttpRequestsMade(null, "mainimageurl", "iconimageurl", "extraimageurl");
+        verify(mCustomEventNativeListener).onNativeAdLoaded(any(MoPubCustomEventNative.MoPubForwardingNativeAd.class));
+        verify(mCustomEventNativeListener, never()).onNativeAdFailed(any(NativeErrorCode.class));
+    }
+
+    @Test
+    public void loadNativeAd_withFailedIconImageDownload_shouldNotifyListenerOfOnNativeAdFailed() throws Exception {
+        fakeHttpLayer.clearHttpResponseRules();
+        Robolectric.addHttpResponseRule("mainimageurl", "body");
+        Robolectric.addHttpResponseRule("iconimageurl", new TestHttpResponse(404, ""));
+        Robolectric.addHttpResponseRule("extraimageurl", "body");
+
+        subject.loadNativeAd(context, mCustomEventNativeListener, localExtras, serverExtras);
+
+        verify(mCustomEventNativeListener, never()).onNativeAdLoaded(any(MoPubCustomEventNative.MoPubForwardingNativeAd.class));
+        verify(mCustomEventNativeListener).onNativeAdFailed(NativeErrorCode.IMAGE_DOWNLOAD_FAILURE);
+        assertThat(CacheService.containsKeyDiskCache("mainimageurl")).isTrue();
+    }
+
     @Test
     public void loadNativeAd_withInvalidResponseBody_shouldNotifyListenerOfOnNativeAdFailedAndReturn() throws Exception {
         serverExtras.put(CustomEventNativeAdapter.RESPONSE_BODY_KEY, "{ \"bad json");
@@ -203,7 +203,8 @@ public class MoPubNativeAdRendererTest {
         assertThat(Robolectric.getBackgroundScheduler().enqueuedTaskCount()).isEqualTo(0);
         nativeViewClickListener.onClick(new View(context));
 
-        assertThat(Robolectric.getBackgroundScheduler().enqueuedTaskCount()).isEqualTo(2);
+        // Click tracker ping, tracking queue restore and url resolution
+        assertThat(Robolectric.getBackgroundScheduler().enqueuedTaskCount()).isEqualTo(3);
     }
 
     @Test
@@ -216,8 +217,8 @@ public class MoPubNativeAdRendererTest {
         assertThat(Robolectric.getBackgroundScheduler().enqueuedTaskCount()).isEqualTo(0);
         nativeViewClickListener.onClick(new View(context));
 
-        // 1 task for async ping to click tracker
-        assertThat(Robolectric.getBackgroundScheduler().enqueuedTaskCount()).isEqualTo(1);
+        // 1 task for async ping to click tracker and 1 to restore the tracking queue
+        assertThat(Robolectric.getBackgroundScheduler().enqueuedTaskCount()).isEqualTo(2);
     }
 
     static private void compareNativeViewHolders(final NativeViewHolder actualViewHolder,
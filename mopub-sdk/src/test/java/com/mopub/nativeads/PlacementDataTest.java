@@ -809,6 +809,72 @@ public class PlacementDataTest {
         checkPlacedPositions(20, adsAt15repeating);
     }
 
+    @Test
+    public void placeAds_withRepeatingPositions_shouldNotCapNumberOfAds() {
+        int position = adsRepeating.nextInsertionPosition(0);
+        for (int i = 0; i < 1000; i++) {
+            adsRepeating.placeAd(position, mockNativeAdData);
+            position = adsRepeating.nextInsertionPosition(position);
+        }
+
+        // Every third adjusted position is an ad: 2, 5, 8, ...
+        assertThat(adsRepeating.getPlacedAdPositions()).hasSize(1000);
+        assertThat(adsRepeating.isPlacedAd(2 + 3 * 999)).isTrue();
+        assertThat(adsRepeating.getOriginalPosition(2 + 3 * 999)).isEqualTo(NOT_FOUND);
+        assertThat(adsRepeating.getOriginalPosition(3 + 3 * 999)).isEqualTo(2 + 2 * 999);
+        assertThat(adsRepeating.getAdjustedPosition(2 + 2 * 999)).isEqualTo(3 + 3 * 999);
+        assertThat(position).isEqualTo(2 + 3 * 1000);
+    }
+
+    @Test
+    public void fromAdPositioning_withMoreThan200FixedPositions_shouldKeepAllPositions() {
+        final MoPubNativeAdPositioning.MoPubClientPositioning positioning =
+                MoPubNativeAdPositioning.clientPositioning();
+        for (int i = 0; i < 300; i++) {
+            positioning.addFixedPosition(i * 10);
+        }
+        final PlacementData placementData = PlacementData.fromAdPositioning(positioning);
+
+        assertThat(placementData.shouldPlaceAd(299 * 10 - 299)).isTrue();
+        assertThat(placementData.nextInsertionPosition(299 * 10 - 299)).isEqualTo(NOT_FOUND);
+    }
+
+    @Test
+    public void insertItem_beyondExpandedRepeatingPositions_shouldShiftLaterRepeatingPositions() {
+        adsRepeating.insertItem(100);
+
+        assertThat(adsRepeating.shouldPlaceAd(98)).isTrue();
+        assertThat(adsRepeating.shouldPlaceAd(100)).isFalse();
+        assertThat(adsRepeating.shouldPlaceAd(101)).isTrue();
+        assertThat(adsRepeating.nextInsertionPosition(101)).isEqualTo(103);
+    }
+
+    @Test
+    public void removeItem_beyondExpandedRepeatingPositions_shouldShiftLaterRepeatingPositions() {
+        adsRepeating.removeItem(99);
+
+        assertThat(adsRepeating.shouldPlaceAd(98)).isTrue();
+        assertThat(adsRepeating.shouldPlaceAd(99)).isTrue();
+        assertThat(adsRepeating.shouldPlaceAd(100)).isFalse();
+        assertThat(adsRepeating.nextInsertionPosition(99)).isEqualTo(101);
+    }
+
+    @Test
+    public void insertItem_atTopOfLongFeed_shouldShiftAllPlacedAds() {
+        int position = adsRepeating.nextInsertionPosition(0);
+        for (int i = 0; i < 500; i++) {
+            adsRepeating.placeAd(position, mockNativeAdData);
+            position = adsRepeating.nextInsertionPosition(position);
+        }
+
+        adsRepeating.insertItem(0);
+
+        assertThat(adsRepeating.isPlacedAd(2)).isFalse();
+        assertThat(adsRepeating.isPlacedAd(3)).isTrue();
+        assertThat(adsRepeating.isPlacedAd(3 + 3 * 499)).isTrue();
+        assertThat(adsRepeating.nextInsertionPosition(3 + 3 * 499)).isEqualTo(3 + 3 * 500);
+    }
+
     void checkInsertionPositions(int maxValue, PlacementData placementData, Integer... positions) {
         List<Integer> expected = Arrays.asList(positions);
         List<Integer> actual = new ArrayList<Integer>();
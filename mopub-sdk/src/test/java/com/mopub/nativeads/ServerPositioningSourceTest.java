@@ -3,10 +3,12 @@ package com.mopub.nativeads;
 import android.app.Activity;
 import android.os.Build.VERSION_CODES;
 
+import com.mopub.common.CacheService;
 import com.mopub.common.DownloadResponse;
 import com.mopub.common.DownloadTask;
 import com.mopub.common.DownloadTask.DownloadTaskListener;
 import com.mopub.common.test.support.SdkTestRunner;
+import com.mopub.common.test.support.TestHttpCacheServer;
 import com.mopub.nativeads.MoPubNativeAdPositioning.MoPubClientPositioning;
 import com.mopub.nativeads.PositioningSource.PositioningListener;
 import com.mopub.nativeads.ServerPositioningSource.DownloadTaskProvider;
@@ -14,6 +16,7 @@ import com.mopub.nativeads.ServerPositioningSource.DownloadTaskProvider;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpGet;
 import org.json.JSONException;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -51,6 +54,7 @@ public class ServerPositioningSourceTest {
 
     @Before
     public void setUp() {
+        CacheService.clearAndNullCaches();
         Activity activity = Robolectric.buildActivity(Activity.class).create().get();
         subject = new ServerPositioningSource(activity, mockDownloadTaskProvider);
 
@@ -70,6 +74,11 @@ public class ServerPositioningSourceTest {
         when(mockNotFoundResponse.getStatusCode()).thenReturn(HttpStatus.SC_NOT_FOUND);
     }
 
+    @After
+    public void tearDown() {
+        CacheService.clearAndNullCaches();
+    }
+
     @Config(reportSdk = VERSION_CODES.ICE_CREAM_SANDWICH)
     @Test
     public void loadPositions_atLeastIcs_shouldExecuteDownloadTask() {
@@ -77,6 +86,69 @@ public class ServerPositioningSourceTest {
         verify(mockDownloadTask).executeOnExecutor(any(Executor.class), any(HttpGet.class));
     }
 
+    @Test
+    public void loadPositions_shouldAcceptCompressedResponse() {
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        final ArgumentCaptor<HttpGet> httpGetCaptor = ArgumentCaptor.forClass(HttpGet.class);
+        verify(mockDownloadTask).executeOnExecutor(any(Executor.class), httpGetCaptor.capture());
+        assertThat(httpGetCaptor.getValue().getFirstHeader("Accept-Encoding").getValue())
+                .isEqualTo("gzip, deflate");
+    }
+
+    @Test
+    public void loadPositions_withCachedPositioning_shouldRevalidateAndLoadFromCacheOn304() {
+        Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        CacheService.initializeDiskCache(activity);
+        final TestHttpCacheServer server =
+                new TestHttpCacheServer(null, "{fixed: [{position: 2}]}", "\"v1\"", "no-cache");
+        Robolectric.getFakeHttpLayer().addHttpResponseRule(server);
+        subject = new ServerPositioningSource(activity);
+
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        assertThat(server.getOkCount()).isEqualTo(1);
+        assertThat(server.getNotModifiedCount()).isEqualTo(1);
+        verify(mockPositioningListener, times(2)).onLoad(positioningCaptor.capture());
+        assertThat(positioningCaptor.getValue().getFixedPositions()).containsExactly(2);
+    }
+
+    @Test
+    public void loadPositions_withRejectedFreshBody_shouldDropItAndRetryPastTheCache() {
+        Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        CacheService.initializeDiskCache(activity);
+        final TestHttpCacheServer server = new TestHttpCacheServer(null,
+                "{\"error\":\"WARMING_UP\"}", "\"v1\"", "max-age=3600");
+        Robolectric.getFakeHttpLayer().addHttpResponseRule(server);
+        subject = new ServerPositioningSource(activity);
+
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+
+        final String url = server.getLastRequest().getRequestLine().getUri();
+        assertThat(CacheService.containsKeyDiskCache(url)).isFalse();
+
+        server.setResource("{fixed: [{position: 2}]}", "\"v2\"");
+        Robolectric.getUiThreadScheduler().advanceToLastPostedRunnable();
+
+        assertThat(server.getOkCount()).isEqualTo(2);
+        assertThat(server.getLastRequest().getFirstHeader("If-None-Match")).isNull();
+        verify(mockPositioningListener).onLoad(positioningCaptor.capture());
+        assertThat(positioningCaptor.getValue().getFixedPositions()).containsExactly(2);
+    }
+
+    @Test
+    public void loadPositions_thenRetry_shouldOnlyBypassCacheOnRetry() {
+        subject.loadPositions("test_ad_unit", mockPositioningListener);
+        verify(mockDownloadTaskProvider).get(taskListenerCaptor.capture());
+        verify(mockDownloadTask).setBypassCachedEntry(false);
+
+        taskListenerCaptor.getValue().onComplete("some_url", mockInvalidJsonResponse);
+        Robolectric.getUiThreadScheduler().advanceToLastPostedRunnable();
+
+        verify(mockDownloadTask).setBypassCachedEntry(true);
+    }
+
     @Config(reportSdk = VERSION_CODES.GINGERBREAD_MR1)
     @Test
     public void loadPositions_beforeIcs_shouldExecuteDownloadTask() {
@@ -2,17 +2,37 @@ package com.mopub.nativeads.test.support;
 
 import android.graphics.Bitmap;
 
+import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.shadows.ShadowBitmap;
 
+import static org.robolectric.Robolectric.shadowOf;
+
 // XXX the config for a newly created ShadowBitmap is never set so we need to set it ourselves
 // https://github.com/robolectric/robolectric/issues/876
 @Implements(Bitmap.class)
 public class MoPubShadowBitmap extends ShadowBitmap {
+    private static int sCreateCount;
 
     public MoPubShadowBitmap() {
         // can also be some other config value
         setConfig(Bitmap.Config.ARGB_8888);
     }
-}
 
+    // Blank bitmaps are mutable on a device, but not in our old version of Robolectric.
+    @Implementation
+    public static Bitmap createBitmap(final int width, final int height, final Bitmap.Config config) {
+        final Bitmap bitmap = ShadowBitmap.createBitmap(width, height, config);
+        shadowOf(bitmap).setMutable(true);
+        sCreateCount++;
+        return bitmap;
+    }
+
+    public static int getCreateCount() {
+        return sCreateCount;
+    }
+
+    public static void resetCreateCount() {
+        sCreateCount = 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mopub.nativeads.test.support;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Rect;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowBitmapFactory;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.robolectric.Robolectric.shadowOf;
+
+/* Honors Options.inBitmap and inMutable, decodes file descriptors, and counts the bitmaps decoding allocates. */
+@Implements(BitmapFactory.class)
+public class MoPubShadowBitmapFactory extends ShadowBitmapFactory {
+    /* Data starting with this fails to decode, like a corrupt image or an error page. */
+    public static final String UNDECODABLE_DATA = "not an image";
+
+    private static int sAllocationCount;
+
+    @Implementation
+    public static Bitmap decodeByteArray(final byte[] data,
+            final int offset,
+            final int length,
+            final BitmapFactory.Options options) {
+        if (new String(data, offset, length).startsWith(UNDECODABLE_DATA)) {
+            return null;
+        }
+
+        if (options != null && !options.inJustDecodeBounds && options.inBitmap != null) {
+            return options.inBitmap;
+        }
+
+        final Bitmap bitmap = ShadowBitmapFactory.decodeByteArray(data, offset, length, options);
+        if (bitmap != null && options != null && !options.inJustDecodeBounds) {
+            shadowOf(bitmap).setMutable(options.inMutable);
+            sAllocationCount++;
+        }
+        return bitmap;
+    }
+
+    /* Reads the file into memory and decodes it like a byte array, leaving its offset unchanged. */
+    @Implementation
+    public static Bitmap decodeFileDescriptor(final FileDescriptor fileDescriptor,
+            final Rect outPadding,
+            final BitmapFactory.Options options) {
+        final FileChannel channel = new FileInputStream(fileDescriptor).getChannel();
+        try {
+            final long position = channel.position();
+            final ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() - position));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading
+            }
+            channel.position(position);
+            return decodeByteArray(buffer.array(), 0, buffer.position(), options);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static int getAllocationCount() {
+        return sAllocationCount;
+    }
+
+    public static void resetAllocationCount() {
+        sAllocationCount = 0;
+    }
+}